@@ -0,0 +1,164 @@
+package pl.polsl.covid19.controller;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.polsl.covid19.model.AppModel;
+import pl.polsl.covid19.model.SyntheticCsvGenerator;
+
+/**
+ * Load test of {@link HttpQueryServer} on localhost. Every benchmark thread is a client sending requests
+ * one after another, so the number of concurrent requests equals the number of threads. The default of 64
+ * threads can be raised to thousands of concurrent clients with JMH option {@code -t}, e.g.
+ * {@code -Djmh.args="HttpQueryServerBenchmark -t 2000 -bm sample"} reports latency percentiles
+ * of 2000 concurrent clients.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Threads(64)
+public class HttpQueryServerBenchmark {
+
+  /**
+   * Number of rows of the data.
+   */
+  @Param({"1000", "100000"})
+  public int rows;
+
+  /**
+   * Requested path and query.
+   */
+  @Param({"/api/highest-deaths", "/api/ordered-by-active-cases?limit=100", "/api/tests-per-country?limit=100",
+      "/api/correlation"})
+  public String path;
+
+  /**
+   * Number of threads of the server.
+   */
+  @Param({"16"})
+  public int serverThreads;
+
+  /**
+   * Path of the csv file.
+   */
+  private Path dataPath;
+
+  /**
+   * Server under test.
+   */
+  private HttpQueryServer server;
+
+  /**
+   * Client shared by all benchmark threads.
+   */
+  private HttpClient client;
+
+  /**
+   * Request of the benchmarked path.
+   */
+  private HttpRequest request;
+
+  /**
+   * Request of the benchmarked path with the current ETag.
+   */
+  private HttpRequest conditionalRequest;
+
+  /**
+   * Writes the csv file and starts the server with loaded data.
+   *
+   * @throws IOException          if the file cannot be written
+   * @throws InterruptedException if the first request is interrupted
+   */
+  @Setup
+  public void setup() throws IOException, InterruptedException {
+    dataPath = Files.createTempFile("covid19-benchmark-", ".csv");
+    new SyntheticCsvGenerator(42L).writeRows(dataPath, rows);
+    var appModel = new AppModel(dataPath.toString(), null);
+    appModel.getCovidDataset();
+    server = new HttpQueryServer(appModel, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+        serverThreads);
+    server.start();
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path)).build();
+    var etag = client.send(request, HttpResponse.BodyHandlers.discarding()).headers().firstValue("ETag")
+        .orElseThrow();
+    conditionalRequest = HttpRequest.newBuilder(request.uri()).header("If-None-Match", etag).build();
+  }
+
+  /**
+   * Stops the server and deletes the csv file.
+   *
+   * @throws IOException if the file cannot be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    server.close();
+    Files.deleteIfExists(dataPath);
+  }
+
+  /**
+   * Sends a request and reads the whole streamed response.
+   *
+   * @return length of the response body
+   * @throws IOException          if the request fails
+   * @throws InterruptedException if the request is interrupted
+   */
+  @Benchmark
+  public int get() throws IOException, InterruptedException {
+    return checkStatus(client.send(request, HttpResponse.BodyHandlers.ofByteArray()), 200).body().length;
+  }
+
+  /**
+   * Sends a request with the current ETag, which is answered without body.
+   *
+   * @return status of the response
+   * @throws IOException          if the request fails
+   * @throws InterruptedException if the request is interrupted
+   */
+  @Benchmark
+  public int getNotModified() throws IOException, InterruptedException {
+    return checkStatus(client.send(conditionalRequest, HttpResponse.BodyHandlers.discarding()), 304)
+        .statusCode();
+  }
+
+  /**
+   * Checks status of a response, so failed requests are not measured as successful ones.
+   *
+   * @param response received response
+   * @param status   expected status
+   * @param <T>      type of the response body
+   * @return received response
+   */
+  private static <T> HttpResponse<T> checkStatus(HttpResponse<T> response, int status) {
+    if (response.statusCode() != status) {
+      throw new IllegalStateException("Unexpected status " + response.statusCode() + " of " + response.uri());
+    }
+    return response;
+  }
+}
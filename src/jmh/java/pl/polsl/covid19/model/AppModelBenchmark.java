@@ -0,0 +1,145 @@
+package pl.polsl.covid19.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link AppModel} queries over cached synthetic data. Benchmarks named {@code cold} rebuild
+ * the structures that queries normally keep with the cached data.
+ * Allocation is reported when the benchmark is run with {@code -prof gc}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class AppModelBenchmark {
+
+  /**
+   * Number of rows of the data.
+   */
+  @Param({"1000", "100000", "10000000"})
+  public int rows;
+
+  /**
+   * Path of the csv file.
+   */
+  private Path path;
+
+  /**
+   * Model under test.
+   */
+  private AppModel appModel;
+
+  /**
+   * Cached dataset of the model.
+   */
+  private CovidDataset dataset;
+
+  /**
+   * Writes the csv file and loads it into the model.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  @Setup
+  public void setup() throws IOException {
+    path = Files.createTempFile("covid19-benchmark-", ".csv");
+    new SyntheticCsvGenerator(42L).writeRows(path, rows);
+    appModel = new AppModel(path.toString());
+    dataset = appModel.getCovidDataset();
+  }
+
+  /**
+   * Deletes the csv file.
+   *
+   * @throws IOException if the file cannot be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(path);
+  }
+
+  /**
+   * Finds the record with the highest number of deaths.
+   *
+   * @return found record
+   */
+  @Benchmark
+  public CovidData findCovidRecordWithHighestNumberOfDeaths() {
+    return appModel.findCovidRecordWithHighestNumberOfDeaths();
+  }
+
+  /**
+   * Gets data ordered by active cases through the cached sort index.
+   *
+   * @return ordered data
+   */
+  @Benchmark
+  public List<CovidData> getCovidDataOrderedByActiveCases() {
+    return appModel.getCovidDataOrderedByActiveCases();
+  }
+
+  /**
+   * Sorts rows by active cases without the cached sort index.
+   *
+   * @return ordered row indexes
+   */
+  @Benchmark
+  public int[] getCovidDataOrderedByActiveCasesCold() {
+    return ColumnSort.sortedRows(dataset.column(CovidMetric.ACTIVE_CASES), dataset.size(), true);
+  }
+
+  /**
+   * Finds ten records with the highest number of active cases with a bounded heap.
+   *
+   * @return found records
+   */
+  @Benchmark
+  public List<CovidData> findTopCovidRecordsCold() {
+    var topK = new TopK(10, true);
+    var values = dataset.column(CovidMetric.ACTIVE_CASES);
+    for (var row = 0; row < dataset.size(); row++) {
+      topK.offer(values.get(row), row);
+    }
+    return dataset.asList(topK.drain().rows());
+  }
+
+  /**
+   * Calculates Pearson's coefficient of tests and deaths without the cached correlation matrix.
+   *
+   * @return Pearson's coefficient
+   */
+  @Benchmark
+  public double calculatePearsonsCoefficientCold() {
+    return appModel.calculatePearsonsCoefficient(CovidMetric.TOTAL_TESTS, CovidMetric.TOTAL_DEATHS);
+  }
+
+  /**
+   * Gets all data.
+   *
+   * @return all data
+   */
+  @Benchmark
+  public List<CovidData> getCovidData() {
+    return appModel.getCovidData();
+  }
+}
@@ -0,0 +1,123 @@
+package pl.polsl.covid19.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link CountryIndex} lookups of synthetic country names, as run on every keystroke
+ * of the search box.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CountryIndexBenchmark {
+
+  /**
+   * Number of distinct countries of the data.
+   */
+  @Param({"250", "10000"})
+  public int countries;
+
+  /**
+   * Data of the index.
+   */
+  private CovidDataset dataset;
+
+  /**
+   * Index under test.
+   */
+  private CountryIndex countryIndex;
+
+  /**
+   * Name of an existing country.
+   */
+  private String name;
+
+  /**
+   * Name of an existing country with two swapped characters.
+   */
+  private String misspelledName;
+
+  /**
+   * Writes and reads synthetic data and builds its index.
+   *
+   * @throws IOException if the data cannot be written
+   */
+  @Setup
+  public void setup() throws IOException {
+    var path = Files.createTempFile("covid19-benchmark-", ".csv");
+    try {
+      new SyntheticCsvGenerator(42L, countries, 1.0, 0.0).writeRows(path, countries * 4L);
+      dataset = new CsvFileReader().readCsvFile(path.toString());
+    } finally {
+      Files.deleteIfExists(path);
+    }
+    countryIndex = dataset.getCountryIndex();
+    name = dataset.getCountry(0);
+    var chars = name.toCharArray();
+    var swapped = chars[1];
+    chars[1] = chars[2];
+    chars[2] = swapped;
+    misspelledName = new String(chars);
+  }
+
+  /**
+   * Builds the index.
+   *
+   * @return built index
+   */
+  @Benchmark
+  public CountryIndex build() {
+    return CountryIndex.build(dataset);
+  }
+
+  /**
+   * Finds records of a country by its exact name.
+   *
+   * @return found records
+   */
+  @Benchmark
+  public List<CovidData> find() {
+    return countryIndex.find(name);
+  }
+
+  /**
+   * Searches countries by the first three characters of a name.
+   *
+   * @return found records
+   */
+  @Benchmark
+  public List<CovidData> searchPrefix() {
+    return countryIndex.search(name.substring(0, 3), 50);
+  }
+
+  /**
+   * Searches countries by a misspelled name.
+   *
+   * @return found records
+   */
+  @Benchmark
+  public List<CovidData> searchMisspelled() {
+    return countryIndex.search(misspelledName, 50);
+  }
+}
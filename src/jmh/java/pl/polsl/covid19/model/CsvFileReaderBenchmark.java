@@ -0,0 +1,121 @@
+package pl.polsl.covid19.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures ingestion of synthetic csv files by {@link CsvFileReader} with each available parser.
+ * Files in the filesystem are read by {@link MappedCsvFileReader} when the streaming parser is used.
+ * Allocation is reported when the benchmark is run with {@code -prof gc}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CsvFileReaderBenchmark {
+
+  /**
+   * Name of {@link CsvFileReader.Parser} used to read the data.
+   */
+  @Param({"OPENCSV", "STREAMING"})
+  public String parser;
+
+  /**
+   * Number of rows of the csv file.
+   */
+  @Param({"1000", "100000", "10000000"})
+  public int rows;
+
+  /**
+   * True to decode numeric columns of the streaming parser on first use.
+   */
+  @Param({"true", "false"})
+  public boolean lazyColumns;
+
+  /**
+   * Path of the csv file.
+   */
+  private Path path;
+
+  /**
+   * Csv file read by the benchmark.
+   */
+  private DataFile dataFile;
+
+  /**
+   * Reader under test.
+   */
+  private CsvFileReader csvFileReader;
+
+  /**
+   * Writes the csv file.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  @Setup
+  public void setup() throws IOException {
+    path = Files.createTempFile("covid19-benchmark-", ".csv");
+    new SyntheticCsvGenerator(42L).writeRows(path, rows);
+    dataFile = new DataFile(path.toString());
+    csvFileReader = new CsvFileReader(CsvFileReader.Parser.valueOf(parser), new MappedCsvFileReader(
+        ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(),
+        MappedCsvFileReader.DEFAULT_MIN_CHUNK_SIZE, lazyColumns));
+  }
+
+  /**
+   * Deletes the csv file.
+   *
+   * @throws IOException if the file cannot be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(path);
+  }
+
+  /**
+   * Reads the csv file into a dataset.
+   *
+   * @return read dataset
+   */
+  @Benchmark
+  public CovidDataset readCsvFile() {
+    return csvFileReader.readCsvFile(dataFile).dataset();
+  }
+
+  /**
+   * Reads the csv file and uses two of its columns, as a query filtering by one metric and ordering by another.
+   *
+   * @return sum of values of the columns
+   */
+  @Benchmark
+  public long readCsvFileAndUseTwoColumns() {
+    var dataset = csvFileReader.readCsvFile(dataFile).dataset();
+    var activeCases = dataset.column(CovidMetric.ACTIVE_CASES);
+    var totalDeaths = dataset.column(CovidMetric.TOTAL_DEATHS);
+    var sum = 0L;
+    for (var row = 0; row < dataset.size(); row++) {
+      sum += activeCases.get(row) + totalDeaths.get(row);
+    }
+    return sum;
+  }
+}
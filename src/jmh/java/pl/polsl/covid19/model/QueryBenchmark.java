@@ -0,0 +1,93 @@
+package pl.polsl.covid19.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing and execution of {@link Query}s against synthetic data.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class QueryBenchmark {
+
+  /**
+   * Number of rows of the data.
+   */
+  @Param({"10000", "1000000"})
+  public int rows;
+
+  /**
+   * Text of the measured query.
+   */
+  @Param({
+      "activeCases > 100000 and testsPer1M < 500000 order by deaths desc limit 20",
+      "deaths > 1000 or not (cases < 50000) order by population desc, cases limit 100"})
+  public String text;
+
+  /**
+   * Queried data.
+   */
+  private CovidDataset dataset;
+
+  /**
+   * Query compiled once.
+   */
+  private Query query;
+
+  /**
+   * Writes and reads synthetic data and compiles the query.
+   *
+   * @throws IOException if the data cannot be written
+   */
+  @Setup
+  public void setup() throws IOException {
+    var path = Files.createTempFile("covid19-benchmark-", ".csv");
+    try {
+      new SyntheticCsvGenerator(42L, 250, 1.0, 0.0).writeRows(path, rows);
+      dataset = new CsvFileReader().readCsvFile(path.toString());
+    } finally {
+      Files.deleteIfExists(path);
+    }
+    query = Query.parse(text);
+  }
+
+  /**
+   * Parses and compiles the query.
+   *
+   * @return compiled query
+   */
+  @Benchmark
+  public Query parse() {
+    return Query.parse(text);
+  }
+
+  /**
+   * Executes the compiled query.
+   *
+   * @return matching records
+   */
+  @Benchmark
+  public List<CovidData> execute() {
+    return query.execute(dataset);
+  }
+}
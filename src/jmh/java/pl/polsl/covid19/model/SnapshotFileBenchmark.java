@@ -0,0 +1,127 @@
+package pl.polsl.covid19.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading of synthetic data from a binary {@link SnapshotFile}, to be compared with
+ * {@link CsvFileReaderBenchmark} of the same number of rows, and scans of its columns in each
+ * {@link ColumnStorage}.
+ * Allocation is reported when the benchmark is run with {@code -prof gc}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SnapshotFileBenchmark {
+
+  /**
+   * Number of rows of the data.
+   */
+  @Param({"1000", "100000", "10000000"})
+  public int rows;
+
+  /**
+   * Name of {@link ColumnStorage} of the loaded columns.
+   */
+  @Param({"HEAP", "OFF_HEAP"})
+  public String storage;
+
+  /**
+   * Directory of the csv file and the snapshot.
+   */
+  private Path directory;
+
+  /**
+   * Snapshot under test.
+   */
+  private SnapshotFile snapshotFile;
+
+  /**
+   * Stamp of the csv file.
+   */
+  private DataFile.Stamp stamp;
+
+  /**
+   * Dataset loaded from the snapshot.
+   */
+  private CovidDataset dataset;
+
+  /**
+   * Writes the csv file and its snapshot.
+   *
+   * @throws IOException if the files cannot be written
+   */
+  @Setup
+  public void setup() throws IOException {
+    directory = Files.createTempDirectory("covid19-benchmark-");
+    var path = directory.resolve("data.csv");
+    new SyntheticCsvGenerator(42L).writeRows(path, rows);
+    var dataFile = new DataFile(path.toString());
+    var result = new CsvFileReader().readCsvFile(dataFile);
+    stamp = dataFile.readStamp();
+    snapshotFile = new SnapshotFile(directory.resolve("data.csv.c19snap"), ColumnStorage.valueOf(storage));
+    snapshotFile.write(result.dataset(), result.checksum(), stamp);
+    dataset = snapshotFile.read(stamp).dataset();
+  }
+
+  /**
+   * Deletes the csv file and the snapshot.
+   *
+   * @throws IOException if the files cannot be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    try (var files = Files.list(directory)) {
+      for (var file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  /**
+   * Loads the data from the snapshot.
+   *
+   * @return loaded dataset
+   */
+  @Benchmark
+  public CovidDataset readSnapshot() {
+    return snapshotFile.read(stamp).dataset();
+  }
+
+  /**
+   * Sums two columns of the loaded dataset, as a query filtering by one metric and ordering by another.
+   *
+   * @return sum of values of the columns
+   */
+  @Benchmark
+  public long scanTwoColumns() {
+    var activeCases = dataset.column(CovidMetric.ACTIVE_CASES);
+    var totalDeaths = dataset.column(CovidMetric.TOTAL_DEATHS);
+    var sum = 0L;
+    for (var row = 0; row < dataset.size(); row++) {
+      sum += activeCases.get(row) + totalDeaths.get(row);
+    }
+    return sum;
+  }
+}
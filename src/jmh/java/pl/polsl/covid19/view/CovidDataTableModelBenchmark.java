@@ -0,0 +1,122 @@
+package pl.polsl.covid19.view;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.polsl.covid19.model.AppModel;
+import pl.polsl.covid19.model.CovidDataset;
+import pl.polsl.covid19.model.CovidMetric;
+import pl.polsl.covid19.model.SyntheticCsvGenerator;
+
+/**
+ * Measures conversion of covid data for result tables of {@link AppView}. Opening a table reads only
+ * the visible rows, reading all cells corresponds to the full copy made before tables became lazy.
+ * Allocation is reported when the benchmark is run with {@code -prof gc}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CovidDataTableModelBenchmark {
+
+  /**
+   * Number of rows rendered on the first screen of a table.
+   */
+  private static final int VISIBLE_ROWS = 30;
+
+  /**
+   * Number of rows of the data.
+   */
+  @Param({"1000", "100000", "10000000"})
+  public int rows;
+
+  /**
+   * Path of the csv file.
+   */
+  private Path path;
+
+  /**
+   * Dataset shown by the tables.
+   */
+  private CovidDataset dataset;
+
+  /**
+   * Writes the csv file and loads it.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  @Setup
+  public void setup() throws IOException {
+    path = Files.createTempFile("covid19-benchmark-", ".csv");
+    new SyntheticCsvGenerator(42L).writeRows(path, rows);
+    dataset = new AppModel(path.toString()).getCovidDataset();
+    dataset.buildSortIndex(CovidMetric.ACTIVE_CASES, true);
+  }
+
+  /**
+   * Deletes the csv file.
+   *
+   * @throws IOException if the file cannot be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(path);
+  }
+
+  /**
+   * Opens the table of countries ordered by active cases and renders its first screen.
+   *
+   * @param blackhole consumer of rendered cells
+   */
+  @Benchmark
+  public void openOrderedByActiveCasesTable(Blackhole blackhole) {
+    var tableModel = new CovidDataTableModel(dataset, CovidMetric.ACTIVE_CASES);
+    tableModel.sortBy(CovidDataTableModel.METRIC_COLUMN, true);
+    renderRows(tableModel, Math.min(VISIBLE_ROWS, tableModel.getRowCount()), blackhole);
+  }
+
+  /**
+   * Reads all cells of the table of tests per country.
+   *
+   * @param blackhole consumer of rendered cells
+   */
+  @Benchmark
+  public void readAllTestsPerCountryCells(Blackhole blackhole) {
+    var tableModel = new CovidDataTableModel(dataset, CovidMetric.TOTAL_TESTS);
+    renderRows(tableModel, tableModel.getRowCount(), blackhole);
+  }
+
+  /**
+   * Reads cells of given number of the first rows of a table.
+   *
+   * @param tableModel model of the table
+   * @param rowCount   number of rows to read
+   * @param blackhole  consumer of read cells
+   */
+  private void renderRows(CovidDataTableModel tableModel, int rowCount, Blackhole blackhole) {
+    for (var row = 0; row < rowCount; row++) {
+      for (var column = 0; column < tableModel.getColumnCount(); column++) {
+        blackhole.consume(tableModel.getValueAt(row, column));
+      }
+    }
+  }
+}
@@ -1,29 +1,48 @@
 package pl.polsl.covid19;
 
 import pl.polsl.covid19.controller.AppController;
+import pl.polsl.covid19.controller.ConsoleController;
 
 
 /**
  * Main application class that handles application run and initializes app controller.
  *
  * @author Krzysztof Franków
- * @version 1.2
+ * @version 1.3
  */
 public class Covid19App {
 
   /**
    * Main function for the covid19 application.
    *
-   * @param args a list of console arguments. Accepts one number in range of 1 to 4 indicating a number of task that
-   *             should be performed. In case of passing incorrect number or unsupported number of arguments,
-   *             the app will present simple console menu and will allow user to select a task.
+   * @param args a list of console arguments. Without arguments the graphical interface is started.
+   *             Otherwise the application runs in headless batch mode: the first argument is a number in range
+   *             of 1 to 4 or a name of the task that should be performed, followed by options such as the input
+   *             file and the output format. Results are written to the standard output as csv or JSON Lines.
+   *             In case of passing incorrect task or options, the app prints usage and exits with code 2.
    *             Application uses the opencsv library that need to be included into dependencies while running.
    *             Library is included in jar file containing jar-with-dependencies in name.
    *             <p>
    *             Example console command for running application task 1 in command line:
    *             java -jar pl.polsl.Covid19-1.0-SNAPSHOT-jar-with-dependencies.jar 1
+   *             <p>
+   *             Example console command for writing 20 countries with most deaths from a file as JSON Lines:
+   *             java -jar pl.polsl.Covid19-1.0-SNAPSHOT-jar-with-dependencies.jar ordered --metric total_deaths
+   *             --limit 20 --input /data/CovidLive.csv --format jsonl
    */
   public static void main(String... args) {
+    if (args.length == 0) {
+      startGraphicalInterface();
+      return;
+    }
+    System.setProperty("java.awt.headless", "true");
+    System.exit(new ConsoleController(System.out, System.err).run(args));
+  }
+
+  /**
+   * Starts the graphical interface. Kept in a separate method, so the batch mode never loads its classes.
+   */
+  private static void startGraphicalInterface() {
     new AppController();
   }
 }
@@ -1,16 +1,30 @@
-
 package pl.polsl.covid19.controller;
 
 import java.awt.event.ActionListener;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
 import pl.polsl.covid19.model.AppException;
+import pl.polsl.covid19.model.AppMetrics;
 import pl.polsl.covid19.model.AppModel;
+import pl.polsl.covid19.model.CovidDataset;
+import pl.polsl.covid19.model.CovidMetric;
+import pl.polsl.covid19.model.DatasetChangeEvent;
 import pl.polsl.covid19.view.AppView;
+import pl.polsl.covid19.view.CovidDataTableModel;
 
 /**
  * Class will be used to read user input.
+ * Model operations are run in background by {@link AsyncTaskRunner}, so the GUI stays responsive.
+ * Changes of the data file are loaded in background and shown in the current table. Tables are ordered
+ * by a clicked column only after the order is prepared in background, so sorting never blocks the GUI.
+ * Countries are searched on every change of the search box by a separate runner, so typing does not cancel
+ * other operations.
  *
  * @author Krzysztof Franków
- * @version 1.2
+ * @version 1.8
  */
 public class AppController {
 
@@ -19,6 +33,11 @@ public class AppController {
    */
   private static final String DATA_FILENAME = "CovidLive.csv";
 
+  /**
+   * Maximal number of records shown as results of the country search.
+   */
+  private static final int COUNTRY_SEARCH_LIMIT = 50;
+
   /**
    * Instance of app model used for business application logic.
    */
@@ -29,6 +48,16 @@ public class AppController {
    */
   private final AppView appView;
 
+  /**
+   * Runner of model operations.
+   */
+  private final AsyncTaskRunner asyncTaskRunner;
+
+  /**
+   * Runner of country searches, each search cancels only the previous search.
+   */
+  private final AsyncTaskRunner countrySearchRunner;
+
   /**
    * Class constructor that initializes view with action listeners.
    */
@@ -36,7 +65,45 @@ public class AppController {
     appView = new AppView(countryWithHighestNumberOfDeathsActionListener(),
         dataOrderedByActiveCasesActionListener(),
         numberOfTestsByCountryActionListener(),
-        pearsonsCoefficientActionListener());
+        pearsonsCoefficientActionListener(),
+        countrySearchListener(),
+        sortListener());
+    asyncTaskRunner = new AsyncTaskRunner(appView::showProgress, appView::handlePrintErrorPopup);
+    countrySearchRunner = new AsyncTaskRunner((percent, message) -> {
+    }, appView::handlePrintErrorPopup);
+    appModel.addDatasetChangeListener(this::dataChanged);
+    try {
+      appModel.startWatching();
+    } catch (AppException e) {
+      // data file packaged in the jar cannot change
+    }
+    AppMetrics.getInstance().export();
+  }
+
+  /**
+   * Shows new version of covid data loaded after the data file changed. Called on the loading thread,
+   * so the orders of the shown tables are prepared before the view is updated.
+   *
+   * @param event description of the change
+   */
+  private void dataChanged(DatasetChangeEvent event) {
+    var dataset = event.getDataset();
+    var sortIndexes = new ArrayList<Runnable>();
+    try {
+      SwingUtilities.invokeAndWait(() -> {
+        for (var tableModel : appView.getUpdatedTableModels()) {
+          var column = tableModel.getSortColumn();
+          var descending = tableModel.isDescending();
+          sortIndexes.add(() -> tableModel.buildSortIndex(dataset, column, descending));
+        }
+      });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (InvocationTargetException e) {
+      throw new AppException("Unable to read order of the shown tables", e.getCause());
+    }
+    sortIndexes.forEach(Runnable::run);
+    SwingUtilities.invokeLater(() -> appView.showUpdatedData(dataset));
   }
 
   /**
@@ -45,14 +112,10 @@ public class AppController {
    * @return action listener of finding country with highest number of deaths
    */
   private ActionListener countryWithHighestNumberOfDeathsActionListener() {
-    return e -> {
-      try {
-        appView.showCountryWithHighestNumberOfDeaths(
-            appModel.findCovidRecordWithHighestNumberOfDeaths());
-      } catch (AppException ex) {
-        appView.handlePrintErrorPopup(ex.getMessage());
-      }
-    };
+    return e -> asyncTaskRunner.submit("highestNumberOfDeaths", progress -> {
+      loadData(progress);
+      return appModel.findCovidRecordWithHighestNumberOfDeaths();
+    }, appView::showCountryWithHighestNumberOfDeaths);
   }
 
   /**
@@ -61,14 +124,12 @@ public class AppController {
    * @return action of finding covid data ordered by active cases
    */
   private ActionListener dataOrderedByActiveCasesActionListener() {
-    return e -> {
-      try {
-        appView.showCountriesOrderedByActiveCases(
-            appModel.getCovidDataOrderedByActiveCases());
-      } catch (AppException ex) {
-        appView.handlePrintErrorPopup(ex.getMessage());
-      }
-    };
+    return e -> asyncTaskRunner.submit("orderedByActiveCases", progress -> {
+      var dataset = loadData(progress);
+      progress.onProgress(50, "Sorting countries...");
+      dataset.buildSortIndex(CovidMetric.ACTIVE_CASES, true);
+      return dataset;
+    }, appView::showCountriesOrderedByActiveCases);
   }
 
   /**
@@ -77,13 +138,8 @@ public class AppController {
    * @return action listener of finding number of tests by country
    */
   private ActionListener numberOfTestsByCountryActionListener() {
-    return e -> {
-      try {
-        appView.showNumberOfTestsPerContry(appModel.getCovidData());
-      } catch (AppException ex) {
-        appView.handlePrintErrorPopup(ex.getMessage());
-      }
-    };
+    return e -> asyncTaskRunner.submit("numberOfTestsByCountry", this::loadData,
+        appView::showNumberOfTestsPerContry);
   }
 
   /**
@@ -93,11 +149,76 @@ public class AppController {
    */
   private ActionListener pearsonsCoefficientActionListener() {
     return e -> {
-      try {
-        appView.showFeatureYetToBeImplementedMessage();
-      } catch (AppException ex) {
-        appView.handlePrintErrorPopup(ex.getMessage());
+      var first = appView.getFirstPearsonsMetric();
+      var second = appView.getSecondPearsonsMetric();
+      asyncTaskRunner.submit("pearsonsCoefficient:" + first + ":" + second, progress -> {
+        loadData(progress);
+        progress.onProgress(50, "Calculating coefficient...");
+        return appModel.calculatePearsonsCoefficient(first, second);
+      }, appView::showPearsonsCoefficient);
+    };
+  }
+
+  /**
+   * Defines a listener of the country search box. Each change of the query cancels the search of the previous one.
+   * Clearing the box restores the view shown before the search.
+   *
+   * @return listener searching countries matching the text of the search box
+   */
+  private Consumer<String> countrySearchListener() {
+    return query -> {
+      if (query.isBlank()) {
+        countrySearchRunner.submit("countrySearch:", progress -> Boolean.TRUE,
+            cleared -> appView.clearCountrySearchResults());
+        return;
       }
+      countrySearchRunner.submit("countrySearch:" + query,
+          progress -> CovidDataset.of(appModel.searchCountries(query, COUNTRY_SEARCH_LIMIT)),
+          appView::showCountrySearchResults);
     };
   }
+
+  /**
+   * Defines a listener of clicks on column headers of tables. The order of rows by the clicked column
+   * is prepared in background and the table is ordered by the column when it is ready.
+   *
+   * @return listener ordering the table by the clicked column
+   */
+  private BiConsumer<CovidDataTableModel, Integer> sortListener() {
+    return (tableModel, column) -> sortTable(tableModel, column, tableModel.isToggledDescending(column));
+  }
+
+  /**
+   * Orders a table by a column after the order of its rows is prepared in background. If the table shows
+   * a new version of the data by then, the order is prepared again for that version.
+   *
+   * @param tableModel model of the ordered table
+   * @param column     index of the column to order by
+   * @param descending true to order from the highest value
+   */
+  private void sortTable(CovidDataTableModel tableModel, int column, boolean descending) {
+    var dataset = tableModel.getDataset();
+    asyncTaskRunner.submit("sort:" + System.identityHashCode(tableModel) + ":" + column + ":" + descending,
+        progress -> {
+          tableModel.buildSortIndex(dataset, column, descending);
+          return dataset;
+        }, sorted -> {
+          if (tableModel.getDataset() == sorted) {
+            tableModel.sortBy(column, descending);
+          } else {
+            sortTable(tableModel, column, descending);
+          }
+        });
+  }
+
+  /**
+   * Loads covid data if it is not cached yet, reporting progress of the loading.
+   *
+   * @param progress listener receiving progress
+   * @return loaded covid data
+   */
+  private CovidDataset loadData(AsyncTaskRunner.ProgressListener progress) {
+    progress.onProgress(0, "Loading data...");
+    return appModel.getCovidDataset();
+  }
 }
@@ -0,0 +1,231 @@
+package pl.polsl.covid19.controller;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.swing.SwingWorker;
+import pl.polsl.covid19.model.AppException;
+
+/**
+ * Runs model tasks on a bounded pool of background threads and passes their results and progress back to
+ * the Swing Event Dispatch Thread. Only one task runs at a time: submitting a task cancels the running one,
+ * unless both have the same key, in which case the duplicate request is ignored. Methods of this class must
+ * be called on the Event Dispatch Thread.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+public class AsyncTaskRunner {
+
+  /**
+   * Default number of background threads.
+   */
+  private static final int DEFAULT_THREAD_COUNT = 2;
+
+  /**
+   * Executor running the tasks.
+   */
+  private final ExecutorService executor;
+
+  /**
+   * Receives progress of the running task on the Event Dispatch Thread.
+   */
+  private final ProgressListener progressListener;
+
+  /**
+   * Receives error messages of failed tasks on the Event Dispatch Thread.
+   */
+  private final Consumer<String> errorHandler;
+
+  /**
+   * Currently running task or null.
+   */
+  private TaskWorker<?> currentWorker;
+
+  /**
+   * Background task that can report its progress.
+   *
+   * @param <T> type of the task result
+   */
+  @FunctionalInterface
+  public interface Task<T> {
+
+    /**
+     * Runs the task.
+     *
+     * @param progress listener receiving progress of the task
+     * @return result of the task
+     */
+    T run(ProgressListener progress);
+  }
+
+  /**
+   * Receives progress of a task.
+   */
+  @FunctionalInterface
+  public interface ProgressListener {
+
+    /**
+     * Reports progress of a task.
+     *
+     * @param percent progress in range of 0 to 100
+     * @param message description of the current step
+     */
+    void onProgress(int percent, String message);
+  }
+
+  /**
+   * AsyncTaskRunner constructor with default pool of background threads.
+   *
+   * @param progressListener receives progress of the running task on the Event Dispatch Thread
+   * @param errorHandler     receives error messages of failed tasks on the Event Dispatch Thread
+   */
+  public AsyncTaskRunner(ProgressListener progressListener, Consumer<String> errorHandler) {
+    this(createExecutor(DEFAULT_THREAD_COUNT), progressListener, errorHandler);
+  }
+
+  /**
+   * AsyncTaskRunner constructor.
+   *
+   * @param executor         executor running the tasks
+   * @param progressListener receives progress of the running task on the Event Dispatch Thread
+   * @param errorHandler     receives error messages of failed tasks on the Event Dispatch Thread
+   */
+  public AsyncTaskRunner(ExecutorService executor, ProgressListener progressListener,
+                         Consumer<String> errorHandler) {
+    this.executor = executor;
+    this.progressListener = progressListener;
+    this.errorHandler = errorHandler;
+  }
+
+  /**
+   * Submits a task. If a task with the same key is still running, the request is ignored.
+   * Otherwise the running task is cancelled and its result is discarded.
+   *
+   * @param key       key identifying the request
+   * @param task      task to run in background
+   * @param onSuccess receives result of the task on the Event Dispatch Thread
+   * @param <T>       type of the task result
+   */
+  public <T> void submit(String key, Task<T> task, Consumer<T> onSuccess) {
+    if (currentWorker != null && !currentWorker.isDone()) {
+      if (currentWorker.key.equals(key)) {
+        return;
+      }
+      currentWorker.cancel(true);
+    }
+    currentWorker = new TaskWorker<>(key, task, onSuccess);
+    executor.execute(currentWorker);
+  }
+
+  /**
+   * Cancels the running task and stops the background threads.
+   */
+  public void shutdown() {
+    if (currentWorker != null) {
+      currentWorker.cancel(true);
+    }
+    executor.shutdownNow();
+  }
+
+  /**
+   * Creates a bounded pool of daemon threads.
+   *
+   * @param threadCount number of threads
+   * @return created executor
+   */
+  private static ExecutorService createExecutor(int threadCount) {
+    var threadNumber = new AtomicInteger();
+    return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(), runnable -> {
+          var thread = new Thread(runnable, "covid19-worker-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * Progress of a task.
+   *
+   * @param percent progress in range of 0 to 100
+   * @param message description of the current step
+   */
+  private record Progress(int percent, String message) {
+  }
+
+  /**
+   * Swing worker running a single task.
+   *
+   * @param <T> type of the task result
+   */
+  private class TaskWorker<T> extends SwingWorker<T, Progress> {
+
+    /**
+     * Key identifying the request.
+     */
+    private final String key;
+
+    /**
+     * Task to run in background.
+     */
+    private final Task<T> task;
+
+    /**
+     * Receives result of the task.
+     */
+    private final Consumer<T> onSuccess;
+
+    /**
+     * TaskWorker constructor.
+     *
+     * @param key       key identifying the request
+     * @param task      task to run in background
+     * @param onSuccess receives result of the task
+     */
+    TaskWorker(String key, Task<T> task, Consumer<T> onSuccess) {
+      this.key = key;
+      this.task = task;
+      this.onSuccess = onSuccess;
+    }
+
+    @Override
+    protected T doInBackground() {
+      return task.run((percent, message) -> {
+        if (!isCancelled()) {
+          publish(new Progress(percent, message));
+        }
+      });
+    }
+
+    @Override
+    protected void process(List<Progress> chunks) {
+      if (!isCancelled()) {
+        var latest = chunks.get(chunks.size() - 1);
+        progressListener.onProgress(latest.percent(), latest.message());
+      }
+    }
+
+    @Override
+    protected void done() {
+      if (isCancelled()) {
+        return;
+      }
+      try {
+        onSuccess.accept(get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (CancellationException e) {
+        // result of a cancelled task is discarded
+      } catch (ExecutionException e) {
+        var cause = e.getCause();
+        errorHandler.accept(cause instanceof AppException ? cause.getMessage() : "Unexpected error: " + cause);
+      }
+    }
+  }
+}
@@ -0,0 +1,602 @@
+package pl.polsl.covid19.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import pl.polsl.covid19.model.AppException;
+import pl.polsl.covid19.model.AppMetrics;
+import pl.polsl.covid19.model.AppModel;
+import pl.polsl.covid19.model.CovidMetric;
+import pl.polsl.covid19.model.SyntheticCsvGenerator;
+import pl.polsl.covid19.view.ConsoleView;
+import pl.polsl.covid19.view.ConsoleView.OutputFormat;
+
+/**
+ * Controller of the headless batch mode. Runs a single task given by command line arguments against any
+ * data file and writes the results to the console with {@link ConsoleView}, or serves the queries over HTTP
+ * with {@link HttpQueryServer}. No AWT or Swing classes are used, so the mode can be run by scheduled jobs
+ * without a display.
+ *
+ * @author Krzysztof Franków
+ * @version 1.5
+ */
+public class ConsoleController {
+
+  /**
+   * Exit code of a successfully run task.
+   */
+  public static final int EXIT_SUCCESS = 0;
+
+  /**
+   * Exit code of a task that failed while running.
+   */
+  public static final int EXIT_FAILURE = 1;
+
+  /**
+   * Exit code of invalid command line arguments.
+   */
+  public static final int EXIT_USAGE = 2;
+
+  /**
+   * Name of the default file with covid data.
+   */
+  private static final String DATA_FILENAME = "CovidLive.csv";
+
+  /**
+   * Description of command line arguments.
+   */
+  private static final String USAGE = """
+      Usage: java -jar pl.polsl.Covid19-1.0-SNAPSHOT-jar-with-dependencies.jar <task> [options]
+             java -jar pl.polsl.Covid19-1.0-SNAPSHOT-jar-with-dependencies.jar query "<query>" [options]
+             java -jar pl.polsl.Covid19-1.0-SNAPSHOT-jar-with-dependencies.jar generate <file> <rows|size> [options]
+      Tasks:
+        1, highest-deaths            country with the highest value of a metric (default total_deaths)
+        2, ordered-by-active-cases   countries ordered by active cases
+        3, tests-per-country         number of tests of each country
+        4, pearson                   Pearson's coefficient of two metrics
+        ordered                      countries ordered by a metric (default active_cases)
+        top                          countries with the highest values of a metric (default total_deaths)
+        correlation                  Pearson's and Spearman's coefficients of all pairs of metrics
+        serve                        HTTP API of the queries at http://localhost:<port>/api/
+        query                        records matching a query, e.g.
+                                     "active > 100000 and testsPer1M < 500000 order by deaths desc limit 20"
+        generate                     synthetic data file of a number of rows or of a size, e.g. 10GB
+      Options:
+        --input <path>               data file (default CovidLive.csv)
+        --format csv|jsonl|json      output format (default csv)
+        --metric <metric>            metric of highest-deaths, ordered and top tasks
+        --metrics <metric,...>|all   written metrics, two correlated metrics for pearson
+        --asc                        order from the lowest value
+        --offset <n>                 number of skipped records of ordered tasks
+        --limit <n>                  maximal number of records of ordered and top tasks
+        --port <n>                   port of the HTTP API (default 8080)
+        --threads <n>                number of threads handling HTTP requests
+        --seed <n>                   seed of generated data (default 0)
+        --skew <x>                   Zipf exponent of generated country frequencies (default 1.0)
+        --dirty-rate <x>             probability of a generated dirty value (default 0.0)
+        --countries <n>              number of generated countries (default 10000)
+      Metrics: %s
+      Without arguments the graphical interface is started.
+      """;
+
+  /**
+   * Stream the results are written to.
+   */
+  private final OutputStream out;
+
+  /**
+   * Stream the errors and usage are written to.
+   */
+  private final PrintStream err;
+
+  /**
+   * ConsoleController constructor.
+   *
+   * @param out stream the results are written to
+   * @param err stream the errors and usage are written to
+   */
+  public ConsoleController(OutputStream out, PrintStream err) {
+    this.out = out;
+    this.err = err;
+  }
+
+  /**
+   * Runs a task given by command line arguments.
+   *
+   * @param args command line arguments
+   * @return exit code of the application
+   */
+  public int run(String... args) {
+    Options options;
+    try {
+      options = Options.parse(args);
+    } catch (AppException e) {
+      err.println(e.getMessage());
+      err.printf(USAGE, metricNames());
+      return EXIT_USAGE;
+    }
+    try {
+      runTask(options);
+      return EXIT_SUCCESS;
+    } catch (AppException e) {
+      err.println(e.getMessage());
+      return EXIT_FAILURE;
+    }
+  }
+
+  /**
+   * Runs a task and writes its results.
+   *
+   * @param options parsed command line arguments
+   */
+  private void runTask(Options options) {
+    if (options.task() == Task.GENERATE) {
+      generate(options.generation());
+      return;
+    }
+    var appModel = new AppModel(options.input());
+    var view = new ConsoleView(out, options.format());
+    switch (options.task()) {
+      case HIGHEST_DEATHS -> {
+        var metric = options.metric(CovidMetric.TOTAL_DEATHS);
+        view.showRecords(List.of(appModel.findCovidRecordWithHighest(metric)), options.metrics(metric));
+      }
+      case ORDERED_BY_ACTIVE_CASES -> view.showRecords(appModel.getCovidDataOrderedBy(CovidMetric.ACTIVE_CASES,
+          !options.ascending(), options.offset(), options.limit(Integer.MAX_VALUE)),
+          options.metrics(CovidMetric.ACTIVE_CASES));
+      case TESTS_PER_COUNTRY -> view.showRecords(appModel.getCovidData(), options.metrics(CovidMetric.TOTAL_TESTS));
+      case ORDERED -> {
+        var metric = options.metric(CovidMetric.ACTIVE_CASES);
+        view.showRecords(appModel.getCovidDataOrderedBy(metric, !options.ascending(), options.offset(),
+            options.limit(Integer.MAX_VALUE)), options.metrics(metric));
+      }
+      case TOP -> {
+        var metric = options.metric(CovidMetric.TOTAL_DEATHS);
+        view.showRecords(appModel.streamTopCovidRecords(metric, options.limit(10)), options.metrics(metric));
+      }
+      case PEARSON -> {
+        var metrics = options.metrics(CovidMetric.TESTS_PER_MILLION, CovidMetric.DEATHS_PER_MILLION);
+        if (metrics.size() != 2) {
+          throw new AppException("Pearson's coefficient requires exactly two metrics");
+        }
+        view.showPearsonsCoefficient(metrics.get(0), metrics.get(1),
+            appModel.calculatePearsonsCoefficient(metrics.get(0), metrics.get(1)));
+      }
+      case CORRELATION -> view.showCorrelationMatrix(appModel.getCorrelationMatrix());
+      case SERVE -> serve(appModel, options);
+      case QUERY -> {
+        var query = appModel.compileQuery(options.query());
+        // queries without ordering read the file only until they have enough records
+        var records = query.isOrdered() ? query.execute(appModel.getCovidDataset())
+            : appModel.streamQuery(options.query());
+        view.showRecords(records, query.getSelectedMetrics());
+      }
+      default -> throw new AppException("Unsupported task " + options.task());
+    }
+  }
+
+  /**
+   * Serves queries over HTTP until the application is stopped. The data file is watched if possible,
+   * so the API always answers from the newest data.
+   *
+   * @param appModel model answering the queries
+   * @param options  parsed command line arguments
+   */
+  private void serve(AppModel appModel, Options options) {
+    var server = new HttpQueryServer(appModel, new InetSocketAddress(options.port()), options.threads());
+    try {
+      appModel.startWatching();
+    } catch (AppException e) {
+      // data file packaged in the jar cannot change
+    }
+    appModel.getCovidDataset();
+    AppMetrics.getInstance().export();
+    server.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    err.println("Serving " + options.input() + " at http://localhost:" + server.getPort() + "/api/");
+    try {
+      server.awaitClose();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      server.close();
+    }
+  }
+
+  /**
+   * Writes a synthetic data file.
+   *
+   * @param generation parsed arguments of the generate task
+   */
+  private void generate(Generation generation) {
+    try {
+      if (generation.bytes() >= 0) {
+        generation.generator().writeBytes(generation.path(), generation.bytes());
+      } else {
+        generation.generator().writeRows(generation.path(), generation.rows());
+      }
+    } catch (IOException e) {
+      throw new AppException("Unable to write file " + generation.path(), e);
+    }
+  }
+
+  /**
+   * Gets names of all metrics used in command line arguments.
+   *
+   * @return comma separated names of metrics
+   */
+  private static String metricNames() {
+    var names = new ArrayList<String>();
+    for (var metric : CovidMetric.values()) {
+      names.add(ConsoleView.columnName(metric));
+    }
+    return String.join(", ", names);
+  }
+
+  /**
+   * Tasks of the batch mode.
+   */
+  enum Task {
+
+    /**
+     * Finding country with the highest number of deaths.
+     */
+    HIGHEST_DEATHS("1", "highest-deaths"),
+
+    /**
+     * Ordering countries by active cases.
+     */
+    ORDERED_BY_ACTIVE_CASES("2", "ordered-by-active-cases"),
+
+    /**
+     * Listing number of tests per country.
+     */
+    TESTS_PER_COUNTRY("3", "tests-per-country"),
+
+    /**
+     * Calculating Pearson's coefficient.
+     */
+    PEARSON("4", "pearson"),
+
+    /**
+     * Ordering countries by any metric.
+     */
+    ORDERED(null, "ordered"),
+
+    /**
+     * Finding countries with the highest values of a metric.
+     */
+    TOP(null, "top"),
+
+    /**
+     * Calculating coefficients of all pairs of metrics.
+     */
+    CORRELATION(null, "correlation"),
+
+    /**
+     * Serving queries over HTTP.
+     */
+    SERVE(null, "serve"),
+
+    /**
+     * Running a query given as an argument.
+     */
+    QUERY(null, "query"),
+
+    /**
+     * Writing a synthetic data file.
+     */
+    GENERATE(null, "generate");
+
+    /**
+     * Number of the task shown in the graphical interface or null if it has no number.
+     */
+    private final String number;
+
+    /**
+     * Name of the task used in command line arguments.
+     */
+    private final String name;
+
+    /**
+     * Task constructor.
+     *
+     * @param number number of the task shown in the graphical interface or null if it has no number
+     * @param name   name of the task used in command line arguments
+     */
+    Task(String number, String name) {
+      this.number = number;
+      this.name = name;
+    }
+
+    /**
+     * Finds task by its number or name.
+     *
+     * @param argument number or name of the task
+     * @return found task
+     */
+    static Task fromArgument(String argument) {
+      for (var task : values()) {
+        if (argument.equals(task.number) || argument.equalsIgnoreCase(task.name)) {
+          return task;
+        }
+      }
+      throw new AppException("Unknown task " + argument);
+    }
+  }
+
+  /**
+   * Parsed arguments of the generate task.
+   *
+   * @param path      path of the written file
+   * @param rows      number of written rows or -1 if a size is given
+   * @param bytes     minimal size of the written file in bytes or -1 if a number of rows is given
+   * @param generator generator of the data
+   */
+  record Generation(Path path, long rows, long bytes, SyntheticCsvGenerator generator) {
+  }
+
+  /**
+   * Parsed command line arguments.
+   *
+   * @param task       task to run
+   * @param input      filename of the file with covid data
+   * @param format     format of the output
+   * @param metric     metric given by --metric option or null
+   * @param metrics    metrics given by --metrics option or null
+   * @param ascending  true to order from the lowest value
+   * @param offset     number of skipped records
+   * @param limit      maximal number of records or -1 if not given
+   * @param port       port of the HTTP API
+   * @param threads    number of threads handling HTTP requests
+   * @param query      text of the query of the query task or null
+   * @param generation arguments of the generate task or null
+   */
+  record Options(Task task, String input, OutputFormat format, CovidMetric metric, List<CovidMetric> metrics,
+                 boolean ascending, int offset, int limit, int port, int threads, String query,
+                 Generation generation) {
+
+    /**
+     * Parses command line arguments.
+     *
+     * @param args command line arguments
+     * @return parsed arguments
+     */
+    static Options parse(String... args) {
+      Task task = null;
+      var input = DATA_FILENAME;
+      var format = OutputFormat.CSV;
+      CovidMetric metric = null;
+      List<CovidMetric> metrics = null;
+      var ascending = false;
+      var offset = 0;
+      var limit = -1;
+      var port = HttpQueryServer.DEFAULT_PORT;
+      var threads = HttpQueryServer.DEFAULT_THREADS;
+      String query = null;
+      String path = null;
+      String amount = null;
+      var seed = 0L;
+      var skew = SyntheticCsvGenerator.DEFAULT_SKEW;
+      var dirtyRate = 0.0;
+      var countries = SyntheticCsvGenerator.DEFAULT_COUNTRY_COUNT;
+      for (var i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "--input" -> input = value(args, ++i);
+          case "--format" -> format = OutputFormat.fromOptionName(value(args, ++i).trim());
+          case "--metric" -> metric = parseMetric(value(args, ++i));
+          case "--metrics" -> metrics = parseMetrics(value(args, ++i));
+          case "--asc" -> ascending = true;
+          case "--offset" -> offset = parseCount(args[i], value(args, ++i));
+          case "--limit" -> limit = parseCount(args[i], value(args, ++i));
+          case "--port" -> port = parseCount(args[i], value(args, ++i));
+          case "--threads" -> threads = parseCount(args[i], value(args, ++i));
+          case "--seed" -> seed = parseLong(args[i], value(args, ++i));
+          case "--skew" -> skew = parseFraction(args[i], value(args, ++i));
+          case "--dirty-rate" -> dirtyRate = parseFraction(args[i], value(args, ++i));
+          case "--countries" -> countries = parseCount(args[i], value(args, ++i));
+          default -> {
+            if (task == Task.QUERY && query == null) {
+              query = args[i];
+            } else if (task == Task.GENERATE && amount == null && !args[i].startsWith("--")) {
+              if (path == null) {
+                path = args[i];
+              } else {
+                amount = args[i];
+              }
+            } else if (args[i].startsWith("--") || task != null) {
+              throw new AppException("Unexpected argument " + args[i]);
+            } else {
+              task = Task.fromArgument(args[i]);
+            }
+          }
+        }
+      }
+      if (task == null) {
+        throw new AppException("Missing task");
+      }
+      if (task == Task.QUERY && query == null) {
+        throw new AppException("Missing query");
+      }
+      Generation generation = null;
+      if (task == Task.GENERATE) {
+        if (amount == null) {
+          throw new AppException("Missing file and number of rows or size");
+        }
+        var sized = amount.toUpperCase(Locale.ROOT).endsWith("B");
+        generation = new Generation(Path.of(path), sized ? -1L : parseRows(amount), sized ? parseSize(amount) : -1L,
+            new SyntheticCsvGenerator(seed, countries, skew, dirtyRate));
+      }
+      return new Options(task, input, format, metric, metrics, ascending, offset, limit, port, threads, query,
+          generation);
+    }
+
+    /**
+     * Gets metric of the task.
+     *
+     * @param defaultMetric metric used if no metric was given
+     * @return metric of the task
+     */
+    CovidMetric metric(CovidMetric defaultMetric) {
+      return metric == null ? defaultMetric : metric;
+    }
+
+    /**
+     * Gets metrics written with each record.
+     *
+     * @param defaultMetrics metrics used if no metrics were given
+     * @return written metrics
+     */
+    List<CovidMetric> metrics(CovidMetric... defaultMetrics) {
+      return metrics == null ? List.of(defaultMetrics) : metrics;
+    }
+
+    /**
+     * Gets maximal number of records.
+     *
+     * @param defaultLimit limit used if no limit was given
+     * @return maximal number of records
+     */
+    int limit(int defaultLimit) {
+      return limit < 0 ? defaultLimit : limit;
+    }
+
+    /**
+     * Gets value of an option.
+     *
+     * @param args  command line arguments
+     * @param index index of the value
+     * @return value of the option
+     */
+    private static String value(String[] args, int index) {
+      if (index >= args.length) {
+        throw new AppException("Missing value of " + args[index - 1]);
+      }
+      return args[index];
+    }
+
+    /**
+     * Parses name of a metric, e.g. total_deaths or total-deaths.
+     *
+     * @param name name of the metric
+     * @return parsed metric
+     */
+    static CovidMetric parseMetric(String name) {
+      try {
+        return CovidMetric.valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new AppException("Unknown metric " + name);
+      }
+    }
+
+    /**
+     * Parses comma separated names of metrics.
+     *
+     * @param names names of the metrics or all
+     * @return parsed metrics
+     */
+    static List<CovidMetric> parseMetrics(String names) {
+      if (names.trim().equalsIgnoreCase("all")) {
+        return List.of(CovidMetric.values());
+      }
+      return Arrays.stream(names.split(",")).map(Options::parseMetric).toList();
+    }
+
+    /**
+     * Parses a non-negative number of records.
+     *
+     * @param option name of the option
+     * @param value  value of the option
+     * @return parsed number
+     */
+    static int parseCount(String option, String value) {
+      try {
+        var count = Integer.parseInt(value.trim());
+        if (count >= 0) {
+          return count;
+        }
+      } catch (NumberFormatException e) {
+        // reported below
+      }
+      throw new AppException("Value of " + option + " must be a non-negative number: " + value);
+    }
+
+    /**
+     * Parses a whole number.
+     *
+     * @param option name of the option
+     * @param value  value of the option
+     * @return parsed number
+     */
+    static long parseLong(String option, String value) {
+      try {
+        return Long.parseLong(value.trim());
+      } catch (NumberFormatException e) {
+        throw new AppException("Value of " + option + " must be a whole number: " + value);
+      }
+    }
+
+    /**
+     * Parses a non-negative number of generated rows.
+     *
+     * @param rows number of rows
+     * @return parsed number
+     */
+    static long parseRows(String rows) {
+      var count = parseLong("rows", rows);
+      if (count < 0) {
+        throw new AppException("Number of rows must not be negative: " + rows);
+      }
+      return count;
+    }
+
+    /**
+     * Parses a decimal number.
+     *
+     * @param option name of the option
+     * @param value  value of the option
+     * @return parsed number
+     */
+    static double parseFraction(String option, String value) {
+      try {
+        return Double.parseDouble(value.trim());
+      } catch (NumberFormatException e) {
+        throw new AppException("Value of " + option + " must be a number: " + value);
+      }
+    }
+
+    /**
+     * Parses size with {@code B}, {@code KB}, {@code MB} or {@code GB} suffix.
+     *
+     * @param size size with suffix
+     * @return number of bytes
+     */
+    static long parseSize(String size) {
+      var digits = size.trim().toUpperCase(Locale.ROOT);
+      digits = digits.substring(0, digits.length() - 1);
+      var shift = 0;
+      if (digits.endsWith("K") || digits.endsWith("M") || digits.endsWith("G")) {
+        shift = switch (digits.charAt(digits.length() - 1)) {
+          case 'K' -> 10;
+          case 'M' -> 20;
+          default -> 30;
+        };
+        digits = digits.substring(0, digits.length() - 1);
+      }
+      try {
+        var value = Long.parseLong(digits);
+        if (value >= 0 && value <= Long.MAX_VALUE >> shift) {
+          return value << shift;
+        }
+      } catch (NumberFormatException e) {
+        // reported below
+      }
+      throw new AppException("Size must be a non-negative number of B, KB, MB or GB: " + size);
+    }
+  }
+}
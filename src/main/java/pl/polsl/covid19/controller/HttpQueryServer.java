@@ -0,0 +1,468 @@
+package pl.polsl.covid19.controller;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import pl.polsl.covid19.model.AppException;
+import pl.polsl.covid19.model.AppMetrics;
+import pl.polsl.covid19.model.AppModel;
+import pl.polsl.covid19.model.CovidDataset;
+import pl.polsl.covid19.model.CovidMetric;
+import pl.polsl.covid19.view.ConsoleView;
+import pl.polsl.covid19.view.ConsoleView.OutputFormat;
+
+/**
+ * Controller exposing {@link AppModel} queries over a local HTTP API. Every request reads the current
+ * immutable dataset once, so all threads share one snapshot and a request is answered from a single version
+ * even if the data file changes meanwhile. Responses are streamed as JSON arrays while they are written.
+ *
+ * <p>Endpoints, all accepting only GET:
+ * <ul>
+ *   <li>{@code /api/highest-deaths?metric=total_deaths} - record with the highest value of a metric,</li>
+ *   <li>{@code /api/ordered-by-active-cases?order=desc&offset=0&limit=100} - records ordered by active cases,</li>
+ *   <li>{@code /api/tests-per-country?offset=0&limit=100} - number of tests of records in data file order,</li>
+ *   <li>{@code /api/correlation} - Pearson's and Spearman's coefficients of all pairs of metrics,</li>
+ *   <li>{@code /api/query?q=active > 100000 order by deaths desc limit 20} - records matching
+ *   a {@link pl.polsl.covid19.model.Query}.</li>
+ * </ul>
+ * Record endpoints accept {@code metrics=total_deaths,population} or {@code metrics=all} selecting written
+ * metrics. Responses carry an ETag of the snapshot version, so requests with a matching If-None-Match header
+ * are answered with 304 without a body. Paged responses carry the total number of records in X-Total-Count
+ * and a Link header of the next page.
+ *
+ * <p>Requests are handled by a bounded pool of platform threads, virtual threads are not available in the
+ * supported JDK 17. When all threads are busy and the queue is full, the accepting thread handles the request
+ * itself, which slows down accepting new connections instead of failing them. Latency of each endpoint is recorded
+ * in {@link AppMetrics}. Unexpected runtime exceptions are counted there too and answered with 500 unless
+ * the response was already started.
+ *
+ * @author Krzysztof Franków
+ * @version 1.4
+ */
+public class HttpQueryServer implements Closeable {
+
+  /**
+   * Default port of the server.
+   */
+  public static final int DEFAULT_PORT = 8080;
+
+  /**
+   * Default number of threads handling requests.
+   */
+  public static final int DEFAULT_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+  /**
+   * Number of records of a page if no limit is given.
+   */
+  static final int DEFAULT_PAGE_SIZE = 100;
+
+  /**
+   * Maximal number of records of a page.
+   */
+  static final int MAX_PAGE_SIZE = 10_000;
+
+  /**
+   * Maximal number of connections waiting to be accepted.
+   */
+  private static final int BACKLOG = 4096;
+
+  /**
+   * Maximal number of requests waiting for a free thread.
+   */
+  private static final int QUEUE_CAPACITY = 8192;
+
+  /**
+   * Content type of responses.
+   */
+  private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+  /**
+   * Content type of error responses.
+   */
+  private static final String TEXT_CONTENT_TYPE = "text/plain; charset=utf-8";
+
+  /**
+   * Model answering the queries.
+   */
+  private final AppModel appModel;
+
+  /**
+   * Underlying HTTP server.
+   */
+  private final HttpServer server;
+
+  /**
+   * Pool of threads handling requests.
+   */
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * Latch released when the server is closed.
+   */
+  private final CountDownLatch closed = new CountDownLatch(1);
+
+  /**
+   * HttpQueryServer constructor. The server does not accept requests until it is started.
+   *
+   * @param appModel model answering the queries
+   * @param address  address to listen on, port 0 chooses a free port
+   * @param threads  number of threads handling requests
+   * @throws AppException if the address cannot be bound
+   */
+  public HttpQueryServer(AppModel appModel, InetSocketAddress address, int threads) {
+    if (threads < 1) {
+      throw new AppException("Number of threads must be positive");
+    }
+    this.appModel = appModel;
+    try {
+      server = HttpServer.create(address, BACKLOG);
+    } catch (IOException e) {
+      throw new AppException("Unable to listen on " + address, e);
+    }
+    var threadCount = new AtomicInteger();
+    executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+          var thread = new Thread(runnable, "covid19-http-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    server.setExecutor(executor);
+    server.createContext("/api/highest-deaths", exchange -> handle(exchange, this::highestDeaths));
+    server.createContext("/api/ordered-by-active-cases", exchange -> handle(exchange, this::orderedByActiveCases));
+    server.createContext("/api/tests-per-country", exchange -> handle(exchange, this::testsPerCountry));
+    server.createContext("/api/correlation", exchange -> handle(exchange, this::correlation));
+    server.createContext("/api/query", exchange -> handle(exchange, this::query));
+  }
+
+  /**
+   * Starts accepting requests.
+   */
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Gets port the server listens on.
+   *
+   * @return port of the server
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Waits until the server is closed.
+   *
+   * @throws InterruptedException if the waiting thread is interrupted
+   */
+  public void awaitClose() throws InterruptedException {
+    closed.await();
+  }
+
+  /**
+   * Stops accepting requests and stops the threads handling them.
+   */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdown();
+    closed.countDown();
+  }
+
+  /**
+   * Prepares response with the record with the highest value of a metric.
+   *
+   * @param exchange   request and response
+   * @param dataset    queried data
+   * @param parameters parameters of the request
+   * @return writer of the response body
+   */
+  private Consumer<ConsoleView> highestDeaths(HttpExchange exchange, CovidDataset dataset,
+                                              Map<String, String> parameters) {
+    var metric = metricParameter(parameters, "metric", CovidMetric.TOTAL_DEATHS);
+    var metrics = metricsParameter(parameters, CovidMetric.values());
+    return view -> view.showRecords(dataset.orderedBy(metric, true, 0, 1), metrics);
+  }
+
+  /**
+   * Prepares response with a page of records ordered by active cases.
+   *
+   * @param exchange   request and response
+   * @param dataset    queried data
+   * @param parameters parameters of the request
+   * @return writer of the response body
+   */
+  private Consumer<ConsoleView> orderedByActiveCases(HttpExchange exchange, CovidDataset dataset,
+                                                     Map<String, String> parameters) {
+    var order = parameters.getOrDefault("order", "desc");
+    if (!order.equals("desc") && !order.equals("asc")) {
+      throw new AppException("Parameter order must be asc or desc: " + order);
+    }
+    var metrics = metricsParameter(parameters, CovidMetric.values());
+    var offset = page(exchange, dataset, parameters);
+    var limit = countParameter(parameters, "limit", DEFAULT_PAGE_SIZE);
+    return view -> view.showRecords(dataset.orderedBy(CovidMetric.ACTIVE_CASES, order.equals("desc"),
+        offset, limit), metrics);
+  }
+
+  /**
+   * Prepares response with a page of numbers of tests of records in data file order.
+   *
+   * @param exchange   request and response
+   * @param dataset    queried data
+   * @param parameters parameters of the request
+   * @return writer of the response body
+   */
+  private Consumer<ConsoleView> testsPerCountry(HttpExchange exchange, CovidDataset dataset,
+                                                Map<String, String> parameters) {
+    var metrics = metricsParameter(parameters, CovidMetric.TOTAL_TESTS, CovidMetric.TESTS_PER_MILLION);
+    var offset = page(exchange, dataset, parameters);
+    var from = Math.min(offset, dataset.size());
+    var to = (int) Math.min((long) from + countParameter(parameters, "limit", DEFAULT_PAGE_SIZE), dataset.size());
+    return view -> view.showRecords(dataset.asList().subList(from, to), metrics);
+  }
+
+  /**
+   * Prepares response with correlation coefficients of all pairs of metrics.
+   *
+   * @param exchange   request and response
+   * @param dataset    queried data
+   * @param parameters parameters of the request
+   * @return writer of the response body
+   */
+  private Consumer<ConsoleView> correlation(HttpExchange exchange, CovidDataset dataset,
+                                            Map<String, String> parameters) {
+    return view -> view.showCorrelationMatrix(dataset.getCorrelationMatrix());
+  }
+
+  /**
+   * Prepares response with records matching a query given by q parameter. Compiled queries are cached
+   * by the model, so repeated queries are not parsed again.
+   *
+   * @param exchange   request and response
+   * @param dataset    queried data
+   * @param parameters parameters of the request
+   * @return writer of the response body
+   */
+  private Consumer<ConsoleView> query(HttpExchange exchange, CovidDataset dataset,
+                                      Map<String, String> parameters) {
+    var text = parameters.get("q");
+    if (text == null) {
+      throw new AppException("Missing parameter q");
+    }
+    var query = appModel.compileQuery(text);
+    var records = query.execute(dataset);
+    return view -> view.showRecords(records, query.getSelectedMetrics());
+  }
+
+  /**
+   * Handles a request: checks the ETag, prepares the query and streams its result.
+   *
+   * @param exchange request and response
+   * @param endpoint endpoint preparing the query
+   * @throws IOException if the response cannot be sent
+   */
+  private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+    var start = System.nanoTime();
+    try (exchange) {
+      var responseStarted = false;
+      try {
+        if (!exchange.getRequestMethod().equals("GET")) {
+          exchange.getResponseHeaders().set("Allow", "GET");
+          sendError(exchange, 405, "Method " + exchange.getRequestMethod() + " is not allowed");
+          return;
+        }
+        var versionedDataset = appModel.getVersionedDataset();
+        var etag = "\"" + versionedDataset.version() + "-" + Long.toHexString(versionedDataset.checksum()) + "\"";
+        var headers = exchange.getResponseHeaders();
+        headers.set("ETag", etag);
+        headers.set("Cache-Control", "no-cache");
+        if (matches(exchange.getRequestHeaders().get("If-None-Match"), etag)) {
+          exchange.sendResponseHeaders(304, -1);
+          return;
+        }
+        Consumer<ConsoleView> writer;
+        try {
+          writer = endpoint.prepare(exchange, versionedDataset.dataset(),
+              parseQuery(exchange.getRequestURI().getRawQuery()));
+        } catch (AppException e) {
+          sendError(exchange, 400, e.getMessage());
+          return;
+        }
+        headers.set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        responseStarted = true;
+        writer.accept(new ConsoleView(exchange.getResponseBody(), OutputFormat.JSON));
+      } catch (RuntimeException e) {
+        AppMetrics.getInstance().recordRequestFailure();
+        if (!responseStarted) {
+          sendError(exchange, 500, e instanceof AppException ? e.getMessage() : "Internal server error");
+        }
+        // otherwise the response was started, so the client sees a truncated body
+      }
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("GET " + exchange.getHttpContext().getPath()).recordSince(start);
+    }
+  }
+
+  /**
+   * Sets pagination headers of a response.
+   *
+   * @param exchange   request and response
+   * @param dataset    queried data
+   * @param parameters parameters of the request
+   * @return number of skipped records
+   */
+  private int page(HttpExchange exchange, CovidDataset dataset, Map<String, String> parameters) {
+    var offset = countParameter(parameters, "offset", 0);
+    var limit = countParameter(parameters, "limit", DEFAULT_PAGE_SIZE);
+    if (limit > MAX_PAGE_SIZE) {
+      throw new AppException("Parameter limit must not exceed " + MAX_PAGE_SIZE);
+    }
+    var headers = exchange.getResponseHeaders();
+    headers.set("X-Total-Count", Integer.toString(dataset.size()));
+    if ((long) offset + limit < dataset.size()) {
+      var next = new HashMap<>(parameters);
+      next.put("offset", Integer.toString(offset + limit));
+      next.put("limit", Integer.toString(limit));
+      var link = new StringBuilder(exchange.getRequestURI().getPath()).append('?');
+      next.forEach((name, value) -> link.append(URLEncoder.encode(name, UTF_8)).append('=')
+          .append(URLEncoder.encode(value, UTF_8)).append('&'));
+      link.setLength(link.length() - 1);
+      headers.set("Link", "<" + link + ">; rel=\"next\"");
+    }
+    return offset;
+  }
+
+  /**
+   * Sends a plain text error response.
+   *
+   * @param exchange request and response
+   * @param status   HTTP status code
+   * @param message  error message
+   * @throws IOException if the response cannot be sent
+   */
+  private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+    var body = (message + "\n").getBytes(UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", TEXT_CONTENT_TYPE);
+    exchange.sendResponseHeaders(status, body.length);
+    exchange.getResponseBody().write(body);
+  }
+
+  /**
+   * Checks whether If-None-Match header values contain given ETag.
+   *
+   * @param values values of the header or null if it is not present
+   * @param etag   ETag of the current response
+   * @return true if the client has the current response
+   */
+  static boolean matches(List<String> values, String etag) {
+    if (values == null) {
+      return false;
+    }
+    for (var value : values) {
+      for (var candidate : value.split(",")) {
+        var trimmed = candidate.trim();
+        if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Parses query string of a request.
+   *
+   * @param rawQuery encoded query string or null
+   * @return values of parameters by their names, the last value of repeated parameters is kept
+   */
+  static Map<String, String> parseQuery(String rawQuery) {
+    var parameters = new HashMap<String, String>();
+    if (rawQuery == null || rawQuery.isEmpty()) {
+      return parameters;
+    }
+    for (var pair : rawQuery.split("&")) {
+      var separator = pair.indexOf('=');
+      var name = separator < 0 ? pair : pair.substring(0, separator);
+      var value = separator < 0 ? "" : pair.substring(separator + 1);
+      try {
+        parameters.put(URLDecoder.decode(name, UTF_8), URLDecoder.decode(value, UTF_8));
+      } catch (IllegalArgumentException e) {
+        throw new AppException("Invalid query string " + rawQuery, e);
+      }
+    }
+    return parameters;
+  }
+
+  /**
+   * Gets metric given by a parameter.
+   *
+   * @param parameters    parameters of the request
+   * @param name          name of the parameter
+   * @param defaultMetric metric used if the parameter is not given
+   * @return metric of the parameter
+   */
+  private static CovidMetric metricParameter(Map<String, String> parameters, String name,
+                                             CovidMetric defaultMetric) {
+    var value = parameters.get(name);
+    return value == null ? defaultMetric : ConsoleController.Options.parseMetric(value);
+  }
+
+  /**
+   * Gets metrics written with each record given by metrics parameter.
+   *
+   * @param parameters     parameters of the request
+   * @param defaultMetrics metrics used if the parameter is not given
+   * @return written metrics
+   */
+  private static List<CovidMetric> metricsParameter(Map<String, String> parameters, CovidMetric... defaultMetrics) {
+    var value = parameters.get("metrics");
+    return value == null ? List.of(defaultMetrics) : ConsoleController.Options.parseMetrics(value);
+  }
+
+  /**
+   * Gets non-negative number given by a parameter.
+   *
+   * @param parameters   parameters of the request
+   * @param name         name of the parameter
+   * @param defaultCount number used if the parameter is not given
+   * @return number of the parameter
+   */
+  private static int countParameter(Map<String, String> parameters, String name, int defaultCount) {
+    var value = parameters.get(name);
+    return value == null ? defaultCount : ConsoleController.Options.parseCount(name, value);
+  }
+
+  /**
+   * Endpoint of the API.
+   */
+  @FunctionalInterface
+  private interface Endpoint {
+
+    /**
+     * Validates parameters of a request, sets response headers and prepares writing of the response body.
+     *
+     * @param exchange   request and response
+     * @param dataset    queried data
+     * @param parameters parameters of the request
+     * @return writer of the response body
+     * @throws AppException if parameters of the request are invalid
+     */
+    Consumer<ConsoleView> prepare(HttpExchange exchange, CovidDataset dataset, Map<String, String> parameters);
+  }
+}
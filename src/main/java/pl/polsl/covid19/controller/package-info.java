@@ -1,9 +1,10 @@
 /**
  * This package contains controller class for handling user input and
  * several exception classes for handling application exceptions.
- * It also defines action listeners to handle GUI actions.
+ * It also defines action listeners to handle GUI actions and a console controller
+ * running tasks given by command line arguments.
  *
  * @author Krzysztof Franków
- * @version 1.0
+ * @version 1.1
  */
 package pl.polsl.covid19.controller;
@@ -0,0 +1,63 @@
+package pl.polsl.covid19.model;
+
+/**
+ * Aggregates of a metric computed for each group of a {@link GroupAggregation}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+public enum AggregateFunction {
+
+  /**
+   * Number of rows of the group.
+   */
+  COUNT("Count"),
+
+  /**
+   * Sum of values of the group.
+   */
+  SUM("Sum"),
+
+  /**
+   * Average value of the group.
+   */
+  AVERAGE("Average"),
+
+  /**
+   * The lowest value of the group.
+   */
+  MIN("Min"),
+
+  /**
+   * The highest value of the group.
+   */
+  MAX("Max"),
+
+  /**
+   * Sum of values per one million of population of rows with known population.
+   */
+  PER_MILLION("Per 1M pop");
+
+  /**
+   * Name of the aggregate presented to the user.
+   */
+  private final String displayName;
+
+  /**
+   * AggregateFunction constructor.
+   *
+   * @param displayName name of the aggregate presented to the user
+   */
+  AggregateFunction(String displayName) {
+    this.displayName = displayName;
+  }
+
+  /**
+   * Gets name of the aggregate presented to the user.
+   *
+   * @return name of the aggregate
+   */
+  public String getDisplayName() {
+    return displayName;
+  }
+}
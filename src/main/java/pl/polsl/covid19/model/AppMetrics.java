@@ -0,0 +1,398 @@
+package pl.polsl.covid19.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of reading data files and of {@link AppModel} queries, shared by the whole application. Counters are
+ * striped {@link LongAdder}s and latencies are kept in {@link LatencyHistogram}s, so recording costs a few
+ * uncontended additions and can stay enabled in production.
+ *
+ * <p>Metrics are exposed over JMX by {@link #export()} as {@value #DOMAIN}:type=Metrics and one
+ * {@value #DOMAIN}:type=QueryLatency,name=&lt;query&gt; bean per query. If {@value #LOG_INTERVAL_PROPERTY} system
+ * property gives a number of seconds, a summary is also logged periodically with {@link System.Logger}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+public class AppMetrics implements AppMetricsMXBean {
+
+  /**
+   * Name of system property with interval in seconds of logging the metrics. Metrics are not logged
+   * if the property is not set.
+   */
+  public static final String LOG_INTERVAL_PROPERTY = "covid19.metrics.log.seconds";
+
+  /**
+   * JMX domain of the metrics beans.
+   */
+  static final String DOMAIN = "pl.polsl.covid19";
+
+  /**
+   * Metrics of the application.
+   */
+  private static final AppMetrics INSTANCE = new AppMetrics();
+
+  /**
+   * Number of nanoseconds in a second.
+   */
+  private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+  /**
+   * Number of read csv rows.
+   */
+  private final LongAdder csvRows = new LongAdder();
+
+  /**
+   * Number of read csv bytes.
+   */
+  private final LongAdder csvBytes = new LongAdder();
+
+  /**
+   * Time spent reading csv files in nanoseconds.
+   */
+  private final LongAdder csvReadNanos = new LongAdder();
+
+  /**
+   * Number of completed reads of csv files.
+   */
+  private final LongAdder csvReads = new LongAdder();
+
+  /**
+   * Number of failed reads of csv files.
+   */
+  private final LongAdder csvReadFailures = new LongAdder();
+
+  /**
+   * Number of malformed numeric cells read as 0.
+   */
+  private final LongAdder csvMalformedValues = new LongAdder();
+
+  /**
+   * Number of dataset cache hits.
+   */
+  private final LongAdder datasetCacheHits = new LongAdder();
+
+  /**
+   * Number of dataset cache misses.
+   */
+  private final LongAdder datasetCacheMisses = new LongAdder();
+
+  /**
+   * Number of query plan cache hits.
+   */
+  private final LongAdder queryPlanCacheHits = new LongAdder();
+
+  /**
+   * Number of query plan cache misses.
+   */
+  private final LongAdder queryPlanCacheMisses = new LongAdder();
+
+  /**
+   * Number of requests that failed with an unexpected error.
+   */
+  private final LongAdder requestFailures = new LongAdder();
+
+  /**
+   * Latencies of queries by their names.
+   */
+  private final ConcurrentMap<String, LatencyHistogram> queryLatencies = new ConcurrentHashMap<>();
+
+  /**
+   * True if the beans are registered, so beans of new queries are registered as they are created.
+   */
+  private volatile boolean exported;
+
+  /**
+   * Executor logging the metrics or null if the metrics are not logged.
+   */
+  private ScheduledExecutorService logExecutor;
+
+  /**
+   * AppMetrics constructor.
+   */
+  AppMetrics() {
+  }
+
+  /**
+   * Gets metrics of the application.
+   *
+   * @return metrics of the application
+   */
+  public static AppMetrics getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Registers the metrics beans in the platform MBean server and starts logging the metrics if
+   * {@value #LOG_INTERVAL_PROPERTY} system property is set. Calling the method again has no effect.
+   *
+   * @throws AppException if the beans cannot be registered or the property is not a positive number
+   */
+  public synchronized void export() {
+    if (exported) {
+      return;
+    }
+    register(objectName("Metrics", null), this);
+    exported = true;
+    queryLatencies.forEach(this::registerQueryLatency);
+    var interval = System.getProperty(LOG_INTERVAL_PROPERTY);
+    if (interval != null) {
+      long seconds;
+      try {
+        seconds = Long.parseLong(interval.trim());
+      } catch (NumberFormatException e) {
+        seconds = 0;
+      }
+      if (seconds <= 0) {
+        throw new AppException("Property " + LOG_INTERVAL_PROPERTY + " must be a positive number of seconds");
+      }
+      var logger = System.getLogger(AppMetrics.class.getName());
+      logExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "covid19-metrics-log");
+        thread.setDaemon(true);
+        return thread;
+      });
+      logExecutor.scheduleAtFixedRate(() -> logger.log(System.Logger.Level.INFO, this::toString),
+          seconds, seconds, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Records a completed read of a csv file.
+   *
+   * @param rows  number of read rows
+   * @param bytes number of read bytes
+   * @param nanos duration of the read in nanoseconds
+   */
+  void recordCsvRead(long rows, long bytes, long nanos) {
+    csvRows.add(rows);
+    csvBytes.add(bytes);
+    csvReadNanos.add(nanos);
+    csvReads.increment();
+  }
+
+  /**
+   * Records a failed read of a csv file.
+   */
+  void recordCsvReadFailure() {
+    csvReadFailures.increment();
+  }
+
+  /**
+   * Records malformed numeric cells read as 0.
+   *
+   * @param count number of malformed cells
+   */
+  void recordMalformedValues(long count) {
+    if (count > 0) {
+      csvMalformedValues.add(count);
+    }
+  }
+
+  /**
+   * Records a request to the dataset cache.
+   *
+   * @param hit true if the request was served from cached data
+   */
+  void recordDatasetCacheRequest(boolean hit) {
+    (hit ? datasetCacheHits : datasetCacheMisses).increment();
+  }
+
+  /**
+   * Records a compilation of a query.
+   *
+   * @param hit true if a cached plan was used
+   */
+  void recordQueryPlanCacheRequest(boolean hit) {
+    (hit ? queryPlanCacheHits : queryPlanCacheMisses).increment();
+  }
+
+  /**
+   * Records a request that failed with an unexpected error, e.g. a request of the HTTP API.
+   */
+  public void recordRequestFailure() {
+    requestFailures.increment();
+  }
+
+  /**
+   * Gets histogram of latencies of a query, creating it on first use.
+   *
+   * @param name name of the query
+   * @return histogram of the query
+   */
+  public LatencyHistogram getQueryLatency(String name) {
+    var histogram = queryLatencies.get(name);
+    if (histogram == null) {
+      histogram = queryLatencies.computeIfAbsent(name, key -> new LatencyHistogram());
+      if (exported) {
+        synchronized (this) {
+          registerQueryLatency(name, histogram);
+        }
+      }
+    }
+    return histogram;
+  }
+
+  /**
+   * Gets histograms of latencies of all queries.
+   *
+   * @return histograms by names of the queries in alphabetical order
+   */
+  public Map<String, LatencyHistogram> getQueryLatencies() {
+    return new TreeMap<>(queryLatencies);
+  }
+
+  @Override
+  public long getCsvRowsRead() {
+    return csvRows.sum();
+  }
+
+  @Override
+  public long getCsvBytesRead() {
+    return csvBytes.sum();
+  }
+
+  @Override
+  public long getCsvReads() {
+    return csvReads.sum();
+  }
+
+  @Override
+  public double getCsvRowsPerSecond() {
+    var nanos = csvReadNanos.sum();
+    return nanos == 0 ? 0.0 : csvRows.sum() * NANOS_PER_SECOND / nanos;
+  }
+
+  @Override
+  public long getCsvReadFailures() {
+    return csvReadFailures.sum();
+  }
+
+  @Override
+  public long getCsvMalformedValues() {
+    return csvMalformedValues.sum();
+  }
+
+  @Override
+  public long getDatasetCacheHits() {
+    return datasetCacheHits.sum();
+  }
+
+  @Override
+  public long getDatasetCacheMisses() {
+    return datasetCacheMisses.sum();
+  }
+
+  @Override
+  public double getDatasetCacheHitRate() {
+    return hitRate(datasetCacheHits.sum(), datasetCacheMisses.sum());
+  }
+
+  @Override
+  public long getQueryPlanCacheHits() {
+    return queryPlanCacheHits.sum();
+  }
+
+  @Override
+  public long getQueryPlanCacheMisses() {
+    return queryPlanCacheMisses.sum();
+  }
+
+  @Override
+  public double getQueryPlanCacheHitRate() {
+    return hitRate(queryPlanCacheHits.sum(), queryPlanCacheMisses.sum());
+  }
+
+  @Override
+  public long getRequestFailures() {
+    return requestFailures.sum();
+  }
+
+  /**
+   * Creates summary of all metrics, one line per query.
+   *
+   * @return summary of the metrics
+   */
+  @Override
+  public String toString() {
+    var summary = new StringBuilder(String.format(Locale.ROOT,
+        "csv: reads=%d rows=%d bytes=%d rows/s=%.0f failures=%d malformed=%d; "
+            + "dataset cache: hits=%d misses=%d; query plan cache: hits=%d misses=%d; request failures=%d",
+        getCsvReads(), getCsvRowsRead(), getCsvBytesRead(), getCsvRowsPerSecond(), getCsvReadFailures(),
+        getCsvMalformedValues(), getDatasetCacheHits(), getDatasetCacheMisses(), getQueryPlanCacheHits(),
+        getQueryPlanCacheMisses(), getRequestFailures()));
+    getQueryLatencies().forEach((name, histogram) -> summary.append(String.format(Locale.ROOT,
+        "%n%s: count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", name, histogram.getCount(),
+        histogram.getMeanMillis(), histogram.getP50Millis(), histogram.getP99Millis(), histogram.getMaxMillis())));
+    return summary.toString();
+  }
+
+  /**
+   * Registers bean of latencies of a query.
+   *
+   * @param name      name of the query
+   * @param histogram histogram of the query
+   */
+  private void registerQueryLatency(String name, LatencyHistogram histogram) {
+    var objectName = objectName("QueryLatency", name);
+    if (!ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+      register(objectName, histogram);
+    }
+  }
+
+  /**
+   * Creates name of a metrics bean.
+   *
+   * @param type type of the bean
+   * @param name name of the bean or null if the bean has no name
+   * @return object name of the bean
+   */
+  private static ObjectName objectName(String type, String name) {
+    try {
+      return new ObjectName(DOMAIN + ":type=" + type + (name == null ? "" : ",name=" + ObjectName.quote(name)));
+    } catch (JMException e) {
+      throw new AppException("Invalid metrics name " + name, e);
+    }
+  }
+
+  /**
+   * Registers a bean in the platform MBean server.
+   *
+   * @param objectName name of the bean
+   * @param bean       registered bean
+   */
+  private static void register(ObjectName objectName, Object bean) {
+    try {
+      var server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      server.registerMBean(bean, objectName);
+    } catch (JMException e) {
+      throw new AppException("Unable to register metrics " + objectName, e);
+    }
+  }
+
+  /**
+   * Computes fraction of hits of all requests.
+   *
+   * @param hits   number of hits
+   * @param misses number of misses
+   * @return hit rate in range of 0 to 1, 0 if there were no requests
+   */
+  private static double hitRate(long hits, long misses) {
+    var total = hits + misses;
+    return total == 0 ? 0.0 : (double) hits / total;
+  }
+}
@@ -0,0 +1,101 @@
+package pl.polsl.covid19.model;
+
+/**
+ * Management interface of {@link AppMetrics} exposed over JMX.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+public interface AppMetricsMXBean {
+
+  /**
+   * Gets number of csv rows read from data files.
+   *
+   * @return number of read rows
+   */
+  long getCsvRowsRead();
+
+  /**
+   * Gets number of bytes read from data files.
+   *
+   * @return number of read bytes
+   */
+  long getCsvBytesRead();
+
+  /**
+   * Gets number of completed reads of data files.
+   *
+   * @return number of completed reads
+   */
+  long getCsvReads();
+
+  /**
+   * Gets average reading speed of data files.
+   *
+   * @return number of rows read per second of reading, 0 if nothing was read
+   */
+  double getCsvRowsPerSecond();
+
+  /**
+   * Gets number of reads of data files that failed.
+   *
+   * @return number of failed reads
+   */
+  long getCsvReadFailures();
+
+  /**
+   * Gets number of malformed numeric cells read as 0.
+   *
+   * @return number of malformed cells
+   */
+  long getCsvMalformedValues();
+
+  /**
+   * Gets number of requests served from cached data without reading the data file.
+   *
+   * @return number of cache hits
+   */
+  long getDatasetCacheHits();
+
+  /**
+   * Gets number of requests that required reading the data file.
+   *
+   * @return number of cache misses
+   */
+  long getDatasetCacheMisses();
+
+  /**
+   * Gets fraction of requests served from cached data.
+   *
+   * @return hit rate in range of 0 to 1, 0 if there were no requests
+   */
+  double getDatasetCacheHitRate();
+
+  /**
+   * Gets number of queries compiled from cached plans.
+   *
+   * @return number of cache hits
+   */
+  long getQueryPlanCacheHits();
+
+  /**
+   * Gets number of queries that were parsed.
+   *
+   * @return number of cache misses
+   */
+  long getQueryPlanCacheMisses();
+
+  /**
+   * Gets fraction of queries compiled from cached plans.
+   *
+   * @return hit rate in range of 0 to 1, 0 if there were no queries
+   */
+  double getQueryPlanCacheHitRate();
+
+  /**
+   * Gets number of requests that failed with an unexpected error.
+   *
+   * @return number of failed requests
+   */
+  long getRequestFailures();
+}
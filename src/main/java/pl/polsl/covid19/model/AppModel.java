@@ -1,33 +1,149 @@
 package pl.polsl.covid19.model;
 
-import static java.util.Comparator.comparing;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Model class used for retrieving and manage covid related data.
+ * Data file is parsed once and kept in memory as columnar {@link CovidDataset} until it changes
+ * or the cache is invalidated. Data can additionally be kept in a binary {@link SnapshotFile}, so later starts
+ * load it without parsing the data file. The data file can be watched, so changes are loaded in background
+ * and reported to {@link DatasetChangeListener}s. Compiled {@link Query} plans are cached by their text,
+ * so repeated queries are parsed once. Latency of every query is recorded in {@link AppMetrics}.
+ * Percentiles, distinct counts and heavy hitters can also be estimated from {@link DatasetSketches}
+ * in constant time, with stated error bounds. Metrics can be aggregated by derived groups, such as continents
+ * or population buckets, with {@link GroupAggregation}. Queries without ordering can also be streamed from
+ * the data file, reading it only until they have enough records.
  *
  * @author Krzysztof Franków
- * @version 1.2
+ * @version 1.13
  */
 public class AppModel {
 
   /**
-   * Filename of csv file with covid data.
+   * Name of system property with directory of binary snapshots of data files. Snapshots are not used
+   * if the property is not set.
    */
-  private final String filename;
+  public static final String SNAPSHOT_DIRECTORY_PROPERTY = "covid19.snapshot.dir";
+
+  /**
+   * Extension of binary snapshot files.
+   */
+  private static final String SNAPSHOT_EXTENSION = ".c19snap";
+
+  /**
+   * Maximal number of cached query plans.
+   */
+  private static final int QUERY_CACHE_CAPACITY = 256;
 
   /**
    * Instance of CsvFileLoader {@link CsvFileReader}.
    */
   private final CsvFileReader csvFileReader = new CsvFileReader();
 
+  /**
+   * Cache of data loaded from the data file.
+   */
+  private final DatasetCache datasetCache;
+
+  /**
+   * Data file with covid data.
+   */
+  private final DataFile dataFile;
+
+  /**
+   * Watcher of the data file or null if the file is not watched.
+   */
+  private DataFileWatcher dataFileWatcher;
+
+  /**
+   * Compiled queries by their text, least recently used first.
+   */
+  private final Map<String, Query> queryCache = Collections.synchronizedMap(
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Query> eldest) {
+          return size() > QUERY_CACHE_CAPACITY;
+        }
+      });
+
   /**
    * AppModel class constructor.
    *
    * @param dataFilename filename of the file with covid data
    */
   public AppModel(String dataFilename) {
-    this.filename = dataFilename;
+    this(dataFilename, defaultSnapshotPath(dataFilename));
+  }
+
+  /**
+   * AppModel class constructor.
+   *
+   * @param dataFilename filename of the file with covid data
+   * @param snapshotPath path of binary snapshot of the data file or null if snapshot should not be used
+   */
+  public AppModel(String dataFilename, Path snapshotPath) {
+    this.dataFile = new DataFile(dataFilename);
+    this.datasetCache = new DatasetCache(dataFile, csvFileReader,
+        snapshotPath == null ? null : new SnapshotFile(snapshotPath),
+        DatasetCache.DEFAULT_REVALIDATION_INTERVAL_MILLIS);
+  }
+
+  /**
+   * Compiles a query or gets its cached plan if the same query text was compiled before.
+   *
+   * @param text text of the query
+   * @return compiled query
+   * @throws AppException if the query is not valid
+   */
+  public Query compileQuery(String text) {
+    var query = queryCache.get(text);
+    AppMetrics.getInstance().recordQueryPlanCacheRequest(query != null);
+    if (query == null) {
+      query = Query.parse(text);
+      queryCache.put(text, query);
+    }
+    return query;
+  }
+
+  /**
+   * Runs a query against covid data. See {@link Query} for the query syntax.
+   *
+   * @param text text of the query
+   * @return matching records in requested order
+   * @throws AppException if the query is not valid
+   */
+  public List<CovidData> runQuery(String text) {
+    var start = System.nanoTime();
+    try {
+      return compileQuery(text).execute(datasetCache.get().dataset());
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("runQuery").recordSince(start);
+    }
+  }
+
+  /**
+   * Runs a query without ordering against covid data while the data file is being read, without using cached
+   * data and without keeping the whole data in memory. Reading stops as soon as the query has enough records,
+   * e.g. {@code deaths > 100000 limit 1} reads the file only up to the first matching country.
+   * See {@link Query} for the query syntax.
+   *
+   * @param text text of the query
+   * @return matching records in data file order
+   * @throws AppException if the query is not valid or orders records
+   */
+  public List<CovidData> streamQuery(String text) {
+    var start = System.nanoTime();
+    var query = compileQuery(text);
+    try (var batches = csvFileReader.iterateCsvFile(dataFile)) {
+      return query.execute(batches);
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("streamQuery").recordSince(start);
+    }
   }
 
   /**
@@ -36,11 +152,113 @@ public class AppModel {
    * @return {@link CovidData} covid data record of country with the highest number of covid deaths
    */
   public CovidData findCovidRecordWithHighestNumberOfDeaths() {
-    var covidData = csvFileReader.readCsvFile(filename);
-    return covidData
-        .stream()
-        .max(comparing(CovidData::getTotalDeaths))
-        .orElseThrow(() -> new AppException("Country not found with highest number of deaths."));
+    var start = System.nanoTime();
+    try {
+      var dataset = datasetCache.get().dataset();
+      if (dataset.size() == 0) {
+        throw new AppException("Country not found with highest number of deaths.");
+      }
+      return dataset.get(findRowWithHighestValue(dataset, CovidMetric.TOTAL_DEATHS));
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("findCovidRecordWithHighestNumberOfDeaths").recordSince(start);
+    }
+  }
+
+  /**
+   * Finds a record with the highest value of given metric. If more records have the same value,
+   * the first one is returned.
+   *
+   * @param metric metric to compare
+   * @return {@link CovidData} covid data record with the highest value of the metric
+   */
+  public CovidData findCovidRecordWithHighest(CovidMetric metric) {
+    var start = System.nanoTime();
+    try {
+      var dataset = datasetCache.get().dataset();
+      if (dataset.size() == 0) {
+        throw new AppException("Country not found with highest value of " + metric.getDisplayName() + ".");
+      }
+      return dataset.get(findRowWithHighestValue(dataset, metric));
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("findCovidRecordWithHighest").recordSince(start);
+    }
+  }
+
+  /**
+   * Finds records with the highest values of given metric without sorting the whole data.
+   * Records with equal values keep the order of the data file.
+   *
+   * @param metric metric to compare
+   * @param k      maximal number of records to return
+   * @return collection of {@link CovidData} ordered from the highest value of the metric
+   */
+  public List<CovidData> findTopCovidRecords(CovidMetric metric, int k) {
+    var start = System.nanoTime();
+    try {
+      var dataset = datasetCache.get().dataset();
+      if (dataset.hasSortIndex(metric, true)) {
+        return dataset.orderedBy(metric, true, 0, k);
+      }
+      var topK = new TopK(Math.min(k, dataset.size()), true);
+      var values = dataset.column(metric);
+      for (var row = 0; row < dataset.size(); row++) {
+        topK.offer(values.get(row), row);
+      }
+      return dataset.asList(topK.drain().rows());
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("findTopCovidRecords").recordSince(start);
+    }
+  }
+
+  /**
+   * Finds records with the highest values of given metric while the data file is being read, without
+   * using cached data and without keeping the whole data in memory.
+   *
+   * @param metric metric to compare
+   * @param k      maximal number of records to return
+   * @return collection of {@link CovidData} ordered from the highest value of the metric
+   */
+  public List<CovidData> streamTopCovidRecords(CovidMetric metric, int k) {
+    var start = System.nanoTime();
+    try {
+      var handler = new TopKRowHandler(metric, k, true);
+      csvFileReader.readCsvFile(dataFile, handler);
+      return handler.toDataset().asList();
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("streamTopCovidRecords").recordSince(start);
+    }
+  }
+
+  /**
+   * Finds records of a country, ignoring case and diacritics of its name.
+   *
+   * @param country name of the country
+   * @return collection of {@link CovidData} of the country, empty if the country is not found
+   */
+  public List<CovidData> findCovidRecordsByCountry(String country) {
+    var start = System.nanoTime();
+    try {
+      return datasetCache.get().dataset().getCountryIndex().find(country);
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("findCovidRecordsByCountry").recordSince(start);
+    }
+  }
+
+  /**
+   * Finds records of countries matching a search query: countries with the exact name, starting with the query
+   * or with a similar name. Case and diacritics are ignored.
+   *
+   * @param query searched name or its beginning
+   * @param limit maximal number of returned records
+   * @return collection of {@link CovidData} of matching countries
+   */
+  public List<CovidData> searchCountries(String query, int limit) {
+    var start = System.nanoTime();
+    try {
+      return datasetCache.get().dataset().getCountryIndex().search(query, limit);
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("searchCountries").recordSince(start);
+    }
   }
 
   /**
@@ -50,19 +268,277 @@ public class AppModel {
    * ordered by the highest number of active cases
    */
   public List<CovidData> getCovidDataOrderedByActiveCases() {
-    var covidData = csvFileReader.readCsvFile(filename);
-    return covidData
-        .stream()
-        .sorted(comparing(CovidData::getActiveCases).reversed())
-        .toList();
+    return getCovidDataOrderedBy(CovidMetric.ACTIVE_CASES, true, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Finds a page of covid data ordered by given metric. The order is kept as an index of the cached
+   * dataset, so only the first request sorts the data.
+   *
+   * @param metric     metric to order by
+   * @param descending true to order from the highest value
+   * @param offset     number of records to skip
+   * @param limit      maximal number of records to return
+   * @return collection of {@link CovidData} that contains ordered covid data records
+   */
+  public List<CovidData> getCovidDataOrderedBy(CovidMetric metric, boolean descending, int offset, int limit) {
+    var start = System.nanoTime();
+    try {
+      return datasetCache.get().dataset().orderedBy(metric, descending, offset, limit);
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("getCovidDataOrderedBy").recordSince(start);
+    }
   }
 
   /**
    * Finds all covid data records.
    *
-   * @return collection of {@link CovidData} that contains all covid data records
+   * @return unmodifiable collection of {@link CovidData} that contains all covid data records
    */
   public List<CovidData> getCovidData() {
-    return csvFileReader.readCsvFile(filename);
+    var start = System.nanoTime();
+    try {
+      return datasetCache.get().dataset().asList();
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("getCovidData").recordSince(start);
+    }
+  }
+
+  /**
+   * Gets columnar dataset of all covid data records.
+   *
+   * @return dataset of all covid data records
+   */
+  public CovidDataset getCovidDataset() {
+    var start = System.nanoTime();
+    try {
+      return datasetCache.get().dataset();
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("getCovidDataset").recordSince(start);
+    }
+  }
+
+  /**
+   * Gets columnar dataset of all covid data records together with version of its snapshot. The dataset
+   * is immutable, so any number of threads can query it while newer versions are loaded.
+   *
+   * @return dataset of all covid data records and its version
+   */
+  public VersionedDataset getVersionedDataset() {
+    var snapshot = datasetCache.get();
+    return new VersionedDataset(snapshot.dataset(), snapshot.version(), snapshot.checksum());
+  }
+
+  /**
+   * Calculates Pearson's correlation coefficient between two metrics in a single parallel pass.
+   *
+   * @param first  first metric
+   * @param second second metric
+   * @return Pearson's correlation coefficient in range of -1 to 1
+   */
+  public double calculatePearsonsCoefficient(CovidMetric first, CovidMetric second) {
+    var start = System.nanoTime();
+    try {
+      var dataset = datasetCache.get().dataset();
+      double coefficient;
+      if (dataset.hasCorrelationMatrix()) {
+        coefficient = dataset.getCorrelationMatrix().getPearson(first, second);
+      } else {
+        coefficient = ForkJoinPool.commonPool().invoke(new PearsonTask(dataset.column(first),
+            dataset.column(second), 0, dataset.size(), PearsonTask.DEFAULT_THRESHOLD)).pearson();
+      }
+      if (Double.isNaN(coefficient)) {
+        throw new AppException("Pearson's coefficient is undefined for " + first.getDisplayName()
+            + " and " + second.getDisplayName() + ".");
+      }
+      return coefficient;
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("calculatePearsonsCoefficient").recordSince(start);
+    }
+  }
+
+  /**
+   * Gets Pearson's and Spearman's correlation coefficients of all pairs of metrics. The matrix is computed
+   * once per loaded data.
+   *
+   * @return correlation matrix of all metrics
+   */
+  public CorrelationMatrix getCorrelationMatrix() {
+    var start = System.nanoTime();
+    try {
+      return datasetCache.get().dataset().getCorrelationMatrix();
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("getCorrelationMatrix").recordSince(start);
+    }
+  }
+
+  /**
+   * Aggregates a metric of the loaded data by groups of rows, e.g. total deaths per million by continent.
+   *
+   * @param grouping grouping of the rows
+   * @param metric   aggregated metric
+   * @return count, sum, average, minimum, maximum and rate per million of each group
+   */
+  public GroupAggregation aggregateByGroup(Grouping grouping, CovidMetric metric) {
+    var start = System.nanoTime();
+    try {
+      return GroupAggregation.compute(datasetCache.get().dataset(), grouping, metric);
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("aggregateByGroup").recordSince(start);
+    }
+  }
+
+  /**
+   * Estimates value of a metric at a quantile from sketches of the loaded data, without sorting it.
+   *
+   * @param metric   metric to estimate
+   * @param quantile quantile in range of 0 to 1, e.g. 0.5 for the median
+   * @return estimated value with its bounds
+   * @throws AppException if there is no data or the quantile is out of range
+   */
+  public DatasetSketches.Estimate estimateQuantile(CovidMetric metric, double quantile) {
+    var start = System.nanoTime();
+    try {
+      return datasetCache.get().dataset().getSketches().estimateQuantile(metric, quantile);
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("estimateQuantile").recordSince(start);
+    }
+  }
+
+  /**
+   * Estimates number of distinct countries from sketches of the loaded data.
+   *
+   * @return estimated number of countries with its bounds
+   */
+  public DatasetSketches.Estimate estimateDistinctCountries() {
+    var start = System.nanoTime();
+    try {
+      return datasetCache.get().dataset().getSketches().estimateDistinctCountries();
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("estimateDistinctCountries").recordSince(start);
+    }
+  }
+
+  /**
+   * Estimates countries with the highest total value of a metric from sketches of the loaded data.
+   *
+   * @param metric metric to sum
+   * @param count  maximal number of countries
+   * @return countries with their estimated totals ordered from the highest
+   * @throws AppException if the number of countries is out of range
+   */
+  public List<DatasetSketches.HeavyHitter> estimateHeavyHitters(CovidMetric metric, int count) {
+    var start = System.nanoTime();
+    try {
+      return datasetCache.get().dataset().getSketches().estimateHeavyHitters(metric, count);
+    } finally {
+      AppMetrics.getInstance().getQueryLatency("estimateHeavyHitters").recordSince(start);
+    }
+  }
+
+  /**
+   * Gets path of binary snapshot of a data file in the directory given by {@value #SNAPSHOT_DIRECTORY_PROPERTY}
+   * system property.
+   *
+   * @param dataFilename filename of the file with covid data
+   * @return path of the snapshot or null if the property is not set
+   */
+  private static Path defaultSnapshotPath(String dataFilename) {
+    var directory = System.getProperty(SNAPSHOT_DIRECTORY_PROPERTY);
+    if (directory == null || directory.isBlank()) {
+      return null;
+    }
+    return Path.of(directory, Path.of(dataFilename).getFileName() + SNAPSHOT_EXTENSION);
+  }
+
+  /**
+   * Finds index of the first row with the highest value of a metric.
+   *
+   * @param dataset dataset to search, must not be empty
+   * @param metric  metric to compare
+   * @return index of the row
+   */
+  private int findRowWithHighestValue(CovidDataset dataset, CovidMetric metric) {
+    var values = dataset.column(metric);
+    var maxRow = 0;
+    for (var row = 1; row < dataset.size(); row++) {
+      if (values.get(row) > values.get(maxRow)) {
+        maxRow = row;
+      }
+    }
+    return maxRow;
+  }
+
+  /**
+   * Starts watching the data file. Every change of the file is parsed in background and replaces cached data
+   * once parsed, requests are served from the previous data meanwhile and do not check the file anymore.
+   *
+   * @throws AppException if the data file is not a file in the filesystem
+   */
+  public synchronized void startWatching() {
+    if (dataFileWatcher != null) {
+      return;
+    }
+    if (dataFile.getPath() == null) {
+      throw new AppException("File " + dataFile.getFilename() + " cannot be watched");
+    }
+    dataFileWatcher = new DataFileWatcher(dataFile.getPath(), datasetCache::refresh,
+        DataFileWatcher.DEFAULT_DEBOUNCE_MILLIS);
+    datasetCache.setWatched(true);
+  }
+
+  /**
+   * Stops watching the data file, requests check the file stamp again.
+   */
+  public synchronized void stopWatching() {
+    if (dataFileWatcher == null) {
+      return;
+    }
+    dataFileWatcher.close();
+    dataFileWatcher = null;
+    datasetCache.setWatched(false);
+  }
+
+  /**
+   * Registers a listener notified about every new version of covid data loaded after the data file changed.
+   *
+   * @param listener listener to register
+   */
+  public void addDatasetChangeListener(DatasetChangeListener listener) {
+    datasetCache.addChangeListener(listener);
+  }
+
+  /**
+   * Unregisters a listener of new versions of covid data.
+   *
+   * @param listener listener to unregister
+   */
+  public void removeDatasetChangeListener(DatasetChangeListener listener) {
+    datasetCache.removeChangeListener(listener);
+  }
+
+  /**
+   * Drops cached covid data, so it is read again from the data file on the next request.
+   */
+  public void invalidateCache() {
+    datasetCache.invalidate();
+  }
+
+  /**
+   * Gets number of requests that were served from cached data without reading the data file.
+   *
+   * @return number of cache hits
+   */
+  public long getCacheHitCount() {
+    return datasetCache.getHitCount();
+  }
+
+  /**
+   * Gets number of requests that required reading the data file.
+   *
+   * @return number of cache misses
+   */
+  public long getCacheMissCount() {
+    return datasetCache.getMissCount();
   }
 }
@@ -0,0 +1,174 @@
+package pl.polsl.covid19.model;
+
+/**
+ * Sorts row indexes of {@link CovidDataset} by values of a primitive column without boxing.
+ *
+ * @author Krzysztof Franków
+ * @version 1.3
+ */
+final class ColumnSort {
+
+  /**
+   * Ranges not longer than this are sorted by insertion sort.
+   */
+  private static final int INSERTION_SORT_THRESHOLD = 32;
+
+  /**
+   * Private constructor, the class contains only static methods.
+   */
+  private ColumnSort() {
+  }
+
+  /**
+   * Creates indexes of rows ordered by values of a column. The sort is stable, so rows with equal values
+   * keep their original order.
+   *
+   * @param values     values of the column indexed by row
+   * @param size       number of rows
+   * @param descending true to order from the highest value
+   * @return indexes of rows in requested order
+   */
+  static int[] sortedRows(final LongColumn values, final int size, final boolean descending) {
+    var rows = new int[size];
+    for (var i = 0; i < size; i++) {
+      rows[i] = i;
+    }
+    var buffer = new int[size];
+    mergeSort(rows, buffer, 0, size, values, descending);
+    return rows;
+  }
+
+  /**
+   * Orders a part of an array of row indexes by values of a column. The sort is stable, so rows with equal
+   * values keep their order in the array.
+   *
+   * @param rows       indexes of rows, the first count elements are ordered in place
+   * @param count      number of ordered elements
+   * @param values     values of the column indexed by row
+   * @param descending true to order from the highest value
+   */
+  static void sortRows(final int[] rows, final int count, final LongColumn values, final boolean descending) {
+    mergeSort(rows, new int[count], 0, count, values, descending);
+  }
+
+  /**
+   * Updates indexes of rows ordered by values of a column after values of a few rows changed. Changed rows
+   * are removed from the previous order, sorted separately and merged back, so the result is equal
+   * to sorting all rows again.
+   *
+   * @param sortedRows  indexes of rows ordered by previous values, the array is not modified
+   * @param values      current values of the column indexed by row
+   * @param changedRows indexes of rows whose values may have changed, in ascending order
+   * @param descending  true to order from the highest value
+   * @return indexes of rows in requested order
+   */
+  static int[] updatedRows(final int[] sortedRows, final LongColumn values, final int[] changedRows,
+                           final boolean descending) {
+    var changed = new boolean[sortedRows.length];
+    var changedValues = new long[changedRows.length];
+    for (var i = 0; i < changedRows.length; i++) {
+      changed[changedRows[i]] = true;
+      changedValues[i] = values.get(changedRows[i]);
+    }
+    var changedOrder = sortedRows(LongColumn.of(changedValues), changedRows.length, descending);
+    var rows = new int[sortedRows.length];
+    var next = 0;
+    var inserted = 0;
+    for (var row : sortedRows) {
+      if (changed[row]) {
+        continue;
+      }
+      while (inserted < changedOrder.length
+          && placedBefore(changedRows[changedOrder[inserted]], row, values, descending)) {
+        rows[next++] = changedRows[changedOrder[inserted++]];
+      }
+      rows[next++] = row;
+    }
+    while (inserted < changedOrder.length) {
+      rows[next++] = changedRows[changedOrder[inserted++]];
+    }
+    return rows;
+  }
+
+  /**
+   * Checks whether the first row is placed before the second one by a stable sort.
+   *
+   * @param first      index of the first row
+   * @param second     index of the second row
+   * @param values     values of the column indexed by row
+   * @param descending true to order from the highest value
+   * @return true if the first row is placed before the second one
+   */
+  private static boolean placedBefore(int first, int second, LongColumn values, boolean descending) {
+    return precedes(values.get(first), values.get(second), descending)
+        || (values.get(first) == values.get(second) && first < second);
+  }
+
+  /**
+   * Sorts a range of row indexes with stable merge sort.
+   *
+   * @param rows       row indexes to sort
+   * @param buffer     temporary buffer of the same length as rows
+   * @param from       index of the first element of the range
+   * @param to         index after the last element of the range
+   * @param values     values of the column indexed by row
+   * @param descending true to order from the highest value
+   */
+  private static void mergeSort(int[] rows, int[] buffer, int from, int to, LongColumn values, boolean descending) {
+    if (to - from <= INSERTION_SORT_THRESHOLD) {
+      insertionSort(rows, from, to, values, descending);
+      return;
+    }
+    var middle = (from + to) >>> 1;
+    mergeSort(rows, buffer, from, middle, values, descending);
+    mergeSort(rows, buffer, middle, to, values, descending);
+    if (!precedes(values.get(rows[middle]), values.get(rows[middle - 1]), descending)) {
+      return;
+    }
+    System.arraycopy(rows, from, buffer, from, to - from);
+    var left = from;
+    var right = middle;
+    for (var i = from; i < to; i++) {
+      if (right >= to
+          || (left < middle && !precedes(values.get(buffer[right]), values.get(buffer[left]), descending))) {
+        rows[i] = buffer[left++];
+      } else {
+        rows[i] = buffer[right++];
+      }
+    }
+  }
+
+  /**
+   * Sorts a small range of row indexes with stable insertion sort.
+   *
+   * @param rows       row indexes to sort
+   * @param from       index of the first element of the range
+   * @param to         index after the last element of the range
+   * @param values     values of the column indexed by row
+   * @param descending true to order from the highest value
+   */
+  private static void insertionSort(int[] rows, int from, int to, LongColumn values, boolean descending) {
+    for (var i = from + 1; i < to; i++) {
+      var row = rows[i];
+      var value = values.get(row);
+      var j = i - 1;
+      while (j >= from && precedes(value, values.get(rows[j]), descending)) {
+        rows[j + 1] = rows[j];
+        j--;
+      }
+      rows[j + 1] = row;
+    }
+  }
+
+  /**
+   * Checks whether the first value must be placed strictly before the second one.
+   *
+   * @param first      first value
+   * @param second     second value
+   * @param descending true to order from the highest value
+   * @return true if the first value must be placed before the second one
+   */
+  private static boolean precedes(long first, long second, boolean descending) {
+    return descending ? first > second : first < second;
+  }
+}
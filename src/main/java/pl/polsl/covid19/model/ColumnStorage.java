@@ -0,0 +1,76 @@
+package pl.polsl.covid19.model;
+
+import java.util.Arrays;
+
+/**
+ * Storage of {@link LongColumn}s of built datasets. Heap storage keeps each column in a {@code long} array,
+ * which is the fastest to scan. Off-heap storage keeps columns in direct buffers and maps columns
+ * of {@link SnapshotFile}s instead of copying them, so large datasets neither grow the heap nor lengthen
+ * garbage collection pauses, and processes reading the same snapshot share its pages. Datasets are built
+ * straight into columns of their storage by {@link LongColumnBuilder}. Raw csv rows whose columns are decoded
+ * on first use are the exception: their bytes stay on the heap until all their columns are decoded.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+enum ColumnStorage {
+
+  /**
+   * Columns in heap arrays.
+   */
+  HEAP,
+
+  /**
+   * Columns in direct or memory mapped buffers.
+   */
+  OFF_HEAP;
+
+  /**
+   * Name of system property selecting default storage.
+   */
+  static final String STORAGE_PROPERTY = "covid19.column.storage";
+
+  /**
+   * Gets storage selected by system property or heap storage by default.
+   *
+   * @return default storage
+   * @throws AppException if the property names unknown storage
+   */
+  static ColumnStorage getDefault() {
+    var name = System.getProperty(STORAGE_PROPERTY, HEAP.name());
+    try {
+      return valueOf(name);
+    } catch (IllegalArgumentException e) {
+      throw new AppException("Unknown column storage " + name, e);
+    }
+  }
+
+  /**
+   * Creates column of zeros.
+   *
+   * @param size number of rows
+   * @return created column
+   */
+  LongColumn allocate(int size) {
+    return this == HEAP ? LongColumn.of(new long[size]) : LongColumn.allocateDirect(size);
+  }
+
+  /**
+   * Creates column of the first values of an array. Heap columns use the array directly if it has no other values,
+   * so the array must not be modified afterwards.
+   *
+   * @param values values indexed by row
+   * @param size   number of rows
+   * @return created column
+   */
+  LongColumn copyOf(long[] values, int size) {
+    if (this == HEAP) {
+      return LongColumn.of(values.length == size ? values : Arrays.copyOf(values, size));
+    }
+    var column = LongColumn.allocateDirect(size);
+    for (var row = 0; row < size; row++) {
+      column.set(row, values[row]);
+    }
+    return column;
+  }
+}
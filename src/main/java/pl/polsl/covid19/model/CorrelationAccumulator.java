@@ -0,0 +1,113 @@
+package pl.polsl.covid19.model;
+
+/**
+ * Accumulates streaming moments of two variables with Welford's algorithm, so Pearson's correlation
+ * coefficient can be computed in a single numerically stable pass. Partial accumulators of separate
+ * parts of data can be merged.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class CorrelationAccumulator {
+
+  /**
+   * Number of accumulated pairs.
+   */
+  private long count;
+
+  /**
+   * Mean of the first variable.
+   */
+  private double meanX;
+
+  /**
+   * Mean of the second variable.
+   */
+  private double meanY;
+
+  /**
+   * Sum of squared differences from the mean of the first variable.
+   */
+  private double squaresX;
+
+  /**
+   * Sum of squared differences from the mean of the second variable.
+   */
+  private double squaresY;
+
+  /**
+   * Sum of products of differences from the means of both variables.
+   */
+  private double coproducts;
+
+  /**
+   * Adds a pair of values.
+   *
+   * @param x value of the first variable
+   * @param y value of the second variable
+   */
+  void add(double x, double y) {
+    count++;
+    var deltaX = x - meanX;
+    meanX += deltaX / count;
+    var deltaY = y - meanY;
+    meanY += deltaY / count;
+    squaresX += deltaX * (x - meanX);
+    squaresY += deltaY * (y - meanY);
+    coproducts += deltaX * (y - meanY);
+  }
+
+  /**
+   * Merges moments of another accumulator into this one.
+   *
+   * @param other accumulator to merge
+   * @return this accumulator
+   */
+  CorrelationAccumulator merge(CorrelationAccumulator other) {
+    if (other.count == 0) {
+      return this;
+    }
+    if (count == 0) {
+      count = other.count;
+      meanX = other.meanX;
+      meanY = other.meanY;
+      squaresX = other.squaresX;
+      squaresY = other.squaresY;
+      coproducts = other.coproducts;
+      return this;
+    }
+    var total = count + other.count;
+    var deltaX = other.meanX - meanX;
+    var deltaY = other.meanY - meanY;
+    var weight = (double) count * other.count / total;
+    meanX += deltaX * other.count / total;
+    meanY += deltaY * other.count / total;
+    squaresX += other.squaresX + deltaX * deltaX * weight;
+    squaresY += other.squaresY + deltaY * deltaY * weight;
+    coproducts += other.coproducts + deltaX * deltaY * weight;
+    count = total;
+    return this;
+  }
+
+  /**
+   * Gets number of accumulated pairs.
+   *
+   * @return number of accumulated pairs
+   */
+  long getCount() {
+    return count;
+  }
+
+  /**
+   * Computes Pearson's correlation coefficient of accumulated pairs.
+   *
+   * @return Pearson's correlation coefficient or NaN if any variable has zero variance
+   */
+  double pearson() {
+    if (count < 2 || squaresX == 0 || squaresY == 0) {
+      return Double.NaN;
+    }
+    var coefficient = coproducts / Math.sqrt(squaresX * squaresY);
+    return Math.max(-1.0, Math.min(1.0, coefficient));
+  }
+}
@@ -0,0 +1,120 @@
+package pl.polsl.covid19.model;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Pearson's and Spearman's correlation coefficients of all pairs of {@link CovidMetric}.
+ * Both matrices are computed in a single parallel scan of the dataset. Spearman's coefficients are
+ * Pearson's coefficients of ranks, which are derived from the sort indexes of the dataset. Rows with
+ * equal values get their average rank. Coefficients of metrics with zero variance are NaN.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+public class CorrelationMatrix {
+
+  /**
+   * Pearson's coefficients indexed by metric ordinals.
+   */
+  private final double[][] pearson;
+
+  /**
+   * Spearman's coefficients indexed by metric ordinals.
+   */
+  private final double[][] spearman;
+
+  /**
+   * CorrelationMatrix constructor.
+   *
+   * @param pearson  Pearson's coefficients indexed by metric ordinals
+   * @param spearman Spearman's coefficients indexed by metric ordinals
+   */
+  private CorrelationMatrix(double[][] pearson, double[][] spearman) {
+    this.pearson = pearson;
+    this.spearman = spearman;
+  }
+
+  /**
+   * Gets Pearson's correlation coefficient of two metrics.
+   *
+   * @param first  first metric
+   * @param second second metric
+   * @return Pearson's correlation coefficient or NaN if undefined
+   */
+  public double getPearson(CovidMetric first, CovidMetric second) {
+    return pearson[first.ordinal()][second.ordinal()];
+  }
+
+  /**
+   * Gets Spearman's rank correlation coefficient of two metrics.
+   *
+   * @param first  first metric
+   * @param second second metric
+   * @return Spearman's rank correlation coefficient or NaN if undefined
+   */
+  public double getSpearman(CovidMetric first, CovidMetric second) {
+    return spearman[first.ordinal()][second.ordinal()];
+  }
+
+  /**
+   * Computes correlation matrices of a dataset.
+   *
+   * @param dataset dataset to compute
+   * @return computed matrices
+   */
+  static CorrelationMatrix compute(CovidDataset dataset) {
+    var metrics = CovidMetric.values();
+    var values = new LongColumn[metrics.length];
+    var ranks = new LongColumn[metrics.length];
+    for (var metric : metrics) {
+      values[metric.ordinal()] = dataset.column(metric);
+      ranks[metric.ordinal()] = LongColumn.of(doubledRanks(dataset.column(metric), dataset.sortIndex(metric, false)));
+    }
+    var accumulators = ForkJoinPool.commonPool().invoke(new CorrelationMatrixTask(new LongColumn[][] {values, ranks},
+        0, dataset.size(), CorrelationMatrixTask.DEFAULT_THRESHOLD));
+    return new CorrelationMatrix(coefficients(accumulators[0], metrics.length),
+        coefficients(accumulators[1], metrics.length));
+  }
+
+  /**
+   * Computes ranks of values from their ascending sort index. Ranks are doubled, so average ranks of equal
+   * values stay integers, which does not change correlation coefficients.
+   *
+   * @param values    values indexed by row
+   * @param sortIndex indexes of rows in ascending order of values
+   * @return doubled ranks indexed by row
+   */
+  private static long[] doubledRanks(LongColumn values, int[] sortIndex) {
+    var ranks = new long[sortIndex.length];
+    var start = 0;
+    while (start < sortIndex.length) {
+      var end = start;
+      while (end + 1 < sortIndex.length && values.get(sortIndex[end + 1]) == values.get(sortIndex[start])) {
+        end++;
+      }
+      var doubledRank = start + end + 2L;
+      for (var position = start; position <= end; position++) {
+        ranks[sortIndex[position]] = doubledRank;
+      }
+      start = end + 1;
+    }
+    return ranks;
+  }
+
+  /**
+   * Computes matrix of coefficients from accumulated moments.
+   *
+   * @param accumulator accumulated moments
+   * @param dimension   number of variables
+   * @return coefficients indexed by variables
+   */
+  private static double[][] coefficients(CovarianceAccumulator accumulator, int dimension) {
+    var result = new double[dimension][dimension];
+    for (var i = 0; i < dimension; i++) {
+      for (var j = 0; j < dimension; j++) {
+        result[i][j] = accumulator.pearson(i, j);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,136 @@
+package pl.polsl.covid19.model;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join task accumulating moments of several groups of columns in a single scan of rows.
+ * Each group is accumulated by its own {@link CovarianceAccumulator}. Ranges longer than the threshold
+ * are split into halves computed in parallel and the partial accumulators are merged. Values are shifted
+ * by the first row before accumulation, which keeps precision and does not change the coefficients.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class CorrelationMatrixTask extends RecursiveTask<CovarianceAccumulator[]> {
+
+  /**
+   * Default number of rows below which the range is accumulated sequentially.
+   */
+  static final int DEFAULT_THRESHOLD = 16 * 1024;
+
+  /**
+   * Columns indexed by group and by column within the group.
+   */
+  private final LongColumn[][] groups;
+
+  /**
+   * Values subtracted from columns, indexed like the columns.
+   */
+  private final long[][] shifts;
+
+  /**
+   * Index of the first row of the range.
+   */
+  private final int from;
+
+  /**
+   * Index after the last row of the range.
+   */
+  private final int to;
+
+  /**
+   * Number of rows below which the range is accumulated sequentially.
+   */
+  private final int threshold;
+
+  /**
+   * CorrelationMatrixTask constructor.
+   *
+   * @param groups    columns indexed by group and by column within the group
+   * @param from      index of the first row of the range
+   * @param to        index after the last row of the range
+   * @param threshold number of rows below which the range is accumulated sequentially
+   */
+  CorrelationMatrixTask(LongColumn[][] groups, int from, int to, int threshold) {
+    this(groups, firstRowShifts(groups, from, to), from, to, threshold);
+  }
+
+  /**
+   * CorrelationMatrixTask constructor.
+   *
+   * @param groups    columns indexed by group and by column within the group
+   * @param shifts    values subtracted from columns, indexed like the columns
+   * @param from      index of the first row of the range
+   * @param to        index after the last row of the range
+   * @param threshold number of rows below which the range is accumulated sequentially
+   */
+  private CorrelationMatrixTask(LongColumn[][] groups, long[][] shifts, int from, int to, int threshold) {
+    this.groups = groups;
+    this.shifts = shifts;
+    this.from = from;
+    this.to = to;
+    this.threshold = Math.max(1, threshold);
+  }
+
+  @Override
+  protected CovarianceAccumulator[] compute() {
+    if (to - from <= threshold) {
+      return accumulate();
+    }
+    var middle = (from + to) >>> 1;
+    var left = new CorrelationMatrixTask(groups, shifts, from, middle, threshold);
+    left.fork();
+    var right = new CorrelationMatrixTask(groups, shifts, middle, to, threshold).compute();
+    var merged = left.join();
+    for (var group = 0; group < merged.length; group++) {
+      merged[group].merge(right[group]);
+    }
+    return merged;
+  }
+
+  /**
+   * Accumulates the range sequentially.
+   *
+   * @return accumulators indexed by group
+   */
+  private CovarianceAccumulator[] accumulate() {
+    var accumulators = new CovarianceAccumulator[groups.length];
+    var rowValues = new double[groups.length][];
+    for (var group = 0; group < groups.length; group++) {
+      accumulators[group] = new CovarianceAccumulator(groups[group].length);
+      rowValues[group] = new double[groups[group].length];
+    }
+    for (var row = from; row < to; row++) {
+      for (var group = 0; group < groups.length; group++) {
+        var columns = groups[group];
+        var values = rowValues[group];
+        for (var column = 0; column < columns.length; column++) {
+          values[column] = columns[column].get(row) - shifts[group][column];
+        }
+        accumulators[group].add(values);
+      }
+    }
+    return accumulators;
+  }
+
+  /**
+   * Gets values of the first row of the range used to shift the columns.
+   *
+   * @param groups columns indexed by group and by column within the group
+   * @param from   index of the first row of the range
+   * @param to     index after the last row of the range
+   * @return values of the first row indexed like the columns
+   */
+  private static long[][] firstRowShifts(LongColumn[][] groups, int from, int to) {
+    var shifts = new long[groups.length][];
+    for (var group = 0; group < groups.length; group++) {
+      shifts[group] = new long[groups[group].length];
+      if (from < to) {
+        for (var column = 0; column < groups[group].length; column++) {
+          shifts[group][column] = groups[group][column].get(from);
+        }
+      }
+    }
+    return shifts;
+  }
+}
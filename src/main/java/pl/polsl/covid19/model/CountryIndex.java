@@ -0,0 +1,365 @@
+package pl.polsl.covid19.model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Index of country names of a {@link CovidDataset} for exact, prefix and fuzzy lookup. Names are compared
+ * in normalized form, ignoring case and diacritics, so {@code "cote d'ivoire"} finds {@code "Côte d'Ivoire"}.
+ *
+ * <p>Exact lookup uses a hash map of normalized names. Prefix lookup binary searches the sorted array
+ * of normalized names, which is the leaf level of a trie stored without nodes: all names with a prefix
+ * form one range of the array. Fuzzy lookup scans the names with Levenshtein distance bounded by a maximal
+ * distance, stopping at names that cannot match early. Rows of each country are kept in one array grouped by
+ * country code, so matches are returned as views of the dataset without copying records.
+ *
+ * <p>The index is built once per dataset and is immutable, so it can be queried by any number of threads.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+public class CountryIndex {
+
+  /**
+   * Pattern of combining marks left after canonical decomposition of letters with diacritics.
+   */
+  private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+  /**
+   * Indexed dataset.
+   */
+  private final CovidDataset dataset;
+
+  /**
+   * Distinct normalized country names in ascending order.
+   */
+  private final String[] keys;
+
+  /**
+   * Positions of normalized names in {@link #keys}.
+   */
+  private final Map<String, Integer> keyPositions;
+
+  /**
+   * Start of country codes of each normalized name in {@link #keyCodes}, one more element than keys.
+   */
+  private final int[] keyCodeOffsets;
+
+  /**
+   * Country codes grouped by normalized name, names differing only in case or diacritics share a key.
+   */
+  private final int[] keyCodes;
+
+  /**
+   * Start of rows of each country code in {@link #codeRows}, one more element than country codes.
+   */
+  private final int[] codeRowOffsets;
+
+  /**
+   * Rows grouped by country code, in dataset order within a country.
+   */
+  private final int[] codeRows;
+
+  /**
+   * CountryIndex constructor.
+   *
+   * @param dataset indexed dataset
+   */
+  private CountryIndex(CovidDataset dataset) {
+    this.dataset = dataset;
+    var countryCount = dataset.countryCount();
+
+    codeRowOffsets = new int[countryCount + 1];
+    for (var row = 0; row < dataset.size(); row++) {
+      codeRowOffsets[dataset.countryCode(row) + 1]++;
+    }
+    for (var code = 0; code < countryCount; code++) {
+      codeRowOffsets[code + 1] += codeRowOffsets[code];
+    }
+    codeRows = new int[dataset.size()];
+    var next = Arrays.copyOf(codeRowOffsets, countryCount);
+    for (var row = 0; row < dataset.size(); row++) {
+      codeRows[next[dataset.countryCode(row)]++] = row;
+    }
+
+    var normalizedNames = new String[countryCount];
+    var codesByName = new Integer[countryCount];
+    for (var code = 0; code < countryCount; code++) {
+      normalizedNames[code] = normalize(dataset.countryName(code));
+      codesByName[code] = code;
+    }
+    Arrays.sort(codesByName, (first, second) -> normalizedNames[first].compareTo(normalizedNames[second]));
+    var sortedKeys = new ArrayList<String>();
+    keyCodeOffsets = new int[countryCount + 1];
+    keyCodes = new int[countryCount];
+    for (var i = 0; i < countryCount; i++) {
+      var name = normalizedNames[codesByName[i]];
+      if (sortedKeys.isEmpty() || !sortedKeys.get(sortedKeys.size() - 1).equals(name)) {
+        keyCodeOffsets[sortedKeys.size()] = i;
+        sortedKeys.add(name);
+      }
+      keyCodes[i] = codesByName[i];
+    }
+    keyCodeOffsets[sortedKeys.size()] = countryCount;
+    keys = sortedKeys.toArray(new String[0]);
+    keyPositions = new HashMap<>(keys.length * 2);
+    for (var position = 0; position < keys.length; position++) {
+      keyPositions.put(keys[position], position);
+    }
+  }
+
+  /**
+   * Builds index of country names of a dataset.
+   *
+   * @param dataset indexed dataset
+   * @return built index
+   */
+  static CountryIndex build(CovidDataset dataset) {
+    return new CountryIndex(dataset);
+  }
+
+  /**
+   * Finds records of a country, ignoring case and diacritics of its name.
+   *
+   * @param country name of the country
+   * @return records of the country in dataset order, empty if the country is not found
+   */
+  public List<CovidData> find(String country) {
+    var position = keyPositions.get(normalize(country));
+    if (position == null) {
+      return List.of();
+    }
+    var rows = rowsOfKeys(List.of(position), Integer.MAX_VALUE);
+    Arrays.sort(rows);
+    return dataset.asList(rows);
+  }
+
+  /**
+   * Finds country names starting with a prefix, ignoring case and diacritics.
+   *
+   * @param prefix prefix of the names
+   * @param limit  maximal number of returned names
+   * @return names in alphabetical order of their normalized form
+   */
+  public List<String> complete(String prefix, int limit) {
+    return namesOfKeys(prefixKeys(normalize(prefix), limit), limit);
+  }
+
+  /**
+   * Finds country names similar to a query, ignoring case and diacritics. Names are similar if their
+   * Levenshtein distance from the query is not greater than the maximal distance.
+   *
+   * @param query       searched name
+   * @param maxDistance maximal number of inserted, deleted or replaced characters
+   * @param limit       maximal number of returned names
+   * @return names ordered by distance from the query and alphabetically
+   */
+  public List<String> findSimilar(String query, int maxDistance, int limit) {
+    return namesOfKeys(similarKeys(normalize(query), maxDistance, limit), limit);
+  }
+
+  /**
+   * Finds records of countries matching a search query, as typed into a search box. Countries with
+   * the exact name come first, followed by countries starting with the query and countries with similar names.
+   * Queries of up to four characters allow one typo, longer queries allow two.
+   *
+   * @param query searched name or its beginning
+   * @param limit maximal number of returned records
+   * @return records of matching countries, records of one country in dataset order
+   */
+  public List<CovidData> search(String query, int limit) {
+    var key = normalize(query);
+    if (key.isEmpty() || limit <= 0) {
+      return List.of();
+    }
+    var positions = new LinkedHashSet<Integer>();
+    var exact = keyPositions.get(key);
+    if (exact != null) {
+      positions.add(exact);
+    }
+    positions.addAll(prefixKeys(key, limit));
+    if (positions.size() < limit) {
+      positions.addAll(similarKeys(key, key.length() <= 4 ? 1 : 2, limit));
+    }
+    return dataset.asList(rowsOfKeys(positions, limit));
+  }
+
+  /**
+   * Normalizes a country name for comparison: removes diacritics, surrounding whitespace and converts it
+   * to lower case.
+   *
+   * @param name country name
+   * @return normalized name
+   */
+  static String normalize(String name) {
+    var trimmed = name.trim();
+    for (var i = 0; i < trimmed.length(); i++) {
+      if (trimmed.charAt(i) >= 0x80) {
+        var decomposed = Normalizer.normalize(trimmed, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+      }
+    }
+    return trimmed.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Finds positions of normalized names starting with a normalized prefix.
+   *
+   * @param prefix normalized prefix
+   * @param limit  maximal number of positions
+   * @return positions of names in ascending order
+   */
+  private List<Integer> prefixKeys(String prefix, int limit) {
+    var positions = new ArrayList<Integer>();
+    for (var position = lowerBound(prefix); position < keys.length && positions.size() < limit
+        && keys[position].startsWith(prefix); position++) {
+      positions.add(position);
+    }
+    return positions;
+  }
+
+  /**
+   * Finds positions of normalized names within a maximal distance from a normalized query.
+   *
+   * @param query       normalized query
+   * @param maxDistance maximal Levenshtein distance
+   * @param limit       maximal number of positions
+   * @return positions of names ordered by distance and alphabetically
+   */
+  private List<Integer> similarKeys(String query, int maxDistance, int limit) {
+    var matches = new ArrayList<long[]>();
+    var previous = new int[query.length() + 1];
+    var current = new int[query.length() + 1];
+    for (var position = 0; position < keys.length; position++) {
+      var distance = boundedDistance(query, keys[position], maxDistance, previous, current);
+      if (distance <= maxDistance) {
+        matches.add(new long[] {distance, position});
+      }
+    }
+    matches.sort((first, second) -> first[0] != second[0] ? Long.compare(first[0], second[0])
+        : Long.compare(first[1], second[1]));
+    var positions = new ArrayList<Integer>();
+    for (var i = 0; i < matches.size() && i < limit; i++) {
+      positions.add((int) matches.get(i)[1]);
+    }
+    return positions;
+  }
+
+  /**
+   * Computes Levenshtein distance of two strings if it is not greater than a bound. Only cells of the distance
+   * matrix within the bound from the diagonal are computed, and the computation stops as soon as every
+   * cell of a row exceeds the bound.
+   *
+   * @param query       first string
+   * @param key         second string
+   * @param maxDistance bound of the distance
+   * @param previous    buffer of the previous row, at least one element longer than the query
+   * @param current     buffer of the current row, at least one element longer than the query
+   * @return distance of the strings or a number greater than the bound
+   */
+  static int boundedDistance(String query, String key, int maxDistance, int[] previous, int[] current) {
+    var queryLength = query.length();
+    var keyLength = key.length();
+    if (Math.abs(queryLength - keyLength) > maxDistance) {
+      return maxDistance + 1;
+    }
+    var outside = maxDistance + 1;
+    for (var j = 0; j <= queryLength; j++) {
+      previous[j] = j <= maxDistance ? j : outside;
+    }
+    for (var i = 1; i <= keyLength; i++) {
+      var from = Math.max(1, i - maxDistance);
+      var to = Math.min(queryLength, i + maxDistance);
+      current[0] = i <= maxDistance ? i : outside;
+      if (from > 1) {
+        current[from - 1] = outside;
+      }
+      var rowMinimum = current[0];
+      var keyChar = key.charAt(i - 1);
+      for (var j = from; j <= to; j++) {
+        var cost = query.charAt(j - 1) == keyChar ? 0 : 1;
+        var distance = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+        current[j] = Math.min(distance, outside);
+        rowMinimum = Math.min(rowMinimum, current[j]);
+      }
+      if (to < queryLength) {
+        current[to + 1] = outside;
+      }
+      if (rowMinimum > maxDistance) {
+        return outside;
+      }
+      var swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[queryLength];
+  }
+
+  /**
+   * Finds position of the first normalized name not before a string.
+   *
+   * @param name searched string
+   * @return position of the first name not before the string or number of names if there is none
+   */
+  private int lowerBound(String name) {
+    var low = 0;
+    var high = keys.length;
+    while (low < high) {
+      var middle = (low + high) >>> 1;
+      if (keys[middle].compareTo(name) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Gets original country names of normalized names.
+   *
+   * @param positions positions of normalized names
+   * @param limit     maximal number of names
+   * @return country names in order of the positions
+   */
+  private List<String> namesOfKeys(List<Integer> positions, int limit) {
+    var names = new ArrayList<String>();
+    for (var position : positions) {
+      for (var i = keyCodeOffsets[position]; i < keyCodeOffsets[position + 1] && names.size() < limit; i++) {
+        names.add(dataset.countryName(keyCodes[i]));
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Gets rows of countries of normalized names.
+   *
+   * @param positions positions of normalized names
+   * @param limit     maximal number of rows
+   * @return rows of the countries in order of the positions
+   */
+  private int[] rowsOfKeys(Iterable<Integer> positions, int limit) {
+    var rows = new int[16];
+    var count = 0;
+    for (var position : positions) {
+      for (var i = keyCodeOffsets[position]; i < keyCodeOffsets[position + 1]; i++) {
+        var code = keyCodes[i];
+        for (var j = codeRowOffsets[code]; j < codeRowOffsets[code + 1] && count < limit; j++) {
+          if (count == rows.length) {
+            rows = Arrays.copyOf(rows, count * 2);
+          }
+          rows[count++] = codeRows[j];
+        }
+      }
+    }
+    return Arrays.copyOf(rows, count);
+  }
+}
@@ -0,0 +1,123 @@
+package pl.polsl.covid19.model;
+
+/**
+ * Accumulates streaming moments of several variables at once with multivariate Welford's algorithm,
+ * so correlation coefficients of all pairs of variables can be computed in a single pass.
+ * Partial accumulators of separate parts of data can be merged.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class CovarianceAccumulator {
+
+  /**
+   * Number of variables.
+   */
+  private final int dimension;
+
+  /**
+   * Means of the variables.
+   */
+  private final double[] means;
+
+  /**
+   * Sums of products of differences from the means, indexed by {@code i * dimension + j} for {@code i <= j}.
+   */
+  private final double[] comoments;
+
+  /**
+   * Differences from the means of the currently added values.
+   */
+  private final double[] deltas;
+
+  /**
+   * Number of accumulated rows.
+   */
+  private long count;
+
+  /**
+   * CovarianceAccumulator constructor.
+   *
+   * @param dimension number of variables
+   */
+  CovarianceAccumulator(int dimension) {
+    this.dimension = dimension;
+    this.means = new double[dimension];
+    this.comoments = new double[dimension * dimension];
+    this.deltas = new double[dimension];
+  }
+
+  /**
+   * Adds values of all variables of a single row.
+   *
+   * @param values values indexed by variable
+   */
+  void add(double[] values) {
+    count++;
+    for (var i = 0; i < dimension; i++) {
+      deltas[i] = values[i] - means[i];
+      means[i] += deltas[i] / count;
+    }
+    for (var i = 0; i < dimension; i++) {
+      var delta = deltas[i];
+      var offset = i * dimension;
+      for (var j = i; j < dimension; j++) {
+        comoments[offset + j] += delta * (values[j] - means[j]);
+      }
+    }
+  }
+
+  /**
+   * Merges moments of another accumulator of the same dimension into this one.
+   *
+   * @param other accumulator to merge
+   * @return this accumulator
+   */
+  CovarianceAccumulator merge(CovarianceAccumulator other) {
+    if (other.count == 0) {
+      return this;
+    }
+    var total = count + other.count;
+    var weight = (double) count * other.count / total;
+    for (var i = 0; i < dimension; i++) {
+      deltas[i] = other.means[i] - means[i];
+    }
+    for (var i = 0; i < dimension; i++) {
+      var offset = i * dimension;
+      for (var j = i; j < dimension; j++) {
+        comoments[offset + j] += other.comoments[offset + j] + deltas[i] * deltas[j] * weight;
+      }
+      means[i] += deltas[i] * other.count / total;
+    }
+    count = total;
+    return this;
+  }
+
+  /**
+   * Gets number of accumulated rows.
+   *
+   * @return number of accumulated rows
+   */
+  long getCount() {
+    return count;
+  }
+
+  /**
+   * Computes Pearson's correlation coefficient of two variables.
+   *
+   * @param first  index of the first variable
+   * @param second index of the second variable
+   * @return Pearson's correlation coefficient or NaN if any variable has zero variance
+   */
+  double pearson(int first, int second) {
+    var i = Math.min(first, second);
+    var j = Math.max(first, second);
+    var squaresI = comoments[i * dimension + i];
+    var squaresJ = comoments[j * dimension + j];
+    if (count < 2 || squaresI == 0 || squaresJ == 0) {
+      return Double.NaN;
+    }
+    var coefficient = comoments[i * dimension + j] / Math.sqrt(squaresI * squaresJ);
+    return Math.max(-1.0, Math.min(1.0, coefficient));
+  }
+}
@@ -1,63 +1,98 @@
 package pl.polsl.covid19.model;
 
 /**
- * Represents a single record of csv file data.
+ * Represents a single record of csv file data. The record is a view of one row of {@link CovidDataset}.
  *
  * @author Krzysztof Franków
- * @version 1.1
+ * @version 1.4
  */
 public class CovidData {
 
   /**
-   * Country name.
+   * Dataset containing the record.
    */
-  private String country;
+  private final CovidDataset dataset;
 
   /**
-   * Total number of covid19 related deaths.
+   * Index of the record in the dataset.
    */
-  private Integer totalDeaths;
+  private final int row;
 
   /**
-   * Total number of covid19 active cases.
+   * CovidData constructor.
+   *
+   * @param dataset dataset containing the record
+   * @param row     index of the record in the dataset
    */
-  private Integer activeCases;
+  CovidData(CovidDataset dataset, int row) {
+    this.dataset = dataset;
+    this.row = row;
+  }
 
-  /**
-   * Total number of all performed tests.
-   */
-  private Integer totalTests;
+  public String getCountry() {
+    return dataset.getCountry(row);
+  }
 
+  public long getTotalCases() {
+    return dataset.getValue(CovidMetric.TOTAL_CASES, row);
+  }
 
-  public String getCountry() {
-    return country;
+  public long getTotalDeaths() {
+    return dataset.getValue(CovidMetric.TOTAL_DEATHS, row);
   }
 
-  public void setCountry(String country) {
-    this.country = country;
+  public long getNewDeaths() {
+    return dataset.getValue(CovidMetric.NEW_DEATHS, row);
   }
 
-  public Integer getTotalDeaths() {
-    return totalDeaths;
+  public long getTotalRecovered() {
+    return dataset.getValue(CovidMetric.TOTAL_RECOVERED, row);
   }
 
-  public void setTotalDeaths(Integer totalDeaths) {
-    this.totalDeaths = totalDeaths;
+  public long getActiveCases() {
+    return dataset.getValue(CovidMetric.ACTIVE_CASES, row);
   }
 
-  public Integer getActiveCases() {
-    return activeCases;
+  public long getSeriousCritical() {
+    return dataset.getValue(CovidMetric.SERIOUS_CRITICAL, row);
   }
 
-  public void setActiveCases(Integer activeCases) {
-    this.activeCases = activeCases;
+  public long getTotalTests() {
+    return dataset.getValue(CovidMetric.TOTAL_TESTS, row);
   }
 
-  public Integer getTotalTests() {
-    return totalTests;
+  public long getCasesPerMillion() {
+    return dataset.getValue(CovidMetric.CASES_PER_MILLION, row);
   }
 
-  public void setTotalTests(Integer totalTests) {
-    this.totalTests = totalTests;
+  public long getDeathsPerMillion() {
+    return dataset.getValue(CovidMetric.DEATHS_PER_MILLION, row);
+  }
+
+  public long getTestsPerMillion() {
+    return dataset.getValue(CovidMetric.TESTS_PER_MILLION, row);
+  }
+
+  public long getPopulation() {
+    return dataset.getValue(CovidMetric.POPULATION, row);
+  }
+
+  /**
+   * Gets value of a metric of the record.
+   *
+   * @param metric metric to get
+   * @return value of the metric
+   */
+  public long getValue(CovidMetric metric) {
+    return dataset.getValue(metric, row);
+  }
+
+  /**
+   * Gets index of the record in the dataset.
+   *
+   * @return index of the record in the dataset
+   */
+  public int getRow() {
+    return row;
   }
 }
@@ -0,0 +1,897 @@
+package pl.polsl.covid19.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable columnar storage of covid data. Each {@link CovidMetric} is kept in a primitive {@link LongColumn}
+ * on the heap or off the heap, as selected by {@link ColumnStorage}, and countries are dictionary encoded,
+ * so queries can scan the columns without creating objects. Rows can still be accessed as {@link CovidData} views.
+ * Indexes of rows sorted by a metric are built on first use and kept with the dataset, so ordered queries only walk
+ * the index. The same applies to the {@link CorrelationMatrix} of all metrics and to the {@link CountryIndex}
+ * of country names.
+ * Datasets read from files can keep their columns as {@link RawColumns} bytes, each column is then decoded
+ * when it is first used, so queries pay only for the columns they touch. {@link DatasetSketches} of the rows
+ * are built while the data is read or, for raw and loaded columns, on first use.
+ *
+ * @author Krzysztof Franków
+ * @version 1.11
+ */
+public class CovidDataset {
+
+  /**
+   * Dataset without any rows.
+   */
+  static final CovidDataset EMPTY = new Builder().build();
+
+  /**
+   * Number of rows.
+   */
+  private final int size;
+
+  /**
+   * Distinct country names indexed by country code.
+   */
+  private final String[] countryDictionary;
+
+  /**
+   * Country code of each row.
+   */
+  private final int[] countryCodes;
+
+  /**
+   * Values of each row indexed by metric ordinal, null for columns not decoded yet.
+   */
+  private final AtomicReferenceArray<LongColumn> columns;
+
+  /**
+   * Storage of columns decoded from {@link #rawColumns}.
+   */
+  private final ColumnStorage storage;
+
+  /**
+   * Undecoded columns or null if all columns are decoded. Guarded by {@link #columns}.
+   */
+  private RawColumns rawColumns;
+
+  /**
+   * Number of columns decoded from {@link #rawColumns}. Guarded by {@link #columns}.
+   */
+  private int decodedColumnCount;
+
+  /**
+   * All rows as a list of {@link CovidData} views.
+   */
+  private final List<CovidData> rows;
+
+  /**
+   * Lazily built indexes of rows sorted by metrics, two per metric for ascending and descending order.
+   */
+  private final AtomicReferenceArray<int[]> sortIndexes = new AtomicReferenceArray<>(CovidMetric.values().length * 2);
+
+  /**
+   * Lazily built indexes of rows sorted by country name in ascending and descending order.
+   */
+  private final AtomicReferenceArray<int[]> countrySortIndexes = new AtomicReferenceArray<>(2);
+
+  /**
+   * Lazily computed correlation matrix of all metrics.
+   */
+  private volatile CorrelationMatrix correlationMatrix;
+
+  /**
+   * Lazily built index of country names.
+   */
+  private volatile CountryIndex countryIndex;
+
+  /**
+   * Sketches of all rows, built by the {@link Builder} or on first use.
+   */
+  private volatile DatasetSketches sketches;
+
+  /**
+   * CovidDataset constructor.
+   *
+   * @param size              number of rows
+   * @param countryDictionary distinct country names indexed by country code
+   * @param countryCodes      country code of each row
+   * @param columns           values of each row indexed by metric ordinal or null if all columns are raw
+   * @param rawColumns        undecoded columns or null if all columns are decoded
+   * @param storage           storage of columns decoded from the raw columns
+   * @param sketches          sketches of all rows or null to build them on first use
+   */
+  private CovidDataset(int size, String[] countryDictionary, int[] countryCodes, LongColumn[] columns,
+                       RawColumns rawColumns, ColumnStorage storage, DatasetSketches sketches) {
+    this.size = size;
+    this.countryDictionary = countryDictionary;
+    this.countryCodes = countryCodes;
+    this.columns = columns == null ? new AtomicReferenceArray<>(CovidMetric.values().length)
+        : new AtomicReferenceArray<>(columns);
+    this.rawColumns = rawColumns;
+    this.storage = storage;
+    this.sketches = sketches;
+    this.rows = new RowList(null, 0, size);
+  }
+
+  /**
+   * Creates dataset of given columns. The arrays and columns are used directly and must not be modified afterwards.
+   *
+   * @param countryDictionary distinct country names indexed by country code
+   * @param countryCodes      country code of each row
+   * @param columns           values of each row indexed by metric ordinal
+   * @return created dataset
+   */
+  static CovidDataset fromColumns(String[] countryDictionary, int[] countryCodes, LongColumn[] columns) {
+    if (columns.length != CovidMetric.values().length) {
+      throw new AppException("Dataset must have a column of each metric");
+    }
+    for (var column : columns) {
+      if (column.size() != countryCodes.length) {
+        throw new AppException("Columns of dataset must have equal length");
+      }
+    }
+    return new CovidDataset(countryCodes.length, countryDictionary, countryCodes, columns, null, null, null);
+  }
+
+  /**
+   * Creates dataset of copies of given records, e.g. a small result of a query shown on its own.
+   *
+   * @param records copied records
+   * @return dataset of the records in list order
+   */
+  public static CovidDataset of(List<CovidData> records) {
+    var builder = new Builder();
+    var values = new long[CsvRowParser.COLUMN_COUNT];
+    for (var record : records) {
+      for (var metric : CovidMetric.values()) {
+        values[metric.getCsvColumn()] = record.getValue(metric);
+      }
+      builder.addRow(record.getCountry(), values);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Gets number of rows.
+   *
+   * @return number of rows
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets a row as {@link CovidData} view.
+   *
+   * @param row index of the row
+   * @return view of the row
+   */
+  public CovidData get(int row) {
+    return rows.get(row);
+  }
+
+  /**
+   * Gets country name of a row.
+   *
+   * @param row index of the row
+   * @return country name
+   */
+  public String getCountry(int row) {
+    return countryDictionary[countryCodes[checkRow(row)]];
+  }
+
+  /**
+   * Gets value of a metric of a row.
+   *
+   * @param metric metric to get
+   * @param row    index of the row
+   * @return value of the metric
+   */
+  public long getValue(CovidMetric metric, int row) {
+    return column(metric).get(checkRow(row));
+  }
+
+  /**
+   * Gets all rows as unmodifiable list of {@link CovidData} views.
+   *
+   * @return list of all rows
+   */
+  public List<CovidData> asList() {
+    return rows;
+  }
+
+  /**
+   * Gets rows in given order as unmodifiable list of {@link CovidData} views.
+   *
+   * @param order indexes of rows in requested order, the array must not be modified afterwards
+   * @return list of rows
+   */
+  List<CovidData> asList(int[] order) {
+    return new RowList(order, 0, order.length);
+  }
+
+  /**
+   * Gets a page of rows ordered by a metric as unmodifiable list of {@link CovidData} views.
+   * Rows with equal values keep dataset order.
+   *
+   * @param metric     metric to order by
+   * @param descending true to order from the highest value
+   * @param offset     number of rows to skip
+   * @param limit      maximal number of rows to return
+   * @return list of rows
+   */
+  public List<CovidData> orderedBy(CovidMetric metric, boolean descending, int offset, int limit) {
+    if (offset < 0 || limit < 0) {
+      throw new AppException("Offset and limit must not be negative");
+    }
+    var from = Math.min(offset, size);
+    var to = (int) Math.min((long) from + limit, size);
+    return new RowList(sortIndex(metric, descending), from, to - from);
+  }
+
+  /**
+   * Gets index of the row at given position of rows ordered by a metric.
+   * Rows with equal values keep dataset order.
+   *
+   * @param metric     metric to order by
+   * @param descending true to order from the highest value
+   * @param position   position in the order
+   * @return index of the row
+   */
+  public int orderedRow(CovidMetric metric, boolean descending, int position) {
+    return sortIndex(metric, descending)[position];
+  }
+
+  /**
+   * Gets index of the row at given position of rows ordered by country name.
+   * Rows with equal names keep dataset order.
+   *
+   * @param descending true to order from the last name
+   * @param position   position in the order
+   * @return index of the row
+   */
+  public int orderedRowByCountry(boolean descending, int position) {
+    return countrySortIndex(descending)[position];
+  }
+
+  /**
+   * Builds index of rows sorted by country name in advance, so later ordered queries do not sort.
+   *
+   * @param descending true to order from the last name
+   */
+  public void buildCountrySortIndex(boolean descending) {
+    countrySortIndex(descending);
+  }
+
+  /**
+   * Gets index of rows sorted by country name, building it on first use.
+   *
+   * @param descending true to order from the last name
+   * @return indexes of rows in sorted order
+   */
+  private int[] countrySortIndex(boolean descending) {
+    var slot = descending ? 1 : 0;
+    var index = countrySortIndexes.get(slot);
+    if (index == null) {
+      index = ColumnSort.sortedRows(LongColumn.of(countryRanks()), size, descending);
+      if (!countrySortIndexes.compareAndSet(slot, null, index)) {
+        index = countrySortIndexes.get(slot);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Builds index of rows sorted by a metric in advance, so later ordered queries do not sort.
+   *
+   * @param metric     metric to order by
+   * @param descending true to order from the highest value
+   */
+  public void buildSortIndex(CovidMetric metric, boolean descending) {
+    sortIndex(metric, descending);
+  }
+
+  /**
+   * Checks whether index of rows sorted by a metric was already built.
+   *
+   * @param metric     metric to order by
+   * @param descending true to order from the highest value
+   * @return true if the index was built
+   */
+  boolean hasSortIndex(CovidMetric metric, boolean descending) {
+    return sortIndexes.get(metric.ordinal() * 2 + (descending ? 1 : 0)) != null;
+  }
+
+  /**
+   * Gets index of rows sorted by a metric, building it on first use.
+   * Rows with equal values keep dataset order. The returned array must not be modified.
+   *
+   * @param metric     metric to order by
+   * @param descending true to order from the highest value
+   * @return indexes of rows in requested order
+   */
+  int[] sortIndex(CovidMetric metric, boolean descending) {
+    var slot = metric.ordinal() * 2 + (descending ? 1 : 0);
+    var index = sortIndexes.get(slot);
+    if (index == null) {
+      index = ColumnSort.sortedRows(column(metric), size, descending);
+      if (!sortIndexes.compareAndSet(slot, null, index)) {
+        index = sortIndexes.get(slot);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Carries over indexes built for a previous version of the data, updating sort indexes of metrics only
+   * for changed rows. Both datasets must have the same countries in the same rows and may differ
+   * only in values of the changed rows. Indexes already built for this dataset are kept.
+   *
+   * @param previous    previous version of the data
+   * @param changedRows indexes of rows with changed values, in ascending order
+   */
+  void updateIndexesFrom(CovidDataset previous, int[] changedRows) {
+    for (var slot = 0; slot < sortIndexes.length(); slot++) {
+      var previousIndex = previous.sortIndexes.get(slot);
+      if (previousIndex != null && sortIndexes.get(slot) == null) {
+        var metric = CovidMetric.values()[slot / 2];
+        sortIndexes.compareAndSet(slot, null,
+            ColumnSort.updatedRows(previousIndex, column(metric), changedRows, slot % 2 == 1));
+      }
+    }
+    for (var slot = 0; slot < countrySortIndexes.length(); slot++) {
+      var previousIndex = previous.countrySortIndexes.get(slot);
+      if (previousIndex != null) {
+        countrySortIndexes.compareAndSet(slot, null, previousIndex);
+      }
+    }
+  }
+
+  /**
+   * Gets values of a metric, decoding them on first use. The returned column must not be modified.
+   *
+   * @param metric metric to get
+   * @return values of the metric indexed by row
+   */
+  LongColumn column(CovidMetric metric) {
+    var column = columns.get(metric.ordinal());
+    if (column == null) {
+      synchronized (columns) {
+        column = columns.get(metric.ordinal());
+        if (column == null) {
+          column = rawColumns.decode(metric.getCsvColumn(), storage);
+          columns.set(metric.ordinal(), column);
+          if (++decodedColumnCount == columns.length()) {
+            rawColumns = null;
+          }
+        }
+      }
+    }
+    return column;
+  }
+
+  /**
+   * Checks whether values of a metric were already decoded.
+   *
+   * @param metric metric to check
+   * @return true if the values are decoded
+   */
+  boolean isColumnDecoded(CovidMetric metric) {
+    return columns.get(metric.ordinal()) != null;
+  }
+
+  /**
+   * Gets undecoded columns, so rows of the dataset can be added to another dataset without decoding them.
+   *
+   * @return undecoded columns or null if all columns are decoded
+   */
+  private RawColumns rawColumns() {
+    synchronized (columns) {
+      return rawColumns;
+    }
+  }
+
+  /**
+   * Gets correlation matrix of all metrics, computing it on first use.
+   *
+   * @return correlation matrix of all metrics
+   */
+  public CorrelationMatrix getCorrelationMatrix() {
+    var matrix = correlationMatrix;
+    if (matrix == null) {
+      synchronized (this) {
+        matrix = correlationMatrix;
+        if (matrix == null) {
+          matrix = CorrelationMatrix.compute(this);
+          correlationMatrix = matrix;
+        }
+      }
+    }
+    return matrix;
+  }
+
+  /**
+   * Checks whether correlation matrix was already computed.
+   *
+   * @return true if the matrix was computed
+   */
+  boolean hasCorrelationMatrix() {
+    return correlationMatrix != null;
+  }
+
+  /**
+   * Gets index of country names, building it on first use.
+   *
+   * @return index of country names
+   */
+  public CountryIndex getCountryIndex() {
+    var index = countryIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = countryIndex;
+        if (index == null) {
+          index = CountryIndex.build(this);
+          countryIndex = index;
+        }
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Gets sketches of approximate aggregates of all rows, building them on first use.
+   *
+   * @return sketches of the dataset
+   */
+  public DatasetSketches getSketches() {
+    var result = sketches;
+    if (result == null) {
+      synchronized (this) {
+        result = sketches;
+        if (result == null) {
+          result = DatasetSketches.of(this);
+          sketches = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Checks whether sketches were already built.
+   *
+   * @return true if the sketches were built
+   */
+  boolean hasSketches() {
+    return sketches != null;
+  }
+
+  /**
+   * Gets number of distinct countries.
+   *
+   * @return number of distinct countries
+   */
+  int countryCount() {
+    return countryDictionary.length;
+  }
+
+  /**
+   * Gets country code of a row.
+   *
+   * @param row index of the row
+   * @return country code
+   */
+  int countryCode(int row) {
+    return countryCodes[checkRow(row)];
+  }
+
+  /**
+   * Gets country name of given country code.
+   *
+   * @param code country code
+   * @return country name
+   */
+  String countryName(int code) {
+    return countryDictionary[code];
+  }
+
+  /**
+   * Computes alphabetical rank of the country of each row. Only the dictionary is sorted.
+   *
+   * @return rank of the country name indexed by row
+   */
+  private long[] countryRanks() {
+    var codesByName = new Integer[countryDictionary.length];
+    for (var code = 0; code < codesByName.length; code++) {
+      codesByName[code] = code;
+    }
+    Arrays.sort(codesByName, (first, second) -> countryDictionary[first].compareTo(countryDictionary[second]));
+    var rankByCode = new long[countryDictionary.length];
+    for (var rank = 0; rank < codesByName.length; rank++) {
+      rankByCode[codesByName[rank]] = rank;
+    }
+    var ranks = new long[size];
+    for (var row = 0; row < size; row++) {
+      ranks[row] = rankByCode[countryCodes[row]];
+    }
+    return ranks;
+  }
+
+  /**
+   * Checks whether row index is in range of the dataset.
+   *
+   * @param row index of the row
+   * @return index of the row
+   */
+  private int checkRow(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + " out of bounds for dataset of size " + size);
+    }
+    return row;
+  }
+
+  /**
+   * Unmodifiable list of {@link CovidData} views of a range of rows in dataset order or in given order.
+   */
+  private class RowList extends AbstractList<CovidData> implements RandomAccess {
+
+    /**
+     * Indexes of rows in list order or null for dataset order.
+     */
+    private final int[] order;
+
+    /**
+     * Position of the first element of the list in the order.
+     */
+    private final int offset;
+
+    /**
+     * Number of elements of the list.
+     */
+    private final int length;
+
+    /**
+     * RowList constructor.
+     *
+     * @param order  indexes of rows in list order or null for dataset order
+     * @param offset position of the first element of the list in the order
+     * @param length number of elements of the list
+     */
+    RowList(int[] order, int offset, int length) {
+      this.order = order;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public CovidData get(int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+      }
+      var position = offset + index;
+      return new CovidData(CovidDataset.this, order == null ? position : order[position]);
+    }
+
+    @Override
+    public int size() {
+      return length;
+    }
+  }
+
+  /**
+   * Builds {@link CovidDataset} row by row. Rows can be added with decoded values, or as offsets of raw csv
+   * rows that are decoded when the built dataset first uses a column. If both kinds of rows are added,
+   * the raw rows are decoded right away. {@link DatasetSketches} of added datasets are merged, so a dataset
+   * built of sketched parts does not scan its rows again. Decoded values are written straight into
+   * {@link LongColumnBuilder}s of the {@link ColumnStorage} of the builder, so off-heap datasets are built without
+   * heap copies of their columns. Raw rows keep their csv bytes on the heap until all their columns are decoded.
+   */
+  static class Builder {
+
+    /**
+     * Initial capacity of country codes and offsets of raw rows.
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * Codes of country names added so far.
+     */
+    private final Map<String, Integer> countryCodesByName = new HashMap<>();
+
+    /**
+     * Number of added rows.
+     */
+    private int size;
+
+    /**
+     * Country code of each row.
+     */
+    private int[] countryCodes = new int[INITIAL_CAPACITY];
+
+    /**
+     * Values of each row indexed by metric ordinal or null if only raw rows were added.
+     */
+    private LongColumnBuilder[] columns;
+
+    /**
+     * Raw csv bytes of rows added by {@link #addRawRow} or null if the builder has no raw bytes.
+     */
+    private final byte[] rawData;
+
+    /**
+     * Offsets of rows added by {@link #addRawRow} in the raw bytes.
+     */
+    private int[] rawRowOffsets;
+
+    /**
+     * Undecoded columns of raw rows added before the rows of {@link #rawRowOffsets}, in row order.
+     */
+    private final List<RawColumns> rawParts = new ArrayList<>();
+
+    /**
+     * Storage of columns of the built dataset.
+     */
+    private ColumnStorage storage = ColumnStorage.getDefault();
+
+    /**
+     * True to sketch the rows when the dataset is built, unless sketches of added datasets are merged.
+     */
+    private boolean withSketches;
+
+    /**
+     * Merged sketches of added datasets, null if no dataset was added yet.
+     */
+    private DatasetSketches sketches;
+
+    /**
+     * True while all rows come from added datasets with sketches.
+     */
+    private boolean sketchesMergeable = true;
+
+    /**
+     * Builder constructor.
+     */
+    Builder() {
+      this(null);
+    }
+
+    /**
+     * Builder constructor of rows that can be added as raw csv rows.
+     *
+     * @param rawData raw csv bytes of rows added by {@link #addRawRow}, must not be modified afterwards
+     */
+    Builder(byte[] rawData) {
+      this.rawData = rawData;
+      this.rawRowOffsets = rawData == null ? null : new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a row parsed from csv file.
+     *
+     * @param country   name of the country
+     * @param csvValues values of the row indexed by csv column
+     * @return this builder
+     */
+    Builder addRow(String country, long[] csvValues) {
+      decodeRawRows();
+      ensureCapacity(size + 1);
+      countryCodes[size] = encodeCountry(country);
+      for (var metric : CovidMetric.values()) {
+        columns[metric.ordinal()].set(size, csvValues[metric.getCsvColumn()]);
+      }
+      stopMergingSketches();
+      size++;
+      return this;
+    }
+
+    /**
+     * Adds a raw csv row, its values are decoded when the built dataset first uses them.
+     *
+     * @param country   name of the country
+     * @param rowOffset index of the first byte of the row in the raw bytes of the builder
+     * @return this builder
+     */
+    Builder addRawRow(String country, int rowOffset) {
+      if (rawData == null) {
+        throw new AppException("Builder has no raw csv data");
+      }
+      stopMergingSketches();
+      ensureCapacity(size + 1);
+      if (columns != null) {
+        for (var metric : CovidMetric.values()) {
+          var value = CsvRowParser.parseValue(rawData, rowOffset, metric.getCsvColumn());
+          if (value == CsvRowParser.MALFORMED_VALUE) {
+            AppMetrics.getInstance().recordMalformedValues(1);
+            value = 0L;
+          }
+          columns[metric.ordinal()].set(size, value);
+        }
+      } else {
+        var rawRow = rawRowCount();
+        if (rawRow == rawRowOffsets.length) {
+          rawRowOffsets = Arrays.copyOf(rawRowOffsets, rawRow * 2);
+        }
+        rawRowOffsets[rawRow] = rowOffset;
+      }
+      countryCodes[size] = encodeCountry(country);
+      size++;
+      return this;
+    }
+
+    /**
+     * Adds all rows of a dataset. Undecoded columns of the dataset are shared, not decoded,
+     * unless the builder already has decoded rows.
+     *
+     * @param dataset dataset to add
+     * @return this builder
+     */
+    Builder addAll(CovidDataset dataset) {
+      if (dataset.size == 0) {
+        return this;
+      }
+      if (sketchesMergeable) {
+        if (dataset.sketches == null) {
+          stopMergingSketches();
+        } else if (sketches == null) {
+          sketches = dataset.sketches.copy();
+        } else {
+          sketches.merge(dataset.sketches);
+        }
+      }
+      var raw = dataset.rawColumns();
+      if (raw != null && columns == null && rawRowCount() == 0) {
+        rawParts.add(raw);
+      } else {
+        decodeRawRows();
+      }
+      ensureCapacity(size + dataset.size);
+      var codeMapping = new int[dataset.countryDictionary.length];
+      for (var code = 0; code < codeMapping.length; code++) {
+        codeMapping[code] = encodeCountry(dataset.countryDictionary[code]);
+      }
+      for (var row = 0; row < dataset.size; row++) {
+        countryCodes[size + row] = codeMapping[dataset.countryCodes[row]];
+      }
+      if (columns != null) {
+        for (var metric : CovidMetric.values()) {
+          columns[metric.ordinal()].copyFrom(dataset.column(metric), 0, size, dataset.size);
+        }
+      }
+      size += dataset.size;
+      return this;
+    }
+
+    /**
+     * Makes the built dataset sketch its rows right away, so the sketches are built by the thread reading
+     * the data rather than by the first approximate query. Raw rows are sketched on first use anyway.
+     *
+     * @return this builder
+     */
+    Builder withSketches() {
+      withSketches = true;
+      return this;
+    }
+
+    /**
+     * Selects storage of columns of the built dataset instead of the storage given by
+     * {@value ColumnStorage#STORAGE_PROPERTY} system property.
+     *
+     * @param storage storage of columns
+     * @return this builder
+     * @throws AppException if decoded rows were already added
+     */
+    Builder withStorage(ColumnStorage storage) {
+      if (columns != null) {
+        throw new AppException("Column storage must be selected before rows are added");
+      }
+      this.storage = storage;
+      return this;
+    }
+
+    /**
+     * Builds the dataset. The builder must not be used afterwards.
+     *
+     * @return built dataset
+     */
+    CovidDataset build() {
+      var dictionary = new String[countryCodesByName.size()];
+      countryCodesByName.forEach((name, code) -> dictionary[code] = name);
+      var trimmedCountryCodes = Arrays.copyOf(countryCodes, size);
+      if (columns == null && size > 0) {
+        return new CovidDataset(size, dictionary, trimmedCountryCodes, null, rawColumns(), storage, null);
+      }
+      var builtColumns = new LongColumn[CovidMetric.values().length];
+      for (var metric = 0; metric < builtColumns.length; metric++) {
+        builtColumns[metric] = columns == null ? storage.allocate(0) : columns[metric].build(size);
+      }
+      var dataset = new CovidDataset(size, dictionary, trimmedCountryCodes, builtColumns, null, storage,
+          sketchesMergeable ? sketches : null);
+      if (dataset.sketches == null && withSketches && size > 0) {
+        dataset.sketches = DatasetSketches.of(dataset);
+      }
+      return dataset;
+    }
+
+    /**
+     * Stops merging sketches of added datasets, because some rows are not covered by them.
+     */
+    private void stopMergingSketches() {
+      sketchesMergeable = false;
+      sketches = null;
+    }
+
+    /**
+     * Gets number of rows added as raw rows to the current raw bytes.
+     *
+     * @return number of rows in {@link #rawRowOffsets}
+     */
+    private int rawRowCount() {
+      var count = size;
+      for (var part : rawParts) {
+        count -= part.size();
+      }
+      return count;
+    }
+
+    /**
+     * Gets undecoded columns of all added rows.
+     *
+     * @return undecoded columns in row order
+     */
+    private RawColumns rawColumns() {
+      var parts = new ArrayList<>(rawParts);
+      var rawRowCount = rawRowCount();
+      if (rawRowCount > 0) {
+        parts.add(RawColumns.of(rawData, Arrays.copyOf(rawRowOffsets, rawRowCount)));
+      }
+      return parts.size() == 1 ? parts.get(0) : RawColumns.concat(parts);
+    }
+
+    /**
+     * Decodes rows added so far into columns, so rows with decoded values can be added.
+     */
+    private void decodeRawRows() {
+      if (columns != null) {
+        return;
+      }
+      columns = new LongColumnBuilder[CovidMetric.values().length];
+      for (var metric = 0; metric < columns.length; metric++) {
+        columns[metric] = new LongColumnBuilder(storage);
+      }
+      if (size > 0) {
+        var raw = rawColumns();
+        for (var metric : CovidMetric.values()) {
+          columns[metric.ordinal()].copyFrom(raw.decode(metric.getCsvColumn(), storage), 0, 0, size);
+        }
+      }
+    }
+
+    /**
+     * Gets code of a country name, assigning a new code to names not seen before.
+     *
+     * @param country name of the country
+     * @return country code
+     */
+    private int encodeCountry(String country) {
+      return countryCodesByName.computeIfAbsent(country, name -> countryCodesByName.size());
+    }
+
+    /**
+     * Grows country codes, so they can hold given number of rows. Columns grow as their values are set.
+     *
+     * @param capacity required number of rows
+     */
+    private void ensureCapacity(int capacity) {
+      if (capacity <= countryCodes.length) {
+        return;
+      }
+      countryCodes = Arrays.copyOf(countryCodes, Math.max(capacity, countryCodes.length * 2));
+    }
+  }
+}
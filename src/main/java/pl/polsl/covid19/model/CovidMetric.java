@@ -0,0 +1,104 @@
+package pl.polsl.covid19.model;
+
+/**
+ * Numeric columns of covid data stored by {@link CovidDataset}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+public enum CovidMetric {
+
+  /**
+   * Total number of covid19 cases.
+   */
+  TOTAL_CASES(2, "Total cases"),
+
+  /**
+   * Total number of covid19 related deaths.
+   */
+  TOTAL_DEATHS(3, "Total deaths"),
+
+  /**
+   * Number of covid19 related deaths reported on the day of the data.
+   */
+  NEW_DEATHS(4, "New deaths"),
+
+  /**
+   * Total number of recovered patients.
+   */
+  TOTAL_RECOVERED(5, "Total recovered"),
+
+  /**
+   * Total number of covid19 active cases.
+   */
+  ACTIVE_CASES(6, "Active cases"),
+
+  /**
+   * Number of patients in serious or critical condition.
+   */
+  SERIOUS_CRITICAL(7, "Serious, critical"),
+
+  /**
+   * Total number of cases per one million of population.
+   */
+  CASES_PER_MILLION(8, "Cases per 1M"),
+
+  /**
+   * Total number of deaths per one million of population.
+   */
+  DEATHS_PER_MILLION(9, "Deaths per 1M"),
+
+  /**
+   * Total number of all performed tests.
+   */
+  TOTAL_TESTS(10, "Total tests"),
+
+  /**
+   * Total number of performed tests per one million of population.
+   */
+  TESTS_PER_MILLION(11, "Tests per 1M"),
+
+  /**
+   * Population of the country.
+   */
+  POPULATION(12, "Population");
+
+  /**
+   * Index of the column in csv file.
+   */
+  private final int csvColumn;
+
+  /**
+   * Name of the metric presented to the user.
+   */
+  private final String displayName;
+
+  /**
+   * CovidMetric constructor.
+   *
+   * @param csvColumn   index of the column in csv file
+   * @param displayName name of the metric presented to the user
+   */
+  CovidMetric(int csvColumn, String displayName) {
+    this.csvColumn = csvColumn;
+    this.displayName = displayName;
+  }
+
+  /**
+   * Gets name of the metric presented to the user.
+   *
+   * @return name of the metric
+   */
+  public String getDisplayName() {
+    return displayName;
+  }
+
+  /**
+   * Gets index of the column in csv file.
+   *
+   * @return index of the column in csv file
+   */
+  int getCsvColumn() {
+    return csvColumn;
+  }
+}
@@ -1,76 +1,306 @@
 package pl.polsl.covid19.model;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import com.opencsv.CSVReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 /**
- * Reads data from csv covid file and converts it into collection of {@link CovidData}.
+ * Reads data from csv covid file and converts it into {@link CovidDataset}.
+ * By default the file is parsed by {@link CsvRowParser}, the opencsv based parser can be selected
+ * for comparison with {@code covid19.csv.parser=OPENCSV} system property. Files located in the filesystem
+ * are read by {@link MappedCsvFileReader} when the streaming parser is used. Every read is recorded
+ * in {@link AppMetrics}: number of rows and bytes, duration, failures and malformed numeric cells read as 0.
+ * Datasets read from streams are sketched right away, see {@link DatasetSketches}. Data can also be pulled
+ * in batches by {@link CsvRecordIterator}, so queries can consume rows while the file is still being read.
  *
  * @author Krzysztof Franków
- * @version 1.0
+ * @version 1.5
  */
 class CsvFileReader {
 
   /**
-   * Reads CsvFile of given name and returns collection of {@link CovidData} records.
-   * Uses instance of {@link CSVReader} from external opencsv library.
+   * Name of system property selecting default parser.
+   */
+  static final String PARSER_PROPERTY = "covid19.csv.parser";
+
+  /**
+   * Initial size of the buffer used by streaming parser.
+   */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Parser used to read csv data.
+   */
+  private final Parser parser;
+
+  /**
+   * Reader of files located in the filesystem.
+   */
+  private final MappedCsvFileReader mappedCsvFileReader;
+
+  /**
+   * Available csv parsers.
+   */
+  enum Parser {
+    /**
+     * Parser based on {@link CSVReader} from external opencsv library.
+     */
+    OPENCSV,
+    /**
+     * Streaming parser {@link CsvRowParser}.
+     */
+    STREAMING
+  }
+
+  /**
+   * CsvFileReader constructor using parser selected by system property or streaming parser by default.
+   */
+  CsvFileReader() {
+    this(Parser.valueOf(System.getProperty(PARSER_PROPERTY, Parser.STREAMING.name())));
+  }
+
+  /**
+   * CsvFileReader constructor.
+   *
+   * @param parser parser used to read csv data
+   */
+  CsvFileReader(Parser parser) {
+    this(parser, new MappedCsvFileReader());
+  }
+
+  /**
+   * CsvFileReader constructor.
+   *
+   * @param parser              parser used to read csv data
+   * @param mappedCsvFileReader reader of files located in the filesystem
+   */
+  CsvFileReader(Parser parser, MappedCsvFileReader mappedCsvFileReader) {
+    this.parser = parser;
+    this.mappedCsvFileReader = mappedCsvFileReader;
+  }
+
+  /**
+   * Reads CsvFile of given name and returns {@link CovidDataset} of its records.
    *
    * @param filename name of file containing covid data
-   * @return collection of {@link CovidData}
+   * @return {@link CovidDataset} of read records
+   */
+  CovidDataset readCsvFile(final String filename) {
+    return readCsvFile(new DataFile(filename)).dataset();
+  }
+
+  /**
+   * Reads given data file and computes checksum of its content.
+   *
+   * @param dataFile file containing covid data
+   * @return read records with checksum of the file
+   */
+  Result readCsvFile(final DataFile dataFile) {
+    if (dataFile.getPath() != null && parser == Parser.STREAMING) {
+      return mappedCsvFileReader.read(dataFile.getPath());
+    }
+    var crc = new CRC32();
+    try (var inputStream = new CheckedInputStream(dataFile.open(), crc)) {
+      var dataset = readCsvData(inputStream);
+      return new Result(dataset, crc.getValue());
+    } catch (IOException e) {
+      AppMetrics.getInstance().recordCsvReadFailure();
+      throw new AppException("Unable to read source data file", e);
+    }
+  }
+
+  /**
+   * Reads csv data from given stream and returns {@link CovidDataset} of its records.
+   * The stream is not closed.
+   *
+   * @param inputStream stream of csv data
+   * @return {@link CovidDataset} of read records
+   */
+  CovidDataset readCsvData(final InputStream inputStream) {
+    var builder = new CovidDataset.Builder().withSketches();
+    readCsvData(inputStream, builder::addRow);
+    return builder.build();
+  }
+
+  /**
+   * Reads given data file sequentially and passes each record to the handler as soon as it is parsed,
+   * without keeping the records in memory.
+   *
+   * @param dataFile file containing covid data
+   * @param handler  handler receiving parsed records
+   */
+  void readCsvFile(final DataFile dataFile, final CsvRowParser.RowHandler handler) {
+    try (var inputStream = dataFile.open()) {
+      readCsvData(inputStream, handler);
+    } catch (IOException e) {
+      AppMetrics.getInstance().recordCsvReadFailure();
+      throw new AppException("Unable to read source data file", e);
+    }
+  }
+
+  /**
+   * Opens given data file for reading its records in batches, as the consumer asks for them.
+   * The records are always parsed by {@link CsvRowParser}.
+   *
+   * @param dataFile file containing covid data
+   * @return iterator of batches of records, to be closed when no more records are needed
    */
-  List<CovidData> readCsvFile(final String filename) {
-    var records = new ArrayList<CovidData>();
-    var fileInputStream = getClass().getClassLoader().getResourceAsStream(filename);
-    if (fileInputStream == null) {
-      throw new AppException("File " + filename + " not found");
+  CsvRecordIterator iterateCsvFile(final DataFile dataFile) {
+    return new CsvRecordIterator(dataFile.open());
+  }
+
+  /**
+   * Reads csv data from given stream and passes each record to the handler. The stream is not closed.
+   *
+   * @param inputStream stream of csv data
+   * @param handler     handler receiving parsed records
+   */
+  private void readCsvData(final InputStream inputStream, final CsvRowParser.RowHandler handler) {
+    var metrics = AppMetrics.getInstance();
+    var start = System.nanoTime();
+    var countingStream = new CountingInputStream(inputStream);
+    try {
+      var rows = parser == Parser.OPENCSV ? readWithOpenCsv(countingStream, handler)
+          : readWithStreamingParser(countingStream, handler);
+      metrics.recordCsvRead(rows, countingStream.count, System.nanoTime() - start);
+    } catch (AppException e) {
+      metrics.recordCsvReadFailure();
+      throw e;
     }
-    try (CSVReader csvReader = new CSVReader(new InputStreamReader(fileInputStream))) {
+  }
+
+  /**
+   * Reads csv data from given stream using {@link CsvRowParser}.
+   *
+   * @param inputStream stream of csv data
+   * @param handler     handler receiving parsed records
+   * @return number of read records
+   */
+  private long readWithStreamingParser(final InputStream inputStream, final CsvRowParser.RowHandler handler) {
+    var rowParser = new CsvRowParser();
+    var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    try {
       while (true) {
-        var rawValue = csvReader.readNext();
-        if (rawValue == null) {
-          break;
+        if (!buffer.hasRemaining()) {
+          buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
         }
-        var values = Arrays.asList(rawValue);
-        if (!values.get(0).equals("#")) {
-          records.add(initializeCovidDataFromValues(values));
+        var count = inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        if (count < 0) {
+          rowParser.parse(buffer.flip(), true, handler);
+          break;
         }
+        buffer.position(buffer.position() + count);
+        rowParser.parse(buffer.flip(), false, handler);
+        buffer.compact();
       }
+      AppMetrics.getInstance().recordMalformedValues(rowParser.getMalformedValueCount());
+      return rowParser.getRowCount();
     } catch (IOException e) {
       throw new AppException("Unable to read source data file", e);
     }
-    return records;
   }
 
   /**
-   * Initializes {@link CovidData} record from csv file line represented as String array.
+   * Reads csv data from given stream using {@link CSVReader} from external opencsv library.
    *
-   * @param values string array representing one line in csv file
-   * @return {@link CovidData} record of covid data
-   */
-  private CovidData initializeCovidDataFromValues(List<String> values) {
-    var covidDataRecord = new CovidData();
-    covidDataRecord.setCountry(values.get(1));
-    covidDataRecord.setTotalDeaths(getNumberFromStringValue(values.get(3)));
-    covidDataRecord.setActiveCases(getNumberFromStringValue(values.get(6)));
-    covidDataRecord.setTotalTests(getNumberFromStringValue(values.get(10)));
-    return covidDataRecord;
+   * @param inputStream stream of csv data
+   * @param handler     handler receiving parsed records
+   * @return number of read records
+   */
+  private long readWithOpenCsv(final InputStream inputStream, final CsvRowParser.RowHandler handler) {
+    var values = new long[CsvRowParser.COLUMN_COUNT];
+    var rows = 0L;
+    var malformedValueCount = 0L;
+    try {
+      var csvReader = new CSVReader(new InputStreamReader(inputStream, UTF_8));
+      while (true) {
+        var rawValue = csvReader.readNext();
+        if (rawValue == null) {
+          break;
+        }
+        if (!rawValue[0].equals("#")) {
+          for (var column = 0; column < values.length; column++) {
+            var value = column < rawValue.length ? getNumberFromStringValue(rawValue[column]) : 0L;
+            if (value == CsvRowParser.MALFORMED_VALUE) {
+              value = 0L;
+              malformedValueCount += column > CsvRowParser.COUNTRY_COLUMN ? 1 : 0;
+            }
+            values[column] = value;
+          }
+          rows++;
+          handler.onRow(rawValue[CsvRowParser.COUNTRY_COLUMN], values);
+        }
+      }
+      AppMetrics.getInstance().recordMalformedValues(malformedValueCount);
+      return rows;
+    } catch (IOException e) {
+      throw new AppException("Unable to read source data file", e);
+    }
   }
 
   /**
-   * Removes commas from given string and converts it into a number or 0 in case of conversion error.
+   * Removes commas from given string and converts it into a number.
    *
    * @param value number as string value
-   * @return converted number as integer
+   * @return converted number, 0 for empty value or {@link CsvRowParser#MALFORMED_VALUE} in case of conversion error
    */
-  private int getNumberFromStringValue(final String value) {
+  private long getNumberFromStringValue(final String value) {
+    if (value.isEmpty()) {
+      return 0;
+    }
     try {
-      return Integer.parseInt(value.replace(",", ""));
+      return Long.parseLong(value.replace(",", ""));
     } catch (NumberFormatException e) {
-      return 0;
+      return CsvRowParser.MALFORMED_VALUE;
+    }
+  }
+
+  /**
+   * Stream counting bytes read from another stream.
+   */
+  private static class CountingInputStream extends FilterInputStream {
+
+    /**
+     * Number of bytes read so far.
+     */
+    private long count;
+
+    /**
+     * CountingInputStream constructor.
+     *
+     * @param inputStream counted stream
+     */
+    CountingInputStream(InputStream inputStream) {
+      super(inputStream);
     }
+
+    @Override
+    public int read() throws IOException {
+      var value = super.read();
+      count += value < 0 ? 0 : 1;
+      return value;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      var read = super.read(bytes, offset, length);
+      count += Math.max(0, read);
+      return read;
+    }
+  }
+
+  /**
+   * Result of reading a data file.
+   *
+   * @param dataset  records in file order
+   * @param checksum checksum of the file content
+   */
+  record Result(CovidDataset dataset, long checksum) {
   }
 }
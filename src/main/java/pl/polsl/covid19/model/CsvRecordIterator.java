@@ -0,0 +1,215 @@
+package pl.polsl.covid19.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Pull-based iterator of batches of records read from csv data by {@link CsvRowParser}. The stream is read
+ * only when the consumer asks for the next batch, one buffer at a time, and each batch holds the rows completed
+ * by that buffer, so the consumer paces the reading and memory used by the iterator does not depend on the size
+ * of the data. A consumer that has what it needs closes the iterator and the rest of the data is never read.
+ *
+ * <p>The read is recorded in {@link AppMetrics} when the iterator is closed, with the rows and bytes read so far.
+ * The iterator is closed automatically at the end of the data. Instances are not thread-safe.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class CsvRecordIterator implements Iterator<CovidDataset>, Closeable {
+
+  /**
+   * Initial size of the read buffer.
+   */
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Stream of csv data.
+   */
+  private final InputStream inputStream;
+
+  /**
+   * Parser of the read bytes.
+   */
+  private final CsvRowParser rowParser = new CsvRowParser();
+
+  /**
+   * Time the reading started in nanoseconds.
+   */
+  private final long start = System.nanoTime();
+
+  /**
+   * Buffer with read bytes of incomplete rows, grown if a single row does not fit.
+   */
+  private ByteBuffer buffer;
+
+  /**
+   * Builder of the next batch.
+   */
+  private CovidDataset.Builder batch = newBatch();
+
+  /**
+   * Number of rows of the next batch.
+   */
+  private int batchSize;
+
+  /**
+   * Number of bytes read so far.
+   */
+  private long byteCount;
+
+  /**
+   * True if the end of the stream was reached.
+   */
+  private boolean endOfInput;
+
+  /**
+   * True if the stream is closed.
+   */
+  private boolean closed;
+
+  /**
+   * CsvRecordIterator constructor with buffer of the default size.
+   *
+   * @param inputStream stream of csv data, closed by the iterator
+   */
+  CsvRecordIterator(InputStream inputStream) {
+    this(inputStream, BUFFER_SIZE);
+  }
+
+  /**
+   * CsvRecordIterator constructor.
+   *
+   * @param inputStream stream of csv data, closed by the iterator
+   * @param bufferSize  initial size of the read buffer, limiting the size of batches
+   */
+  CsvRecordIterator(InputStream inputStream, int bufferSize) {
+    this.inputStream = inputStream;
+    this.buffer = ByteBuffer.allocate(Math.max(1, bufferSize));
+  }
+
+  /**
+   * Checks whether more records follow, reading the stream until a row is complete or the data ends.
+   *
+   * @return true if {@link #next} returns a batch
+   * @throws AppException if the stream cannot be read
+   */
+  @Override
+  public boolean hasNext() {
+    while (batchSize == 0 && !endOfInput && !closed) {
+      readBuffer();
+    }
+    return batchSize > 0;
+  }
+
+  /**
+   * Gets the next batch of records.
+   *
+   * @return records of the rows completed by the last read buffer, in data order
+   * @throws NoSuchElementException if no more records follow
+   * @throws AppException           if the stream cannot be read
+   */
+  @Override
+  public CovidDataset next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    var dataset = batch.build();
+    batch = newBatch();
+    batchSize = 0;
+    return dataset;
+  }
+
+  /**
+   * Gets number of bytes read so far.
+   *
+   * @return number of read bytes
+   */
+  long getByteCount() {
+    return byteCount;
+  }
+
+  /**
+   * Closes the stream and records the read, unless the iterator is already closed. Records not returned yet
+   * are dropped.
+   *
+   * @throws AppException if the stream cannot be closed
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    var metrics = AppMetrics.getInstance();
+    metrics.recordMalformedValues(rowParser.getMalformedValueCount());
+    metrics.recordCsvRead(rowParser.getRowCount(), byteCount, System.nanoTime() - start);
+    try {
+      inputStream.close();
+    } catch (IOException e) {
+      throw new AppException("Unable to close source data file", e);
+    }
+  }
+
+  /**
+   * Reads the stream into the free part of the buffer and parses the completed rows into the next batch.
+   */
+  private void readBuffer() {
+    if (!buffer.hasRemaining()) {
+      buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+    }
+    int count;
+    try {
+      count = inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    } catch (IOException e) {
+      AppMetrics.getInstance().recordCsvReadFailure();
+      closed = true;
+      closeQuietly();
+      throw new AppException("Unable to read source data file", e);
+    }
+    if (count < 0) {
+      endOfInput = true;
+      rowParser.parse(buffer.flip(), true, this::addRow);
+      close();
+      return;
+    }
+    byteCount += count;
+    buffer.position(buffer.position() + count);
+    rowParser.parse(buffer.flip(), false, this::addRow);
+    buffer.compact();
+  }
+
+  /**
+   * Adds a parsed row to the next batch.
+   *
+   * @param country name of the country
+   * @param values  values of the row indexed by csv column
+   */
+  private void addRow(String country, long[] values) {
+    batch.addRow(country, values);
+    batchSize++;
+  }
+
+  /**
+   * Closes the stream after a failed read, keeping the read failure as the reported error.
+   */
+  private void closeQuietly() {
+    try {
+      inputStream.close();
+    } catch (IOException e) {
+      // the read failure is reported instead
+    }
+  }
+
+  /**
+   * Creates builder of a batch. Batches are short-lived, so their columns are kept on the heap.
+   *
+   * @return created builder
+   */
+  private static CovidDataset.Builder newBatch() {
+    return new CovidDataset.Builder().withStorage(ColumnStorage.HEAP);
+  }
+}
@@ -0,0 +1,382 @@
+package pl.polsl.covid19.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Allocation-light parser of covid csv data. Scans bytes of a buffer, parses numeric cells straight into
+ * {@code long} values (thousands separators inside quoted cells are skipped) and materializes only
+ * the country name as a {@link String}. Rows starting with {@code #} are treated as headers and skipped.
+ * Empty or malformed numeric cells are parsed as 0. Line breaks inside quoted cells are not supported.
+ * The parser can skip numeric cells altogether and only report where each row starts, so the cells can be
+ * decoded later by {@link #parseValue} with the same rules. Malformed numeric cells of metric columns are counted,
+ * so fallbacks to 0 can be reported.
+ *
+ * <p>Instances are not thread-safe, the array of values passed to {@link RowHandler} is reused between rows.
+ *
+ * @author Krzysztof Franków
+ * @version 1.2
+ */
+class CsvRowParser {
+
+  /**
+   * Number of columns of the covid csv file.
+   */
+  static final int COLUMN_COUNT = 13;
+
+  /**
+   * Index of the column with country name.
+   */
+  static final int COUNTRY_COLUMN = 1;
+
+  /**
+   * Largest value that can be multiplied by 10 and increased by a digit without overflow.
+   */
+  private static final long MAX_VALUE_BEFORE_DIGIT = (Long.MAX_VALUE - 9) / 10;
+
+  /**
+   * Value returned by {@link #parseValue} for malformed cells, no well-formed cell has this value.
+   */
+  static final long MALFORMED_VALUE = Long.MIN_VALUE;
+
+  /**
+   * Values of numeric columns of the currently parsed row, reused between rows.
+   */
+  private final long[] values = new long[COLUMN_COUNT];
+
+  /**
+   * Buffer used to copy country name bytes if they cannot be read directly from the parsed buffer.
+   */
+  private byte[] countryBytes = new byte[64];
+
+  /**
+   * True if numeric cells are parsed, false if only country names are parsed and all values are 0.
+   */
+  private final boolean decodeValues;
+
+  /**
+   * Index of the first byte of the last parsed row in the parsed buffer.
+   */
+  private int rowStart;
+
+  /**
+   * Number of malformed cells of metric columns parsed as 0.
+   */
+  private long malformedValueCount;
+
+  /**
+   * Number of rows passed to the handler.
+   */
+  private long rowCount;
+
+  /**
+   * CsvRowParser constructor parsing all cells.
+   */
+  CsvRowParser() {
+    this(true);
+  }
+
+  /**
+   * CsvRowParser constructor.
+   *
+   * @param decodeValues true to parse numeric cells, false to parse only country names
+   */
+  CsvRowParser(boolean decodeValues) {
+    this.decodeValues = decodeValues;
+  }
+
+  /**
+   * Receives rows parsed by {@link CsvRowParser}.
+   */
+  @FunctionalInterface
+  interface RowHandler {
+
+    /**
+     * Handles a single parsed row.
+     *
+     * @param country name of the country
+     * @param values  values of the row indexed by csv column, the array is reused after the method returns
+     */
+    void onRow(String country, long[] values);
+  }
+
+  /**
+   * Gets index of the first byte of the row passed to the handler in the parsed buffer. Valid only while
+   * the handler is running.
+   *
+   * @return index of the first byte of the row
+   */
+  int rowStart() {
+    return rowStart;
+  }
+
+  /**
+   * Gets number of rows passed to the handler by this parser so far, header rows are not counted.
+   *
+   * @return number of parsed rows
+   */
+  long getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Gets number of malformed cells of metric columns parsed as 0 by this parser so far. Cells are not checked
+   * if numeric cells are not parsed.
+   *
+   * @return number of malformed cells
+   */
+  long getMalformedValueCount() {
+    return malformedValueCount;
+  }
+
+  /**
+   * Parses all complete rows between position and limit of the buffer. The position of the buffer is moved
+   * to the beginning of the first incomplete row, so the caller can append more data and call the method again.
+   *
+   * @param buffer     buffer with csv data
+   * @param endOfInput true if no more data will follow, so the last row does not need a line break
+   * @param handler    handler receiving parsed rows
+   */
+  void parse(final ByteBuffer buffer, final boolean endOfInput, final RowHandler handler) {
+    var position = buffer.position();
+    var limit = buffer.limit();
+    while (position < limit) {
+      var next = parseRow(buffer, position, limit, endOfInput, handler);
+      if (next < 0) {
+        break;
+      }
+      position = next;
+    }
+    buffer.position(Math.min(position, limit));
+  }
+
+  /**
+   * Parses a single row starting at given index.
+   *
+   * @param buffer     buffer with csv data
+   * @param start      index of the first byte of the row
+   * @param limit      index after the last available byte
+   * @param endOfInput true if no more data will follow
+   * @param handler    handler receiving the row
+   * @return index of the first byte after the row or -1 if the row is incomplete
+   */
+  private int parseRow(final ByteBuffer buffer, final int start, final int limit, final boolean endOfInput,
+                       final RowHandler handler) {
+    var first = buffer.get(start);
+    if (first == '\n' || first == '\r') {
+      return start + 1;
+    }
+    Arrays.fill(values, 0L);
+    var header = first == '#';
+    var countryStart = start;
+    var countryEnd = start;
+    var countryEscaped = false;
+    var column = 0;
+    var i = start;
+    while (true) {
+      var quoted = i < limit && buffer.get(i) == '"';
+      if (quoted) {
+        i++;
+      }
+      var fieldStart = i;
+      var fieldEnd = -1;
+      var escaped = false;
+      var value = 0L;
+      var negative = false;
+      var malformed = false;
+      var digits = 0;
+      var rowEnd = false;
+      while (true) {
+        if (i >= limit) {
+          if (!endOfInput) {
+            return -1;
+          }
+          if (fieldEnd < 0) {
+            fieldEnd = i;
+          }
+          rowEnd = true;
+          break;
+        }
+        var c = buffer.get(i);
+        if (quoted) {
+          if (c == '"') {
+            if (i + 1 < limit && buffer.get(i + 1) == '"') {
+              escaped = true;
+              malformed = true;
+              i += 2;
+              continue;
+            }
+            if (i + 1 >= limit && !endOfInput) {
+              return -1;
+            }
+            quoted = false;
+            fieldEnd = i;
+            i++;
+            continue;
+          }
+          if (c == ',') {
+            i++;
+            continue;
+          }
+        } else if (c == ',') {
+          if (fieldEnd < 0) {
+            fieldEnd = i;
+          }
+          i++;
+          break;
+        } else if (c == '\n' || c == '\r') {
+          if (fieldEnd < 0) {
+            fieldEnd = i;
+          }
+          if (c == '\r' && i + 1 < limit && buffer.get(i + 1) == '\n') {
+            i++;
+          }
+          i++;
+          rowEnd = true;
+          break;
+        }
+        if (fieldEnd < 0 && decodeValues) {
+          if (c >= '0' && c <= '9') {
+            if (value > MAX_VALUE_BEFORE_DIGIT) {
+              malformed = true;
+            } else {
+              value = value * 10 + (c - '0');
+              digits++;
+            }
+          } else if (c == '-' && i == fieldStart) {
+            negative = true;
+          } else {
+            malformed = true;
+          }
+        }
+        i++;
+      }
+      if (column == COUNTRY_COLUMN) {
+        countryStart = fieldStart;
+        countryEnd = fieldEnd;
+        countryEscaped = escaped;
+      } else if (column < COLUMN_COUNT && !malformed && digits > 0) {
+        values[column] = negative ? -value : value;
+      } else if (malformed && !header && column > COUNTRY_COLUMN && column < COLUMN_COUNT) {
+        malformedValueCount++;
+      }
+      column++;
+      if (rowEnd) {
+        break;
+      }
+    }
+    if (!header) {
+      rowStart = start;
+      rowCount++;
+      handler.onRow(decodeCountry(buffer, countryStart, countryEnd, countryEscaped), values);
+    }
+    return i;
+  }
+
+  /**
+   * Parses value of a numeric cell of a row with the same rules as the row parser: thousands separators inside
+   * quoted cells are skipped and empty cells are parsed as 0.
+   *
+   * @param data     csv bytes
+   * @param rowStart index of the first byte of the row
+   * @param column   index of the csv column
+   * @return value of the cell, 0 if the row has fewer columns or {@link #MALFORMED_VALUE} if the cell is malformed
+   */
+  static long parseValue(final byte[] data, final int rowStart, final int column) {
+    var limit = data.length;
+    var i = rowStart;
+    for (var field = 0; field < column; field++) {
+      var quoted = i < limit && data[i] == '"';
+      if (quoted) {
+        i++;
+      }
+      while (true) {
+        if (i >= limit) {
+          return 0L;
+        }
+        var c = data[i++];
+        if (quoted) {
+          if (c == '"') {
+            if (i < limit && data[i] == '"') {
+              i++;
+            } else {
+              quoted = false;
+            }
+          }
+        } else if (c == ',') {
+          break;
+        } else if (c == '\n' || c == '\r') {
+          return 0L;
+        }
+      }
+    }
+    var quoted = i < limit && data[i] == '"';
+    if (quoted) {
+      i++;
+    }
+    var fieldStart = i;
+    var value = 0L;
+    var negative = false;
+    var digits = 0;
+    for (; i < limit; i++) {
+      var c = data[i];
+      if (quoted) {
+        if (c == '"') {
+          if (i + 1 < limit && data[i + 1] == '"') {
+            return MALFORMED_VALUE;
+          }
+          break;
+        }
+        if (c == ',') {
+          continue;
+        }
+      } else if (c == ',' || c == '\n' || c == '\r') {
+        break;
+      }
+      if (c >= '0' && c <= '9') {
+        if (value > MAX_VALUE_BEFORE_DIGIT) {
+          return MALFORMED_VALUE;
+        }
+        value = value * 10 + (c - '0');
+        digits++;
+      } else if (c == '-' && i == fieldStart) {
+        negative = true;
+      } else {
+        return MALFORMED_VALUE;
+      }
+    }
+    if (digits == 0) {
+      return 0L;
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Materializes country name from bytes of the buffer.
+   *
+   * @param buffer  buffer with csv data
+   * @param start   index of the first byte of the name
+   * @param end     index after the last byte of the name
+   * @param escaped true if the name contains escaped quotes
+   * @return country name
+   */
+  private String decodeCountry(final ByteBuffer buffer, final int start, final int end, final boolean escaped) {
+    var length = end - start;
+    if (!escaped && buffer.hasArray()) {
+      return new String(buffer.array(), buffer.arrayOffset() + start, length, UTF_8);
+    }
+    if (countryBytes.length < length) {
+      countryBytes = new byte[Math.max(length, countryBytes.length * 2)];
+    }
+    var count = 0;
+    for (var i = start; i < end; i++) {
+      var c = buffer.get(i);
+      countryBytes[count++] = c;
+      if (escaped && c == '"') {
+        i++;
+      }
+    }
+    return new String(countryBytes, 0, count, UTF_8);
+  }
+}
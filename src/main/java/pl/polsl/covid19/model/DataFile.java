@@ -0,0 +1,134 @@
+package pl.polsl.covid19.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+
+/**
+ * Locates a covid data file on the classpath or in the filesystem and exposes its modification stamp,
+ * so cached data can be validated without reading the file contents.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class DataFile {
+
+  /**
+   * Stamp returned for resources that cannot change while the application runs (e.g. packaged in a jar).
+   */
+  static final Stamp IMMUTABLE_STAMP = new Stamp(-1L, -1L);
+
+  /**
+   * Name of the file as requested by the user.
+   */
+  private final String filename;
+
+  /**
+   * Path of the file on the filesystem or null if the file is not a plain file.
+   */
+  private final Path path;
+
+  /**
+   * DataFile constructor. Classpath resources take precedence over filesystem paths.
+   *
+   * @param filename name of classpath resource or filesystem path of file containing covid data
+   */
+  DataFile(String filename) {
+    this.filename = filename;
+    this.path = resolvePath(filename);
+  }
+
+  /**
+   * Gets the name of the file.
+   *
+   * @return name of the file
+   */
+  String getFilename() {
+    return filename;
+  }
+
+  /**
+   * Gets filesystem path of the file.
+   *
+   * @return path of the file or null if the file is not a plain file in the filesystem
+   */
+  Path getPath() {
+    return path;
+  }
+
+  /**
+   * Opens the file for reading.
+   *
+   * @return input stream of the file
+   * @throws AppException if the file does not exist
+   */
+  InputStream open() {
+    var inputStream = getClass().getClassLoader().getResourceAsStream(filename);
+    if (inputStream != null) {
+      return inputStream;
+    }
+    if (path == null) {
+      throw new AppException("File " + filename + " not found");
+    }
+    try {
+      return Files.newInputStream(path);
+    } catch (IOException e) {
+      throw new AppException("Unable to read source data file", e);
+    }
+  }
+
+  /**
+   * Reads the current modification stamp of the file. Only file metadata is accessed.
+   *
+   * @return current stamp of the file or {@link #IMMUTABLE_STAMP} if the file cannot be modified
+   */
+  Stamp readStamp() {
+    if (path == null) {
+      return IMMUTABLE_STAMP;
+    }
+    try {
+      return new Stamp(Files.getLastModifiedTime(path).toMillis(), Files.size(path));
+    } catch (IOException e) {
+      throw new AppException("Unable to read attributes of file " + filename, e);
+    }
+  }
+
+  /**
+   * Resolves filesystem path of a classpath resource or of a file given by its path.
+   *
+   * @param filename name of classpath resource or filesystem path
+   * @return path of the file or null if file is missing or is not a plain file
+   */
+  private Path resolvePath(String filename) {
+    URL url = getClass().getClassLoader().getResource(filename);
+    if (url != null) {
+      if (!"file".equals(url.getProtocol())) {
+        return null;
+      }
+      try {
+        return Path.of(url.toURI());
+      } catch (URISyntaxException e) {
+        return null;
+      }
+    }
+    try {
+      var filePath = Path.of(filename);
+      return Files.isRegularFile(filePath) ? filePath : null;
+    } catch (InvalidPathException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Modification stamp of a data file.
+   *
+   * @param lastModified last modification time in milliseconds
+   * @param size         size of the file in bytes
+   */
+  record Stamp(long lastModified, long size) {
+  }
+}
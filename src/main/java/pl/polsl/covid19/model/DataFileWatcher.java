@@ -0,0 +1,128 @@
+package pl.polsl.covid19.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a data file with {@link WatchService} and runs an action on a background daemon thread after the file
+ * was created, modified or replaced. Events are debounced, so a file written in many steps triggers
+ * a single action once writing stops.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class DataFileWatcher implements Closeable {
+
+  /**
+   * Default time in milliseconds without events after which the action runs.
+   */
+  static final long DEFAULT_DEBOUNCE_MILLIS = 200L;
+
+  /**
+   * Watched file.
+   */
+  private final Path file;
+
+  /**
+   * Action run after the file changed.
+   */
+  private final Runnable action;
+
+  /**
+   * Time in milliseconds without events after which the action runs.
+   */
+  private final long debounceMillis;
+
+  /**
+   * Service watching directory of the file.
+   */
+  private final WatchService watchService;
+
+  /**
+   * Thread waiting for events.
+   */
+  private final Thread thread;
+
+  /**
+   * DataFileWatcher constructor. Watching starts immediately.
+   *
+   * @param file           file to watch
+   * @param action         action run after the file changed, exceptions thrown by it are ignored
+   * @param debounceMillis time in milliseconds without events after which the action runs
+   */
+  DataFileWatcher(Path file, Runnable action, long debounceMillis) {
+    this.file = file.toAbsolutePath();
+    this.action = action;
+    this.debounceMillis = debounceMillis;
+    try {
+      watchService = FileSystems.getDefault().newWatchService();
+      this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+    } catch (IOException e) {
+      throw new AppException("Unable to watch file " + file, e);
+    }
+    thread = new Thread(this::run, "covid19-data-file-watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops watching the file.
+   */
+  @Override
+  public void close() {
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      throw new AppException("Unable to stop watching file " + file, e);
+    }
+  }
+
+  /**
+   * Waits for events of the file until the watcher is closed.
+   */
+  private void run() {
+    try {
+      while (true) {
+        if (!concernsFile(watchService.take())) {
+          continue;
+        }
+        WatchKey key;
+        while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+          concernsFile(key);
+        }
+        try {
+          action.run();
+        } catch (RuntimeException e) {
+          // the file may be incomplete, the next event runs the action again
+        }
+      }
+    } catch (ClosedWatchServiceException | InterruptedException e) {
+      // watching stopped
+    }
+  }
+
+  /**
+   * Checks whether events of a key concern the watched file and resets the key.
+   *
+   * @param key signalled key
+   * @return true if any event concerns the file or events were lost
+   */
+  private boolean concernsFile(WatchKey key) {
+    var concerns = false;
+    for (var event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+        concerns = true;
+      }
+    }
+    key.reset();
+    return concerns;
+  }
+}
@@ -0,0 +1,327 @@
+package pl.polsl.covid19.model;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps covid data parsed from a data file in memory as an immutable snapshot.
+ * The file is parsed again only when the cache was invalidated or the file stamp changed, and the cached
+ * snapshot is replaced only if the checksum of the parsed content differs from the cached one. If a {@link SnapshotFile} is given, the first load reads
+ * the snapshot instead of parsing the file while the snapshot matches the file stamp, and every parse
+ * of changed content writes a new snapshot.
+ *
+ * <p>A new version of the data replaces the cached one atomically, so readers never wait for a reload.
+ * When only a few rows changed, sort indexes of the previous version are updated instead of rebuilt.
+ * Registered {@link DatasetChangeListener}s are notified about every new version.
+ *
+ * @author Krzysztof Franków
+ * @version 1.4
+ */
+class DatasetCache {
+
+  /**
+   * Default minimal time in milliseconds between two checks of file stamp.
+   */
+  static final long DEFAULT_REVALIDATION_INTERVAL_MILLIS = 2000L;
+
+  /**
+   * Sort indexes are updated incrementally if at most this fraction of rows changed (as 1 / divisor).
+   */
+  private static final int INCREMENTAL_UPDATE_DIVISOR = 8;
+
+  /**
+   * Data file that is cached.
+   */
+  private final DataFile dataFile;
+
+  /**
+   * Reader used to parse the data file.
+   */
+  private final CsvFileReader csvFileReader;
+
+  /**
+   * Binary snapshot of the data file or null if snapshots are not used.
+   */
+  private final SnapshotFile snapshotFile;
+
+  /**
+   * Minimal time in milliseconds between two checks of file stamp.
+   */
+  private final long revalidationIntervalMillis;
+
+  /**
+   * Number of requests served from memory.
+   */
+  private final AtomicLong hits = new AtomicLong();
+
+  /**
+   * Number of requests that required reading the data file.
+   */
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Listeners notified about new versions of the data.
+   */
+  private final List<DatasetChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Currently cached snapshot or null if nothing was loaded yet.
+   */
+  private volatile DatasetSnapshot snapshot;
+
+  /**
+   * True if the cache was invalidated, so the next request parses the data file regardless of its stamp.
+   */
+  private volatile boolean forceReload;
+
+  /**
+   * Time of the last file stamp check in milliseconds.
+   */
+  private volatile long lastValidationMillis;
+
+  /**
+   * True if changes of the data file are detected by a watcher, so requests do not check the file stamp.
+   */
+  private volatile boolean watched;
+
+  /**
+   * Version of the most recently created snapshot.
+   */
+  private long lastVersion;
+
+  /**
+   * DatasetCache constructor with default revalidation interval.
+   *
+   * @param dataFile      data file to cache
+   * @param csvFileReader reader used to parse the data file
+   */
+  DatasetCache(DataFile dataFile, CsvFileReader csvFileReader) {
+    this(dataFile, csvFileReader, DEFAULT_REVALIDATION_INTERVAL_MILLIS);
+  }
+
+  /**
+   * DatasetCache constructor.
+   *
+   * @param dataFile                   data file to cache
+   * @param csvFileReader              reader used to parse the data file
+   * @param revalidationIntervalMillis minimal time in milliseconds between two checks of file stamp
+   */
+  DatasetCache(DataFile dataFile, CsvFileReader csvFileReader, long revalidationIntervalMillis) {
+    this(dataFile, csvFileReader, null, revalidationIntervalMillis);
+  }
+
+  /**
+   * DatasetCache constructor.
+   *
+   * @param dataFile                   data file to cache
+   * @param csvFileReader              reader used to parse the data file
+   * @param snapshotFile               binary snapshot of the data file or null if snapshots are not used
+   * @param revalidationIntervalMillis minimal time in milliseconds between two checks of file stamp
+   */
+  DatasetCache(DataFile dataFile, CsvFileReader csvFileReader, SnapshotFile snapshotFile,
+               long revalidationIntervalMillis) {
+    this.dataFile = dataFile;
+    this.csvFileReader = csvFileReader;
+    this.snapshotFile = snapshotFile;
+    this.revalidationIntervalMillis = revalidationIntervalMillis;
+  }
+
+  /**
+   * Gets current snapshot of the data, loading it if needed.
+   *
+   * @return current snapshot of the data
+   */
+  DatasetSnapshot get() {
+    var current = snapshot;
+    if (current != null && !forceReload && isFresh(current)) {
+      hits.incrementAndGet();
+      AppMetrics.getInstance().recordDatasetCacheRequest(true);
+      return current;
+    }
+    return reload(current);
+  }
+
+  /**
+   * Makes the next request parse the data file again. The cached snapshot is kept for comparison, so it is
+   * replaced and listeners are notified only if the content changed.
+   */
+  synchronized void invalidate() {
+    forceReload = true;
+  }
+
+  /**
+   * Parses the data file again regardless of its stamp and replaces cached snapshot if the content changed.
+   *
+   * @return new current snapshot
+   */
+  DatasetSnapshot refresh() {
+    return reload(snapshot);
+  }
+
+  /**
+   * Sets whether changes of the data file are detected by a watcher calling {@link #refresh()}.
+   * Watched files are not checked by requests.
+   *
+   * @param watched true if the data file is watched
+   */
+  void setWatched(boolean watched) {
+    this.watched = watched;
+  }
+
+  /**
+   * Registers a listener notified about new versions of the data.
+   *
+   * @param listener listener to register
+   */
+  void addChangeListener(DatasetChangeListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Unregisters a listener.
+   *
+   * @param listener listener to unregister
+   */
+  void removeChangeListener(DatasetChangeListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Gets number of requests served from memory.
+   *
+   * @return number of cache hits
+   */
+  long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Gets number of requests that required reading the data file.
+   *
+   * @return number of cache misses
+   */
+  long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Checks whether the snapshot still corresponds to the data file. The file stamp is checked
+   * at most once per revalidation interval.
+   *
+   * @param current cached snapshot
+   * @return true if snapshot can be used
+   */
+  private boolean isFresh(DatasetSnapshot current) {
+    if (watched) {
+      return true;
+    }
+    var now = System.currentTimeMillis();
+    if (now - lastValidationMillis < revalidationIntervalMillis) {
+      return true;
+    }
+    var stamp = dataFile.readStamp();
+    lastValidationMillis = now;
+    return stamp.equals(current.stamp());
+  }
+
+  /**
+   * Loads the data file and replaces cached snapshot. If the file content did not change,
+   * the previous snapshot is kept with updated stamp. Listeners are notified after the lock is released.
+   *
+   * @param stale snapshot found to be stale or null if nothing was loaded
+   * @return new current snapshot
+   */
+  private DatasetSnapshot reload(DatasetSnapshot stale) {
+    DatasetChangeEvent event = null;
+    DatasetSnapshot reloaded;
+    synchronized (this) {
+      var current = snapshot;
+      if (current != null && current != stale && !forceReload) {
+        hits.incrementAndGet();
+        AppMetrics.getInstance().recordDatasetCacheRequest(true);
+        return current;
+      }
+      misses.incrementAndGet();
+      AppMetrics.getInstance().recordDatasetCacheRequest(false);
+      forceReload = false;
+      var stamp = dataFile.readStamp();
+      var result = lastVersion == 0 ? readSnapshot(stamp) : null;
+      if (result == null) {
+        result = csvFileReader.readCsvFile(dataFile);
+        if (current == null || current.checksum() != result.checksum()) {
+          writeSnapshot(result, stamp);
+        }
+      }
+      var checksum = result.checksum();
+      if (current != null && current.checksum() == checksum) {
+        reloaded = current.withStamp(stamp);
+      } else {
+        reloaded = new DatasetSnapshot(result.dataset(), ++lastVersion, checksum, stamp);
+        if (current != null) {
+          event = changeEvent(current, reloaded);
+        }
+      }
+      snapshot = reloaded;
+      lastValidationMillis = System.currentTimeMillis();
+    }
+    if (event != null) {
+      for (var listener : listeners) {
+        listener.onDatasetChanged(event);
+      }
+    }
+    return reloaded;
+  }
+
+  /**
+   * Computes difference between two versions of the data and carries over indexes of the previous version
+   * if only a few rows changed.
+   *
+   * @param previous previous snapshot
+   * @param current  new snapshot
+   * @return event describing the change
+   */
+  private DatasetChangeEvent changeEvent(DatasetSnapshot previous, DatasetSnapshot current) {
+    var diff = DatasetDiff.compute(previous.dataset(), current.dataset());
+    var changedRows = diff.changedRows();
+    if (changedRows != null && changedRows.length <= current.dataset().size() / INCREMENTAL_UPDATE_DIVISOR) {
+      current.dataset().updateIndexesFrom(previous.dataset(), changedRows);
+    }
+    return new DatasetChangeEvent(previous.dataset(), current.dataset(), current.version(), diff);
+  }
+
+  /**
+   * Reads the snapshot of the data file.
+   *
+   * @param stamp current stamp of the data file
+   * @return data read from the snapshot or null if there is no usable snapshot
+   */
+  private CsvFileReader.Result readSnapshot(DataFile.Stamp stamp) {
+    if (snapshotFile == null || stamp.equals(DataFile.IMMUTABLE_STAMP)) {
+      return null;
+    }
+    try {
+      return snapshotFile.read(stamp);
+    } catch (AppException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Writes the snapshot of the data file. Failure to write the snapshot does not fail loading of the data,
+   * the next start parses the data file again.
+   *
+   * @param result data read from the data file
+   * @param stamp  stamp of the data file the data was read from
+   */
+  private void writeSnapshot(CsvFileReader.Result result, DataFile.Stamp stamp) {
+    if (snapshotFile == null || stamp.equals(DataFile.IMMUTABLE_STAMP)) {
+      return;
+    }
+    try {
+      snapshotFile.write(result.dataset(), result.checksum(), stamp);
+    } catch (AppException e) {
+      // the snapshot is only an optimization of the next start
+    }
+  }
+}
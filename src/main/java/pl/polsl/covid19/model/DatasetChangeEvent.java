@@ -0,0 +1,81 @@
+package pl.polsl.covid19.model;
+
+/**
+ * Describes replacement of covid data by a new version loaded from the changed data file.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+public class DatasetChangeEvent {
+
+  /**
+   * Previous version of the data.
+   */
+  private final CovidDataset previousDataset;
+
+  /**
+   * Current version of the data.
+   */
+  private final CovidDataset dataset;
+
+  /**
+   * Version number of the current data.
+   */
+  private final long version;
+
+  /**
+   * Difference between the versions.
+   */
+  private final DatasetDiff diff;
+
+  /**
+   * DatasetChangeEvent constructor.
+   *
+   * @param previousDataset previous version of the data
+   * @param dataset         current version of the data
+   * @param version         version number of the current data
+   * @param diff            difference between the versions
+   */
+  DatasetChangeEvent(CovidDataset previousDataset, CovidDataset dataset, long version, DatasetDiff diff) {
+    this.previousDataset = previousDataset;
+    this.dataset = dataset;
+    this.version = version;
+    this.diff = diff;
+  }
+
+  /**
+   * Gets previous version of the data.
+   *
+   * @return previous data
+   */
+  public CovidDataset getPreviousDataset() {
+    return previousDataset;
+  }
+
+  /**
+   * Gets current version of the data.
+   *
+   * @return current data
+   */
+  public CovidDataset getDataset() {
+    return dataset;
+  }
+
+  /**
+   * Gets version number of the current data, incremented each time the data file content changes.
+   *
+   * @return version number
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Gets per-country difference between the versions.
+   *
+   * @return difference between the versions
+   */
+  public DatasetDiff getDiff() {
+    return diff;
+  }
+}
@@ -0,0 +1,19 @@
+package pl.polsl.covid19.model;
+
+/**
+ * Receives notifications about new versions of covid data loaded after the data file changed.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface DatasetChangeListener {
+
+  /**
+   * Handles a new version of covid data. Called on the thread that loaded the data, not on the event dispatch
+   * thread.
+   *
+   * @param event description of the change
+   */
+  void onDatasetChanged(DatasetChangeEvent event);
+}
@@ -0,0 +1,220 @@
+package pl.polsl.covid19.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Per-country difference between two versions of covid data. If a country occurs in more than one row,
+ * its last row is compared. When both versions have the same countries in the same rows, the difference
+ * also lists the changed rows, so indexes of the previous version can be updated instead of rebuilt.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+public class DatasetDiff {
+
+  /**
+   * Countries present only in the current version.
+   */
+  private final List<String> addedCountries;
+
+  /**
+   * Countries present only in the previous version.
+   */
+  private final List<String> removedCountries;
+
+  /**
+   * Countries present in both versions with different values.
+   */
+  private final List<String> changedCountries;
+
+  /**
+   * Indexes of changed rows in ascending order or null if rows of the versions are not aligned.
+   */
+  private final int[] changedRows;
+
+  /**
+   * DatasetDiff constructor.
+   *
+   * @param addedCountries   countries present only in the current version
+   * @param removedCountries countries present only in the previous version
+   * @param changedCountries countries present in both versions with different values
+   * @param changedRows      indexes of changed rows in ascending order or null if rows are not aligned
+   */
+  private DatasetDiff(List<String> addedCountries, List<String> removedCountries, List<String> changedCountries,
+                      int[] changedRows) {
+    this.addedCountries = List.copyOf(addedCountries);
+    this.removedCountries = List.copyOf(removedCountries);
+    this.changedCountries = List.copyOf(changedCountries);
+    this.changedRows = changedRows;
+  }
+
+  /**
+   * Computes difference between two versions of covid data.
+   *
+   * @param previous previous version
+   * @param current  current version
+   * @return difference of the versions
+   */
+  static DatasetDiff compute(CovidDataset previous, CovidDataset current) {
+    var rows = alignedChangedRows(previous, current);
+    if (rows != null) {
+      var countries = new LinkedHashSet<String>();
+      for (var row : rows) {
+        countries.add(current.getCountry(row));
+      }
+      return new DatasetDiff(List.of(), List.of(), new ArrayList<>(countries), rows);
+    }
+    var previousRows = lastRowByCountry(previous);
+    var currentRows = lastRowByCountry(current);
+    var previousRowsByName = new HashMap<String, Integer>();
+    for (var code = 0; code < previous.countryCount(); code++) {
+      previousRowsByName.put(previous.countryName(code), previousRows[code]);
+    }
+    var added = new ArrayList<String>();
+    var changed = new ArrayList<String>();
+    for (var code = 0; code < current.countryCount(); code++) {
+      var name = current.countryName(code);
+      var previousRow = previousRowsByName.remove(name);
+      if (previousRow == null) {
+        added.add(name);
+      } else if (!sameValues(previous, previousRow, current, currentRows[code])) {
+        changed.add(name);
+      }
+    }
+    var removed = new ArrayList<String>();
+    for (var code = 0; code < previous.countryCount(); code++) {
+      if (previousRowsByName.containsKey(previous.countryName(code))) {
+        removed.add(previous.countryName(code));
+      }
+    }
+    return new DatasetDiff(added, removed, changed, null);
+  }
+
+  /**
+   * Gets countries present only in the current version.
+   *
+   * @return unmodifiable list of country names
+   */
+  public List<String> getAddedCountries() {
+    return addedCountries;
+  }
+
+  /**
+   * Gets countries present only in the previous version.
+   *
+   * @return unmodifiable list of country names
+   */
+  public List<String> getRemovedCountries() {
+    return removedCountries;
+  }
+
+  /**
+   * Gets countries present in both versions with different values.
+   *
+   * @return unmodifiable list of country names
+   */
+  public List<String> getChangedCountries() {
+    return changedCountries;
+  }
+
+  /**
+   * Checks whether the versions contain the same data.
+   *
+   * @return true if no country was added, removed or changed
+   */
+  public boolean isEmpty() {
+    return addedCountries.isEmpty() && removedCountries.isEmpty() && changedCountries.isEmpty();
+  }
+
+  /**
+   * Gets indexes of changed rows. The returned array must not be modified.
+   *
+   * @return indexes of changed rows in ascending order or null if rows of the versions are not aligned
+   */
+  int[] changedRows() {
+    return changedRows;
+  }
+
+  /**
+   * Finds rows with changed values if both versions have the same countries in the same rows.
+   *
+   * @param previous previous version
+   * @param current  current version
+   * @return indexes of changed rows in ascending order or null if rows are not aligned
+   */
+  private static int[] alignedChangedRows(CovidDataset previous, CovidDataset current) {
+    if (previous.size() != current.size()) {
+      return null;
+    }
+    var currentCodesByName = new HashMap<String, Integer>();
+    for (var code = 0; code < current.countryCount(); code++) {
+      currentCodesByName.put(current.countryName(code), code);
+    }
+    var codeMapping = new int[previous.countryCount()];
+    for (var code = 0; code < codeMapping.length; code++) {
+      codeMapping[code] = currentCodesByName.getOrDefault(previous.countryName(code), -1);
+    }
+    for (var row = 0; row < current.size(); row++) {
+      if (codeMapping[previous.countryCode(row)] != current.countryCode(row)) {
+        return null;
+      }
+    }
+    var changed = new boolean[current.size()];
+    var count = 0;
+    for (var metric : CovidMetric.values()) {
+      var previousValues = previous.column(metric);
+      var currentValues = current.column(metric);
+      for (var row = 0; row < changed.length; row++) {
+        if (!changed[row] && previousValues.get(row) != currentValues.get(row)) {
+          changed[row] = true;
+          count++;
+        }
+      }
+    }
+    var rows = new int[count];
+    var next = 0;
+    for (var row = 0; row < changed.length && next < count; row++) {
+      if (changed[row]) {
+        rows[next++] = row;
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Finds the last row of each country.
+   *
+   * @param dataset dataset to search
+   * @return index of the last row indexed by country code
+   */
+  private static int[] lastRowByCountry(CovidDataset dataset) {
+    var rows = new int[dataset.countryCount()];
+    Arrays.fill(rows, -1);
+    for (var row = 0; row < dataset.size(); row++) {
+      rows[dataset.countryCode(row)] = row;
+    }
+    return rows;
+  }
+
+  /**
+   * Checks whether two rows have equal values of all metrics.
+   *
+   * @param first     dataset of the first row
+   * @param firstRow  index of the first row
+   * @param second    dataset of the second row
+   * @param secondRow index of the second row
+   * @return true if all values are equal
+   */
+  private static boolean sameValues(CovidDataset first, int firstRow, CovidDataset second, int secondRow) {
+    for (var metric : CovidMetric.values()) {
+      if (first.getValue(metric, firstRow) != second.getValue(metric, secondRow)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
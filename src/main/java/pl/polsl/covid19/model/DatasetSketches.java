@@ -0,0 +1,242 @@
+package pl.polsl.covid19.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Approximate aggregates of covid data kept in constant space regardless of number of rows: a
+ * {@link QuantileSketch} of each {@link CovidMetric}, a {@link DistinctCountSketch} of countries and
+ * a {@link HeavyHitterSketch} of total value of each metric by country. Answers take microseconds and come
+ * with bounds holding with 99% confidence, instead of sorting or scanning the rows.
+ *
+ * <p>Sketches are built from the columns of each chunk of a file while it is read and merged across chunks
+ * and across days of a {@link TimeSeriesStore}. Values of each country are summed before they are added
+ * to the heavy hitter sketches, so only quantile sketches see every value. Sketches of a built dataset are not
+ * modified afterwards, so they can be queried concurrently, merging is done on copies.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+public class DatasetSketches {
+
+  /**
+   * Number of standard errors of a normally distributed estimate covering 99% of its values.
+   */
+  private static final double CONFIDENCE_SCORE = 2.576;
+
+  /**
+   * Quantile sketch of each metric indexed by metric ordinal.
+   */
+  private final QuantileSketch[] quantiles;
+
+  /**
+   * Heavy hitter sketch of each metric indexed by metric ordinal, weighted by values of the metric.
+   */
+  private final HeavyHitterSketch[] heavyHitters;
+
+  /**
+   * Sketch of distinct countries.
+   */
+  private final DistinctCountSketch countries;
+
+  /**
+   * Number of added rows.
+   */
+  private long rowCount;
+
+  /**
+   * DatasetSketches constructor of empty sketches.
+   */
+  DatasetSketches() {
+    var metricCount = CovidMetric.values().length;
+    this.quantiles = new QuantileSketch[metricCount];
+    this.heavyHitters = new HeavyHitterSketch[metricCount];
+    for (var metric = 0; metric < metricCount; metric++) {
+      quantiles[metric] = new QuantileSketch();
+      heavyHitters[metric] = new HeavyHitterSketch();
+    }
+    this.countries = new DistinctCountSketch();
+  }
+
+  /**
+   * Creates a copy of sketches.
+   *
+   * @param source copied sketches
+   */
+  private DatasetSketches(DatasetSketches source) {
+    this.quantiles = new QuantileSketch[source.quantiles.length];
+    this.heavyHitters = new HeavyHitterSketch[source.heavyHitters.length];
+    for (var metric = 0; metric < quantiles.length; metric++) {
+      quantiles[metric] = source.quantiles[metric].copy();
+      heavyHitters[metric] = source.heavyHitters[metric].copy();
+    }
+    this.countries = source.countries.copy();
+    this.rowCount = source.rowCount;
+  }
+
+  /**
+   * Builds sketches of all rows of a dataset column by column.
+   *
+   * @param dataset sketched dataset
+   * @return sketches of the dataset
+   */
+  static DatasetSketches of(CovidDataset dataset) {
+    var sketches = new DatasetSketches();
+    var countryCount = dataset.countryCount();
+    var countryNames = new String[countryCount];
+    var countryHashes = new long[countryCount];
+    for (var code = 0; code < countryCount; code++) {
+      countryNames[code] = dataset.countryName(code);
+      countryHashes[code] = hash(countryNames[code]);
+      sketches.countries.update(countryHashes[code]);
+    }
+    var countryCodes = new int[dataset.size()];
+    for (var row = 0; row < countryCodes.length; row++) {
+      countryCodes[row] = dataset.countryCode(row);
+    }
+    var countryTotals = new long[countryCount];
+    for (var metric : CovidMetric.values()) {
+      var values = dataset.column(metric);
+      var quantile = sketches.quantiles[metric.ordinal()];
+      Arrays.fill(countryTotals, 0L);
+      for (var row = 0; row < countryCodes.length; row++) {
+        var value = values.get(row);
+        quantile.update(value);
+        if (value > 0) {
+          countryTotals[countryCodes[row]] += value;
+        }
+      }
+      var heavyHitter = sketches.heavyHitters[metric.ordinal()];
+      for (var code = 0; code < countryCount; code++) {
+        heavyHitter.update(countryNames[code], countryHashes[code], countryTotals[code]);
+      }
+    }
+    sketches.rowCount = dataset.size();
+    return sketches;
+  }
+
+  /**
+   * Adds all rows of other sketches.
+   *
+   * @param other merged sketches
+   */
+  void merge(DatasetSketches other) {
+    for (var metric = 0; metric < quantiles.length; metric++) {
+      quantiles[metric].merge(other.quantiles[metric]);
+      heavyHitters[metric].merge(other.heavyHitters[metric]);
+    }
+    countries.merge(other.countries);
+    rowCount += other.rowCount;
+  }
+
+  /**
+   * Creates a copy of the sketches that can be updated independently.
+   *
+   * @return copy of the sketches
+   */
+  DatasetSketches copy() {
+    return new DatasetSketches(this);
+  }
+
+  /**
+   * Gets number of sketched rows.
+   *
+   * @return number of rows
+   */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Estimates value of a metric at a quantile, e.g. 0.5 for the median. Bounds are values at the quantile
+   * shifted by the rank error of the sketch, about 1.3%.
+   *
+   * @param metric   metric to estimate
+   * @param quantile quantile in range of 0 to 1
+   * @return estimated value with its bounds
+   * @throws AppException if there are no rows or the quantile is out of range
+   */
+  public Estimate estimateQuantile(CovidMetric metric, double quantile) {
+    var sketch = quantiles[metric.ordinal()];
+    if (sketch.getCount() == 0) {
+      throw new AppException("Quantile of " + metric.getDisplayName() + " is undefined without data.");
+    }
+    var value = sketch.getQuantile(quantile);
+    var error = sketch.getNormalizedRankError();
+    return new Estimate(value, sketch.getQuantile(Math.max(0.0, quantile - error)),
+        sketch.getQuantile(Math.min(1.0, quantile + error)));
+  }
+
+  /**
+   * Estimates number of distinct countries with error of about 4%.
+   *
+   * @return estimated number of countries with its bounds
+   */
+  public Estimate estimateDistinctCountries() {
+    var estimate = countries.estimate();
+    var error = (long) Math.ceil(estimate * CONFIDENCE_SCORE * countries.getRelativeStandardError());
+    return new Estimate(estimate, Math.max(0L, estimate - error), estimate + error);
+  }
+
+  /**
+   * Estimates countries with the highest total value of a metric. Totals are never underestimated
+   * and overestimated by at most 0.27% of the total value of all countries. Negative values are not counted.
+   *
+   * @param metric metric to sum
+   * @param count  maximal number of countries, at most {@value HeavyHitterSketch#CANDIDATE_COUNT}
+   * @return countries with their estimated totals ordered from the highest
+   * @throws AppException if the number of countries is out of range
+   */
+  public List<HeavyHitter> estimateHeavyHitters(CovidMetric metric, int count) {
+    var sketch = heavyHitters[metric.ordinal()];
+    var error = sketch.getErrorBound();
+    var heaviest = sketch.getHeaviest(count);
+    var result = new ArrayList<HeavyHitter>(heaviest.size());
+    for (var entry : heaviest) {
+      var estimate = entry.getValue();
+      result.add(new HeavyHitter(entry.getKey(), new Estimate(estimate, Math.max(0L, estimate - error), estimate)));
+    }
+    return result;
+  }
+
+  /**
+   * Computes 64-bit hash of a string, FNV-1a of its characters mixed by MurmurHash3 finalizer,
+   * so all bits depend on every character.
+   *
+   * @param value hashed string
+   * @return hash of the string
+   */
+  static long hash(String value) {
+    var hash = 0xcbf29ce484222325L;
+    for (var i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  /**
+   * Approximate value with bounds holding with 99% confidence.
+   *
+   * @param value      estimated value
+   * @param lowerBound lower bound of the true value
+   * @param upperBound upper bound of the true value
+   */
+  public record Estimate(long value, long lowerBound, long upperBound) {
+  }
+
+  /**
+   * Country with estimated total value of a metric.
+   *
+   * @param country name of the country
+   * @param total   estimated total value
+   */
+  public record HeavyHitter(String country, Estimate total) {
+  }
+}
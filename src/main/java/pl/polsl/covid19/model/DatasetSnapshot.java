@@ -0,0 +1,24 @@
+package pl.polsl.covid19.model;
+
+/**
+ * Immutable snapshot of covid data loaded from a data file.
+ *
+ * @param dataset  covid data records
+ * @param version  version of the snapshot, incremented each time the file content changes
+ * @param checksum CRC32 checksum of the file content
+ * @param stamp    modification stamp of the file at load time
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+record DatasetSnapshot(CovidDataset dataset, long version, long checksum, DataFile.Stamp stamp) {
+
+  /**
+   * Creates a copy of the snapshot with a different file stamp.
+   *
+   * @param newStamp new modification stamp
+   * @return copy of the snapshot
+   */
+  DatasetSnapshot withStamp(DataFile.Stamp newStamp) {
+    return new DatasetSnapshot(dataset, version, checksum, newStamp);
+  }
+}
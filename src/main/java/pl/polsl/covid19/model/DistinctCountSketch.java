@@ -0,0 +1,116 @@
+package pl.polsl.covid19.model;
+
+/**
+ * HyperLogLog sketch of number of distinct values (Flajolet et al., "HyperLogLog: the analysis of a near-optimal
+ * cardinality estimation algorithm"). Each 64-bit hash selects a register by its highest {@value #PRECISION} bits
+ * and the register keeps the highest position of the first set bit among the remaining bits. Small counts are
+ * estimated by linear counting of empty registers, 64-bit hashes need no correction of large counts.
+ *
+ * <p>The sketch takes 4 KB, sketches are merged by taking the maximum of each register.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class DistinctCountSketch {
+
+  /**
+   * Number of hash bits selecting a register.
+   */
+  static final int PRECISION = 12;
+
+  /**
+   * Number of registers.
+   */
+  private static final int REGISTER_COUNT = 1 << PRECISION;
+
+  /**
+   * Bias correction constant of the raw estimate for {@value #REGISTER_COUNT} registers.
+   */
+  private static final double ALPHA = 0.7213 / (1.0 + 1.079 / REGISTER_COUNT);
+
+  /**
+   * Highest position of the first set bit seen by each register.
+   */
+  private final byte[] registers;
+
+  /**
+   * DistinctCountSketch constructor.
+   */
+  DistinctCountSketch() {
+    this.registers = new byte[REGISTER_COUNT];
+  }
+
+  /**
+   * Creates a copy of a sketch.
+   *
+   * @param source copied sketch
+   */
+  private DistinctCountSketch(DistinctCountSketch source) {
+    this.registers = source.registers.clone();
+  }
+
+  /**
+   * Adds a value given by its hash.
+   *
+   * @param hash well mixed 64-bit hash of the value
+   */
+  void update(long hash) {
+    var register = (int) (hash >>> (Long.SIZE - PRECISION));
+    var position = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+    if (position > registers[register]) {
+      registers[register] = position;
+    }
+  }
+
+  /**
+   * Adds all values of another sketch.
+   *
+   * @param other merged sketch
+   */
+  void merge(DistinctCountSketch other) {
+    for (var register = 0; register < REGISTER_COUNT; register++) {
+      if (other.registers[register] > registers[register]) {
+        registers[register] = other.registers[register];
+      }
+    }
+  }
+
+  /**
+   * Creates a copy of the sketch that can be updated independently.
+   *
+   * @return copy of the sketch
+   */
+  DistinctCountSketch copy() {
+    return new DistinctCountSketch(this);
+  }
+
+  /**
+   * Estimates number of distinct added values.
+   *
+   * @return estimated number of distinct values
+   */
+  long estimate() {
+    var sum = 0.0;
+    var emptyRegisters = 0;
+    for (var register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        emptyRegisters++;
+      }
+    }
+    var estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+    if (estimate <= 2.5 * REGISTER_COUNT && emptyRegisters > 0) {
+      estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / emptyRegisters);
+    }
+    return Math.round(estimate);
+  }
+
+  /**
+   * Gets relative standard error of the estimate.
+   *
+   * @return relative standard error, about 1.6%
+   */
+  double getRelativeStandardError() {
+    return 1.04 / Math.sqrt(REGISTER_COUNT);
+  }
+}
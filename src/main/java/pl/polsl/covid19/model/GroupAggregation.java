@@ -0,0 +1,223 @@
+package pl.polsl.covid19.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Aggregates of a {@link CovidMetric} for each group of rows given by a {@link Grouping}: count, sum, average,
+ * minimum, maximum and rate per million of population, see {@link AggregateFunction}.
+ *
+ * <p>Group keys of all rows are derived first, then ranges of rows are aggregated in parallel into primitive
+ * {@link GroupTable} hash tables that are merged pairwise. Aggregations of several datasets, e.g. snapshots
+ * of different days, are computed in parallel and merged the same way, so a rollup of many snapshots needs
+ * neither concatenating their rows nor a second pass. Instances are immutable.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+public class GroupAggregation {
+
+  /**
+   * Grouping of the rows.
+   */
+  private final Grouping grouping;
+
+  /**
+   * Aggregated metric.
+   */
+  private final CovidMetric metric;
+
+  /**
+   * Aggregates of all groups, not modified after construction.
+   */
+  private final GroupTable table;
+
+  /**
+   * Aggregates of all groups in order of their keys, rows belonging to no group last.
+   */
+  private final List<Group> groups;
+
+  /**
+   * GroupAggregation constructor.
+   *
+   * @param grouping grouping of the rows
+   * @param metric   aggregated metric
+   * @param table    aggregates of all groups
+   */
+  private GroupAggregation(Grouping grouping, CovidMetric metric, GroupTable table) {
+    this.grouping = grouping;
+    this.metric = metric;
+    this.table = table;
+    var order = new ArrayList<Integer>(table.size());
+    for (var group = 0; group < table.size(); group++) {
+      order.add(group);
+    }
+    order.sort(Comparator.<Integer, Boolean>comparing(group -> table.key(group) == Grouping.UNKNOWN_KEY)
+        .thenComparingLong(table::key));
+    var list = new ArrayList<Group>(order.size());
+    for (var group : order) {
+      list.add(table.toGroup(group, grouping.groupName(table.key(group))));
+    }
+    this.groups = List.copyOf(list);
+  }
+
+  /**
+   * Aggregates a metric of a dataset by groups.
+   *
+   * @param dataset  aggregated dataset
+   * @param grouping grouping of the rows
+   * @param metric   aggregated metric
+   * @return aggregates of all groups
+   */
+  public static GroupAggregation compute(CovidDataset dataset, Grouping grouping, CovidMetric metric) {
+    return new GroupAggregation(grouping, metric, ForkJoinPool.commonPool().invoke(task(dataset, grouping, metric)));
+  }
+
+  /**
+   * Aggregates a metric of rows of several datasets by groups. Datasets are aggregated in parallel
+   * and their tables merged.
+   *
+   * @param datasets aggregated datasets, e.g. snapshots of several days
+   * @param grouping grouping of the rows
+   * @param metric   aggregated metric
+   * @return aggregates of all groups
+   */
+  public static GroupAggregation compute(Collection<CovidDataset> datasets, Grouping grouping, CovidMetric metric) {
+    var tasks = new ArrayList<GroupAggregationTask>(datasets.size());
+    for (var dataset : datasets) {
+      tasks.add(task(dataset, grouping, metric));
+    }
+    for (var task : tasks) {
+      ForkJoinPool.commonPool().execute(task);
+    }
+    var table = new GroupTable();
+    for (var task : tasks) {
+      table.merge(task.join());
+    }
+    return new GroupAggregation(grouping, metric, table);
+  }
+
+  /**
+   * Merges aggregates of this and another aggregation of the same metric and grouping.
+   *
+   * @param other merged aggregation
+   * @return aggregates of rows of both aggregations
+   * @throws AppException if the aggregations differ in metric or grouping
+   */
+  public GroupAggregation merge(GroupAggregation other) {
+    if (metric != other.metric || !grouping.equals(other.grouping)) {
+      throw new AppException("Only aggregations of the same metric and grouping can be merged");
+    }
+    var merged = new GroupTable();
+    merged.merge(table);
+    merged.merge(other.table);
+    return new GroupAggregation(grouping, metric, merged);
+  }
+
+  /**
+   * Gets grouping of the rows.
+   *
+   * @return grouping of the rows
+   */
+  public Grouping getGrouping() {
+    return grouping;
+  }
+
+  /**
+   * Gets aggregated metric.
+   *
+   * @return aggregated metric
+   */
+  public CovidMetric getMetric() {
+    return metric;
+  }
+
+  /**
+   * Gets aggregates of all groups in order of the grouping, rows belonging to no group last.
+   *
+   * @return unmodifiable list of groups
+   */
+  public List<Group> getGroups() {
+    return groups;
+  }
+
+  /**
+   * Gets aggregates of all groups ordered by an aggregate, groups with undefined aggregate last.
+   *
+   * @param function   aggregate to compare
+   * @param descending true to order from the highest value
+   * @return list of groups
+   */
+  public List<Group> getGroupsOrderedBy(AggregateFunction function, boolean descending) {
+    var comparator = Comparator.<Group>comparingDouble(group -> group.getValue(function));
+    var ordered = new ArrayList<>(groups);
+    ordered.sort(Comparator.<Group, Boolean>comparing(group -> Double.isNaN(group.getValue(function)))
+        .thenComparing(descending ? comparator.reversed() : comparator));
+    return ordered;
+  }
+
+  /**
+   * Creates task aggregating a dataset.
+   *
+   * @param dataset  aggregated dataset
+   * @param grouping grouping of the rows
+   * @param metric   aggregated metric
+   * @return created task
+   */
+  private static GroupAggregationTask task(CovidDataset dataset, Grouping grouping, CovidMetric metric) {
+    return new GroupAggregationTask(grouping.keys(dataset), dataset.column(metric),
+        dataset.column(CovidMetric.POPULATION), 0, dataset.size(), GroupAggregationTask.DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Aggregates of a metric of one group.
+   *
+   * @param name         name of the group presented to the user
+   * @param count        number of rows
+   * @param sum          sum of values
+   * @param min          the lowest value
+   * @param max          the highest value
+   * @param population   sum of population of rows with known population
+   * @param populatedSum sum of values of rows with known population
+   */
+  public record Group(String name, long count, long sum, long min, long max, long population, long populatedSum) {
+
+    /**
+     * Gets average value.
+     *
+     * @return average value
+     */
+    public double average() {
+      return (double) sum / count;
+    }
+
+    /**
+     * Gets sum of values per one million of population, counting only rows with known population.
+     *
+     * @return rate per million or NaN if population is unknown
+     */
+    public double perMillion() {
+      return population == 0 ? Double.NaN : populatedSum * 1_000_000.0 / population;
+    }
+
+    /**
+     * Gets value of an aggregate.
+     *
+     * @param function aggregate to get
+     * @return value of the aggregate
+     */
+    public double getValue(AggregateFunction function) {
+      return switch (function) {
+        case COUNT -> count;
+        case SUM -> sum;
+        case AVERAGE -> average();
+        case MIN -> min;
+        case MAX -> max;
+        case PER_MILLION -> perMillion();
+      };
+    }
+  }
+}
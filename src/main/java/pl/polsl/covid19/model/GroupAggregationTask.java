@@ -0,0 +1,86 @@
+package pl.polsl.covid19.model;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join task aggregating values of a column by group keys into a {@link GroupTable}. Ranges longer than
+ * the threshold are split into halves aggregated in parallel and the partial tables are merged, which touches
+ * each group once instead of each row.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class GroupAggregationTask extends RecursiveTask<GroupTable> {
+
+  /**
+   * Default number of rows below which the range is aggregated sequentially.
+   */
+  static final int DEFAULT_THRESHOLD = 16 * 1024;
+
+  /**
+   * Group key of each row.
+   */
+  private final long[] keys;
+
+  /**
+   * Aggregated values indexed by row.
+   */
+  private final LongColumn values;
+
+  /**
+   * Population of each row.
+   */
+  private final LongColumn populations;
+
+  /**
+   * Index of the first row of the range.
+   */
+  private final int from;
+
+  /**
+   * Index after the last row of the range.
+   */
+  private final int to;
+
+  /**
+   * Number of rows below which the range is aggregated sequentially.
+   */
+  private final int threshold;
+
+  /**
+   * GroupAggregationTask constructor.
+   *
+   * @param keys        group key of each row
+   * @param values      aggregated values indexed by row
+   * @param populations population of each row
+   * @param from        index of the first row of the range
+   * @param to          index after the last row of the range
+   * @param threshold   number of rows below which the range is aggregated sequentially
+   */
+  GroupAggregationTask(long[] keys, LongColumn values, LongColumn populations, int from, int to, int threshold) {
+    this.keys = keys;
+    this.values = values;
+    this.populations = populations;
+    this.from = from;
+    this.to = to;
+    this.threshold = Math.max(1, threshold);
+  }
+
+  @Override
+  protected GroupTable compute() {
+    if (to - from <= threshold) {
+      var table = new GroupTable();
+      for (var row = from; row < to; row++) {
+        table.add(keys[row], values.get(row), populations.get(row));
+      }
+      return table;
+    }
+    var middle = (from + to) >>> 1;
+    var left = new GroupAggregationTask(keys, values, populations, from, middle, threshold);
+    left.fork();
+    var right = new GroupAggregationTask(keys, values, populations, middle, to, threshold).compute();
+    var merged = left.join();
+    merged.merge(right);
+    return merged;
+  }
+}
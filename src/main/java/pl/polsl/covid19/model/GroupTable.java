@@ -0,0 +1,222 @@
+package pl.polsl.covid19.model;
+
+import java.util.Arrays;
+
+/**
+ * Primitive hash table aggregating values of a metric by {@code long} group key. Keys are found by open addressing
+ * with linear probing in a table of slot indexes, aggregates of each group are kept in parallel primitive arrays
+ * indexed by group in order of first appearance, so adding a row allocates nothing. The table is grown
+ * when it is half full.
+ *
+ * <p>Besides count, sum, minimum and maximum of the values, the table sums population and values of rows with
+ * known population, which gives the rate of the metric per capita. Tables of partial ranges are merged
+ * group by group. Instances are not thread-safe.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class GroupTable {
+
+  /**
+   * Initial number of slots, a power of two.
+   */
+  private static final int INITIAL_SLOT_COUNT = 16;
+
+  /**
+   * Marker of an empty slot.
+   */
+  private static final int EMPTY_SLOT = -1;
+
+  /**
+   * Group index of each slot or {@link #EMPTY_SLOT}.
+   */
+  private int[] slots;
+
+  /**
+   * Key of each group.
+   */
+  private long[] keys;
+
+  /**
+   * Number of rows of each group.
+   */
+  private long[] counts;
+
+  /**
+   * Sum of values of each group.
+   */
+  private long[] sums;
+
+  /**
+   * The lowest value of each group.
+   */
+  private long[] mins;
+
+  /**
+   * The highest value of each group.
+   */
+  private long[] maxes;
+
+  /**
+   * Sum of population of rows with known population of each group.
+   */
+  private long[] populations;
+
+  /**
+   * Sum of values of rows with known population of each group.
+   */
+  private long[] populatedSums;
+
+  /**
+   * Number of groups.
+   */
+  private int size;
+
+  /**
+   * GroupTable constructor.
+   */
+  GroupTable() {
+    slots = new int[INITIAL_SLOT_COUNT];
+    Arrays.fill(slots, EMPTY_SLOT);
+    resizeGroups(INITIAL_SLOT_COUNT / 2);
+  }
+
+  /**
+   * Adds a row to its group.
+   *
+   * @param key        key of the group
+   * @param value      value of the metric
+   * @param population population of the row, not positive if unknown
+   */
+  void add(long key, long value, long population) {
+    var group = group(key);
+    counts[group]++;
+    sums[group] += value;
+    mins[group] = Math.min(mins[group], value);
+    maxes[group] = Math.max(maxes[group], value);
+    if (population > 0) {
+      populations[group] += population;
+      populatedSums[group] += value;
+    }
+  }
+
+  /**
+   * Adds aggregates of all groups of another table.
+   *
+   * @param other merged table
+   */
+  void merge(GroupTable other) {
+    for (var i = 0; i < other.size; i++) {
+      var group = group(other.keys[i]);
+      counts[group] += other.counts[i];
+      sums[group] += other.sums[i];
+      mins[group] = Math.min(mins[group], other.mins[i]);
+      maxes[group] = Math.max(maxes[group], other.maxes[i]);
+      populations[group] += other.populations[i];
+      populatedSums[group] += other.populatedSums[i];
+    }
+  }
+
+  /**
+   * Gets number of groups.
+   *
+   * @return number of groups
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Gets key of a group.
+   *
+   * @param group index of the group
+   * @return key of the group
+   */
+  long key(int group) {
+    return keys[group];
+  }
+
+  /**
+   * Gets aggregates of a group.
+   *
+   * @param group index of the group
+   * @param name  name of the group presented to the user
+   * @return aggregates of the group
+   */
+  GroupAggregation.Group toGroup(int group, String name) {
+    return new GroupAggregation.Group(name, counts[group], sums[group], mins[group], maxes[group],
+        populations[group], populatedSums[group]);
+  }
+
+  /**
+   * Finds index of the group of a key, adding an empty group if the key is new.
+   *
+   * @param key key of the group
+   * @return index of the group
+   */
+  private int group(long key) {
+    var mask = slots.length - 1;
+    var slot = hash(key) & mask;
+    while (slots[slot] != EMPTY_SLOT) {
+      if (keys[slots[slot]] == key) {
+        return slots[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    if (size == keys.length) {
+      resizeGroups(size * 2);
+      rehash(slots.length * 2);
+      return group(key);
+    }
+    var group = size++;
+    slots[slot] = group;
+    keys[group] = key;
+    mins[group] = Long.MAX_VALUE;
+    maxes[group] = Long.MIN_VALUE;
+    return group;
+  }
+
+  /**
+   * Resizes arrays of group aggregates.
+   *
+   * @param capacity new number of groups
+   */
+  private void resizeGroups(int capacity) {
+    keys = keys == null ? new long[capacity] : Arrays.copyOf(keys, capacity);
+    counts = counts == null ? new long[capacity] : Arrays.copyOf(counts, capacity);
+    sums = sums == null ? new long[capacity] : Arrays.copyOf(sums, capacity);
+    mins = mins == null ? new long[capacity] : Arrays.copyOf(mins, capacity);
+    maxes = maxes == null ? new long[capacity] : Arrays.copyOf(maxes, capacity);
+    populations = populations == null ? new long[capacity] : Arrays.copyOf(populations, capacity);
+    populatedSums = populatedSums == null ? new long[capacity] : Arrays.copyOf(populatedSums, capacity);
+  }
+
+  /**
+   * Rebuilds the slots of all groups in a larger table.
+   *
+   * @param slotCount new number of slots, a power of two
+   */
+  private void rehash(int slotCount) {
+    slots = new int[slotCount];
+    Arrays.fill(slots, EMPTY_SLOT);
+    var mask = slotCount - 1;
+    for (var group = 0; group < size; group++) {
+      var slot = hash(keys[group]) & mask;
+      while (slots[slot] != EMPTY_SLOT) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = group;
+    }
+  }
+
+  /**
+   * Spreads bits of a key, so consecutive keys do not collide in low bits.
+   *
+   * @param key hashed key
+   * @return hash of the key
+   */
+  private static int hash(long key) {
+    var hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32));
+  }
+}
@@ -0,0 +1,299 @@
+package pl.polsl.covid19.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.opencsv.CSVReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Derived key grouping rows of a {@link CovidDataset} for {@link GroupAggregation}. Each row is given
+ * a {@code long} key, so rows are aggregated by a primitive hash table without creating a key object per row.
+ * Keys of rows that cannot be grouped, e.g. countries missing in a region table or rows without population,
+ * are {@link #UNKNOWN_KEY}.
+ *
+ * <p>Region groupings map country names to regions by a table, keys are computed once per distinct country
+ * of the dataset. Population groupings put rows into buckets by ascending population bounds. Groupings are
+ * immutable and equal if they give the same keys.
+ *
+ * @author Krzysztof Franków
+ * @version 1.2
+ */
+public abstract class Grouping {
+
+  /**
+   * Key of rows that belong to no group.
+   */
+  static final long UNKNOWN_KEY = -1L;
+
+  /**
+   * Name of the group of rows that belong to no group.
+   */
+  static final String UNKNOWN_GROUP = "Other";
+
+  /**
+   * Classpath resource mapping country names to continents.
+   */
+  private static final String CONTINENTS_RESOURCE = "regions.csv";
+
+  /**
+   * Grouping by continent, loaded on first use.
+   */
+  private static volatile Grouping continents;
+
+  /**
+   * Name of the grouping presented to the user.
+   */
+  private final String name;
+
+  /**
+   * Grouping constructor.
+   *
+   * @param name name of the grouping presented to the user
+   */
+  private Grouping(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Gets grouping by continent of the country, using the table of the {@value #CONTINENTS_RESOURCE} resource.
+   *
+   * @return grouping by continent
+   * @throws AppException if the table cannot be read
+   */
+  public static Grouping byContinent() {
+    var grouping = continents;
+    if (grouping == null) {
+      synchronized (Grouping.class) {
+        grouping = continents;
+        if (grouping == null) {
+          grouping = byRegion("Continent", readRegions(CONTINENTS_RESOURCE));
+          continents = grouping;
+        }
+      }
+    }
+    return grouping;
+  }
+
+  /**
+   * Creates grouping by region of the country given by a table. Groups are ordered by region name, so the
+   * order does not depend on iteration order of the table.
+   *
+   * @param name             name of the grouping presented to the user
+   * @param regionsByCountry region of each country name
+   * @return grouping by region
+   */
+  public static Grouping byRegion(String name, Map<String, String> regionsByCountry) {
+    return new RegionGrouping(name, regionsByCountry);
+  }
+
+  /**
+   * Creates grouping by population of the row. Bounds split populations into buckets, e.g. bounds
+   * 1,000,000 and 10,000,000 give buckets below 1M, from 1M below 10M and from 10M up.
+   *
+   * @param bounds lowest populations of all buckets but the first, in ascending order
+   * @return grouping by population
+   * @throws AppException if bounds are not positive and ascending
+   */
+  public static Grouping byPopulation(long... bounds) {
+    for (var i = 0; i < bounds.length; i++) {
+      if (bounds[i] <= 0 || i > 0 && bounds[i] <= bounds[i - 1]) {
+        throw new AppException("Population bounds must be positive and ascending");
+      }
+    }
+    return new PopulationGrouping(bounds.clone());
+  }
+
+  /**
+   * Gets name of the grouping presented to the user.
+   *
+   * @return name of the grouping
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Computes key of every row of a dataset.
+   *
+   * @param dataset grouped dataset
+   * @return key of each row indexed by row
+   */
+  abstract long[] keys(CovidDataset dataset);
+
+  /**
+   * Gets name of a group presented to the user.
+   *
+   * @param key key of the group
+   * @return name of the group
+   */
+  abstract String groupName(long key);
+
+  /**
+   * Reads region table from a csv classpath resource with country and region columns and a header row.
+   *
+   * @param resource name of the resource
+   * @return region of each country in order of the table
+   * @throws AppException if the resource is missing or malformed
+   */
+  private static Map<String, String> readRegions(String resource) {
+    var inputStream = Grouping.class.getClassLoader().getResourceAsStream(resource);
+    if (inputStream == null) {
+      throw new AppException("File " + resource + " not found");
+    }
+    var regionsByCountry = new LinkedHashMap<String, String>();
+    try (var reader = new CSVReader(new InputStreamReader(inputStream, UTF_8))) {
+      reader.readNext();
+      String[] line;
+      while ((line = reader.readNext()) != null) {
+        if (line.length < 2) {
+          throw new AppException("Malformed region table " + resource + " for " + line[0]);
+        }
+        regionsByCountry.put(line[0], line[1]);
+      }
+    } catch (IOException e) {
+      throw new AppException("Unable to read region table " + resource, e);
+    }
+    return regionsByCountry;
+  }
+
+  /**
+   * Grouping by region of the country.
+   */
+  private static class RegionGrouping extends Grouping {
+
+    /**
+     * Region index of each country name.
+     */
+    private final Map<String, Integer> regionsByCountry;
+
+    /**
+     * Distinct region names in ascending order, indexed by key.
+     */
+    private final String[] regions;
+
+    /**
+     * RegionGrouping constructor.
+     *
+     * @param name             name of the grouping presented to the user
+     * @param regionsByCountry region of each country name
+     */
+    RegionGrouping(String name, Map<String, String> regionsByCountry) {
+      super(name);
+      this.regions = new TreeSet<>(regionsByCountry.values()).toArray(String[]::new);
+      var regionKeys = new HashMap<String, Integer>();
+      for (var key = 0; key < regions.length; key++) {
+        regionKeys.put(regions[key], key);
+      }
+      this.regionsByCountry = new HashMap<>();
+      for (var entry : regionsByCountry.entrySet()) {
+        this.regionsByCountry.put(entry.getKey(), regionKeys.get(entry.getValue()));
+      }
+    }
+
+    @Override
+    long[] keys(CovidDataset dataset) {
+      var codeKeys = new long[dataset.countryCount()];
+      for (var code = 0; code < codeKeys.length; code++) {
+        codeKeys[code] = regionsByCountry.getOrDefault(dataset.countryName(code), (int) UNKNOWN_KEY);
+      }
+      var keys = new long[dataset.size()];
+      for (var row = 0; row < keys.length; row++) {
+        keys[row] = codeKeys[dataset.countryCode(row)];
+      }
+      return keys;
+    }
+
+    @Override
+    String groupName(long key) {
+      return key == UNKNOWN_KEY ? UNKNOWN_GROUP : regions[(int) key];
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof RegionGrouping grouping && regionsByCountry.equals(grouping.regionsByCountry)
+          && Arrays.equals(regions, grouping.regions);
+    }
+
+    @Override
+    public int hashCode() {
+      return regionsByCountry.hashCode();
+    }
+  }
+
+  /**
+   * Grouping by population buckets of the row.
+   */
+  private static class PopulationGrouping extends Grouping {
+
+    /**
+     * Lowest populations of all buckets but the first, in ascending order.
+     */
+    private final long[] bounds;
+
+    /**
+     * Names of buckets indexed by key.
+     */
+    private final List<String> bucketNames;
+
+    /**
+     * PopulationGrouping constructor.
+     *
+     * @param bounds lowest populations of all buckets but the first, in ascending order
+     */
+    PopulationGrouping(long[] bounds) {
+      super(CovidMetric.POPULATION.getDisplayName());
+      this.bounds = bounds;
+      this.bucketNames = new ArrayList<>(bounds.length + 1);
+      for (var bucket = 0; bucket <= bounds.length; bucket++) {
+        if (bounds.length == 0) {
+          bucketNames.add("All");
+        } else if (bucket == 0) {
+          bucketNames.add("< " + bounds[0]);
+        } else if (bucket == bounds.length) {
+          bucketNames.add(">= " + bounds[bucket - 1]);
+        } else {
+          bucketNames.add(bounds[bucket - 1] + " - " + (bounds[bucket] - 1));
+        }
+      }
+    }
+
+    @Override
+    long[] keys(CovidDataset dataset) {
+      var populations = dataset.column(CovidMetric.POPULATION);
+      var keys = new long[populations.size()];
+      for (var row = 0; row < keys.length; row++) {
+        var population = populations.get(row);
+        if (population <= 0) {
+          keys[row] = UNKNOWN_KEY;
+        } else {
+          var position = Arrays.binarySearch(bounds, population);
+          keys[row] = position >= 0 ? position + 1 : -position - 1;
+        }
+      }
+      return keys;
+    }
+
+    @Override
+    String groupName(long key) {
+      return key == UNKNOWN_KEY ? UNKNOWN_GROUP : bucketNames.get((int) key);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof PopulationGrouping grouping && Arrays.equals(bounds, grouping.bounds);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(bounds);
+    }
+  }
+}
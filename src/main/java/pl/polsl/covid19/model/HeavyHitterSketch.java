@@ -0,0 +1,271 @@
+package pl.polsl.covid19.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Count-min sketch of weights of keys with a bounded set of heavy hitter candidates (Cormode, Muthukrishnan,
+ * "An improved data stream summary: the count-min sketch and its applications"). A weight is added to one
+ * counter in each of {@value #DEPTH} rows, the estimate of a key is the lowest of its counters. With
+ * {@value #WIDTH} counters per row an estimate exceeds the true weight by at most e/{@value #WIDTH} of the total
+ * weight with probability 1 - e^-{@value #DEPTH}, over 99%. Estimates never underestimate.
+ *
+ * <p>Keys with the highest estimates are kept as up to {@value #CANDIDATE_COUNT} candidates, so the heaviest keys
+ * can be listed. Estimates of candidates are remembered when the candidate is updated. Estimates only grow,
+ * so remembered estimates and their minimum are lower bounds and a key estimated below the minimum is rejected
+ * without looking at the candidates. Sketches are merged by adding counters and re-estimating candidates
+ * of both sketches.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class HeavyHitterSketch {
+
+  /**
+   * Number of counters in each row, a power of two.
+   */
+  static final int WIDTH = 1024;
+
+  /**
+   * Number of rows of counters.
+   */
+  static final int DEPTH = 5;
+
+  /**
+   * Maximal number of candidate keys.
+   */
+  static final int CANDIDATE_COUNT = 64;
+
+  /**
+   * Counters of all rows, row after row.
+   */
+  private final long[] counters;
+
+  /**
+   * Slots of candidate keys in the candidate arrays.
+   */
+  private final Map<String, Integer> candidateSlots;
+
+  /**
+   * Candidate key of each slot.
+   */
+  private final String[] candidateKeys;
+
+  /**
+   * Hash of the candidate key of each slot.
+   */
+  private final long[] candidateHashes;
+
+  /**
+   * Lower bound of the estimate of the candidate key of each slot.
+   */
+  private final long[] candidateEstimates;
+
+  /**
+   * Lower bound of remembered estimates of all candidates.
+   */
+  private long minCandidateEstimate;
+
+  /**
+   * Sum of added weights.
+   */
+  private long totalWeight;
+
+  /**
+   * HeavyHitterSketch constructor.
+   */
+  HeavyHitterSketch() {
+    this.counters = new long[WIDTH * DEPTH];
+    this.candidateSlots = new HashMap<>();
+    this.candidateKeys = new String[CANDIDATE_COUNT];
+    this.candidateHashes = new long[CANDIDATE_COUNT];
+    this.candidateEstimates = new long[CANDIDATE_COUNT];
+  }
+
+  /**
+   * Creates a copy of a sketch.
+   *
+   * @param source copied sketch
+   */
+  private HeavyHitterSketch(HeavyHitterSketch source) {
+    this.counters = source.counters.clone();
+    this.candidateSlots = new HashMap<>(source.candidateSlots);
+    this.candidateKeys = source.candidateKeys.clone();
+    this.candidateHashes = source.candidateHashes.clone();
+    this.candidateEstimates = source.candidateEstimates.clone();
+    this.minCandidateEstimate = source.minCandidateEstimate;
+    this.totalWeight = source.totalWeight;
+  }
+
+  /**
+   * Adds weight of a key. Weights that are not positive are ignored.
+   *
+   * @param key    added key
+   * @param hash   well mixed 64-bit hash of the key
+   * @param weight added weight
+   */
+  void update(String key, long hash, long weight) {
+    if (weight <= 0) {
+      return;
+    }
+    totalWeight += weight;
+    var estimate = Long.MAX_VALUE;
+    for (var row = 0; row < DEPTH; row++) {
+      var index = counterIndex(hash, row);
+      counters[index] += weight;
+      estimate = Math.min(estimate, counters[index]);
+    }
+    var slot = candidateSlots.get(key);
+    if (slot != null) {
+      candidateEstimates[slot] = estimate;
+    } else if (candidateSlots.size() < CANDIDATE_COUNT) {
+      setCandidate(candidateSlots.size(), key, hash, estimate);
+      if (candidateSlots.size() == CANDIDATE_COUNT) {
+        minCandidateEstimate = candidateEstimates[lightestSlot()];
+      }
+    } else if (estimate > minCandidateEstimate) {
+      for (var i = 0; i < CANDIDATE_COUNT; i++) {
+        candidateEstimates[i] = estimate(candidateHashes[i]);
+      }
+      var lightest = lightestSlot();
+      if (estimate > candidateEstimates[lightest]) {
+        candidateSlots.remove(candidateKeys[lightest]);
+        setCandidate(lightest, key, hash, estimate);
+        lightest = lightestSlot();
+      }
+      minCandidateEstimate = candidateEstimates[lightest];
+    }
+  }
+
+  /**
+   * Adds all weights of another sketch.
+   *
+   * @param other merged sketch
+   */
+  void merge(HeavyHitterSketch other) {
+    for (var i = 0; i < counters.length; i++) {
+      counters[i] += other.counters[i];
+    }
+    totalWeight += other.totalWeight;
+    var keys = new ArrayList<String>(candidateSlots.size() + other.candidateSlots.size());
+    var hashes = new HashMap<String, Long>();
+    for (var sketch : List.of(this, other)) {
+      for (var i = 0; i < sketch.candidateSlots.size(); i++) {
+        if (hashes.putIfAbsent(sketch.candidateKeys[i], sketch.candidateHashes[i]) == null) {
+          keys.add(sketch.candidateKeys[i]);
+        }
+      }
+    }
+    keys.sort((first, second) -> Long.compare(estimate(hashes.get(second)), estimate(hashes.get(first))));
+    candidateSlots.clear();
+    for (var slot = 0; slot < Math.min(CANDIDATE_COUNT, keys.size()); slot++) {
+      var key = keys.get(slot);
+      var hash = hashes.get(key);
+      setCandidate(slot, key, hash, estimate(hash));
+    }
+    minCandidateEstimate = candidateSlots.size() == CANDIDATE_COUNT ? candidateEstimates[lightestSlot()] : 0L;
+  }
+
+  /**
+   * Creates a copy of the sketch that can be updated independently.
+   *
+   * @return copy of the sketch
+   */
+  HeavyHitterSketch copy() {
+    return new HeavyHitterSketch(this);
+  }
+
+  /**
+   * Gets keys with the highest estimated weights.
+   *
+   * @param count maximal number of keys, at most {@value #CANDIDATE_COUNT}
+   * @return keys with their estimated weights ordered from the heaviest, keys with equal weights by name
+   */
+  List<Map.Entry<String, Long>> getHeaviest(int count) {
+    if (count < 0 || count > CANDIDATE_COUNT) {
+      throw new AppException("Number of heavy hitters must be between 0 and " + CANDIDATE_COUNT);
+    }
+    var heaviest = new ArrayList<Map.Entry<String, Long>>(candidateSlots.size());
+    for (var slot = 0; slot < candidateSlots.size(); slot++) {
+      heaviest.add(Map.entry(candidateKeys[slot], estimate(candidateHashes[slot])));
+    }
+    heaviest.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+    return heaviest.subList(0, Math.min(count, heaviest.size()));
+  }
+
+  /**
+   * Gets sum of added weights.
+   *
+   * @return total weight
+   */
+  long getTotalWeight() {
+    return totalWeight;
+  }
+
+  /**
+   * Gets the highest overestimate of a weight with over 99% probability.
+   *
+   * @return error bound of estimates
+   */
+  long getErrorBound() {
+    return (long) Math.ceil(Math.E / WIDTH * totalWeight);
+  }
+
+  /**
+   * Estimates weight of a key given by its hash.
+   *
+   * @param hash well mixed 64-bit hash of the key
+   * @return the lowest counter of the key
+   */
+  long estimate(long hash) {
+    var estimate = Long.MAX_VALUE;
+    for (var row = 0; row < DEPTH; row++) {
+      estimate = Math.min(estimate, counters[counterIndex(hash, row)]);
+    }
+    return estimate;
+  }
+
+  /**
+   * Stores a candidate key in a slot.
+   *
+   * @param slot     slot of the candidate
+   * @param key      candidate key
+   * @param hash     hash of the key
+   * @param estimate estimate of the key
+   */
+  private void setCandidate(int slot, String key, long hash, long estimate) {
+    candidateSlots.put(key, slot);
+    candidateKeys[slot] = key;
+    candidateHashes[slot] = hash;
+    candidateEstimates[slot] = estimate;
+  }
+
+  /**
+   * Finds the slot of the candidate with the lowest remembered estimate.
+   *
+   * @return slot of the lightest candidate
+   */
+  private int lightestSlot() {
+    var lightest = 0;
+    for (var slot = 1; slot < CANDIDATE_COUNT; slot++) {
+      if (candidateEstimates[slot] < candidateEstimates[lightest]) {
+        lightest = slot;
+      }
+    }
+    return lightest;
+  }
+
+  /**
+   * Gets index of the counter of a key in a row, derived from two halves of its hash.
+   *
+   * @param hash hash of the key
+   * @param row  row of counters
+   * @return index in {@link #counters}
+   */
+  private static int counterIndex(long hash, int row) {
+    var combined = (int) hash + row * (int) (hash >>> 32);
+    return row * WIDTH + (combined & (WIDTH - 1));
+  }
+}
@@ -0,0 +1,181 @@
+package pl.polsl.covid19.model;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of latencies in nanoseconds with log-linear buckets, as in HdrHistogram. Each power
+ * of two is split into 16 buckets of equal width, so a bucket spans at most 1/16 of its values and percentiles
+ * are reported with at most 6.25% relative error over the whole range of {@code long} values.
+ *
+ * <p>Buckets are striped {@link LongAdder}s, so recording never locks and threads recording at the same time
+ * do not contend on one counter. Reading while recording gives an approximate but consistent enough view.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+
+  /**
+   * Number of bits of a value below its highest bit that select a bucket.
+   */
+  private static final int SUB_BUCKET_BITS = 4;
+
+  /**
+   * Number of buckets per power of two.
+   */
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Number of buckets covering all non-negative {@code long} values.
+   */
+  private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  /**
+   * Number of nanoseconds in a millisecond.
+   */
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  /**
+   * Number of recorded values of each bucket.
+   */
+  private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+
+  /**
+   * Sum of recorded values.
+   */
+  private final LongAdder sum = new LongAdder();
+
+  /**
+   * The highest recorded value.
+   */
+  private final LongAccumulator max = new LongAccumulator(Long::max, 0L);
+
+  /**
+   * LatencyHistogram constructor.
+   */
+  public LatencyHistogram() {
+    for (var i = 0; i < buckets.length; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records a latency.
+   *
+   * @param nanos latency in nanoseconds, negative values are recorded as 0
+   */
+  public void record(long nanos) {
+    var value = Math.max(0L, nanos);
+    buckets[bucketIndex(value)].increment();
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  /**
+   * Records time elapsed since given start.
+   *
+   * @param startNanos start as returned by {@link System#nanoTime()}
+   */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Gets value at a percentile of recorded values, as the highest value of the bucket the percentile falls in.
+   *
+   * @param percentile percentile in range of 0 to 100
+   * @return value in nanoseconds or 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    var counts = new long[BUCKET_COUNT];
+    var total = 0L;
+    for (var i = 0; i < counts.length; i++) {
+      counts[i] = buckets[i].sum();
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0L;
+    }
+    var target = Math.max(1L, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total));
+    var seen = 0L;
+    for (var i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= target) {
+        return Math.min(highestValueOfBucket(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  @Override
+  public long getCount() {
+    var count = 0L;
+    for (var bucket : buckets) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  @Override
+  public double getMeanMillis() {
+    var count = getCount();
+    return count == 0 ? 0.0 : sum.sum() / NANOS_PER_MILLI / count;
+  }
+
+  @Override
+  public double getMaxMillis() {
+    return max.get() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP50Millis() {
+    return getValueAtPercentile(50.0) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP90Millis() {
+    return getValueAtPercentile(90.0) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP99Millis() {
+    return getValueAtPercentile(99.0) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getP999Millis() {
+    return getValueAtPercentile(99.9) / NANOS_PER_MILLI;
+  }
+
+  /**
+   * Gets index of the bucket of a value. Values below 16 have a bucket each, larger values share a bucket
+   * with values having the same highest bit and the same 4 bits below it.
+   *
+   * @param value non-negative value
+   * @return index of the bucket
+   */
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    var magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    var subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+    return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  /**
+   * Gets the highest value of a bucket.
+   *
+   * @param index index of the bucket
+   * @return the highest value falling into the bucket
+   */
+  static long highestValueOfBucket(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    var shift = index / SUB_BUCKET_COUNT - 1;
+    var lowest = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,59 @@
+package pl.polsl.covid19.model;
+
+/**
+ * Management interface of {@link LatencyHistogram} exposed over JMX.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+public interface LatencyHistogramMXBean {
+
+  /**
+   * Gets number of recorded calls.
+   *
+   * @return number of recorded calls
+   */
+  long getCount();
+
+  /**
+   * Gets mean latency.
+   *
+   * @return mean latency in milliseconds or 0 if nothing was recorded
+   */
+  double getMeanMillis();
+
+  /**
+   * Gets the highest latency.
+   *
+   * @return the highest latency in milliseconds
+   */
+  double getMaxMillis();
+
+  /**
+   * Gets median latency.
+   *
+   * @return median latency in milliseconds
+   */
+  double getP50Millis();
+
+  /**
+   * Gets 90th percentile of latency.
+   *
+   * @return 90th percentile of latency in milliseconds
+   */
+  double getP90Millis();
+
+  /**
+   * Gets 99th percentile of latency.
+   *
+   * @return 99th percentile of latency in milliseconds
+   */
+  double getP99Millis();
+
+  /**
+   * Gets 99.9th percentile of latency.
+   *
+   * @return 99.9th percentile of latency in milliseconds
+   */
+  double getP999Millis();
+}
@@ -0,0 +1,207 @@
+package pl.polsl.covid19.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Column of {@code long} values of a {@link CovidDataset} indexed by row, stored on the heap in an array
+ * or off the heap in a direct or memory mapped {@link ByteBuffer}. Off-heap values are little-endian, the layout
+ * of {@link SnapshotFile} columns, and are accessed through a byte buffer view {@link VarHandle}, so reading
+ * a value neither copies nor allocates. Off-heap columns are invisible to the garbage collector apart from their
+ * small buffer object, and mapped columns share the page cache with other processes mapping the same file.
+ *
+ * <p>Values are set only while the column is filled, before it is published to other threads.
+ * The storage is selected by {@link ColumnStorage}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+abstract class LongColumn {
+
+  /**
+   * Creates heap column of an array. The array is used directly and must not be modified afterwards.
+   *
+   * @param values values indexed by row
+   * @return created column
+   */
+  static LongColumn of(long[] values) {
+    return new HeapColumn(values);
+  }
+
+  /**
+   * Creates off-heap column of zeros in a direct buffer.
+   *
+   * @param size number of rows
+   * @return created column
+   */
+  static LongColumn allocateDirect(int size) {
+    return new OffHeapColumn(ByteBuffer.allocateDirect(Math.multiplyExact(size, Long.BYTES)));
+  }
+
+  /**
+   * Creates off-heap column of little-endian values of a buffer, e.g. a region of a mapped file.
+   * The buffer is used directly and must not be modified afterwards.
+   *
+   * @param buffer buffer with the values from its position to its limit
+   * @return created column
+   */
+  static LongColumn wrap(ByteBuffer buffer) {
+    return new OffHeapColumn(buffer.slice());
+  }
+
+  /**
+   * Gets number of rows.
+   *
+   * @return number of rows
+   */
+  abstract int size();
+
+  /**
+   * Gets value of a row.
+   *
+   * @param row index of the row
+   * @return value of the row
+   */
+  abstract long get(int row);
+
+  /**
+   * Sets value of a row while the column is filled.
+   *
+   * @param row   index of the row
+   * @param value value of the row
+   */
+  abstract void set(int row, long value);
+
+  /**
+   * Copies values of a range of rows to an array.
+   *
+   * @param from   index of the first copied row
+   * @param target array receiving the values
+   * @param offset index of the first value in the array
+   * @param length number of copied rows
+   */
+  abstract void copyTo(int from, long[] target, int offset, int length);
+
+  /**
+   * Checks whether the values are stored off the heap.
+   *
+   * @return true for direct and mapped columns
+   */
+  abstract boolean isOffHeap();
+
+  /**
+   * Copies all values to a new array.
+   *
+   * @return values indexed by row
+   */
+  long[] toArray() {
+    var values = new long[size()];
+    copyTo(0, values, 0, values.length);
+    return values;
+  }
+
+  /**
+   * Column of values in a heap array.
+   */
+  private static final class HeapColumn extends LongColumn {
+
+    /**
+     * Values indexed by row.
+     */
+    private final long[] values;
+
+    /**
+     * HeapColumn constructor.
+     *
+     * @param values values indexed by row
+     */
+    HeapColumn(long[] values) {
+      this.values = values;
+    }
+
+    @Override
+    int size() {
+      return values.length;
+    }
+
+    @Override
+    long get(int row) {
+      return values[row];
+    }
+
+    @Override
+    void set(int row, long value) {
+      values[row] = value;
+    }
+
+    @Override
+    void copyTo(int from, long[] target, int offset, int length) {
+      System.arraycopy(values, from, target, offset, length);
+    }
+
+    @Override
+    boolean isOffHeap() {
+      return false;
+    }
+  }
+
+  /**
+   * Column of little-endian values in a direct or mapped buffer.
+   */
+  private static final class OffHeapColumn extends LongColumn {
+
+    /**
+     * View of buffers as little-endian {@code long} values addressed by byte offset.
+     */
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+        ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Buffer with values of all rows.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Number of rows.
+     */
+    private final int size;
+
+    /**
+     * OffHeapColumn constructor.
+     *
+     * @param buffer buffer with values of all rows from position 0
+     */
+    OffHeapColumn(ByteBuffer buffer) {
+      this.buffer = buffer;
+      this.size = buffer.capacity() / Long.BYTES;
+    }
+
+    @Override
+    int size() {
+      return size;
+    }
+
+    @Override
+    long get(int row) {
+      return (long) LONGS.get(buffer, row * Long.BYTES);
+    }
+
+    @Override
+    void set(int row, long value) {
+      LONGS.set(buffer, row * Long.BYTES, value);
+    }
+
+    @Override
+    void copyTo(int from, long[] target, int offset, int length) {
+      buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(from * Long.BYTES).asLongBuffer()
+          .get(target, offset, length);
+    }
+
+    @Override
+    boolean isOffHeap() {
+      return true;
+    }
+  }
+}
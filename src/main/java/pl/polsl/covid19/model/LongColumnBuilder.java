@@ -0,0 +1,156 @@
+package pl.polsl.covid19.model;
+
+import java.util.Arrays;
+
+/**
+ * Growable column of {@code long} values filled row by row while a {@link CovidDataset} is built. Values are written
+ * straight into chunks allocated by the {@link ColumnStorage} of the built dataset, so off-heap columns are built
+ * without heap arrays. Each chunk added is as large as all chunks before it, so the capacity doubles without
+ * copying values written before, and the chunks are copied once into a column of the exact size when it is built.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class LongColumnBuilder {
+
+  /**
+   * Binary logarithm of the size of the first chunk.
+   */
+  private static final int FIRST_CHUNK_SHIFT = 8;
+
+  /**
+   * Storage of the chunks and the built column.
+   */
+  private final ColumnStorage storage;
+
+  /**
+   * Chunks of values, the first one of {@code 1 << FIRST_CHUNK_SHIFT} rows, each next one as large as all before.
+   */
+  private LongColumn[] chunks = new LongColumn[0];
+
+  /**
+   * Number of rows the chunks can hold.
+   */
+  private int capacity;
+
+  /**
+   * Chunk of the last set row, so rows set in order do not look up their chunk.
+   */
+  private LongColumn current;
+
+  /**
+   * Index of the first row of the current chunk.
+   */
+  private int currentStart;
+
+  /**
+   * Index of the row following the current chunk.
+   */
+  private int currentEnd;
+
+  /**
+   * LongColumnBuilder constructor.
+   *
+   * @param storage storage of the chunks and the built column
+   */
+  LongColumnBuilder(ColumnStorage storage) {
+    this.storage = storage;
+  }
+
+  /**
+   * Sets value of a row, adding chunks if the row does not fit.
+   *
+   * @param row   index of the row
+   * @param value value of the row
+   */
+  void set(int row, long value) {
+    if (row < currentStart || row >= currentEnd) {
+      ensureCapacity(row + 1);
+      var chunk = chunkOf(row);
+      current = chunks[chunk];
+      currentStart = chunkStart(chunk);
+      currentEnd = currentStart + current.size();
+    }
+    current.set(row - currentStart, value);
+  }
+
+  /**
+   * Copies values of a range of rows of a column, adding chunks if the rows do not fit.
+   *
+   * @param source column to copy from
+   * @param from   index of the first copied row of the column
+   * @param row    index of the first row receiving the values
+   * @param length number of copied rows
+   */
+  void copyFrom(LongColumn source, int from, int row, int length) {
+    ensureCapacity(row + length);
+    var end = row + length;
+    while (row < end) {
+      var chunk = chunkOf(row);
+      var target = chunks[chunk];
+      var offset = row - chunkStart(chunk);
+      var count = Math.min(end - row, target.size() - offset);
+      for (var i = 0; i < count; i++) {
+        target.set(offset + i, source.get(from + i));
+      }
+      from += count;
+      row += count;
+    }
+  }
+
+  /**
+   * Builds column of the first rows. A single chunk of the exact size is used directly, otherwise the chunks
+   * are copied into a new column. The builder must not be used afterwards.
+   *
+   * @param size number of rows
+   * @return built column
+   */
+  LongColumn build(int size) {
+    if (chunks.length == 1 && chunks[0].size() == size) {
+      return chunks[0];
+    }
+    var column = storage.allocate(size);
+    for (var chunk = 0; chunk < chunks.length && chunkStart(chunk) < size; chunk++) {
+      var start = chunkStart(chunk);
+      var count = Math.min(size - start, chunks[chunk].size());
+      for (var row = 0; row < count; row++) {
+        column.set(start + row, chunks[chunk].get(row));
+      }
+    }
+    return column;
+  }
+
+  /**
+   * Adds chunks, so the column can hold given number of rows.
+   *
+   * @param required required number of rows
+   */
+  private void ensureCapacity(int required) {
+    while (capacity < required) {
+      var chunkSize = Math.max(1 << FIRST_CHUNK_SHIFT, capacity);
+      chunks = Arrays.copyOf(chunks, chunks.length + 1);
+      chunks[chunks.length - 1] = storage.allocate(chunkSize);
+      capacity = Math.addExact(capacity, chunkSize);
+    }
+  }
+
+  /**
+   * Gets index of the chunk holding a row.
+   *
+   * @param row index of the row
+   * @return index of the chunk
+   */
+  private static int chunkOf(int row) {
+    return Integer.SIZE - Integer.numberOfLeadingZeros(row >>> FIRST_CHUNK_SHIFT);
+  }
+
+  /**
+   * Gets index of the first row of a chunk.
+   *
+   * @param chunk index of the chunk
+   * @return index of the first row
+   */
+  private static int chunkStart(int chunk) {
+    return chunk == 0 ? 0 : 1 << FIRST_CHUNK_SHIFT + chunk - 1;
+  }
+}
@@ -0,0 +1,239 @@
+package pl.polsl.covid19.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+/**
+ * Reads covid csv file from the filesystem through memory mapping. The file is split into chunks aligned
+ * to line breaks, the chunks are parsed in parallel by {@link CsvRowParser} and the results are merged
+ * in chunk order, so records are returned in the same order as a sequential read gives.
+ *
+ * <p>By default only country names are parsed while reading. Bytes of each chunk are copied to the heap
+ * with offsets of its rows, and numeric columns are decoded when the dataset first uses them, see {@link RawColumns}.
+ * The copy keeps the data valid if the file is changed or truncated while the dataset is in use.
+ * Otherwise each chunk is sketched by the thread parsing it and sketches of the chunks are merged,
+ * see {@link DatasetSketches}. Every read is recorded in {@link AppMetrics}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.3
+ */
+class MappedCsvFileReader {
+
+  /**
+   * Default minimal size of a chunk in bytes.
+   */
+  static final long DEFAULT_MIN_CHUNK_SIZE = 1024L * 1024L;
+
+  /**
+   * Maximal size of a chunk in bytes, a single mapping cannot exceed 2 GB.
+   */
+  private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE / 2;
+
+  /**
+   * Number of chunks created per worker, so uneven chunks are balanced between workers.
+   */
+  private static final int CHUNKS_PER_WORKER = 4;
+
+  /**
+   * Size of buffer used to find line breaks at chunk boundaries.
+   */
+  private static final int BOUNDARY_SCAN_SIZE = 4096;
+
+  /**
+   * Executor parsing the chunks.
+   */
+  private final Executor executor;
+
+  /**
+   * Number of workers that parse chunks in parallel.
+   */
+  private final int parallelism;
+
+  /**
+   * Minimal size of a chunk in bytes.
+   */
+  private final long minChunkSize;
+
+  /**
+   * True to decode numeric columns on first use, false to decode them while reading.
+   */
+  private final boolean lazyColumns;
+
+  /**
+   * MappedCsvFileReader constructor using common fork join pool.
+   */
+  MappedCsvFileReader() {
+    this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism(), DEFAULT_MIN_CHUNK_SIZE);
+  }
+
+  /**
+   * MappedCsvFileReader constructor decoding numeric columns on first use.
+   *
+   * @param executor     executor parsing the chunks
+   * @param parallelism  number of workers that parse chunks in parallel
+   * @param minChunkSize minimal size of a chunk in bytes
+   */
+  MappedCsvFileReader(Executor executor, int parallelism, long minChunkSize) {
+    this(executor, parallelism, minChunkSize, true);
+  }
+
+  /**
+   * MappedCsvFileReader constructor.
+   *
+   * @param executor     executor parsing the chunks
+   * @param parallelism  number of workers that parse chunks in parallel
+   * @param minChunkSize minimal size of a chunk in bytes
+   * @param lazyColumns  true to decode numeric columns on first use, false to decode them while reading
+   */
+  MappedCsvFileReader(Executor executor, int parallelism, long minChunkSize, boolean lazyColumns) {
+    this.executor = executor;
+    this.parallelism = Math.max(1, parallelism);
+    this.minChunkSize = Math.max(1L, minChunkSize);
+    this.lazyColumns = lazyColumns;
+  }
+
+  /**
+   * Reads csv file of given path.
+   *
+   * @param path path of file containing covid data
+   * @return read records with checksum of the file combined from checksums of the chunks
+   */
+  CsvFileReader.Result read(final Path path) {
+    var metrics = AppMetrics.getInstance();
+    var readStart = System.nanoTime();
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      var boundaries = findChunkBoundaries(channel);
+      var futures = new ArrayList<CompletableFuture<Chunk>>(boundaries.size() - 1);
+      for (var i = 0; i < boundaries.size() - 1; i++) {
+        var start = boundaries.get(i);
+        var end = boundaries.get(i + 1);
+        futures.add(CompletableFuture.supplyAsync(() -> parseChunk(channel, start, end), executor));
+      }
+      var builder = new CovidDataset.Builder();
+      var checksum = new CRC32();
+      var crcBytes = ByteBuffer.allocate(Long.BYTES);
+      var malformedValueCount = 0L;
+      for (var future : futures) {
+        var chunk = future.join();
+        builder.addAll(chunk.dataset());
+        checksum.update(crcBytes.clear().putLong(chunk.checksum()).flip());
+        malformedValueCount += chunk.malformedValueCount();
+      }
+      var dataset = builder.build();
+      metrics.recordMalformedValues(malformedValueCount);
+      metrics.recordCsvRead(dataset.size(), boundaries.get(boundaries.size() - 1), System.nanoTime() - readStart);
+      return new CsvFileReader.Result(dataset, checksum.getValue());
+    } catch (IOException e) {
+      metrics.recordCsvReadFailure();
+      throw new AppException("Unable to read source data file", e);
+    } catch (CompletionException e) {
+      metrics.recordCsvReadFailure();
+      throw new AppException("Unable to read source data file", e.getCause());
+    }
+  }
+
+  /**
+   * Splits the file into chunks that start right after a line break.
+   *
+   * @param channel channel of the file
+   * @return offsets of chunk starts followed by the file size
+   * @throws IOException if the file cannot be read
+   */
+  private List<Long> findChunkBoundaries(FileChannel channel) throws IOException {
+    var size = channel.size();
+    var chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(minChunkSize, size / ((long) parallelism * CHUNKS_PER_WORKER)));
+    var boundaries = new ArrayList<Long>();
+    boundaries.add(0L);
+    var scanBuffer = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+    var position = 0L;
+    while (position + chunkSize < size) {
+      position = findNextLineStart(channel, position + chunkSize, size, scanBuffer);
+      if (position >= size) {
+        break;
+      }
+      boundaries.add(position);
+    }
+    boundaries.add(size);
+    return boundaries;
+  }
+
+  /**
+   * Finds offset of the first byte after the next line break.
+   *
+   * @param channel    channel of the file
+   * @param from       offset from which the line break is searched
+   * @param size       size of the file
+   * @param scanBuffer buffer used to read the file
+   * @return offset of the next line start or size of the file if there is no more line break
+   * @throws IOException if the file cannot be read
+   */
+  private long findNextLineStart(FileChannel channel, long from, long size, ByteBuffer scanBuffer)
+      throws IOException {
+    var position = from;
+    while (position < size) {
+      scanBuffer.clear();
+      var count = channel.read(scanBuffer, position);
+      if (count <= 0) {
+        break;
+      }
+      for (var i = 0; i < count; i++) {
+        if (scanBuffer.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += count;
+    }
+    return size;
+  }
+
+  /**
+   * Maps and parses a single chunk of the file.
+   *
+   * @param channel channel of the file
+   * @param start   offset of the first byte of the chunk
+   * @param end     offset after the last byte of the chunk
+   * @return parsed chunk
+   */
+  private Chunk parseChunk(FileChannel channel, long start, long end) {
+    try {
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+      var crc = new CRC32();
+      crc.update(buffer.duplicate());
+      if (!lazyColumns) {
+        var builder = new CovidDataset.Builder().withSketches();
+        var rowParser = new CsvRowParser();
+        rowParser.parse(buffer, true, builder::addRow);
+        return new Chunk(builder.build(), crc.getValue(), rowParser.getMalformedValueCount());
+      }
+      var data = new byte[buffer.remaining()];
+      buffer.get(data);
+      var builder = new CovidDataset.Builder(data);
+      var rowParser = new CsvRowParser(false);
+      rowParser.parse(ByteBuffer.wrap(data), true, (country, values) -> builder.addRawRow(country,
+          rowParser.rowStart()));
+      return new Chunk(builder.build(), crc.getValue(), 0L);
+    } catch (IOException e) {
+      throw new AppException("Unable to read source data file", e);
+    }
+  }
+
+  /**
+   * Result of parsing a single chunk.
+   *
+   * @param dataset             records of the chunk in file order
+   * @param checksum            CRC32 checksum of the chunk
+   * @param malformedValueCount number of malformed cells parsed as 0, cells of undecoded columns are not checked
+   */
+  private record Chunk(CovidDataset dataset, long checksum, long malformedValueCount) {
+  }
+}
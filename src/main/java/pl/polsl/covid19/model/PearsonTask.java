@@ -0,0 +1,105 @@
+package pl.polsl.covid19.model;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join task accumulating moments of two columns. Ranges longer than the threshold are split
+ * into halves computed in parallel and the partial accumulators are merged. Values are shifted by the first
+ * pair before accumulation, which keeps precision for large values with small variance and does not change
+ * the coefficient.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class PearsonTask extends RecursiveTask<CorrelationAccumulator> {
+
+  /**
+   * Default number of rows below which the range is accumulated sequentially.
+   */
+  static final int DEFAULT_THRESHOLD = 64 * 1024;
+
+  /**
+   * Values of the first column.
+   */
+  private final LongColumn x;
+
+  /**
+   * Values of the second column.
+   */
+  private final LongColumn y;
+
+  /**
+   * Value subtracted from values of the first column.
+   */
+  private final long shiftX;
+
+  /**
+   * Value subtracted from values of the second column.
+   */
+  private final long shiftY;
+
+  /**
+   * Index of the first row of the range.
+   */
+  private final int from;
+
+  /**
+   * Index after the last row of the range.
+   */
+  private final int to;
+
+  /**
+   * Number of rows below which the range is accumulated sequentially.
+   */
+  private final int threshold;
+
+  /**
+   * PearsonTask constructor.
+   *
+   * @param x         values of the first column
+   * @param y         values of the second column
+   * @param from      index of the first row of the range
+   * @param to        index after the last row of the range
+   * @param threshold number of rows below which the range is accumulated sequentially
+   */
+  PearsonTask(LongColumn x, LongColumn y, int from, int to, int threshold) {
+    this(x, y, from < to ? x.get(from) : 0L, from < to ? y.get(from) : 0L, from, to, threshold);
+  }
+
+  /**
+   * PearsonTask constructor.
+   *
+   * @param x         values of the first column
+   * @param y         values of the second column
+   * @param shiftX    value subtracted from values of the first column
+   * @param shiftY    value subtracted from values of the second column
+   * @param from      index of the first row of the range
+   * @param to        index after the last row of the range
+   * @param threshold number of rows below which the range is accumulated sequentially
+   */
+  private PearsonTask(LongColumn x, LongColumn y, long shiftX, long shiftY, int from, int to, int threshold) {
+    this.x = x;
+    this.y = y;
+    this.shiftX = shiftX;
+    this.shiftY = shiftY;
+    this.from = from;
+    this.to = to;
+    this.threshold = Math.max(1, threshold);
+  }
+
+  @Override
+  protected CorrelationAccumulator compute() {
+    if (to - from <= threshold) {
+      var accumulator = new CorrelationAccumulator();
+      for (var row = from; row < to; row++) {
+        accumulator.add(x.get(row) - shiftX, y.get(row) - shiftY);
+      }
+      return accumulator;
+    }
+    var middle = (from + to) >>> 1;
+    var left = new PearsonTask(x, y, shiftX, shiftY, from, middle, threshold);
+    left.fork();
+    var right = new PearsonTask(x, y, shiftX, shiftY, middle, to, threshold).compute();
+    return left.join().merge(right);
+  }
+}
@@ -0,0 +1,405 @@
+package pl.polsl.covid19.model;
+
+import java.util.Arrays;
+
+/**
+ * KLL quantile sketch of {@code long} values (Karnin, Lang, Liberty, "Optimal Quantile Approximation in Streams").
+ * Values are kept in levels of compactors, a value at level h stands for 2^h original values. When the sketch
+ * is full, the lowest full level is sorted and every second value, starting at a random offset, is moved
+ * one level up while the others are dropped. Capacities of lower levels decrease geometrically, so the sketch
+ * keeps about 3k values regardless of the number of updates. Levels above 0 are kept sorted, values moved up
+ * are merged into them, so only the few values of level 0 are sorted on compaction.
+ *
+ * <p>Sketches with the same k can be merged, the result has the same error as a sketch of all values.
+ * Instances are not thread-safe for updates, but can be queried concurrently once they are no longer updated.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class QuantileSketch {
+
+  /**
+   * Default size parameter, about 1.3% rank error.
+   */
+  static final int DEFAULT_K = 200;
+
+  /**
+   * Ratio of capacities of consecutive levels.
+   */
+  private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+  /**
+   * The lowest capacity of a level.
+   */
+  private static final int MIN_LEVEL_CAPACITY = 8;
+
+  /**
+   * Size parameter, capacity of the top level.
+   */
+  private final int k;
+
+  /**
+   * Values of each level, level 0 holds values with weight 1 in insertion order, other levels are sorted.
+   */
+  private long[][] levels;
+
+  /**
+   * Number of values of each level.
+   */
+  private int[] levelSizes;
+
+  /**
+   * Capacity of each level.
+   */
+  private int[] levelCapacities;
+
+  /**
+   * Number of values of all levels.
+   */
+  private int retainedCount;
+
+  /**
+   * Number of values the levels can hold before the sketch is compacted.
+   */
+  private int capacity;
+
+  /**
+   * Number of added values.
+   */
+  private long count;
+
+  /**
+   * The lowest added value.
+   */
+  private long min = Long.MAX_VALUE;
+
+  /**
+   * The highest added value.
+   */
+  private long max = Long.MIN_VALUE;
+
+  /**
+   * State of the generator of compaction offsets, a fixed seed keeps results reproducible.
+   */
+  private long randomState = 0x9E3779B97F4A7C15L;
+
+  /**
+   * Retained values in ascending order with their cumulative weights, null if not built since last update.
+   */
+  private volatile SortedView sortedView;
+
+  /**
+   * QuantileSketch constructor with {@link #DEFAULT_K}.
+   */
+  QuantileSketch() {
+    this(DEFAULT_K);
+  }
+
+  /**
+   * QuantileSketch constructor.
+   *
+   * @param k size parameter, larger values give lower error
+   */
+  QuantileSketch(int k) {
+    if (k < MIN_LEVEL_CAPACITY) {
+      throw new AppException("Size of quantile sketch must be at least " + MIN_LEVEL_CAPACITY);
+    }
+    this.k = k;
+    this.levels = new long[][] {new long[MIN_LEVEL_CAPACITY]};
+    this.levelSizes = new int[1];
+    this.levelCapacities = new int[] {k};
+    this.capacity = k;
+  }
+
+  /**
+   * Creates a copy of a sketch.
+   *
+   * @param source copied sketch
+   */
+  private QuantileSketch(QuantileSketch source) {
+    this.k = source.k;
+    this.levels = new long[source.levels.length][];
+    for (var level = 0; level < levels.length; level++) {
+      levels[level] = source.levels[level].clone();
+    }
+    this.levelSizes = source.levelSizes.clone();
+    this.levelCapacities = source.levelCapacities.clone();
+    this.retainedCount = source.retainedCount;
+    this.capacity = source.capacity;
+    this.count = source.count;
+    this.min = source.min;
+    this.max = source.max;
+    this.randomState = source.randomState;
+    this.sortedView = source.sortedView;
+  }
+
+  /**
+   * Adds a value.
+   *
+   * @param value added value
+   */
+  void update(long value) {
+    append(0, value);
+    count++;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+    if (sortedView != null) {
+      sortedView = null;
+    }
+    if (retainedCount >= capacity) {
+      compress();
+    }
+  }
+
+  /**
+   * Adds all values of another sketch.
+   *
+   * @param other sketch with the same size parameter
+   */
+  void merge(QuantileSketch other) {
+    if (other.k != k) {
+      throw new AppException("Quantile sketches of different sizes cannot be merged");
+    }
+    if (other.count == 0) {
+      return;
+    }
+    while (levels.length < other.levels.length) {
+      addLevel();
+    }
+    for (var i = 0; i < other.levelSizes[0]; i++) {
+      append(0, other.levels[0][i]);
+    }
+    for (var level = 1; level < other.levels.length; level++) {
+      mergeSorted(level, other.levels[level], 0, other.levelSizes[level], 1);
+    }
+    count += other.count;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    sortedView = null;
+    compress();
+  }
+
+  /**
+   * Creates a copy of the sketch that can be updated independently.
+   *
+   * @return copy of the sketch
+   */
+  QuantileSketch copy() {
+    return new QuantileSketch(this);
+  }
+
+  /**
+   * Gets number of added values.
+   *
+   * @return number of added values
+   */
+  long getCount() {
+    return count;
+  }
+
+  /**
+   * Gets number of values kept by the sketch.
+   *
+   * @return number of retained values
+   */
+  int getRetainedCount() {
+    return retainedCount;
+  }
+
+  /**
+   * Gets approximate value at a normalized rank. The rank of the returned value differs from the requested rank
+   * by at most {@link #getNormalizedRankError()} with 99% confidence. Ranks 0 and 1 give the exact lowest
+   * and highest value.
+   *
+   * @param rank normalized rank in range of 0 to 1, e.g. 0.5 for the median
+   * @return approximate value at the rank
+   * @throws AppException if the sketch is empty or the rank is out of range
+   */
+  long getQuantile(double rank) {
+    if (count == 0) {
+      throw new AppException("Quantile of empty sketch is undefined");
+    }
+    if (!(rank >= 0.0 && rank <= 1.0)) {
+      throw new AppException("Rank must be between 0 and 1");
+    }
+    if (rank == 0.0) {
+      return min;
+    }
+    if (rank == 1.0) {
+      return max;
+    }
+    var view = sortedView();
+    var target = Math.max(1L, (long) Math.ceil(rank * count));
+    var low = 0;
+    var high = view.values.length - 1;
+    while (low < high) {
+      var middle = (low + high) >>> 1;
+      if (view.cumulativeWeights[middle] < target) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return view.values[low];
+  }
+
+  /**
+   * Gets rank error of the sketch with 99% confidence, as measured for KLL sketches by Apache DataSketches.
+   *
+   * @return normalized rank error
+   */
+  double getNormalizedRankError() {
+    return 2.296 / Math.pow(k, 0.9723);
+  }
+
+  /**
+   * Gets retained values sorted with their cumulative weights, building them on first use after an update.
+   *
+   * @return sorted view of the sketch
+   */
+  private SortedView sortedView() {
+    var view = sortedView;
+    if (view == null) {
+      var values = new long[retainedCount];
+      var weights = new long[retainedCount];
+      var i = 0;
+      for (var level = 0; level < levels.length; level++) {
+        for (var j = 0; j < levelSizes[level]; j++) {
+          values[i] = levels[level][j];
+          weights[i] = 1L << level;
+          i++;
+        }
+      }
+      var order = ColumnSort.sortedRows(LongColumn.of(values), retainedCount, false);
+      var sortedValues = new long[retainedCount];
+      var cumulativeWeights = new long[retainedCount];
+      var weight = 0L;
+      for (var position = 0; position < order.length; position++) {
+        sortedValues[position] = values[order[position]];
+        weight += weights[order[position]];
+        cumulativeWeights[position] = weight;
+      }
+      view = new SortedView(sortedValues, cumulativeWeights);
+      sortedView = view;
+    }
+    return view;
+  }
+
+  /**
+   * Compacts the lowest full levels until the sketch fits its capacity.
+   */
+  private void compress() {
+    while (retainedCount >= capacity) {
+      var level = 0;
+      while (levelSizes[level] < levelCapacities[level]) {
+        level++;
+      }
+      compact(level);
+    }
+  }
+
+  /**
+   * Moves every second value of a level, starting at a random offset, one level up and drops the others.
+   * If the level has an odd number of values, its lowest value stays at the level.
+   *
+   * @param level compacted level
+   */
+  private void compact(int level) {
+    if (level + 1 == levels.length) {
+      addLevel();
+    }
+    var values = levels[level];
+    var size = levelSizes[level];
+    if (level == 0) {
+      Arrays.sort(values, 0, size);
+    }
+    var kept = size % 2;
+    mergeSorted(level + 1, values, kept + nextBit(), (size - kept) / 2, 2);
+    levelSizes[level] = kept;
+    retainedCount -= size - kept;
+  }
+
+  /**
+   * Merges sorted values into a sorted level, from the end, so values already in place are not moved.
+   *
+   * @param level  level above 0
+   * @param source array of the merged values
+   * @param offset index of the first merged value in the source
+   * @param count  number of merged values
+   * @param step   distance between merged values in the source
+   */
+  private void mergeSorted(int level, long[] source, int offset, int count, int step) {
+    var size = levelSizes[level];
+    if (size + count > levels[level].length) {
+      levels[level] = Arrays.copyOf(levels[level], Math.max(size + count, size * 2));
+    }
+    var target = levels[level];
+    var i = size - 1;
+    var j = count - 1;
+    for (var position = size + count - 1; j >= 0; position--) {
+      var value = source[offset + j * step];
+      if (i >= 0 && target[i] > value) {
+        target[position] = target[i--];
+      } else {
+        target[position] = value;
+        j--;
+      }
+    }
+    levelSizes[level] = size + count;
+    retainedCount += count;
+  }
+
+  /**
+   * Appends a value to a level.
+   *
+   * @param level level of the value
+   * @param value appended value
+   */
+  private void append(int level, long value) {
+    var size = levelSizes[level];
+    if (size == levels[level].length) {
+      levels[level] = Arrays.copyOf(levels[level], size * 2);
+    }
+    levels[level][size] = value;
+    levelSizes[level] = size + 1;
+    retainedCount++;
+  }
+
+  /**
+   * Adds a level on top, which lowers capacities of the levels below. The top level has capacity k
+   * and each level below 2/3 of the capacity of the level above.
+   */
+  private void addLevel() {
+    levels = Arrays.copyOf(levels, levels.length + 1);
+    levels[levels.length - 1] = new long[MIN_LEVEL_CAPACITY];
+    levelSizes = Arrays.copyOf(levelSizes, levelSizes.length + 1);
+    levelCapacities = new int[levels.length];
+    capacity = 0;
+    for (var level = 0; level < levels.length; level++) {
+      var depth = levels.length - 1 - level;
+      levelCapacities[level] = Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+      capacity += levelCapacities[level];
+    }
+  }
+
+  /**
+   * Gets next random bit with xorshift generator.
+   *
+   * @return 0 or 1
+   */
+  private int nextBit() {
+    randomState ^= randomState << 13;
+    randomState ^= randomState >>> 7;
+    randomState ^= randomState << 17;
+    return (int) (randomState >>> 63);
+  }
+
+  /**
+   * Retained values in ascending order.
+   *
+   * @param values            retained values in ascending order
+   * @param cumulativeWeights sum of weights of values up to each position
+   */
+  private record SortedView(long[] values, long[] cumulativeWeights) {
+  }
+}
@@ -0,0 +1,227 @@
+package pl.polsl.covid19.model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Compiled query filtering, ordering, selecting and limiting rows of a {@link CovidDataset}, for example
+ * {@code activeCases > 100000 and testsPer1M < 500000 order by deaths desc limit 20}.
+ *
+ * <p>Syntax, keywords and metric names are case-insensitive:
+ * <pre>
+ * [select metric, ... | select *] [where] [condition] [order by metric [asc|desc], ...] [limit n] [offset n]
+ * condition:  comparison | condition and condition | condition or condition | not condition | (condition)
+ * comparison: metric operator (number | metric) | country (= | !=) 'name'
+ * operator:   = == != &lt;&gt; &lt; &lt;= &gt; &gt;=
+ * </pre>
+ * Metrics are named in camel case or with underscores, e.g. {@code activeCases} or {@code active_cases},
+ * with short forms {@code cases}, {@code deaths}, {@code recovered}, {@code active}, {@code critical}
+ * and {@code tests}, and {@code per1M} for per million metrics. Country names are compared ignoring case
+ * and diacritics. Rows with equal order values keep dataset order.
+ *
+ * <p>A query is parsed once and does not depend on a dataset, so the same compiled query can be executed
+ * against any number of datasets by any number of threads. Conditions are compiled to {@link QueryPredicate}s
+ * scanning primitive columns, ordering sorts row indexes by primitive columns. Queries without ordering can also
+ * be executed against batches of rows while they are being read, and stop reading once the limit is reached.
+ *
+ * @author Krzysztof Franków
+ * @version 1.3
+ */
+public class Query {
+
+  /**
+   * Text of the query.
+   */
+  private final String text;
+
+  /**
+   * Metrics selected by the query.
+   */
+  private final List<CovidMetric> selectedMetrics;
+
+  /**
+   * Filter of rows or null if all rows are selected.
+   */
+  private final QueryPredicate predicate;
+
+  /**
+   * Metrics to order by, the first one is the primary order.
+   */
+  private final List<CovidMetric> orderMetrics;
+
+  /**
+   * Directions of ordering by each order metric, true for descending.
+   */
+  private final boolean[] orderDescending;
+
+  /**
+   * Maximal number of returned rows or -1 if not limited.
+   */
+  private final int limit;
+
+  /**
+   * Number of skipped rows.
+   */
+  private final int offset;
+
+  /**
+   * Query constructor.
+   *
+   * @param text            text of the query
+   * @param selectedMetrics metrics selected by the query
+   * @param predicate       filter of rows or null if all rows are selected
+   * @param orderMetrics    metrics to order by, the first one is the primary order
+   * @param orderDescending directions of ordering by each order metric, true for descending
+   * @param limit           maximal number of returned rows or -1 if not limited
+   * @param offset          number of skipped rows
+   */
+  Query(String text, List<CovidMetric> selectedMetrics, QueryPredicate predicate, List<CovidMetric> orderMetrics,
+        boolean[] orderDescending, int limit, int offset) {
+    this.text = text;
+    this.selectedMetrics = List.copyOf(selectedMetrics);
+    this.predicate = predicate;
+    this.orderMetrics = List.copyOf(orderMetrics);
+    this.orderDescending = orderDescending.clone();
+    this.limit = limit;
+    this.offset = offset;
+  }
+
+  /**
+   * Parses and compiles a query.
+   *
+   * @param text text of the query
+   * @return compiled query
+   * @throws AppException if the query is not valid
+   */
+  public static Query parse(String text) {
+    return new QueryParser(text).parse();
+  }
+
+  /**
+   * Executes the query.
+   *
+   * @param dataset queried data
+   * @return matching rows in requested order, as views of the dataset
+   */
+  public List<CovidData> execute(CovidDataset dataset) {
+    var size = dataset.size();
+    if (predicate == null && orderMetrics.size() <= 1) {
+      var to = limit < 0 ? size : (int) Math.min((long) offset + limit, size);
+      var from = Math.min(offset, to);
+      if (orderMetrics.isEmpty()) {
+        return dataset.asList().subList(from, to);
+      }
+      return dataset.orderedBy(orderMetrics.get(0), orderDescending[0], from, to - from);
+    }
+    var rows = new int[size];
+    for (var row = 0; row < size; row++) {
+      rows[row] = row;
+    }
+    var count = predicate == null ? size : predicate.filter(dataset, rows, size);
+    var wanted = limit < 0 ? count : (int) Math.min((long) offset + limit, count);
+    var ordered = orderMetrics.isEmpty();
+    if (!ordered && wanted < count) {
+      var descending = orderDescending[0];
+      var values = dataset.column(orderMetrics.get(0));
+      var topK = new TopK(wanted, descending);
+      for (var i = 0; i < count; i++) {
+        topK.offer(values.get(rows[i]), rows[i]);
+      }
+      var topRows = topK.drain().rows();
+      if (orderMetrics.size() == 1 || wanted == 0) {
+        rows = topRows;
+        ordered = true;
+      } else {
+        // only rows not worse than the last of the top rows by the primary metric can be in the result
+        var boundary = values.get(topRows[wanted - 1]);
+        var kept = 0;
+        for (var i = 0; i < count; i++) {
+          var row = rows[i];
+          rows[kept] = row;
+          kept += (descending ? values.get(row) >= boundary : values.get(row) <= boundary) ? 1 : 0;
+        }
+        count = kept;
+      }
+    }
+    if (!ordered) {
+      for (var i = orderMetrics.size() - 1; i >= 0; i--) {
+        ColumnSort.sortRows(rows, count, dataset.column(orderMetrics.get(i)), orderDescending[i]);
+      }
+    }
+    var from = Math.min(offset, wanted);
+    return dataset.asList(Arrays.copyOfRange(rows, from, wanted));
+  }
+
+  /**
+   * Executes the query without ordering against batches of rows, e.g. rows of a file while it is being read.
+   * Batches are filtered one at a time and matching rows are copied, so only the result is kept in memory,
+   * and no more batches are requested once the limit is reached.
+   *
+   * @param batches batches of queried rows in data order
+   * @return matching rows in data order
+   * @throws AppException if the query orders rows, which needs all of them
+   */
+  List<CovidData> execute(Iterator<CovidDataset> batches) {
+    if (isOrdered()) {
+      throw new AppException("Ordered query cannot be executed while data is being read: " + text);
+    }
+    var result = new CovidDataset.Builder();
+    var values = new long[CsvRowParser.COLUMN_COUNT];
+    var skipped = 0;
+    var wanted = limit < 0 ? Integer.MAX_VALUE : limit;
+    var rows = new int[0];
+    for (var kept = 0; kept < wanted && batches.hasNext(); ) {
+      var batch = batches.next();
+      var size = batch.size();
+      if (rows.length < size) {
+        rows = new int[size];
+      }
+      for (var row = 0; row < size; row++) {
+        rows[row] = row;
+      }
+      var count = predicate == null ? size : predicate.filter(batch, rows, size);
+      for (var i = 0; i < count && kept < wanted; i++) {
+        if (skipped < offset) {
+          skipped++;
+          continue;
+        }
+        for (var metric : CovidMetric.values()) {
+          values[metric.getCsvColumn()] = batch.getValue(metric, rows[i]);
+        }
+        result.addRow(batch.getCountry(rows[i]), values);
+        kept++;
+      }
+    }
+    return result.build().asList();
+  }
+
+  /**
+   * Checks whether the query orders rows, so it needs all rows before returning any and cannot be executed
+   * while the data is being read.
+   *
+   * @return true if the query has an order by clause
+   */
+  public boolean isOrdered() {
+    return !orderMetrics.isEmpty();
+  }
+
+  /**
+   * Gets metrics selected by the query, all metrics if the query does not select any.
+   *
+   * @return selected metrics
+   */
+  public List<CovidMetric> getSelectedMetrics() {
+    return selectedMetrics;
+  }
+
+  /**
+   * Gets text of the query.
+   *
+   * @return text of the query
+   */
+  @Override
+  public String toString() {
+    return text;
+  }
+}
@@ -0,0 +1,491 @@
+package pl.polsl.covid19.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Recursive descent parser of {@link Query} text. The text is split into tokens first, then the tokens are
+ * parsed and compiled directly into {@link QueryPredicate}s, without an intermediate syntax tree. Nesting
+ * of parentheses and negations is limited, so a hostile query cannot exhaust the stack of the parsing thread.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class QueryParser {
+
+  /**
+   * Metrics by lower case names used in queries.
+   */
+  private static final Map<String, CovidMetric> METRICS_BY_NAME = metricsByName();
+
+  /**
+   * Name of the country field.
+   */
+  private static final String COUNTRY_FIELD = "country";
+
+  /**
+   * Maximal number of nested parentheses and negations.
+   */
+  static final int MAX_NESTING_DEPTH = 64;
+
+  /**
+   * Text of the parsed query.
+   */
+  private final String text;
+
+  /**
+   * Tokens of the query.
+   */
+  private final List<Token> tokens;
+
+  /**
+   * Index of the next token.
+   */
+  private int position;
+
+  /**
+   * Number of parentheses and negations enclosing the parsed condition.
+   */
+  private int depth;
+
+  /**
+   * QueryParser constructor.
+   *
+   * @param text text of the parsed query
+   * @throws AppException if the text contains invalid characters
+   */
+  QueryParser(String text) {
+    this.text = text;
+    this.tokens = tokenize(text);
+  }
+
+  /**
+   * Parses the query.
+   *
+   * @return compiled query
+   * @throws AppException if the query is not valid
+   */
+  Query parse() {
+    List<CovidMetric> selectedMetrics = List.of(CovidMetric.values());
+    if (acceptKeyword("select")) {
+      if (!acceptSymbol("*")) {
+        selectedMetrics = new ArrayList<>();
+        do {
+          selectedMetrics.add(metric(expect(TokenType.IDENTIFIER, "metric name")));
+        } while (acceptSymbol(","));
+      }
+    }
+    var where = acceptKeyword("where");
+    QueryPredicate predicate = null;
+    if (where || peek().type() != TokenType.END && !peekKeyword("order") && !peekKeyword("limit")
+        && !peekKeyword("offset")) {
+      predicate = parseOr();
+    }
+    var orderMetrics = new ArrayList<CovidMetric>();
+    var orderDirections = new ArrayList<Boolean>();
+    if (acceptKeyword("order")) {
+      expectKeyword("by");
+      do {
+        orderMetrics.add(metric(expect(TokenType.IDENTIFIER, "metric name")));
+        orderDirections.add(!acceptKeyword("asc") && acceptKeyword("desc"));
+      } while (acceptSymbol(","));
+    }
+    var limit = -1;
+    var offset = 0;
+    if (acceptKeyword("limit")) {
+      limit = count(expect(TokenType.NUMBER, "number"));
+    }
+    if (acceptKeyword("offset")) {
+      offset = count(expect(TokenType.NUMBER, "number"));
+    }
+    if (peek().type() != TokenType.END) {
+      throw error(peek(), "end of query");
+    }
+    var orderDescending = new boolean[orderDirections.size()];
+    for (var i = 0; i < orderDescending.length; i++) {
+      orderDescending[i] = orderDirections.get(i);
+    }
+    return new Query(text, selectedMetrics, predicate, orderMetrics, orderDescending, limit, offset);
+  }
+
+  /**
+   * Parses a disjunction of conjunctions.
+   *
+   * @return compiled predicate
+   */
+  private QueryPredicate parseOr() {
+    var operands = new ArrayList<QueryPredicate>();
+    operands.add(parseAnd());
+    while (acceptKeyword("or")) {
+      operands.add(parseAnd());
+    }
+    return operands.size() == 1 ? operands.get(0) : new QueryPredicate.Or(operands);
+  }
+
+  /**
+   * Parses a conjunction of negations, comparisons and parenthesized conditions.
+   *
+   * @return compiled predicate
+   */
+  private QueryPredicate parseAnd() {
+    var operands = new ArrayList<QueryPredicate>();
+    operands.add(parseUnary());
+    while (acceptKeyword("and")) {
+      operands.add(parseUnary());
+    }
+    return operands.size() == 1 ? operands.get(0) : new QueryPredicate.And(operands);
+  }
+
+  /**
+   * Parses a negation, a parenthesized condition or a comparison.
+   *
+   * @return compiled predicate
+   * @throws AppException if the condition is nested too deeply
+   */
+  private QueryPredicate parseUnary() {
+    var token = peek();
+    var negated = acceptKeyword("not");
+    if (!negated && !acceptSymbol("(")) {
+      return parseComparison();
+    }
+    if (++depth > MAX_NESTING_DEPTH) {
+      throw new AppException("Query nested too deeply at position " + (token.position() + 1)
+          + ": at most " + MAX_NESTING_DEPTH + " parentheses and negations are allowed");
+    }
+    QueryPredicate predicate;
+    if (negated) {
+      predicate = new QueryPredicate.Not(parseUnary());
+    } else {
+      predicate = parseOr();
+      expectSymbol(")");
+    }
+    depth--;
+    return predicate;
+  }
+
+  /**
+   * Parses a comparison of a metric or country name.
+   *
+   * @return compiled predicate
+   */
+  private QueryPredicate parseComparison() {
+    var field = expect(TokenType.IDENTIFIER, "metric name");
+    var operatorToken = expect(TokenType.OPERATOR, "comparison operator");
+    var operator = operator(operatorToken);
+    if (field.text().equalsIgnoreCase(COUNTRY_FIELD)) {
+      if (operator != QueryPredicate.Operator.EQUAL && operator != QueryPredicate.Operator.NOT_EQUAL) {
+        throw error(operatorToken, "= or != for country");
+      }
+      var country = expect(TokenType.STRING, "quoted country name");
+      return new QueryPredicate.CountryComparison(CountryIndex.normalize(country.text()),
+          operator == QueryPredicate.Operator.NOT_EQUAL);
+    }
+    var metric = metric(field);
+    var operand = next();
+    return switch (operand.type()) {
+      case NUMBER -> new QueryPredicate.ConstantComparison(metric, operator, number(operand));
+      case IDENTIFIER -> new QueryPredicate.ColumnComparison(metric, operator, metric(operand));
+      default -> throw error(operand, "number or metric name");
+    };
+  }
+
+  /**
+   * Resolves metric of a token.
+   *
+   * @param token identifier token
+   * @return metric named by the token
+   */
+  private CovidMetric metric(Token token) {
+    var metric = METRICS_BY_NAME.get(token.text().toLowerCase(Locale.ROOT));
+    if (metric == null) {
+      throw error(token, "metric name");
+    }
+    return metric;
+  }
+
+  /**
+   * Resolves comparison operator of a token.
+   *
+   * @param token operator token
+   * @return comparison operator
+   */
+  private static QueryPredicate.Operator operator(Token token) {
+    return switch (token.text()) {
+      case "=", "==" -> QueryPredicate.Operator.EQUAL;
+      case "!=", "<>" -> QueryPredicate.Operator.NOT_EQUAL;
+      case "<" -> QueryPredicate.Operator.LESS;
+      case "<=" -> QueryPredicate.Operator.LESS_OR_EQUAL;
+      case ">" -> QueryPredicate.Operator.GREATER;
+      default -> QueryPredicate.Operator.GREATER_OR_EQUAL;
+    };
+  }
+
+  /**
+   * Parses value of a number token.
+   *
+   * @param token number token
+   * @return value of the number
+   */
+  private long number(Token token) {
+    try {
+      return Long.parseLong(token.text().replace("_", ""));
+    } catch (NumberFormatException e) {
+      throw error(token, "integer number");
+    }
+  }
+
+  /**
+   * Parses value of a number token used as number of rows.
+   *
+   * @param token number token
+   * @return value of the number
+   */
+  private int count(Token token) {
+    var value = number(token);
+    if (value < 0 || value > Integer.MAX_VALUE) {
+      throw error(token, "non-negative number of rows");
+    }
+    return (int) value;
+  }
+
+  /**
+   * Gets the next token without consuming it.
+   *
+   * @return next token
+   */
+  private Token peek() {
+    return tokens.get(position);
+  }
+
+  /**
+   * Consumes the next token.
+   *
+   * @return consumed token
+   */
+  private Token next() {
+    var token = tokens.get(position);
+    if (token.type() != TokenType.END) {
+      position++;
+    }
+    return token;
+  }
+
+  /**
+   * Checks whether the next token is a keyword.
+   *
+   * @param keyword lower case keyword
+   * @return true if the next token is the keyword
+   */
+  private boolean peekKeyword(String keyword) {
+    return peek().type() == TokenType.IDENTIFIER && peek().text().equalsIgnoreCase(keyword);
+  }
+
+  /**
+   * Consumes the next token if it is a keyword.
+   *
+   * @param keyword lower case keyword
+   * @return true if the keyword was consumed
+   */
+  private boolean acceptKeyword(String keyword) {
+    if (peekKeyword(keyword)) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Consumes the next token if it is a symbol.
+   *
+   * @param symbol symbol
+   * @return true if the symbol was consumed
+   */
+  private boolean acceptSymbol(String symbol) {
+    if (peek().type() == TokenType.SYMBOL && peek().text().equals(symbol)) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Consumes a keyword.
+   *
+   * @param keyword lower case keyword
+   * @throws AppException if the next token is not the keyword
+   */
+  private void expectKeyword(String keyword) {
+    if (!acceptKeyword(keyword)) {
+      throw error(peek(), keyword);
+    }
+  }
+
+  /**
+   * Consumes a symbol.
+   *
+   * @param symbol symbol
+   * @throws AppException if the next token is not the symbol
+   */
+  private void expectSymbol(String symbol) {
+    if (!acceptSymbol(symbol)) {
+      throw error(peek(), symbol);
+    }
+  }
+
+  /**
+   * Consumes a token of given type.
+   *
+   * @param type        expected type
+   * @param description description of the expected token used in error message
+   * @return consumed token
+   * @throws AppException if the next token is of a different type
+   */
+  private Token expect(TokenType type, String description) {
+    if (peek().type() != type) {
+      throw error(peek(), description);
+    }
+    return next();
+  }
+
+  /**
+   * Creates exception of an unexpected token.
+   *
+   * @param token    unexpected token
+   * @param expected description of the expected token
+   * @return created exception
+   */
+  private AppException error(Token token, String expected) {
+    var found = token.type() == TokenType.END ? "end of query" : "'" + token.text() + "'";
+    return new AppException("Invalid query at position " + (token.position() + 1) + ": expected " + expected
+        + " but found " + found);
+  }
+
+  /**
+   * Splits query text into tokens.
+   *
+   * @param text text of the query
+   * @return tokens followed by an end token
+   * @throws AppException if the text contains invalid characters or an unterminated string
+   */
+  private static List<Token> tokenize(String text) {
+    var tokens = new ArrayList<Token>();
+    var i = 0;
+    while (i < text.length()) {
+      var c = text.charAt(i);
+      var start = i;
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (Character.isLetter(c) || c == '_') {
+        while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_')) {
+          i++;
+        }
+        tokens.add(new Token(TokenType.IDENTIFIER, text.substring(start, i), start));
+      } else if (Character.isDigit(c) || c == '-' && i + 1 < text.length() && Character.isDigit(text.charAt(i + 1))) {
+        i++;
+        while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_'
+            || text.charAt(i) == '.')) {
+          i++;
+        }
+        tokens.add(new Token(TokenType.NUMBER, text.substring(start, i), start));
+      } else if (c == '\'' || c == '"') {
+        var end = text.indexOf(c, i + 1);
+        if (end < 0) {
+          throw new AppException("Invalid query at position " + (start + 1) + ": unterminated string");
+        }
+        tokens.add(new Token(TokenType.STRING, text.substring(i + 1, end), start));
+        i = end + 1;
+      } else if (c == '<' || c == '>' || c == '=' || c == '!') {
+        i++;
+        if (i < text.length() && (text.charAt(i) == '=' || c == '<' && text.charAt(i) == '>')) {
+          i++;
+        }
+        var operator = text.substring(start, i);
+        if (operator.equals("!")) {
+          throw new AppException("Invalid query at position " + (start + 1) + ": expected !=");
+        }
+        tokens.add(new Token(TokenType.OPERATOR, operator, start));
+      } else if (c == '(' || c == ')' || c == ',' || c == '*') {
+        i++;
+        tokens.add(new Token(TokenType.SYMBOL, String.valueOf(c), start));
+      } else {
+        throw new AppException("Invalid query at position " + (start + 1) + ": unexpected character '" + c + "'");
+      }
+    }
+    tokens.add(new Token(TokenType.END, "", text.length()));
+    return tokens;
+  }
+
+  /**
+   * Creates names of metrics used in queries: camel case and underscore names, short forms and per 1M forms.
+   *
+   * @return metrics by lower case names
+   */
+  private static Map<String, CovidMetric> metricsByName() {
+    var metrics = new HashMap<String, CovidMetric>();
+    for (var metric : CovidMetric.values()) {
+      var name = metric.name().toLowerCase(Locale.ROOT);
+      metrics.put(name, metric);
+      metrics.put(name.replace("_", ""), metric);
+      if (name.endsWith("_per_million")) {
+        metrics.put(name.replace("_per_million", "per1m"), metric);
+        metrics.put(name.replace("_per_million", "_per_1m"), metric);
+      }
+    }
+    metrics.put("cases", CovidMetric.TOTAL_CASES);
+    metrics.put("deaths", CovidMetric.TOTAL_DEATHS);
+    metrics.put("recovered", CovidMetric.TOTAL_RECOVERED);
+    metrics.put("active", CovidMetric.ACTIVE_CASES);
+    metrics.put("critical", CovidMetric.SERIOUS_CRITICAL);
+    metrics.put("tests", CovidMetric.TOTAL_TESTS);
+    return metrics;
+  }
+
+  /**
+   * Type of a token.
+   */
+  private enum TokenType {
+
+    /**
+     * Keyword, metric or field name.
+     */
+    IDENTIFIER,
+
+    /**
+     * Integer number.
+     */
+    NUMBER,
+
+    /**
+     * Quoted text.
+     */
+    STRING,
+
+    /**
+     * Comparison operator.
+     */
+    OPERATOR,
+
+    /**
+     * Parenthesis, comma or asterisk.
+     */
+    SYMBOL,
+
+    /**
+     * End of the query.
+     */
+    END
+  }
+
+  /**
+   * Token of a query.
+   *
+   * @param type     type of the token
+   * @param text     text of the token, without quotes for strings
+   * @param position index of the first character of the token in the query
+   */
+  private record Token(TokenType type, String text, int position) {
+  }
+}
@@ -0,0 +1,278 @@
+package pl.polsl.covid19.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiled filter of a {@link Query}. Predicates work on selection vectors: arrays of indexes of rows in ascending
+ * order. A predicate scans the columns of the rows it is given and keeps the matching ones, so evaluation
+ * reads primitive arrays only and creates no objects per row.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+interface QueryPredicate {
+
+  /**
+   * Keeps rows of a selection that match the predicate. Matching rows are moved to the beginning of the array,
+   * keeping their ascending order.
+   *
+   * @param dataset filtered data
+   * @param rows    indexes of selected rows in ascending order, overwritten by matching rows
+   * @param count   number of selected rows
+   * @return number of matching rows
+   */
+  int filter(CovidDataset dataset, int[] rows, int count);
+
+  /**
+   * Comparison operator.
+   */
+  enum Operator {
+
+    /**
+     * Equal to.
+     */
+    EQUAL,
+
+    /**
+     * Not equal to.
+     */
+    NOT_EQUAL,
+
+    /**
+     * Less than.
+     */
+    LESS,
+
+    /**
+     * Less than or equal to.
+     */
+    LESS_OR_EQUAL,
+
+    /**
+     * Greater than.
+     */
+    GREATER,
+
+    /**
+     * Greater than or equal to.
+     */
+    GREATER_OR_EQUAL;
+
+    /**
+     * Compares two values.
+     *
+     * @param first  left operand
+     * @param second right operand
+     * @return true if the values are in relation given by the operator
+     */
+    boolean test(long first, long second) {
+      return switch (this) {
+        case EQUAL -> first == second;
+        case NOT_EQUAL -> first != second;
+        case LESS -> first < second;
+        case LESS_OR_EQUAL -> first <= second;
+        case GREATER -> first > second;
+        case GREATER_OR_EQUAL -> first >= second;
+      };
+    }
+  }
+
+  /**
+   * Comparison of a metric with a constant. Each operator has its own loop, so the comparison inside the loop
+   * is a single primitive instruction and matching rows are kept without branching.
+   *
+   * @param metric   compared metric
+   * @param operator comparison operator
+   * @param constant compared constant
+   */
+  record ConstantComparison(CovidMetric metric, Operator operator, long constant) implements QueryPredicate {
+
+    @Override
+    public int filter(CovidDataset dataset, int[] rows, int count) {
+      var values = dataset.column(metric);
+      var kept = 0;
+      switch (operator) {
+        case EQUAL -> {
+          for (var i = 0; i < count; i++) {
+            var row = rows[i];
+            rows[kept] = row;
+            kept += values.get(row) == constant ? 1 : 0;
+          }
+        }
+        case NOT_EQUAL -> {
+          for (var i = 0; i < count; i++) {
+            var row = rows[i];
+            rows[kept] = row;
+            kept += values.get(row) != constant ? 1 : 0;
+          }
+        }
+        case LESS -> {
+          for (var i = 0; i < count; i++) {
+            var row = rows[i];
+            rows[kept] = row;
+            kept += values.get(row) < constant ? 1 : 0;
+          }
+        }
+        case LESS_OR_EQUAL -> {
+          for (var i = 0; i < count; i++) {
+            var row = rows[i];
+            rows[kept] = row;
+            kept += values.get(row) <= constant ? 1 : 0;
+          }
+        }
+        case GREATER -> {
+          for (var i = 0; i < count; i++) {
+            var row = rows[i];
+            rows[kept] = row;
+            kept += values.get(row) > constant ? 1 : 0;
+          }
+        }
+        case GREATER_OR_EQUAL -> {
+          for (var i = 0; i < count; i++) {
+            var row = rows[i];
+            rows[kept] = row;
+            kept += values.get(row) >= constant ? 1 : 0;
+          }
+        }
+        default -> throw new AppException("Unsupported operator " + operator);
+      }
+      return kept;
+    }
+  }
+
+  /**
+   * Comparison of two metrics of the same row.
+   *
+   * @param first    left metric
+   * @param operator comparison operator
+   * @param second   right metric
+   */
+  record ColumnComparison(CovidMetric first, Operator operator, CovidMetric second) implements QueryPredicate {
+
+    @Override
+    public int filter(CovidDataset dataset, int[] rows, int count) {
+      var firstValues = dataset.column(first);
+      var secondValues = dataset.column(second);
+      var kept = 0;
+      for (var i = 0; i < count; i++) {
+        var row = rows[i];
+        rows[kept] = row;
+        kept += operator.test(firstValues.get(row), secondValues.get(row)) ? 1 : 0;
+      }
+      return kept;
+    }
+  }
+
+  /**
+   * Comparison of country name with a constant, ignoring case and diacritics. The name is resolved to country
+   * codes once per evaluation, so rows are compared by their codes.
+   *
+   * @param country  normalized compared name
+   * @param negated  true to keep rows of other countries
+   */
+  record CountryComparison(String country, boolean negated) implements QueryPredicate {
+
+    @Override
+    public int filter(CovidDataset dataset, int[] rows, int count) {
+      var matchingCodes = new boolean[dataset.countryCount()];
+      for (var code = 0; code < matchingCodes.length; code++) {
+        matchingCodes[code] = CountryIndex.normalize(dataset.countryName(code)).equals(country) != negated;
+      }
+      var kept = 0;
+      for (var i = 0; i < count; i++) {
+        var row = rows[i];
+        rows[kept] = row;
+        kept += matchingCodes[dataset.countryCode(row)] ? 1 : 0;
+      }
+      return kept;
+    }
+  }
+
+  /**
+   * Conjunction of predicates. Each operand only scans rows kept by the previous ones.
+   *
+   * @param operands conjoined predicates
+   */
+  record And(List<QueryPredicate> operands) implements QueryPredicate {
+
+    @Override
+    public int filter(CovidDataset dataset, int[] rows, int count) {
+      var kept = count;
+      for (var operand : operands) {
+        if (kept == 0) {
+          break;
+        }
+        kept = operand.filter(dataset, rows, kept);
+      }
+      return kept;
+    }
+  }
+
+  /**
+   * Disjunction of predicates. Each operand scans the whole selection and the results are merged.
+   *
+   * @param operands disjoined predicates
+   */
+  record Or(List<QueryPredicate> operands) implements QueryPredicate {
+
+    @Override
+    public int filter(CovidDataset dataset, int[] rows, int count) {
+      var union = new int[count];
+      var unionCount = 0;
+      var matching = new int[count];
+      var merged = new int[count];
+      for (var operand : operands) {
+        System.arraycopy(rows, 0, matching, 0, count);
+        var matchingCount = operand.filter(dataset, matching, count);
+        var mergedCount = 0;
+        var i = 0;
+        var j = 0;
+        while (i < unionCount && j < matchingCount) {
+          var first = union[i];
+          var second = matching[j];
+          merged[mergedCount++] = Math.min(first, second);
+          i += first <= second ? 1 : 0;
+          j += second <= first ? 1 : 0;
+        }
+        while (i < unionCount) {
+          merged[mergedCount++] = union[i++];
+        }
+        while (j < matchingCount) {
+          merged[mergedCount++] = matching[j++];
+        }
+        var swap = union;
+        union = merged;
+        merged = swap;
+        unionCount = mergedCount;
+      }
+      System.arraycopy(union, 0, rows, 0, unionCount);
+      return unionCount;
+    }
+  }
+
+  /**
+   * Negation of a predicate.
+   *
+   * @param operand negated predicate
+   */
+  record Not(QueryPredicate operand) implements QueryPredicate {
+
+    @Override
+    public int filter(CovidDataset dataset, int[] rows, int count) {
+      var matching = Arrays.copyOf(rows, count);
+      var matchingCount = operand.filter(dataset, matching, count);
+      var kept = 0;
+      var j = 0;
+      for (var i = 0; i < count; i++) {
+        var row = rows[i];
+        if (j < matchingCount && matching[j] == row) {
+          j++;
+        } else {
+          rows[kept++] = row;
+        }
+      }
+      return kept;
+    }
+  }
+}
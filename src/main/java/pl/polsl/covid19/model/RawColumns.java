@@ -0,0 +1,121 @@
+package pl.polsl.covid19.model;
+
+import java.util.List;
+
+/**
+ * Undecoded numeric columns of a {@link CovidDataset}: raw csv bytes of the rows with byte offset of each row.
+ * A column is decoded by {@link CsvRowParser#parseValue} only when it is first used, so reading a file
+ * does not pay for columns that are never queried. Malformed cells are decoded as 0 and reported
+ * to {@link AppMetrics} when their column is decoded.
+ *
+ * <p>Rows are kept in segments of up to 2 GB, one per parsed chunk of the file. Instances are immutable.
+ *
+ * @author Krzysztof Franków
+ * @version 1.2
+ */
+class RawColumns {
+
+  /**
+   * Raw csv bytes of each segment.
+   */
+  private final byte[][] segments;
+
+  /**
+   * Index of the first row of each segment, one more element than segments.
+   */
+  private final int[] segmentRows;
+
+  /**
+   * Offset of each row in its segment.
+   */
+  private final int[] rowOffsets;
+
+  /**
+   * RawColumns constructor.
+   *
+   * @param segments    raw csv bytes of each segment
+   * @param segmentRows index of the first row of each segment, one more element than segments
+   * @param rowOffsets  offset of each row in its segment
+   */
+  private RawColumns(byte[][] segments, int[] segmentRows, int[] rowOffsets) {
+    this.segments = segments;
+    this.segmentRows = segmentRows;
+    this.rowOffsets = rowOffsets;
+  }
+
+  /**
+   * Creates columns of rows of a single segment. The arrays are used directly and must not be modified afterwards.
+   *
+   * @param data       raw csv bytes
+   * @param rowOffsets offset of each row in the bytes
+   * @return created columns
+   */
+  static RawColumns of(byte[] data, int[] rowOffsets) {
+    return new RawColumns(new byte[][] {data}, new int[] {0, rowOffsets.length}, rowOffsets);
+  }
+
+  /**
+   * Joins columns of consecutive rows. Segments are shared, not copied.
+   *
+   * @param parts columns in row order
+   * @return joined columns
+   */
+  static RawColumns concat(List<RawColumns> parts) {
+    var segmentCount = 0;
+    var size = 0;
+    for (var part : parts) {
+      segmentCount += part.segments.length;
+      size += part.size();
+    }
+    var segments = new byte[segmentCount][];
+    var segmentRows = new int[segmentCount + 1];
+    var rowOffsets = new int[size];
+    var segment = 0;
+    var row = 0;
+    for (var part : parts) {
+      for (var i = 0; i < part.segments.length; i++) {
+        segments[segment] = part.segments[i];
+        segmentRows[segment] = row + part.segmentRows[i];
+        segment++;
+      }
+      System.arraycopy(part.rowOffsets, 0, rowOffsets, row, part.size());
+      row += part.size();
+    }
+    segmentRows[segmentCount] = size;
+    return new RawColumns(segments, segmentRows, rowOffsets);
+  }
+
+  /**
+   * Gets number of rows.
+   *
+   * @return number of rows
+   */
+  int size() {
+    return rowOffsets.length;
+  }
+
+  /**
+   * Decodes values of a csv column of all rows.
+   *
+   * @param csvColumn index of the csv column
+   * @param storage   storage of the decoded column
+   * @return values of the column indexed by row
+   */
+  LongColumn decode(int csvColumn, ColumnStorage storage) {
+    var values = storage.allocate(rowOffsets.length);
+    var malformedValueCount = 0L;
+    for (var segment = 0; segment < segments.length; segment++) {
+      var data = segments[segment];
+      for (var row = segmentRows[segment]; row < segmentRows[segment + 1]; row++) {
+        var value = CsvRowParser.parseValue(data, rowOffsets[row], csvColumn);
+        if (value == CsvRowParser.MALFORMED_VALUE) {
+          value = 0L;
+          malformedValueCount++;
+        }
+        values.set(row, value);
+      }
+    }
+    AppMetrics.getInstance().recordMalformedValues(malformedValueCount);
+    return values;
+  }
+}
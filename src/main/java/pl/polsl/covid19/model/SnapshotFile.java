@@ -0,0 +1,426 @@
+package pl.polsl.covid19.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary columnar snapshot of a {@link CovidDataset}, so the data can be loaded without parsing the csv file.
+ * All values are little-endian. The file starts with a header of {@value #HEADER_SIZE} bytes:
+ * <pre>
+ * int  magic              "C19S"
+ * int  format version     {@value #FORMAT_VERSION}
+ * long source checksum    checksum of the csv file the snapshot was created from
+ * long source modified    modification time of the csv file in milliseconds
+ * long source size        size of the csv file in bytes
+ * int  row count
+ * int  metric count
+ * int  country count
+ * int  dictionary size    size of the country dictionary in bytes
+ * long payload checksum   CRC32C of all bytes following the header
+ * </pre>
+ * The header is followed by one column of {@code long} values per metric in {@link CovidMetric} order,
+ * the {@code int} country code of each row and the country dictionary, where each name is stored
+ * as its {@code int} length followed by UTF-8 bytes.
+ *
+ * <p>Snapshots are read through memory mapping. With {@link ColumnStorage#OFF_HEAP} storage the metric columns
+ * stay mapped and are used by the dataset directly, so they are not copied to the heap and processes reading
+ * the same snapshot share its pages. Columns larger than 2 GB are always copied to the heap. A snapshot is used
+ * only if it has the current format version and metric count, its payload checksum is valid and it was created
+ * from a csv file of the same stamp, otherwise the caller falls back to the csv file.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class SnapshotFile {
+
+  /**
+   * Magic number identifying snapshot files.
+   */
+  static final int MAGIC = 0x53393143;
+
+  /**
+   * Version of the snapshot format, incremented on every incompatible change.
+   */
+  static final int FORMAT_VERSION = 2;
+
+  /**
+   * Size of the header in bytes, keeps the columns aligned to 8 bytes.
+   */
+  static final int HEADER_SIZE = 64;
+
+  /**
+   * Offset of the payload checksum in the header.
+   */
+  private static final int PAYLOAD_CHECKSUM_OFFSET = 48;
+
+  /**
+   * Maximal size of a single mapping or write buffer in bytes.
+   */
+  private static final int MAX_REGION_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * Size of the buffer used to write the snapshot.
+   */
+  private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+  /**
+   * Path of the snapshot file.
+   */
+  private final Path path;
+
+  /**
+   * Storage of columns of read datasets.
+   */
+  private final ColumnStorage storage;
+
+  /**
+   * SnapshotFile constructor using storage selected by system property.
+   *
+   * @param path path of the snapshot file
+   */
+  SnapshotFile(Path path) {
+    this(path, ColumnStorage.getDefault());
+  }
+
+  /**
+   * SnapshotFile constructor.
+   *
+   * @param path    path of the snapshot file
+   * @param storage storage of columns of read datasets
+   */
+  SnapshotFile(Path path, ColumnStorage storage) {
+    this.path = path;
+    this.storage = storage;
+  }
+
+  /**
+   * Gets path of the snapshot file.
+   *
+   * @return path of the snapshot file
+   */
+  Path getPath() {
+    return path;
+  }
+
+  /**
+   * Reads the snapshot if it was created from a csv file of given stamp.
+   *
+   * @param sourceStamp current stamp of the csv file
+   * @return read records with checksum of the csv file or null if the snapshot is missing, stale or corrupted
+   */
+  CsvFileReader.Result read(DataFile.Stamp sourceStamp) {
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_SIZE) {
+        return null;
+      }
+      var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      var rowCount = header.getInt(32);
+      var metricCount = header.getInt(36);
+      var countryCount = header.getInt(40);
+      var dictionarySize = header.getInt(44);
+      if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION
+          || header.getLong(16) != sourceStamp.lastModified() || header.getLong(24) != sourceStamp.size()
+          || metricCount != CovidMetric.values().length || rowCount < 0 || countryCount < 0 || dictionarySize < 0
+          || channel.size() != payloadOffset(rowCount, metricCount) + dictionarySize) {
+        return null;
+      }
+      var crc = new CRC32C();
+      var position = (long) HEADER_SIZE;
+      var columns = new LongColumn[metricCount];
+      var columnSize = (long) rowCount * Long.BYTES;
+      for (var metric = 0; metric < metricCount; metric++) {
+        if (storage == ColumnStorage.OFF_HEAP && columnSize <= Integer.MAX_VALUE) {
+          var region = channel.map(FileChannel.MapMode.READ_ONLY, position, columnSize);
+          crc.update(region.duplicate());
+          columns[metric] = LongColumn.wrap(region);
+          position += columnSize;
+        } else {
+          var values = new long[rowCount];
+          position = readLongs(channel, position, values, crc);
+          columns[metric] = LongColumn.of(values);
+        }
+      }
+      var countryCodes = new int[rowCount];
+      position = readInts(channel, position, countryCodes, crc);
+      var dictionary = channel.map(FileChannel.MapMode.READ_ONLY, position, dictionarySize)
+          .order(ByteOrder.LITTLE_ENDIAN);
+      crc.update(dictionary.duplicate());
+      if (crc.getValue() != header.getLong(PAYLOAD_CHECKSUM_OFFSET)) {
+        return null;
+      }
+      var countryDictionary = readDictionary(dictionary, countryCount);
+      if (countryDictionary == null) {
+        return null;
+      }
+      for (var code : countryCodes) {
+        if (code < 0 || code >= countryCount) {
+          return null;
+        }
+      }
+      return new CsvFileReader.Result(CovidDataset.fromColumns(countryDictionary, countryCodes, columns),
+          header.getLong(8));
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      throw new AppException("Unable to read snapshot file " + path, e);
+    }
+  }
+
+  /**
+   * Writes snapshot of given data. The snapshot is written to a temporary file first, which then replaces
+   * the previous snapshot, so readers never see a partially written snapshot.
+   *
+   * @param dataset        data to write
+   * @param sourceChecksum checksum of the csv file the data was read from
+   * @param sourceStamp    stamp of the csv file the data was read from
+   */
+  void write(CovidDataset dataset, long sourceChecksum, DataFile.Stamp sourceStamp) {
+    var dictionary = encodeDictionary(dataset);
+    Path temporaryFile = null;
+    try {
+      var directory = path.toAbsolutePath().getParent();
+      temporaryFile = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+      try (var channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+        var crc = new CRC32C();
+        var buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        channel.position(HEADER_SIZE);
+        for (var metric : CovidMetric.values()) {
+          writeLongs(channel, buffer, dataset.column(metric), dataset.size(), crc);
+        }
+        var countryCodes = new int[dataset.size()];
+        for (var row = 0; row < countryCodes.length; row++) {
+          countryCodes[row] = dataset.countryCode(row);
+        }
+        writeInts(channel, buffer, countryCodes, crc);
+        flush(channel, buffer, crc);
+        var dictionaryBuffer = ByteBuffer.wrap(dictionary);
+        crc.update(dictionaryBuffer.duplicate());
+        while (dictionaryBuffer.hasRemaining()) {
+          channel.write(dictionaryBuffer);
+        }
+        var header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(MAGIC)
+            .putInt(FORMAT_VERSION)
+            .putLong(sourceChecksum)
+            .putLong(sourceStamp.lastModified())
+            .putLong(sourceStamp.size())
+            .putInt(dataset.size())
+            .putInt(CovidMetric.values().length)
+            .putInt(dataset.countryCount())
+            .putInt(dictionary.length)
+            .putLong(crc.getValue())
+            .clear();
+        while (header.hasRemaining()) {
+          channel.write(header, header.position());
+        }
+      }
+      moveReplacing(temporaryFile, path);
+    } catch (IOException e) {
+      throw new AppException("Unable to write snapshot file " + path, e);
+    } finally {
+      if (temporaryFile != null) {
+        try {
+          Files.deleteIfExists(temporaryFile);
+        } catch (IOException e) {
+          // the temporary file is left behind, it does not affect the snapshot
+        }
+      }
+    }
+  }
+
+  /**
+   * Calculates offset of the country dictionary.
+   *
+   * @param rowCount    number of rows
+   * @param metricCount number of metrics
+   * @return offset of the country dictionary in bytes
+   */
+  private static long payloadOffset(int rowCount, int metricCount) {
+    return HEADER_SIZE + (long) rowCount * metricCount * Long.BYTES + (long) rowCount * Integer.BYTES;
+  }
+
+  /**
+   * Reads a column of {@code long} values through memory mapping.
+   *
+   * @param channel  channel of the snapshot file
+   * @param position offset of the column
+   * @param values   array receiving the values
+   * @param crc      checksum updated with read bytes
+   * @return offset after the column
+   * @throws IOException if the file cannot be read
+   */
+  private static long readLongs(FileChannel channel, long position, long[] values, CRC32C crc) throws IOException {
+    var valuesPerRegion = MAX_REGION_SIZE / Long.BYTES;
+    for (var from = 0; from < values.length; from += valuesPerRegion) {
+      var count = Math.min(valuesPerRegion, values.length - from);
+      var region = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Long.BYTES);
+      crc.update(region.duplicate());
+      region.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(values, from, count);
+      position += (long) count * Long.BYTES;
+    }
+    return position;
+  }
+
+  /**
+   * Reads a column of {@code int} values through memory mapping.
+   *
+   * @param channel  channel of the snapshot file
+   * @param position offset of the column
+   * @param values   array receiving the values
+   * @param crc      checksum updated with read bytes
+   * @return offset after the column
+   * @throws IOException if the file cannot be read
+   */
+  private static long readInts(FileChannel channel, long position, int[] values, CRC32C crc) throws IOException {
+    var valuesPerRegion = MAX_REGION_SIZE / Integer.BYTES;
+    for (var from = 0; from < values.length; from += valuesPerRegion) {
+      var count = Math.min(valuesPerRegion, values.length - from);
+      var region = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Integer.BYTES);
+      crc.update(region.duplicate());
+      region.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, from, count);
+      position += (long) count * Integer.BYTES;
+    }
+    return position;
+  }
+
+  /**
+   * Decodes the country dictionary.
+   *
+   * @param buffer       buffer of the dictionary
+   * @param countryCount number of countries
+   * @return country names indexed by country code or null if the dictionary is malformed
+   */
+  private static String[] readDictionary(ByteBuffer buffer, int countryCount) {
+    var dictionary = new String[countryCount];
+    var bytes = new byte[64];
+    for (var code = 0; code < countryCount; code++) {
+      if (buffer.remaining() < Integer.BYTES) {
+        return null;
+      }
+      var length = buffer.getInt();
+      if (length < 0 || length > buffer.remaining()) {
+        return null;
+      }
+      if (bytes.length < length) {
+        bytes = new byte[Math.max(length, bytes.length * 2)];
+      }
+      buffer.get(bytes, 0, length);
+      dictionary[code] = new String(bytes, 0, length, UTF_8);
+    }
+    return buffer.hasRemaining() ? null : dictionary;
+  }
+
+  /**
+   * Encodes the country dictionary of a dataset.
+   *
+   * @param dataset dataset to encode
+   * @return encoded dictionary
+   */
+  private static byte[] encodeDictionary(CovidDataset dataset) {
+    var names = new byte[dataset.countryCount()][];
+    var size = 0L;
+    for (var code = 0; code < names.length; code++) {
+      names[code] = dataset.countryName(code).getBytes(UTF_8);
+      size += Integer.BYTES + names[code].length;
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new AppException("Country dictionary is too large for a snapshot");
+    }
+    var buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+    for (var name : names) {
+      buffer.putInt(name.length).put(name);
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Writes {@code long} values through the buffer.
+   *
+   * @param channel channel of the snapshot file
+   * @param buffer  write buffer
+   * @param values  values to write
+   * @param count   number of values to write
+   * @param crc     checksum updated with written bytes
+   * @throws IOException if the file cannot be written
+   */
+  private static void writeLongs(FileChannel channel, ByteBuffer buffer, LongColumn values, int count, CRC32C crc)
+      throws IOException {
+    var chunk = new long[buffer.capacity() / Long.BYTES];
+    var from = 0;
+    while (from < count) {
+      if (buffer.remaining() < Long.BYTES) {
+        flush(channel, buffer, crc);
+      }
+      var length = Math.min(buffer.remaining() / Long.BYTES, count - from);
+      values.copyTo(from, chunk, 0, length);
+      buffer.asLongBuffer().put(chunk, 0, length);
+      buffer.position(buffer.position() + length * Long.BYTES);
+      from += length;
+    }
+  }
+
+  /**
+   * Writes {@code int} values through the buffer.
+   *
+   * @param channel channel of the snapshot file
+   * @param buffer  write buffer
+   * @param values  values to write
+   * @param crc     checksum updated with written bytes
+   * @throws IOException if the file cannot be written
+   */
+  private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values, CRC32C crc)
+      throws IOException {
+    var from = 0;
+    while (from < values.length) {
+      if (buffer.remaining() < Integer.BYTES) {
+        flush(channel, buffer, crc);
+      }
+      var length = Math.min(buffer.remaining() / Integer.BYTES, values.length - from);
+      buffer.asIntBuffer().put(values, from, length);
+      buffer.position(buffer.position() + length * Integer.BYTES);
+      from += length;
+    }
+  }
+
+  /**
+   * Writes content of the buffer to the channel and clears the buffer.
+   *
+   * @param channel channel of the snapshot file
+   * @param buffer  buffer to write
+   * @param crc     checksum updated with written bytes
+   * @throws IOException if the file cannot be written
+   */
+  private static void flush(FileChannel channel, ByteBuffer buffer, CRC32C crc) throws IOException {
+    buffer.flip();
+    crc.update(buffer.duplicate());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Moves a file replacing the target, atomically if the filesystem supports it.
+   *
+   * @param source file to move
+   * @param target target path
+   * @throws IOException if the file cannot be moved
+   */
+  private static void moveReplacing(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
@@ -0,0 +1,444 @@
+package pl.polsl.covid19.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic covid data in the format of the CovidLive.csv file: the {@code #} header row followed by rows
+ * of 13 columns, numbers of at least 1000 quoted with thousands separators and the new deaths column left empty.
+ * Output is deterministic for given seed and parameters and is streamed through a fixed size buffer,
+ * so files of any size can be generated in bounded memory.
+ *
+ * <p>Countries are drawn from a Zipf distribution, skew 0 gives uniform frequencies and larger skew makes the most
+ * frequent countries dominate. Each numeric cell is replaced by a dirty value (empty cell, {@code N/A},
+ * trailing garbage or a number overflowing {@code long}) with given probability. Dirty values are read as 0
+ * by {@link CsvFileReader}. Files are generated from the command line by the {@code generate} task of the batch mode.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+public class SyntheticCsvGenerator {
+
+  /**
+   * Header row of the covid csv file.
+   */
+  static final String HEADER = "#,\"Country, Other\",\"Total Cases\",\"Total Deaths\",\"New Deaths\","
+      + "\"Total Recovered\",\"Active Cases\",\"Serious, Critical\",\"Tot Cases/ 1M pop\",\"Deaths/1M pop\","
+      + "\"Total Tests\",\"Tests/ 1M pop\",Population";
+
+  /**
+   * Default number of distinct countries.
+   */
+  public static final int DEFAULT_COUNTRY_COUNT = 10_000;
+
+  /**
+   * Default Zipf exponent of country frequencies.
+   */
+  public static final double DEFAULT_SKEW = 1.0;
+
+  /**
+   * Size of the output buffer.
+   */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Upper bound of the length of a single row without the country name.
+   */
+  private static final int MAX_ROW_LENGTH = 512;
+
+  /**
+   * Smallest generated population.
+   */
+  private static final long MIN_POPULATION = 800;
+
+  /**
+   * Largest generated population.
+   */
+  private static final long MAX_POPULATION = 1_500_000_000L;
+
+  /**
+   * Syllables of generated country names.
+   */
+  private static final String[] SYLLABLES = {
+      "ba", "ca", "ço", "da", "el", "fi", "ga", "ha", "in", "ja", "ka", "la", "ma", "né", "no", "or",
+      "pa", "qu", "ré", "sa", "ta", "un", "va", "wa", "xi", "ya", "za", "ür", "an", "es", "ia", "on"
+  };
+
+  /**
+   * Dirty values written instead of numbers.
+   */
+  private static final byte[][] DIRTY_VALUES = {
+      new byte[0],
+      "N/A".getBytes(UTF_8),
+      "12a".getBytes(UTF_8),
+      "\"99,999,999,999,999,999,999\"".getBytes(UTF_8)
+  };
+
+  /**
+   * Seed of random values.
+   */
+  private final long seed;
+
+  /**
+   * Probability of replacing a numeric cell with a dirty value.
+   */
+  private final double dirtyRate;
+
+  /**
+   * Encoded names of countries, quoted if necessary.
+   */
+  private final byte[][] countryNames;
+
+  /**
+   * Populations of countries.
+   */
+  private final long[] populations;
+
+  /**
+   * Cumulative probabilities of drawing countries.
+   */
+  private final double[] countryDistribution;
+
+  /**
+   * SyntheticCsvGenerator constructor using default number of countries, default skew and no dirty values.
+   *
+   * @param seed seed of random values
+   */
+  public SyntheticCsvGenerator(long seed) {
+    this(seed, DEFAULT_COUNTRY_COUNT, DEFAULT_SKEW, 0.0);
+  }
+
+  /**
+   * SyntheticCsvGenerator constructor.
+   *
+   * @param seed         seed of random values
+   * @param countryCount number of distinct countries
+   * @param skew         non-negative Zipf exponent of country frequencies
+   * @param dirtyRate    probability of replacing a numeric cell with a dirty value, between 0 and 1
+   */
+  public SyntheticCsvGenerator(long seed, int countryCount, double skew, double dirtyRate) {
+    if (countryCount < 1) {
+      throw new AppException("Number of countries must be positive");
+    }
+    if (!(skew >= 0.0)) {
+      throw new AppException("Skew must not be negative");
+    }
+    if (!(dirtyRate >= 0.0 && dirtyRate <= 1.0)) {
+      throw new AppException("Dirty value rate must be between 0 and 1");
+    }
+    this.seed = seed;
+    this.dirtyRate = dirtyRate;
+    var random = new SplittableRandom(seed);
+    var syllables = shuffledSyllables(random);
+    countryNames = new byte[countryCount][];
+    populations = new long[countryCount];
+    countryDistribution = new double[countryCount];
+    var logRange = Math.log((double) MAX_POPULATION / MIN_POPULATION);
+    var total = 0.0;
+    for (var country = 0; country < countryCount; country++) {
+      countryNames[country] = encodeCountryName(countryName(country, syllables));
+      populations[country] = Math.round(MIN_POPULATION * Math.exp(random.nextDouble() * logRange));
+      total += 1.0 / Math.pow(country + 1, skew);
+      countryDistribution[country] = total;
+    }
+    for (var country = 0; country < countryCount; country++) {
+      countryDistribution[country] /= total;
+    }
+  }
+
+  /**
+   * Writes a file with header and given number of rows.
+   *
+   * @param path path of the file
+   * @param rows number of rows
+   * @return number of written bytes
+   * @throws IOException if the file cannot be written
+   */
+  public long writeRows(Path path, long rows) throws IOException {
+    try (var outputStream = Files.newOutputStream(path)) {
+      return writeRows(outputStream, rows);
+    }
+  }
+
+  /**
+   * Writes header and given number of rows to the stream. The stream is not closed.
+   *
+   * @param outputStream stream receiving csv data
+   * @param rows         number of rows
+   * @return number of written bytes
+   * @throws IOException if the data cannot be written
+   */
+  public long writeRows(OutputStream outputStream, long rows) throws IOException {
+    if (rows < 0) {
+      throw new AppException("Number of rows must not be negative");
+    }
+    return new RowWriter(outputStream).write(rows, Long.MAX_VALUE).bytes;
+  }
+
+  /**
+   * Writes a file with header and rows of at least given number of bytes.
+   *
+   * @param path path of the file
+   * @param size minimal number of bytes to write
+   * @return number of written rows
+   * @throws IOException if the file cannot be written
+   */
+  public long writeBytes(Path path, long size) throws IOException {
+    try (var outputStream = Files.newOutputStream(path)) {
+      return writeBytes(outputStream, size);
+    }
+  }
+
+  /**
+   * Writes header and rows to the stream until at least given number of bytes is written.
+   * The last row is always complete. The stream is not closed.
+   *
+   * @param outputStream stream receiving csv data
+   * @param size         minimal number of bytes to write
+   * @return number of written rows
+   * @throws IOException if the data cannot be written
+   */
+  public long writeBytes(OutputStream outputStream, long size) throws IOException {
+    if (size < 0) {
+      throw new AppException("Size must not be negative");
+    }
+    return new RowWriter(outputStream).write(Long.MAX_VALUE, size).rows;
+  }
+
+  /**
+   * Shuffles syllables of country names with given random generator.
+   *
+   * @param random random generator
+   * @return shuffled syllables
+   */
+  private static String[] shuffledSyllables(SplittableRandom random) {
+    var syllables = Arrays.copyOf(SYLLABLES, SYLLABLES.length);
+    for (var i = syllables.length - 1; i > 0; i--) {
+      var j = random.nextInt(i + 1);
+      var syllable = syllables[i];
+      syllables[i] = syllables[j];
+      syllables[j] = syllable;
+    }
+    return syllables;
+  }
+
+  /**
+   * Creates unique name of a country by writing its index in bijective numeration of syllables.
+   * Every seventh country gets a suffix separated by comma, so its name has to be quoted.
+   *
+   * @param country   index of the country
+   * @param syllables syllables of names
+   * @return name of the country
+   */
+  private static String countryName(int country, String[] syllables) {
+    var name = new StringBuilder();
+    var number = country + 1L;
+    while (number > 0) {
+      number--;
+      name.insert(0, syllables[(int) (number % syllables.length)]);
+      number /= syllables.length;
+    }
+    name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+    if (country % 7 == 6) {
+      name.append(", Other");
+    }
+    return name.toString();
+  }
+
+  /**
+   * Encodes country name as csv cell.
+   *
+   * @param name name of the country
+   * @return encoded cell
+   */
+  private static byte[] encodeCountryName(String name) {
+    return (name.indexOf(',') < 0 ? name : '"' + name + '"').getBytes(UTF_8);
+  }
+
+  /**
+   * Calculates value per one million of population.
+   *
+   * @param value      value to divide
+   * @param population population of the country
+   * @return value per one million
+   */
+  private static long perMillion(long value, long population) {
+    return (long) (value * 1_000_000.0 / population);
+  }
+
+  /**
+   * Writes rows of a single generation to a stream. Random values are drawn from a generator created from the seed,
+   * so every generation produces the same data.
+   */
+  private class RowWriter {
+
+    /**
+     * Stream receiving csv data.
+     */
+    private final OutputStream outputStream;
+
+    /**
+     * Random values generator.
+     */
+    private final SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+
+    /**
+     * Buffer of encoded data.
+     */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /**
+     * Digits of the currently written number.
+     */
+    private final byte[] digits = new byte[20];
+
+    /**
+     * Number of bytes in the buffer.
+     */
+    private int position;
+
+    /**
+     * Number of written rows.
+     */
+    private long rows;
+
+    /**
+     * Number of written bytes.
+     */
+    private long bytes;
+
+    /**
+     * RowWriter constructor.
+     *
+     * @param outputStream stream receiving csv data
+     */
+    RowWriter(OutputStream outputStream) {
+      this.outputStream = outputStream;
+    }
+
+    /**
+     * Writes header and rows until any of limits is reached.
+     *
+     * @param maxRows  maximal number of rows
+     * @param minBytes number of bytes after which no more rows are written
+     * @return this writer
+     * @throws IOException if the data cannot be written
+     */
+    RowWriter write(long maxRows, long minBytes) throws IOException {
+      for (var c : HEADER.getBytes(UTF_8)) {
+        buffer[position++] = c;
+      }
+      buffer[position++] = '\n';
+      while (rows < maxRows && bytes + position < minBytes) {
+        writeRow();
+      }
+      flush();
+      return this;
+    }
+
+    /**
+     * Generates a single row.
+     *
+     * @throws IOException if the data cannot be written
+     */
+    private void writeRow() throws IOException {
+      var country = drawCountry();
+      if (position + MAX_ROW_LENGTH + countryNames[country].length > buffer.length) {
+        flush();
+      }
+      rows++;
+      var population = populations[country];
+      var cases = (long) (population * random.nextDouble() * 0.7);
+      var deaths = (long) (cases * random.nextDouble() * 0.02);
+      var active = (long) ((cases - deaths) * random.nextDouble() * 0.1);
+      var recovered = cases - deaths - active;
+      var serious = (long) (active * random.nextDouble() * 0.01);
+      var tests = (long) (cases * (1.0 + random.nextDouble() * 30.0));
+      writeNumber(rows);
+      buffer[position++] = ',';
+      for (var c : countryNames[country]) {
+        buffer[position++] = c;
+      }
+      writeCell(cases);
+      writeCell(deaths);
+      buffer[position++] = ',';
+      writeCell(recovered);
+      writeCell(active);
+      writeCell(serious);
+      writeCell(perMillion(cases, population));
+      writeCell(perMillion(deaths, population));
+      writeCell(tests);
+      writeCell(perMillion(tests, population));
+      writeCell(population);
+      buffer[position++] = '\n';
+    }
+
+    /**
+     * Draws index of a country from the Zipf distribution.
+     *
+     * @return index of the country
+     */
+    private int drawCountry() {
+      var index = Arrays.binarySearch(countryDistribution, random.nextDouble());
+      return Math.min(index < 0 ? -index - 1 : index, countryDistribution.length - 1);
+    }
+
+    /**
+     * Writes a numeric cell preceded by a separator, replacing the value with a dirty value with configured probability.
+     *
+     * @param value value of the cell
+     */
+    private void writeCell(long value) {
+      buffer[position++] = ',';
+      if (dirtyRate > 0.0 && random.nextDouble() < dirtyRate) {
+        for (var c : DIRTY_VALUES[random.nextInt(DIRTY_VALUES.length)]) {
+          buffer[position++] = c;
+        }
+      } else {
+        writeNumber(value);
+      }
+    }
+
+    /**
+     * Writes a non-negative number, numbers of at least 1000 are quoted and use thousands separators.
+     *
+     * @param value value to write
+     */
+    private void writeNumber(long value) {
+      var count = 0;
+      do {
+        digits[count++] = (byte) ('0' + value % 10);
+        value /= 10;
+      } while (value > 0);
+      var quoted = count > 3;
+      if (quoted) {
+        buffer[position++] = '"';
+      }
+      for (var i = count - 1; i >= 0; i--) {
+        buffer[position++] = digits[i];
+        if (i > 0 && i % 3 == 0) {
+          buffer[position++] = ',';
+        }
+      }
+      if (quoted) {
+        buffer[position++] = '"';
+      }
+    }
+
+    /**
+     * Writes the buffer to the stream.
+     *
+     * @throws IOException if the data cannot be written
+     */
+    private void flush() throws IOException {
+      outputStream.write(buffer, 0, position);
+      bytes += position;
+      position = 0;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package pl.polsl.covid19.model;
+
+import java.time.LocalDate;
+
+/**
+ * Immutable series of daily values of one metric of one country, ordered by date.
+ * The series is a view of a range of primitive arrays, values are not copied.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+public class TimeSeries {
+
+  /**
+   * Series without any values.
+   */
+  static final TimeSeries EMPTY = new TimeSeries(new int[0], new long[0], 0, 0);
+
+  /**
+   * Dates as epoch days.
+   */
+  private final int[] epochDays;
+
+  /**
+   * Values of the metric.
+   */
+  private final long[] values;
+
+  /**
+   * Index of the first element of the series in the arrays.
+   */
+  private final int offset;
+
+  /**
+   * Number of elements of the series.
+   */
+  private final int length;
+
+  /**
+   * TimeSeries constructor.
+   *
+   * @param epochDays dates as epoch days, the array must not be modified within the range afterwards
+   * @param values    values of the metric, the array must not be modified within the range afterwards
+   * @param offset    index of the first element of the series in the arrays
+   * @param length    number of elements of the series
+   */
+  TimeSeries(int[] epochDays, long[] values, int offset, int length) {
+    this.epochDays = epochDays;
+    this.values = values;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * Gets number of days of the series.
+   *
+   * @return number of days
+   */
+  public int size() {
+    return length;
+  }
+
+  /**
+   * Gets date of an element.
+   *
+   * @param index index of the element
+   * @return date of the element
+   */
+  public LocalDate getDate(int index) {
+    return LocalDate.ofEpochDay(getEpochDay(index));
+  }
+
+  /**
+   * Gets date of an element as number of days since 1970-01-01.
+   *
+   * @param index index of the element
+   * @return epoch day of the element
+   */
+  public int getEpochDay(int index) {
+    return epochDays[offset + checkIndex(index)];
+  }
+
+  /**
+   * Gets value of an element.
+   *
+   * @param index index of the element
+   * @return value of the element
+   */
+  public long getValue(int index) {
+    return values[offset + checkIndex(index)];
+  }
+
+  /**
+   * Calculates sum of all values of the series.
+   *
+   * @return sum of values
+   */
+  public long sum() {
+    var sum = 0L;
+    for (var i = offset; i < offset + length; i++) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Checks whether index is in range of the series.
+   *
+   * @param index index of the element
+   * @return index of the element
+   */
+  private int checkIndex(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+    }
+    return index;
+  }
+}
@@ -0,0 +1,346 @@
+package pl.polsl.covid19.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only store of daily covid data of many dated data files. Data is keyed by country and date and kept
+ * column-wise: each country has a sorted array of dates and one primitive array per {@link CovidMetric},
+ * so a range of dates is found by binary search and returned without copying.
+ *
+ * <p>Days are appended in increasing order of dates, appending a day only touches the rows of that day.
+ * A single thread may append while other threads query, queries see every day appended before they started.
+ * {@link DatasetSketches} of each appended day are merged, so approximate aggregates of the whole history
+ * are answered without scanning it.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+public class TimeSeriesStore {
+
+  /**
+   * Pattern of the date in names of daily data files, e.g. {@code CovidLive-2022-10-05.csv}.
+   */
+  static final Pattern DATE_PATTERN = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})");
+
+  /**
+   * Extension of daily data files.
+   */
+  private static final String DATA_FILE_EXTENSION = ".csv";
+
+  /**
+   * Reader used to parse daily data files.
+   */
+  private final CsvFileReader csvFileReader;
+
+  /**
+   * Series of each country.
+   */
+  private final Map<String, CountrySeries> seriesByCountry = new ConcurrentHashMap<>();
+
+  /**
+   * Epoch day of the last appended day.
+   */
+  private volatile long lastEpochDay = Long.MIN_VALUE;
+
+  /**
+   * Number of appended days.
+   */
+  private volatile int dayCount;
+
+  /**
+   * Sketches of all rows of appended days, replaced by a merged copy when a day is appended.
+   */
+  private volatile DatasetSketches sketches = new DatasetSketches();
+
+  /**
+   * TimeSeriesStore constructor.
+   */
+  public TimeSeriesStore() {
+    this(new CsvFileReader());
+  }
+
+  /**
+   * TimeSeriesStore constructor.
+   *
+   * @param csvFileReader reader used to parse daily data files
+   */
+  TimeSeriesStore(CsvFileReader csvFileReader) {
+    this.csvFileReader = csvFileReader;
+  }
+
+  /**
+   * Appends all daily data files of a directory dated after the last appended day, in order of their dates.
+   * The date is taken from the file name, files without a date are ignored. Calling the method again
+   * after new files were exported appends only the new days.
+   *
+   * @param directory directory with daily data files
+   * @return number of appended days
+   */
+  public int appendDirectory(Path directory) {
+    var filesByDate = new TreeMap<LocalDate, Path>();
+    try (var files = Files.list(directory)) {
+      files.filter(file -> file.getFileName().toString().endsWith(DATA_FILE_EXTENSION))
+          .forEach(file -> {
+            var date = parseDate(file.getFileName().toString());
+            if (date != null && date.toEpochDay() > lastEpochDay) {
+              filesByDate.putIfAbsent(date, file);
+            }
+          });
+    } catch (IOException e) {
+      throw new AppException("Unable to list directory " + directory, e);
+    }
+    filesByDate.forEach((date, file) -> appendDay(date, file.toString()));
+    return filesByDate.size();
+  }
+
+  /**
+   * Parses a daily data file and appends it as data of given day.
+   *
+   * @param date         date of the data
+   * @param dataFilename filename of the file with covid data of the day
+   */
+  public void appendDay(LocalDate date, String dataFilename) {
+    appendDay(date, csvFileReader.readCsvFile(new DataFile(dataFilename)).dataset());
+  }
+
+  /**
+   * Appends data of given day. If a country occurs more than once, its last row is stored.
+   *
+   * @param date    date of the data, must be after the last appended day
+   * @param dataset covid data of the day
+   */
+  public synchronized void appendDay(LocalDate date, CovidDataset dataset) {
+    var epochDay = date.toEpochDay();
+    if (epochDay <= lastEpochDay) {
+      throw new AppException("Day " + date + " is not after the last stored day "
+          + LocalDate.ofEpochDay(lastEpochDay));
+    }
+    var rowByCountryCode = new int[dataset.countryCount()];
+    Arrays.fill(rowByCountryCode, -1);
+    for (var row = 0; row < dataset.size(); row++) {
+      rowByCountryCode[dataset.countryCode(row)] = row;
+    }
+    for (var code = 0; code < rowByCountryCode.length; code++) {
+      if (rowByCountryCode[code] >= 0) {
+        seriesByCountry.computeIfAbsent(dataset.countryName(code), name -> new CountrySeries())
+            .append((int) epochDay, dataset, rowByCountryCode[code]);
+      }
+    }
+    var mergedSketches = sketches.copy();
+    mergedSketches.merge(dataset.getSketches());
+    sketches = mergedSketches;
+    lastEpochDay = epochDay;
+    dayCount++;
+  }
+
+  /**
+   * Gets values of a metric of a country between two dates.
+   *
+   * @param country name of the country
+   * @param metric  metric to get
+   * @param from    first date of the range, inclusive
+   * @param to      last date of the range, inclusive
+   * @return values ordered by date, empty if the country has no data in the range
+   */
+  public TimeSeries getRange(String country, CovidMetric metric, LocalDate from, LocalDate to) {
+    var series = seriesByCountry.get(country);
+    return series == null ? TimeSeries.EMPTY : series.range(metric, from.toEpochDay(), to.toEpochDay());
+  }
+
+  /**
+   * Gets day-over-day changes of a metric of a country between two dates. The change of a day is the difference
+   * from the previous day stored for the country, which may precede the range. Days without a previous day
+   * are left out.
+   *
+   * @param country name of the country
+   * @param metric  metric to get
+   * @param from    first date of the range, inclusive
+   * @param to      last date of the range, inclusive
+   * @return changes ordered by date, empty if the country has no data in the range
+   */
+  public TimeSeries getDailyDeltas(String country, CovidMetric metric, LocalDate from, LocalDate to) {
+    var series = seriesByCountry.get(country);
+    return series == null ? TimeSeries.EMPTY : series.deltas(metric, from.toEpochDay(), to.toEpochDay());
+  }
+
+  /**
+   * Gets date of the last appended day.
+   *
+   * @return date of the last day or null if no day was appended
+   */
+  public LocalDate getLastDate() {
+    var epochDay = lastEpochDay;
+    return epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+  }
+
+  /**
+   * Gets number of appended days.
+   *
+   * @return number of days
+   */
+  public int getDayCount() {
+    return dayCount;
+  }
+
+  /**
+   * Gets sketches of approximate aggregates of all rows of appended days.
+   *
+   * @return sketches of all days
+   */
+  public DatasetSketches getSketches() {
+    return sketches;
+  }
+
+  /**
+   * Gets number of countries with data of at least one day.
+   *
+   * @return number of countries
+   */
+  public int getCountryCount() {
+    return seriesByCountry.size();
+  }
+
+  /**
+   * Finds date in the name of a daily data file.
+   *
+   * @param filename name of the file
+   * @return date of the file or null if the name does not contain a valid date
+   */
+  static LocalDate parseDate(String filename) {
+    var matcher = DATE_PATTERN.matcher(filename);
+    if (!matcher.find()) {
+      return null;
+    }
+    try {
+      return LocalDate.parse(matcher.group(1));
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Daily values of a single country. Arrays are only appended to and are replaced by larger copies when full,
+   * so readers can keep using arrays they have seen up to the size they have seen.
+   */
+  private static class CountrySeries {
+
+    /**
+     * Initial number of days the arrays can hold.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Current arrays of the series.
+     */
+    private volatile Columns columns = new Columns(new int[INITIAL_CAPACITY],
+        new long[CovidMetric.values().length][INITIAL_CAPACITY]);
+
+    /**
+     * Number of stored days, written after the values of the day.
+     */
+    private volatile int size;
+
+    /**
+     * Appends values of a day. Called only by the appending thread.
+     *
+     * @param epochDay day of the values
+     * @param dataset  covid data of the day
+     * @param row      row of the country in the dataset
+     */
+    void append(int epochDay, CovidDataset dataset, int row) {
+      var current = columns;
+      if (size == current.epochDays().length) {
+        var capacity = size * 2;
+        var values = new long[current.values().length][];
+        for (var metric = 0; metric < values.length; metric++) {
+          values[metric] = Arrays.copyOf(current.values()[metric], capacity);
+        }
+        current = new Columns(Arrays.copyOf(current.epochDays(), capacity), values);
+        columns = current;
+      }
+      current.epochDays()[size] = epochDay;
+      for (var metric : CovidMetric.values()) {
+        current.values()[metric.ordinal()][size] = dataset.getValue(metric, row);
+      }
+      size = size + 1;
+    }
+
+    /**
+     * Gets values of a metric between two days.
+     *
+     * @param metric metric to get
+     * @param from   first day of the range, inclusive
+     * @param to     last day of the range, inclusive
+     * @return values ordered by date
+     */
+    TimeSeries range(CovidMetric metric, long from, long to) {
+      var count = size;
+      var current = columns;
+      var start = lowerBound(current.epochDays(), count, from);
+      var end = lowerBound(current.epochDays(), count, to + 1);
+      return new TimeSeries(current.epochDays(), current.values()[metric.ordinal()], start, Math.max(0, end - start));
+    }
+
+    /**
+     * Gets day-over-day changes of a metric between two days.
+     *
+     * @param metric metric to get
+     * @param from   first day of the range, inclusive
+     * @param to     last day of the range, inclusive
+     * @return changes ordered by date
+     */
+    TimeSeries deltas(CovidMetric metric, long from, long to) {
+      var count = size;
+      var current = columns;
+      var start = Math.max(1, lowerBound(current.epochDays(), count, from));
+      var end = lowerBound(current.epochDays(), count, to + 1);
+      var length = Math.max(0, end - start);
+      var values = current.values()[metric.ordinal()];
+      var deltas = new long[length];
+      for (var i = 0; i < length; i++) {
+        deltas[i] = values[start + i] - values[start + i - 1];
+      }
+      return new TimeSeries(Arrays.copyOfRange(current.epochDays(), start, start + length), deltas, 0, length);
+    }
+
+    /**
+     * Finds index of the first day not before given day.
+     *
+     * @param epochDays sorted days
+     * @param count     number of days
+     * @param day       searched day
+     * @return index of the first day not before given day or count if there is none
+     */
+    private static int lowerBound(int[] epochDays, int count, long day) {
+      var low = 0;
+      var high = count;
+      while (low < high) {
+        var middle = (low + high) >>> 1;
+        if (epochDays[middle] < day) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Arrays of the series.
+     *
+     * @param epochDays days of stored values
+     * @param values    stored values indexed by metric ordinal
+     */
+    private record Columns(int[] epochDays, long[][] values) {
+    }
+  }
+}
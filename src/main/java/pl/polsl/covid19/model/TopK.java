@@ -0,0 +1,220 @@
+package pl.polsl.covid19.model;
+
+import java.util.Arrays;
+
+/**
+ * Bounded heap of primitive values that keeps the best {@code k} rows seen so far. Rows with equal values
+ * are ranked by row index, so the result is the same as the beginning of a stable sort.
+ * Each kept row is assigned a slot in range {@code 0..k-1}, that the caller can use to keep additional
+ * data of the row. The slot of an evicted row is reused by the row replacing it. Arrays of the heap grow with
+ * the number of kept rows, so a large {@code k} costs memory only for rows actually offered.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+final class TopK {
+
+  /**
+   * Initial length of the arrays of the heap.
+   */
+  private static final int INITIAL_LENGTH = 16;
+
+  /**
+   * Maximal number of kept rows.
+   */
+  private final int capacity;
+
+  /**
+   * True to keep the highest values, false to keep the lowest ones.
+   */
+  private final boolean descending;
+
+  /**
+   * Values of kept rows in heap order, the worst row is at the root.
+   */
+  private long[] values;
+
+  /**
+   * Indexes of kept rows in heap order.
+   */
+  private int[] rows;
+
+  /**
+   * Slots of kept rows in heap order.
+   */
+  private int[] slots;
+
+  /**
+   * Number of kept rows.
+   */
+  private int size;
+
+  /**
+   * TopK constructor.
+   *
+   * @param capacity   maximal number of kept rows
+   * @param descending true to keep the highest values, false to keep the lowest ones
+   */
+  TopK(int capacity, boolean descending) {
+    if (capacity < 0) {
+      throw new AppException("Number of records must not be negative");
+    }
+    this.capacity = capacity;
+    this.descending = descending;
+    var length = Math.min(capacity, INITIAL_LENGTH);
+    this.values = new long[length];
+    this.rows = new int[length];
+    this.slots = new int[length];
+  }
+
+  /**
+   * Offers a row to the heap. Rows must be offered in increasing row order.
+   *
+   * @param value value of the row
+   * @param row   index of the row
+   * @return slot assigned to the row or -1 if the row was rejected
+   */
+  int offer(long value, int row) {
+    if (size < capacity) {
+      if (size == values.length) {
+        grow();
+      }
+      var position = size++;
+      values[position] = value;
+      rows[position] = row;
+      slots[position] = position;
+      siftUp(position);
+      return position;
+    }
+    if (capacity == 0 || !precedes(value, row, values[0], rows[0])) {
+      return -1;
+    }
+    var slot = slots[0];
+    values[0] = value;
+    rows[0] = row;
+    siftDown(0);
+    return slot;
+  }
+
+  /**
+   * Gets number of kept rows.
+   *
+   * @return number of kept rows
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Removes all kept rows from the heap and returns them from the best one.
+   *
+   * @return kept rows and their slots from the best one
+   */
+  Result drain() {
+    var resultRows = new int[size];
+    var resultSlots = new int[size];
+    while (size > 0) {
+      var last = --size;
+      resultRows[last] = rows[0];
+      resultSlots[last] = slots[0];
+      values[0] = values[last];
+      rows[0] = rows[last];
+      slots[0] = slots[last];
+      siftDown(0);
+    }
+    return new Result(resultRows, resultSlots);
+  }
+
+  /**
+   * Doubles length of the arrays of the heap, up to its capacity.
+   */
+  private void grow() {
+    var length = (int) Math.min(capacity, Math.max(INITIAL_LENGTH, values.length * 2L));
+    values = Arrays.copyOf(values, length);
+    rows = Arrays.copyOf(rows, length);
+    slots = Arrays.copyOf(slots, length);
+  }
+
+  /**
+   * Moves an element towards the root while it is worse than its parent.
+   *
+   * @param position position of the element
+   */
+  private void siftUp(int position) {
+    while (position > 0) {
+      var parent = (position - 1) >>> 1;
+      if (!precedes(values[parent], rows[parent], values[position], rows[position])) {
+        return;
+      }
+      swap(position, parent);
+      position = parent;
+    }
+  }
+
+  /**
+   * Moves an element towards the leaves while any of its children is worse.
+   *
+   * @param position position of the element
+   */
+  private void siftDown(int position) {
+    while (true) {
+      var left = position * 2 + 1;
+      if (left >= size) {
+        return;
+      }
+      var worst = left;
+      var right = left + 1;
+      if (right < size && precedes(values[left], rows[left], values[right], rows[right])) {
+        worst = right;
+      }
+      if (!precedes(values[position], rows[position], values[worst], rows[worst])) {
+        return;
+      }
+      swap(position, worst);
+      position = worst;
+    }
+  }
+
+  /**
+   * Checks whether the first row ranks before the second one.
+   *
+   * @param firstValue  value of the first row
+   * @param firstRow    index of the first row
+   * @param secondValue value of the second row
+   * @param secondRow   index of the second row
+   * @return true if the first row ranks before the second one
+   */
+  private boolean precedes(long firstValue, int firstRow, long secondValue, int secondRow) {
+    if (firstValue != secondValue) {
+      return descending ? firstValue > secondValue : firstValue < secondValue;
+    }
+    return firstRow < secondRow;
+  }
+
+  /**
+   * Swaps two elements of the heap.
+   *
+   * @param first  position of the first element
+   * @param second position of the second element
+   */
+  private void swap(int first, int second) {
+    var value = values[first];
+    values[first] = values[second];
+    values[second] = value;
+    var row = rows[first];
+    rows[first] = rows[second];
+    rows[second] = row;
+    var slot = slots[first];
+    slots[first] = slots[second];
+    slots[second] = slot;
+  }
+
+  /**
+   * Rows kept by the heap.
+   *
+   * @param rows  indexes of rows from the best one
+   * @param slots slots of rows from the best one
+   */
+  record Result(int[] rows, int[] slots) {
+  }
+}
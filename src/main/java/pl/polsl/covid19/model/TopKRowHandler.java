@@ -0,0 +1,83 @@
+package pl.polsl.covid19.model;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the best {@code k} records by a metric while csv data is being parsed, so the whole data
+ * never has to be kept in memory. Only the kept records are copied, and arrays of kept records grow with their
+ * number, so {@code k} larger than the data does not allocate more than the data needs.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class TopKRowHandler implements CsvRowParser.RowHandler {
+
+  /**
+   * Metric used to rank records.
+   */
+  private final CovidMetric metric;
+
+  /**
+   * Heap of the best records.
+   */
+  private final TopK topK;
+
+  /**
+   * Country names of kept records indexed by heap slot.
+   */
+  private String[] countries;
+
+  /**
+   * Values of kept records indexed by heap slot.
+   */
+  private long[][] values;
+
+  /**
+   * Number of handled records.
+   */
+  private int rowCount;
+
+  /**
+   * TopKRowHandler constructor.
+   *
+   * @param metric     metric used to rank records
+   * @param k          number of records to keep
+   * @param descending true to keep records with the highest values
+   */
+  TopKRowHandler(CovidMetric metric, int k, boolean descending) {
+    this.metric = metric;
+    this.topK = new TopK(k, descending);
+    this.countries = new String[0];
+    this.values = new long[0][];
+  }
+
+  @Override
+  public void onRow(String country, long[] rowValues) {
+    var slot = topK.offer(rowValues[metric.getCsvColumn()], rowCount++);
+    if (slot >= 0) {
+      if (slot >= countries.length) {
+        var length = Math.max(slot + 1, countries.length * 2);
+        countries = Arrays.copyOf(countries, length);
+        values = Arrays.copyOf(values, length);
+      }
+      if (values[slot] == null) {
+        values[slot] = new long[CsvRowParser.COLUMN_COUNT];
+      }
+      countries[slot] = country;
+      System.arraycopy(rowValues, 0, values[slot], 0, rowValues.length);
+    }
+  }
+
+  /**
+   * Builds dataset of kept records from the best one. The handler must not be used afterwards.
+   *
+   * @return dataset of kept records
+   */
+  CovidDataset toDataset() {
+    var builder = new CovidDataset.Builder();
+    for (var slot : topK.drain().slots()) {
+      builder.addRow(countries[slot], values[slot]);
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,14 @@
+package pl.polsl.covid19.model;
+
+/**
+ * Covid data together with version of the snapshot it was loaded as. Answers computed from the dataset
+ * can be identified by the version and checksum, e.g. for caching by clients.
+ *
+ * @param dataset  covid data records
+ * @param version  version of the snapshot, incremented each time the data file content changes
+ * @param checksum checksum of the data file content
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+public record VersionedDataset(CovidDataset dataset, long version, long checksum) {
+}
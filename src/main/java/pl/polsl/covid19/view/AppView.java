@@ -1,23 +1,38 @@
 package pl.polsl.covid19.view;
 
 import static javax.swing.WindowConstants.EXIT_ON_CLOSE;
+import java.awt.Component;
 import java.awt.Font;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import javax.swing.DefaultListCellRenderer;
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import pl.polsl.covid19.model.CovidData;
+import pl.polsl.covid19.model.CovidDataset;
+import pl.polsl.covid19.model.CovidMetric;
 
 /**
  * View class that handles console outputs.
  *
  * @author Krzysztof Franków
- * @version 1.2
+ * @version 1.7
  */
 public class AppView {
 
@@ -56,6 +71,46 @@ public class AppView {
    */
   private final ActionListener pearsonsCoefficientActionListener;
 
+  /**
+   * Listener receiving text of the country search box after every change.
+   */
+  private final Consumer<String> countrySearchListener;
+
+  /**
+   * Listener receiving model of a table and index of its column after the column header was clicked.
+   */
+  private final BiConsumer<CovidDataTableModel, Integer> sortListener;
+
+  /**
+   * Selection of the first metric used to calculate Pearson's coefficient.
+   */
+  private final JComboBox<CovidMetric> firstPearsonsMetricComboBox;
+
+  /**
+   * Selection of the second metric used to calculate Pearson's coefficient.
+   */
+  private final JComboBox<CovidMetric> secondPearsonsMetricComboBox;
+
+  /**
+   * Model of the most recently shown table or null if no table was shown.
+   */
+  private CovidDataTableModel currentTableModel;
+
+  /**
+   * Component showing results of the country search or null if no results were shown.
+   */
+  private Component searchResults;
+
+  /**
+   * Components of the results panel shown before the country search or null.
+   */
+  private Component[] viewBeforeSearch;
+
+  /**
+   * Model of the table shown before the country search or null.
+   */
+  private CovidDataTableModel tableModelBeforeSearch;
+
   /**
    * View constructor with action listeners.
    *
@@ -63,16 +118,24 @@ public class AppView {
    * @param dataOrderedByActiveCasesActionListener action listener for finding covid data ordered by active cases
    * @param numberOfTestsByCountryActionListener action listener for finding number of tests per country
    * @param pearsonsCoefficientActionListener action listener for finding pearsons coefficient
+   * @param countrySearchListener listener receiving text of the country search box after every change
+   * @param sortListener listener receiving model of a table and index of its column after the column header was clicked
    */
   public AppView(ActionListener countryWithHighestNumberOfDeathsActionListener,
                  ActionListener dataOrderedByActiveCasesActionListener,
                  ActionListener numberOfTestsByCountryActionListener,
-                 ActionListener pearsonsCoefficientActionListener) {
+                 ActionListener pearsonsCoefficientActionListener,
+                 Consumer<String> countrySearchListener,
+                 BiConsumer<CovidDataTableModel, Integer> sortListener) {
     this.countryWithHighestNumberOfDeathsActionListener = countryWithHighestNumberOfDeathsActionListener;
     this.dataOrderedByActiveCasesActionListener = dataOrderedByActiveCasesActionListener;
     this.numberOfTestsByCountryActionListener = numberOfTestsByCountryActionListener;
     this.pearsonsCoefficientActionListener = pearsonsCoefficientActionListener;
+    this.countrySearchListener = countrySearchListener;
+    this.sortListener = sortListener;
 
+    firstPearsonsMetricComboBox = initializeMetricComboBox(CovidMetric.TESTS_PER_MILLION);
+    secondPearsonsMetricComboBox = initializeMetricComboBox(CovidMetric.DEATHS_PER_MILLION);
     titlePanel = initializeTitlePanel();
     menuPanel = initializeMenuPanel();
     resultsPanel = initializeResultsPanel();
@@ -105,13 +168,46 @@ public class AppView {
     var titleLabel = new JLabel("Covid-19 Data Analyzer");
     titleLabel.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 25));
 
+    var searchLabel = new JLabel("Search country:");
+    searchLabel.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20));
+
     var newTitlePanel = new JPanel();
     newTitlePanel.setBounds(0, 0, 1100, 100);
     newTitlePanel.add(titleLabel);
+    newTitlePanel.add(searchLabel);
+    newTitlePanel.add(initializeCountrySearchField());
 
     return newTitlePanel;
   }
 
+  /**
+   * Initializes the country search box. Every change of its text is passed to the search listener,
+   * so results are shown while typing.
+   *
+   * @return initialized search box
+   */
+  private JTextField initializeCountrySearchField() {
+    var searchField = new JTextField(20);
+    searchField.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20));
+    searchField.getDocument().addDocumentListener(new DocumentListener() {
+      @Override
+      public void insertUpdate(DocumentEvent e) {
+        countrySearchListener.accept(searchField.getText());
+      }
+
+      @Override
+      public void removeUpdate(DocumentEvent e) {
+        countrySearchListener.accept(searchField.getText());
+      }
+
+      @Override
+      public void changedUpdate(DocumentEvent e) {
+        countrySearchListener.accept(searchField.getText());
+      }
+    });
+    return searchField;
+  }
+
   /**
    * Initializes application menu panel.
    *
@@ -168,6 +264,29 @@ public class AppView {
     return newResultPanel;
   }
 
+  /**
+   * Initializes selection of a metric used to calculate Pearson's coefficient.
+   * Changing the selection recalculates the coefficient.
+   *
+   * @param selectedMetric initially selected metric
+   * @return initialized combo box
+   */
+  private JComboBox<CovidMetric> initializeMetricComboBox(CovidMetric selectedMetric) {
+    var comboBox = new JComboBox<>(CovidMetric.values());
+    comboBox.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20));
+    comboBox.setSelectedItem(selectedMetric);
+    comboBox.setRenderer(new DefaultListCellRenderer() {
+      @Override
+      public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+                                                    boolean cellHasFocus) {
+        var displayName = value instanceof CovidMetric metric ? metric.getDisplayName() : value;
+        return super.getListCellRendererComponent(list, displayName, index, isSelected, cellHasFocus);
+      }
+    });
+    comboBox.addActionListener(pearsonsCoefficientActionListener);
+    return comboBox;
+  }
+
   /**
    * Prints country with the highest number of deaths in app GUI.
    *
@@ -189,81 +308,197 @@ public class AppView {
   /**
    * Prints a table of countries ordered by active covid cases.
    *
-   * @param results list of ordered covid data
+   * @param dataset covid data
    */
-  public void showCountriesOrderedByActiveCases(final List<CovidData> results) {
-    Object[][] resultsArray = getObjectsFromListActiveCases(results);
-    String[] columnNames = {"Country name", "Active cases"};
-    var resultTable = new JTable(resultsArray, columnNames);
-    var scroll = new JScrollPane(resultTable);
-    resultsPanel.removeAll();
-    resultsPanel.add(scroll);
-    resultsPanel.updateUI();
+  public void showCountriesOrderedByActiveCases(final CovidDataset dataset) {
+    var tableModel = new CovidDataTableModel(dataset, CovidMetric.ACTIVE_CASES);
+    tableModel.sortBy(CovidDataTableModel.METRIC_COLUMN, true);
+    showTable(tableModel);
   }
 
   /**
    * Prints a table of countries with tests performed per each.
    *
-   * @param results list of covid data
+   * @param dataset covid data
    */
-  public void showNumberOfTestsPerContry(final List<CovidData> results) {
-    Object[][] resultsArray = getObjectsFromListTotalCases(results);
-    String[] columnNames = {"Country name", "Total tests"};
-    var resultTable = new JTable(resultsArray, columnNames);
-    var scroll = new JScrollPane(resultTable);
+  public void showNumberOfTestsPerContry(final CovidDataset dataset) {
+    showTable(new CovidDataTableModel(dataset, CovidMetric.TOTAL_TESTS));
+  }
+
+  /**
+   * Prints a table of countries found by the country search box. The view shown before the search is kept,
+   * so it can be restored when the search box is cleared.
+   *
+   * @param results dataset of found countries in order of relevance
+   */
+  public void showCountrySearchResults(final CovidDataset results) {
+    if (!isShowingSearchResults()) {
+      viewBeforeSearch = resultsPanel.getComponents();
+      tableModelBeforeSearch = currentTableModel;
+    }
+    if (results.size() == 0) {
+      var resultLabel = new JLabel("No matching countries");
+      resultLabel.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20));
+
+      currentTableModel = null;
+      searchResults = resultLabel;
+      resultsPanel.removeAll();
+      resultsPanel.add(resultLabel);
+      resultsPanel.updateUI();
+      return;
+    }
+    showTable(new CovidDataTableModel(results, CovidMetric.TOTAL_CASES, CovidMetric.TOTAL_DEATHS,
+        CovidMetric.ACTIVE_CASES, CovidMetric.TOTAL_TESTS));
+    // search results are a copy of a few rows, so they are not replaced by new versions of the data
+    currentTableModel = null;
+    searchResults = resultsPanel.getComponent(0);
+  }
+
+  /**
+   * Restores the view shown before the country search, if search results are shown.
+   */
+  public void clearCountrySearchResults() {
+    if (!isShowingSearchResults()) {
+      return;
+    }
     resultsPanel.removeAll();
-    resultsPanel.add(scroll);
+    for (var component : viewBeforeSearch) {
+      resultsPanel.add(component);
+    }
+    currentTableModel = tableModelBeforeSearch;
+    viewBeforeSearch = null;
+    tableModelBeforeSearch = null;
+    searchResults = null;
     resultsPanel.updateUI();
   }
 
   /**
-   * Prints information about a feature that is yet to be implemented.
+   * Checks whether results of the country search are currently shown.
+   *
+   * @return true if the results panel shows search results
    */
-  public void showFeatureYetToBeImplementedMessage() {
-    var infoPanel = new JLabel("This feature is yet to be implemented");
-    infoPanel.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20));
+  private boolean isShowingSearchResults() {
+    return searchResults != null && searchResults.getParent() == resultsPanel;
+  }
+
+  /**
+   * Prints Pearson's coefficient of currently selected metrics together with the metrics selection.
+   *
+   * @param coefficient Pearson's coefficient of selected metrics
+   */
+  public void showPearsonsCoefficient(final double coefficient) {
+    var resultTitleLabel = new JLabel("Pearson's coefficient between:");
+    resultTitleLabel.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20));
+
+    var resultLabel = new JLabel(String.format("%.4f", coefficient));
+    resultLabel.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 30));
 
     resultsPanel.removeAll();
-    resultsPanel.add(infoPanel);
+    resultsPanel.add(resultTitleLabel);
+    resultsPanel.add(firstPearsonsMetricComboBox);
+    resultsPanel.add(secondPearsonsMetricComboBox);
+    resultsPanel.add(resultLabel);
     resultsPanel.updateUI();
   }
 
   /**
-   * Handles printing error message.
+   * Gets the first metric selected for calculating Pearson's coefficient.
    *
-   * @param message error message
+   * @return selected metric
    */
-  public void handlePrintErrorPopup(String message) {
-    JOptionPane.showMessageDialog(resultsPanel, message, "Error", JOptionPane.ERROR_MESSAGE);
+  public CovidMetric getFirstPearsonsMetric() {
+    return (CovidMetric) firstPearsonsMetricComboBox.getSelectedItem();
+  }
+
+  /**
+   * Gets the second metric selected for calculating Pearson's coefficient.
+   *
+   * @return selected metric
+   */
+  public CovidMetric getSecondPearsonsMetric() {
+    return (CovidMetric) secondPearsonsMetricComboBox.getSelectedItem();
+  }
+
+  /**
+   * Prints progress of a running task.
+   *
+   * @param percent progress in range of 0 to 100
+   * @param message description of the current step
+   */
+  public void showProgress(final int percent, final String message) {
+    var progressLabel = new JLabel(message);
+    progressLabel.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 20));
+
+    var progressBar = new JProgressBar(0, 100);
+    progressBar.setValue(percent);
+    progressBar.setStringPainted(true);
+
+    resultsPanel.removeAll();
+    resultsPanel.add(progressLabel);
+    resultsPanel.add(progressBar);
+    resultsPanel.updateUI();
   }
 
   /**
-   * Parses data into array of objects, so it could be used with {@link JTable}
+   * Shows a new version of covid data in the most recently shown table.
    *
-   * @param listData list of data
-   * @return parsed data
-   */
-  private Object[][] getObjectsFromListActiveCases(final List<CovidData> listData) {
-    Object[][] resultArray = new String[listData.size()][4];
-    for (int i = 0; i < listData.size(); i++) {
-      resultArray[i][0] = listData.get(i).getCountry();
-      resultArray[i][1] = listData.get(i).getActiveCases().toString();
+   * @param dataset new version of covid data
+   */
+  public void showUpdatedData(final CovidDataset dataset) {
+    if (currentTableModel != null) {
+      currentTableModel.setDataset(dataset);
+    }
+    if (tableModelBeforeSearch != null) {
+      tableModelBeforeSearch.setDataset(dataset);
     }
-    return resultArray;
   }
 
   /**
-   * Parses data into array of objects, so it could be used with {@link JTable}
+   * Gets models of the tables that show new versions of covid data by {@link #showUpdatedData}.
    *
-   * @param listData list of data
-   * @return parsed data
-   */
-  private Object[][] getObjectsFromListTotalCases(final List<CovidData> listData) {
-    Object[][] resultArray = new String[listData.size()][4];
-    for (int i = 0; i < listData.size(); i++) {
-      resultArray[i][0] = listData.get(i).getCountry();
-      resultArray[i][1] = listData.get(i).getTotalTests().toString();
+   * @return models of the current table and of the table shown before the country search
+   */
+  public List<CovidDataTableModel> getUpdatedTableModels() {
+    var tableModels = new ArrayList<CovidDataTableModel>();
+    if (currentTableModel != null) {
+      tableModels.add(currentTableModel);
     }
-    return resultArray;
+    if (tableModelBeforeSearch != null) {
+      tableModels.add(tableModelBeforeSearch);
+    }
+    return tableModels;
+  }
+
+  /**
+   * Handles printing error message.
+   *
+   * @param message error message
+   */
+  public void handlePrintErrorPopup(String message) {
+    JOptionPane.showMessageDialog(resultsPanel, message, "Error", JOptionPane.ERROR_MESSAGE);
+  }
+
+  /**
+   * Prints a table of covid data. Clicking a column header passes the column to the sort listener, which orders
+   * the rows by the column once their order is prepared.
+   *
+   * @param tableModel model of the table
+   */
+  private void showTable(final CovidDataTableModel tableModel) {
+    currentTableModel = tableModel;
+    var resultTable = new JTable(tableModel);
+    resultTable.getTableHeader().addMouseListener(new MouseAdapter() {
+      @Override
+      public void mouseClicked(MouseEvent e) {
+        var column = resultTable.columnAtPoint(e.getPoint());
+        if (column >= 0) {
+          sortListener.accept(tableModel, resultTable.convertColumnIndexToModel(column));
+        }
+      }
+    });
+    var scroll = new JScrollPane(resultTable);
+    resultsPanel.removeAll();
+    resultsPanel.add(scroll);
+    resultsPanel.updateUI();
   }
 }
@@ -0,0 +1,373 @@
+package pl.polsl.covid19.view;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import pl.polsl.covid19.model.AppException;
+import pl.polsl.covid19.model.CorrelationMatrix;
+import pl.polsl.covid19.model.CovidData;
+import pl.polsl.covid19.model.CovidMetric;
+
+/**
+ * View class that writes results to a console stream as csv, JSON Lines or a JSON array, one result per line.
+ * Records are written one by one as they are read, so results are never collected before writing.
+ * The class does not use any AWT or Swing classes, so it can be used without a display, and it also
+ * writes bodies of HTTP responses.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+public class ConsoleView {
+
+  /**
+   * Size of the output buffer in chars.
+   */
+  private static final int BUFFER_SIZE = 1 << 13;
+
+  /**
+   * Name of the column with country names.
+   */
+  private static final String COUNTRY_COLUMN = "country";
+
+  /**
+   * Writer of the output stream.
+   */
+  private final Writer writer;
+
+  /**
+   * Format of the output.
+   */
+  private final OutputFormat format;
+
+  /**
+   * Names of columns of the current result.
+   */
+  private String[] columns = new String[0];
+
+  /**
+   * Index of the next column written in the current line.
+   */
+  private int column;
+
+  /**
+   * Number of lines written in the current result.
+   */
+  private int lineCount;
+
+  /**
+   * ConsoleView constructor.
+   *
+   * @param out    stream the results are written to, it is flushed but not closed by the view
+   * @param format format of the output
+   */
+  public ConsoleView(OutputStream out, OutputFormat format) {
+    this.writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8), BUFFER_SIZE);
+    this.format = format;
+  }
+
+  /**
+   * Writes records of covid data with country name and given metrics of each record.
+   * Records are read from the list one by one, so a lazy view of the dataset is never copied.
+   *
+   * @param records written records
+   * @param metrics metrics written with each record
+   */
+  public void showRecords(List<CovidData> records, List<CovidMetric> metrics) {
+    var names = new String[metrics.size() + 1];
+    names[0] = COUNTRY_COLUMN;
+    for (var i = 0; i < metrics.size(); i++) {
+      names[i + 1] = columnName(metrics.get(i));
+    }
+    startResult(names);
+    for (var i = 0; i < records.size(); i++) {
+      var record = records.get(i);
+      writeText(record.getCountry());
+      for (var metric : metrics) {
+        writeNumber(record.getValue(metric));
+      }
+      endLine();
+    }
+    endResult();
+  }
+
+  /**
+   * Writes Pearson's coefficient of two metrics.
+   *
+   * @param first       first metric
+   * @param second      second metric
+   * @param coefficient Pearson's coefficient of the metrics
+   */
+  public void showPearsonsCoefficient(CovidMetric first, CovidMetric second, double coefficient) {
+    startResult("first", "second", "pearson");
+    writeText(columnName(first));
+    writeText(columnName(second));
+    writeNumber(coefficient);
+    endLine();
+    endResult();
+  }
+
+  /**
+   * Writes Pearson's and Spearman's coefficients of every pair of different metrics.
+   *
+   * @param matrix correlation coefficients of all metrics
+   */
+  public void showCorrelationMatrix(CorrelationMatrix matrix) {
+    startResult("first", "second", "pearson", "spearman");
+    var metrics = CovidMetric.values();
+    for (var i = 0; i < metrics.length; i++) {
+      for (var j = i + 1; j < metrics.length; j++) {
+        writeText(columnName(metrics[i]));
+        writeText(columnName(metrics[j]));
+        writeNumber(matrix.getPearson(metrics[i], metrics[j]));
+        writeNumber(matrix.getSpearman(metrics[i], metrics[j]));
+        endLine();
+      }
+    }
+    endResult();
+  }
+
+  /**
+   * Gets name of the column with values of a metric.
+   *
+   * @param metric metric of the column
+   * @return name of the column, e.g. total_deaths
+   */
+  public static String columnName(CovidMetric metric) {
+    return metric.name().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Starts writing a result with given columns. Csv results start with a header line.
+   *
+   * @param names names of the columns
+   */
+  private void startResult(String... names) {
+    columns = names;
+    if (format == OutputFormat.CSV) {
+      for (var name : names) {
+        writeText(name);
+      }
+      endLine();
+    } else if (format == OutputFormat.JSON) {
+      write("[");
+    }
+    lineCount = 0;
+  }
+
+  /**
+   * Ends the current result and flushes it to the output stream.
+   */
+  private void endResult() {
+    if (format == OutputFormat.JSON) {
+      write(lineCount == 0 ? "]\n" : "\n]\n");
+    }
+    flush();
+  }
+
+  /**
+   * Writes a text value of the next column.
+   *
+   * @param value written value
+   */
+  private void writeText(String value) {
+    startValue();
+    if (format == OutputFormat.CSV) {
+      writeCsvText(value);
+    } else {
+      writeJsonText(value);
+    }
+  }
+
+  /**
+   * Writes a number of the next column.
+   *
+   * @param value written value
+   */
+  private void writeNumber(long value) {
+    startValue();
+    write(Long.toString(value));
+  }
+
+  /**
+   * Writes a decimal number of the next column. Undefined values are written as NaN in csv
+   * and null in JSON formats.
+   *
+   * @param value written value
+   */
+  private void writeNumber(double value) {
+    startValue();
+    if (Double.isFinite(value)) {
+      write(Double.toString(value));
+    } else {
+      write(format == OutputFormat.CSV ? Double.toString(value) : "null");
+    }
+  }
+
+  /**
+   * Writes separator and name of the next column.
+   */
+  private void startValue() {
+    if (format == OutputFormat.CSV) {
+      if (column > 0) {
+        write(",");
+      }
+    } else {
+      if (column > 0) {
+        write(",");
+      } else if (format == OutputFormat.JSON) {
+        write(lineCount == 0 ? "\n{" : ",\n{");
+      } else {
+        write("{");
+      }
+      writeJsonText(columns[column]);
+      write(":");
+    }
+    column++;
+  }
+
+  /**
+   * Ends the current line.
+   */
+  private void endLine() {
+    if (format == OutputFormat.CSV) {
+      write("\n");
+    } else {
+      write(format == OutputFormat.JSON ? "}" : "}\n");
+    }
+    column = 0;
+    lineCount++;
+  }
+
+  /**
+   * Writes a csv field, quoting it if it contains separators, quotes or line breaks.
+   *
+   * @param value written value
+   */
+  private void writeCsvText(String value) {
+    var quoted = false;
+    for (var i = 0; i < value.length() && !quoted; i++) {
+      var c = value.charAt(i);
+      quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (quoted) {
+      write("\"" + value.replace("\"", "\"\"") + "\"");
+    } else {
+      write(value);
+    }
+  }
+
+  /**
+   * Writes a JSON string.
+   *
+   * @param value written value
+   */
+  private void writeJsonText(String value) {
+    var text = new StringBuilder(value.length() + 2).append('"');
+    for (var i = 0; i < value.length(); i++) {
+      var c = value.charAt(i);
+      switch (c) {
+        case '"' -> text.append("\\\"");
+        case '\\' -> text.append("\\\\");
+        case '\n' -> text.append("\\n");
+        case '\r' -> text.append("\\r");
+        case '\t' -> text.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            text.append(String.format("\\u%04x", (int) c));
+          } else {
+            text.append(c);
+          }
+        }
+      }
+    }
+    write(text.append('"').toString());
+  }
+
+  /**
+   * Writes text to the output.
+   *
+   * @param text written text
+   */
+  private void write(String text) {
+    try {
+      writer.write(text);
+    } catch (IOException e) {
+      throw new AppException("Unable to write results", e);
+    }
+  }
+
+  /**
+   * Flushes written results to the output stream.
+   */
+  private void flush() {
+    try {
+      writer.flush();
+    } catch (IOException e) {
+      throw new AppException("Unable to write results", e);
+    }
+  }
+
+  /**
+   * Format of results written to the console.
+   */
+  public enum OutputFormat {
+
+    /**
+     * Comma separated values with a header line.
+     */
+    CSV("csv"),
+
+    /**
+     * One JSON object per line.
+     */
+    JSON_LINES("jsonl"),
+
+    /**
+     * JSON array with one object per line.
+     */
+    JSON("json");
+
+    /**
+     * Name of the format used in command line options.
+     */
+    private final String optionName;
+
+    /**
+     * OutputFormat constructor.
+     *
+     * @param optionName name of the format used in command line options
+     */
+    OutputFormat(String optionName) {
+      this.optionName = optionName;
+    }
+
+    /**
+     * Gets name of the format used in command line options.
+     *
+     * @return name of the format
+     */
+    public String getOptionName() {
+      return optionName;
+    }
+
+    /**
+     * Finds format by its name used in command line options.
+     *
+     * @param optionName name of the format
+     * @return found format
+     */
+    public static OutputFormat fromOptionName(String optionName) {
+      for (var format : values()) {
+        if (format.optionName.equalsIgnoreCase(optionName)) {
+          return format;
+        }
+      }
+      throw new AppException("Unknown output format " + optionName);
+    }
+  }
+}
@@ -0,0 +1,185 @@
+package pl.polsl.covid19.view;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+import pl.polsl.covid19.model.CovidDataset;
+import pl.polsl.covid19.model.CovidMetric;
+
+/**
+ * Table model showing country names and one or more metrics of {@link CovidDataset}. Cells are read from the dataset
+ * and formatted only when the table renders them. Rows are ordered through sort indexes of the dataset,
+ * so ordering does not copy or sort rows in the view. The indexes are built in background by
+ * {@link #buildSortIndex} before the order is switched by {@link #sortBy}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.3
+ */
+public class CovidDataTableModel extends AbstractTableModel {
+
+  /**
+   * Index of the column with country names.
+   */
+  static final int COUNTRY_COLUMN = 0;
+
+  /**
+   * Index of the column with values of the first metric, the other metrics follow.
+   */
+  static final int METRIC_COLUMN = 1;
+
+  /**
+   * Dataset shown by the table.
+   */
+  private transient CovidDataset dataset;
+
+  /**
+   * Metrics shown in the columns following the country column.
+   */
+  private final CovidMetric[] metrics;
+
+  /**
+   * Index of the column rows are ordered by or -1 for dataset order.
+   */
+  private int sortColumn = -1;
+
+  /**
+   * True if rows are ordered from the highest value.
+   */
+  private boolean descending;
+
+  /**
+   * CovidDataTableModel constructor.
+   *
+   * @param dataset dataset shown by the table
+   * @param metrics metrics shown in the columns following the country column
+   */
+  public CovidDataTableModel(CovidDataset dataset, CovidMetric... metrics) {
+    this.dataset = dataset;
+    this.metrics = metrics.clone();
+  }
+
+  /**
+   * Replaces shown data by its new version, keeping the order of rows.
+   *
+   * @param dataset new version of the data
+   */
+  public void setDataset(CovidDataset dataset) {
+    this.dataset = dataset;
+    fireTableDataChanged();
+  }
+
+  /**
+   * Gets shown dataset.
+   *
+   * @return shown dataset
+   */
+  public CovidDataset getDataset() {
+    return dataset;
+  }
+
+  /**
+   * Gets index of the column rows are ordered by.
+   *
+   * @return index of the column or -1 for dataset order
+   */
+  public int getSortColumn() {
+    return sortColumn;
+  }
+
+  /**
+   * Checks whether rows are ordered from the highest value.
+   *
+   * @return true if rows are ordered from the highest value
+   */
+  public boolean isDescending() {
+    return descending;
+  }
+
+  /**
+   * Orders rows by given column.
+   *
+   * @param column     index of the column to order by or -1 for dataset order
+   * @param descending true to order from the highest value
+   */
+  public void sortBy(int column, boolean descending) {
+    this.sortColumn = column;
+    this.descending = descending;
+    fireTableChanged(new TableModelEvent(this, TableModelEvent.HEADER_ROW));
+  }
+
+  /**
+   * Gets direction of ordering rows by given column after the column is chosen again, reversing the order
+   * if rows are already ordered by it. Metric columns are first ordered from the highest value,
+   * country column from the first name.
+   *
+   * @param column index of the column to order by
+   * @return true if rows are to be ordered from the highest value
+   */
+  public boolean isToggledDescending(int column) {
+    return column == sortColumn ? !descending : column != COUNTRY_COLUMN;
+  }
+
+  /**
+   * Builds index of rows of a dataset ordered by given column, so ordering the table by the column does not sort
+   * rows on the Event Dispatch Thread. Reads only the metrics of the table, so it can be called on any thread.
+   *
+   * @param dataset    dataset to index, shown now or about to be shown by the table
+   * @param column     index of the column to order by or -1 for dataset order
+   * @param descending true to order from the highest value
+   */
+  public void buildSortIndex(CovidDataset dataset, int column, boolean descending) {
+    if (column == COUNTRY_COLUMN) {
+      dataset.buildCountrySortIndex(descending);
+    } else if (column >= METRIC_COLUMN) {
+      dataset.buildSortIndex(metrics[column - METRIC_COLUMN], descending);
+    }
+  }
+
+  @Override
+  public int getRowCount() {
+    return dataset.size();
+  }
+
+  @Override
+  public int getColumnCount() {
+    return metrics.length + 1;
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    var name = column == COUNTRY_COLUMN ? "Country name" : metrics[column - METRIC_COLUMN].getDisplayName();
+    if (column != sortColumn) {
+      return name;
+    }
+    return name + (descending ? " ▼" : " ▲");
+  }
+
+  @Override
+  public Class<?> getColumnClass(int column) {
+    return String.class;
+  }
+
+  @Override
+  public Object getValueAt(int rowIndex, int columnIndex) {
+    var row = datasetRow(rowIndex);
+    if (columnIndex == COUNTRY_COLUMN) {
+      return dataset.getCountry(row);
+    }
+    return String.valueOf(dataset.getValue(metrics[columnIndex - METRIC_COLUMN], row));
+  }
+
+  /**
+   * Maps position in the table to index of the dataset row.
+   *
+   * @param rowIndex position in the table
+   * @return index of the dataset row
+   */
+  private int datasetRow(int rowIndex) {
+    if (sortColumn == COUNTRY_COLUMN) {
+      return dataset.orderedRowByCountry(descending, rowIndex);
+    }
+    if (sortColumn >= METRIC_COLUMN) {
+      return dataset.orderedRow(metrics[sortColumn - METRIC_COLUMN], descending, rowIndex);
+    }
+    return rowIndex;
+  }
+}
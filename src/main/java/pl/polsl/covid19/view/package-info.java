@@ -1,8 +1,9 @@
 /**
  * This package contains the view of the application.
- * The view consists of swing compoments.
+ * The view consists of swing compoments and of a console view writing results
+ * of the headless batch mode, which does not use swing.
  *
  * @author Krzysztof Franków
- * @version 1.1
+ * @version 1.2
  */
 package pl.polsl.covid19.view;
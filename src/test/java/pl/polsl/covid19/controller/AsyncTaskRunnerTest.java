@@ -0,0 +1,220 @@
+package pl.polsl.covid19.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.polsl.covid19.model.AppException;
+
+/**
+ * Test class for {@link AsyncTaskRunner}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class AsyncTaskRunnerTest {
+
+  /**
+   * Maximal time of waiting for a task in seconds.
+   */
+  private static final long TIMEOUT_SECONDS = 10;
+
+  /**
+   * Executor running the tasks.
+   */
+  private ExecutorService executor;
+
+  /**
+   * Results passed to success handlers, accessed on the Event Dispatch Thread.
+   */
+  private List<String> results;
+
+  /**
+   * Messages passed to the error handler, accessed on the Event Dispatch Thread.
+   */
+  private List<String> errors;
+
+  /**
+   * Counted down when an error is passed to the error handler.
+   */
+  private CountDownLatch errorReported;
+
+  /**
+   * Instance of tested runner.
+   */
+  private AsyncTaskRunner runner;
+
+  /**
+   * AsyncTaskRunnerTest setup.
+   */
+  @BeforeEach
+  public void setup() {
+    executor = Executors.newFixedThreadPool(4);
+    results = new ArrayList<>();
+    errors = new ArrayList<>();
+    errorReported = new CountDownLatch(1);
+    runner = new AsyncTaskRunner(executor, (percent, message) -> {
+    }, message -> {
+      errors.add(message);
+      errorReported.countDown();
+    });
+  }
+
+  /**
+   * AsyncTaskRunnerTest cleanup.
+   */
+  @AfterEach
+  public void cleanup() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Runs an action on the Event Dispatch Thread and waits for it, so all events queued before are handled too.
+   *
+   * @param action action to run
+   * @throws Exception if the action fails or waiting is interrupted
+   */
+  private static void onEdt(Runnable action) throws Exception {
+    try {
+      SwingUtilities.invokeAndWait(action);
+    } catch (InvocationTargetException e) {
+      throw (Exception) e.getCause();
+    }
+  }
+
+  /**
+   * Waits for a latch without reacting to interruption, as a task ignoring cancellation does.
+   *
+   * @param latch awaited latch
+   */
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    var interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Test that verifies if a task submitted with the key of a task still running is ignored.
+   *
+   * @throws Exception if waiting for the tasks fails
+   */
+  @Test
+  void givenRunningTaskWhenSubmittingSameKeyThenIgnoreDuplicate() throws Exception {
+    var release = new CountDownLatch(1);
+    var started = new CountDownLatch(1);
+    var runs = new AtomicInteger();
+    var finished = new CountDownLatch(1);
+
+    onEdt(() -> runner.submit("table", progress -> {
+      runs.incrementAndGet();
+      started.countDown();
+      awaitUninterruptibly(release);
+      return "first";
+    }, result -> {
+      results.add(result);
+      finished.countDown();
+    }));
+    assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    onEdt(() -> runner.submit("table", progress -> {
+      runs.incrementAndGet();
+      return "duplicate";
+    }, results::add));
+    release.countDown();
+
+    assertTrue(finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    onEdt(() -> {
+    });
+    assertEquals(1, runs.get());
+    assertEquals(List.of("first"), results);
+  }
+
+  /**
+   * Test that verifies if submitting a task with a different key cancels and interrupts the running task.
+   *
+   * @throws Exception if waiting for the tasks fails
+   */
+  @Test
+  void givenRunningTaskWhenSubmittingDifferentKeyThenCancelRunningTask() throws Exception {
+    var started = new CountDownLatch(1);
+    var interrupted = new CountDownLatch(1);
+    var finished = new CountDownLatch(1);
+
+    onEdt(() -> runner.submit("table", progress -> {
+      started.countDown();
+      try {
+        new CountDownLatch(1).await();
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+      return "table";
+    }, results::add));
+    assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    onEdt(() -> runner.submit("pearson", progress -> "pearson", result -> {
+      results.add(result);
+      finished.countDown();
+    }));
+
+    assertTrue(interrupted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertTrue(finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    onEdt(() -> {
+    });
+    assertEquals(List.of("pearson"), results);
+  }
+
+  /**
+   * Test that verifies if results and errors of cancelled tasks are not passed to the handlers,
+   * while the error of a task that was not cancelled is.
+   *
+   * @throws Exception if waiting for the tasks fails
+   */
+  @Test
+  void givenCancelledTasksWhenTheyCompleteThenSuppressTheirResultsAndErrors() throws Exception {
+    var release = new CountDownLatch(1);
+    var started = new CountDownLatch(2);
+    var completed = new CountDownLatch(2);
+
+    onEdt(() -> runner.submit("first", progress -> {
+      started.countDown();
+      awaitUninterruptibly(release);
+      completed.countDown();
+      return "first";
+    }, results::add));
+    onEdt(() -> runner.<String>submit("second", progress -> {
+      started.countDown();
+      awaitUninterruptibly(release);
+      completed.countDown();
+      throw new AppException("second failed");
+    }, results::add));
+    assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    onEdt(() -> runner.<String>submit("third", progress -> {
+      throw new AppException("third failed");
+    }, results::add));
+    release.countDown();
+
+    assertTrue(completed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    assertTrue(errorReported.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    onEdt(() -> {
+    });
+    assertTrue(results.isEmpty());
+    assertEquals(List.of("third failed"), errors);
+  }
+}
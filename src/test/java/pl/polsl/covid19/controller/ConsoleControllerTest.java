@@ -0,0 +1,231 @@
+package pl.polsl.covid19.controller;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import pl.polsl.covid19.model.AppMetrics;
+
+/**
+ * Test class for {@link ConsoleController}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.3
+ */
+class ConsoleControllerTest {
+
+  /**
+   * Content of the test data file.
+   */
+  private static final String CSV = """
+      #,Country,Total Cases,Total Deaths,New Deaths,Total Recovered,Active Cases,Serious Critical,\
+      Cases per 1M,Deaths per 1M,Total Tests,Tests per 1M,Population
+      1,Poland,100,30,1,50,20,1,10,3,1000,100,10000
+      2,"Korea, South",200,10,2,150,40,2,20,1,3000,300,10000
+      3,Chile,300,20,3,200,80,3,30,2,2000,200,10000
+      """;
+
+  /**
+   * Stream with written results.
+   */
+  private ByteArrayOutputStream out;
+
+  /**
+   * Stream with written errors.
+   */
+  private ByteArrayOutputStream err;
+
+  /**
+   * Instance of tested controller.
+   */
+  private ConsoleController consoleController;
+
+  /**
+   * Path of the test data file.
+   */
+  private Path dataPath;
+
+  /**
+   * ConsoleControllerTest setup.
+   *
+   * @param tempDir temporary directory for the data file
+   * @throws IOException if the data file cannot be written
+   */
+  @BeforeEach
+  public void setup(@TempDir Path tempDir) throws IOException {
+    out = new ByteArrayOutputStream();
+    err = new ByteArrayOutputStream();
+    consoleController = new ConsoleController(out, new PrintStream(err, true, UTF_8));
+    dataPath = tempDir.resolve("CovidLive.csv");
+    Files.writeString(dataPath, CSV);
+  }
+
+  /**
+   * Test that verifies if task given by its number writes the country with the highest number of deaths.
+   */
+  @Test
+  void givenTaskNumberWhenRunningThenWriteCountryWithHighestNumberOfDeaths() {
+    var exitCode = consoleController.run("1", "--input", dataPath.toString());
+
+    assertEquals(ConsoleController.EXIT_SUCCESS, exitCode);
+    assertEquals("country,total_deaths\nPoland,30\n", out.toString(UTF_8));
+  }
+
+  /**
+   * Test that verifies if ordered page of records is written as csv with quoted country names.
+   */
+  @Test
+  void givenOrderedTaskWhenRunningThenWriteOrderedPageAsCsv() {
+    var exitCode = consoleController.run("ordered", "--input", dataPath.toString(), "--metric", "active-cases",
+        "--metrics", "active_cases,population", "--offset", "1", "--limit", "2");
+
+    assertEquals(ConsoleController.EXIT_SUCCESS, exitCode);
+    assertEquals("country,active_cases,population\n\"Korea, South\",40,10000\nPoland,20,10000\n",
+        out.toString(UTF_8));
+  }
+
+  /**
+   * Test that verifies if records are written as JSON Lines.
+   */
+  @Test
+  void givenJsonLinesFormatWhenRunningThenWriteJsonObjectPerLine() {
+    var exitCode = consoleController.run("tests-per-country", "--input", dataPath.toString(), "--format", "jsonl");
+
+    assertEquals(ConsoleController.EXIT_SUCCESS, exitCode);
+    assertEquals("""
+        {"country":"Poland","total_tests":1000}
+        {"country":"Korea, South","total_tests":3000}
+        {"country":"Chile","total_tests":2000}
+        """, out.toString(UTF_8));
+  }
+
+  /**
+   * Test that verifies if records with the highest values are written from the highest value.
+   */
+  @Test
+  void givenTopTaskWhenRunningThenWriteRecordsWithHighestValues() {
+    var exitCode = consoleController.run("top", "--input", dataPath.toString(), "--metric", "total_cases",
+        "--limit", "2");
+
+    assertEquals(ConsoleController.EXIT_SUCCESS, exitCode);
+    assertEquals("country,total_cases\nChile,300\n\"Korea, South\",200\n", out.toString(UTF_8));
+  }
+
+  /**
+   * Test that verifies if records matching a query are written with selected metrics.
+   */
+  @Test
+  void givenQueryTaskWhenRunningThenWriteMatchingRecords() {
+    var exitCode = consoleController.run("query", "select deaths, active where active > 30 order by deaths desc",
+        "--input", dataPath.toString());
+
+    assertEquals(ConsoleController.EXIT_SUCCESS, exitCode);
+    assertEquals("country,total_deaths,active_cases\nChile,20,80\n\"Korea, South\",10,40\n", out.toString(UTF_8));
+  }
+
+  /**
+   * Test that verifies if a query without ordering is answered while the data file is read, without loading
+   * the whole data.
+   */
+  @Test
+  void givenUnorderedQueryTaskWhenRunningThenStreamMatchingRecords() {
+    var metrics = AppMetrics.getInstance();
+    var streamed = metrics.getQueryLatency("streamQuery").getCount();
+    var loaded = metrics.getQueryLatency("getCovidDataset").getCount();
+
+    var exitCode = consoleController.run("query", "select deaths where deaths > 15 limit 1",
+        "--input", dataPath.toString());
+
+    assertEquals(ConsoleController.EXIT_SUCCESS, exitCode);
+    assertEquals("country,total_deaths\nPoland,30\n", out.toString(UTF_8));
+    assertEquals(streamed + 1, metrics.getQueryLatency("streamQuery").getCount());
+    assertEquals(loaded, metrics.getQueryLatency("getCovidDataset").getCount());
+  }
+
+  /**
+   * Test that verifies if Pearson's coefficient of given metrics is written.
+   */
+  @Test
+  void givenPearsonTaskWhenRunningThenWriteCoefficient() {
+    var exitCode = consoleController.run("4", "--input", dataPath.toString(), "--metrics",
+        "total_cases,active_cases");
+
+    assertEquals(ConsoleController.EXIT_SUCCESS, exitCode);
+    assertTrue(out.toString(UTF_8).startsWith("first,second,pearson\ntotal_cases,active_cases,0.9"));
+  }
+
+  /**
+   * Test that verifies if the generate task writes a data file of given number of rows or of given size,
+   * which can be read back.
+   *
+   * @throws IOException if the generated file cannot be read
+   */
+  @Test
+  void givenGenerateTaskWhenRunningThenWriteSyntheticDataFile() throws IOException {
+    var rowsPath = dataPath.resolveSibling("rows.csv");
+    var sizePath = dataPath.resolveSibling("size.csv");
+
+    var rowsExitCode = consoleController.run("generate", rowsPath.toString(), "100", "--seed", "3",
+        "--countries", "20");
+    var sizeExitCode = consoleController.run("generate", sizePath.toString(), "2kb", "--skew", "0",
+        "--dirty-rate", "0.1");
+
+    assertEquals(ConsoleController.EXIT_SUCCESS, rowsExitCode);
+    assertEquals(ConsoleController.EXIT_SUCCESS, sizeExitCode);
+    assertEquals(101, Files.readAllLines(rowsPath, UTF_8).size());
+    assertTrue(Files.size(sizePath) >= 2048);
+    assertEquals(ConsoleController.EXIT_SUCCESS, consoleController.run("3", "--input", rowsPath.toString()));
+    assertEquals(101, out.toString(UTF_8).lines().count());
+  }
+
+  /**
+   * Test that verifies if invalid arguments of the generate task are reported with usage.
+   *
+   * @param arguments invalid arguments separated by spaces
+   */
+  @ParameterizedTest
+  @ValueSource(strings = {"generate", "generate out.csv", "generate out.csv ten", "generate out.csv -5",
+      "generate out.csv 5XB", "generate out.csv 5 --seed x", "generate out.csv 5 --skew -1",
+      "generate out.csv 5 --dirty-rate 2", "generate out.csv 5 --countries 0"})
+  void givenInvalidGenerateArgumentsWhenRunningThenPrintUsage(String arguments) {
+    var exitCode = consoleController.run(arguments.split(" "));
+
+    assertEquals(ConsoleController.EXIT_USAGE, exitCode);
+    assertTrue(err.toString(UTF_8).contains("Usage:"));
+  }
+
+  /**
+   * Test that verifies if invalid arguments are reported with usage and no results.
+   *
+   * @param argument invalid argument
+   */
+  @ParameterizedTest
+  @ValueSource(strings = {"5", "--limit", "--unknown", "query"})
+  void givenInvalidArgumentsWhenRunningThenPrintUsage(String argument) {
+    var exitCode = consoleController.run(argument);
+
+    assertEquals(ConsoleController.EXIT_USAGE, exitCode);
+    assertEquals("", out.toString(UTF_8));
+    assertTrue(err.toString(UTF_8).contains("Usage:"));
+  }
+
+  /**
+   * Test that verifies if missing data file is reported as a failure.
+   */
+  @Test
+  void givenMissingDataFileWhenRunningThenReturnFailure() {
+    var exitCode = consoleController.run("2", "--input", dataPath.resolveSibling("missing.csv").toString());
+
+    assertEquals(ConsoleController.EXIT_FAILURE, exitCode);
+    assertEquals("", out.toString(UTF_8));
+  }
+}
@@ -0,0 +1,223 @@
+package pl.polsl.covid19.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.polsl.covid19.model.AppMetrics;
+import pl.polsl.covid19.model.AppModel;
+import pl.polsl.covid19.model.VersionedDataset;
+
+/**
+ * Test class for {@link HttpQueryServer}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class HttpQueryServerTest {
+
+  /**
+   * Content of the test data file.
+   */
+  private static final String CSV = """
+      #,Country,Total Cases,Total Deaths,New Deaths,Total Recovered,Active Cases,Serious Critical,\
+      Cases per 1M,Deaths per 1M,Total Tests,Tests per 1M,Population
+      1,Poland,100,30,1,50,20,1,10,3,1000,100,10000
+      2,"Korea, South",200,10,2,150,40,2,20,1,3000,300,10000
+      3,Chile,300,20,3,200,80,3,30,2,2000,200,10000
+      """;
+
+  /**
+   * Path of the test data file.
+   */
+  private Path dataPath;
+
+  /**
+   * Model answering the queries.
+   */
+  private AppModel appModel;
+
+  /**
+   * Instance of tested server.
+   */
+  private HttpQueryServer server;
+
+  /**
+   * Client sending requests to the server.
+   */
+  private HttpClient client;
+
+  /**
+   * HttpQueryServerTest setup.
+   *
+   * @param tempDir temporary directory for the data file
+   * @throws IOException if the data file cannot be written
+   */
+  @BeforeEach
+  public void setup(@TempDir Path tempDir) throws IOException {
+    dataPath = tempDir.resolve("CovidLive.csv");
+    Files.writeString(dataPath, CSV);
+    appModel = new AppModel(dataPath.toString(), null);
+    server = new HttpQueryServer(appModel,
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2);
+    server.start();
+    client = HttpClient.newHttpClient();
+  }
+
+  /**
+   * HttpQueryServerTest cleanup.
+   */
+  @AfterEach
+  public void cleanup() {
+    server.close();
+  }
+
+  /**
+   * Test that verifies if the record with the highest number of deaths is returned as JSON.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  void givenHighestDeathsRequestWhenSendingThenReturnRecordAsJson() throws Exception {
+    var response = get("/api/highest-deaths?metrics=total_deaths,population");
+
+    assertEquals(200, response.statusCode());
+    assertEquals("[\n{\"country\":\"Poland\",\"total_deaths\":30,\"population\":10000}\n]\n", response.body());
+    assertTrue(response.headers().firstValue("Content-Type").orElseThrow().startsWith("application/json"));
+  }
+
+  /**
+   * Test that verifies if pages of records ordered by active cases are returned with pagination headers.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  void givenPageRequestWhenSendingThenReturnPageWithLinkToNextPage() throws Exception {
+    var response = get("/api/ordered-by-active-cases?limit=2&metrics=active_cases");
+
+    assertEquals(200, response.statusCode());
+    assertEquals("[\n{\"country\":\"Chile\",\"active_cases\":80},\n"
+        + "{\"country\":\"Korea, South\",\"active_cases\":40}\n]\n", response.body());
+    assertEquals("3", response.headers().firstValue("X-Total-Count").orElseThrow());
+    var link = response.headers().firstValue("Link").orElseThrow();
+    assertTrue(link.contains("offset=2"));
+
+    var next = get(link.substring(1, link.indexOf('>')));
+
+    assertEquals("[\n{\"country\":\"Poland\",\"active_cases\":20}\n]\n", next.body());
+    assertFalse(next.headers().firstValue("Link").isPresent());
+  }
+
+  /**
+   * Test that verifies if request with the current ETag is answered without body.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  void givenCurrentEtagWhenSendingThenReturnNotModified() throws Exception {
+    var response = get("/api/tests-per-country");
+    var etag = response.headers().firstValue("ETag").orElseThrow();
+
+    var notModified = client.send(request("/api/tests-per-country").header("If-None-Match", etag).build(),
+        HttpResponse.BodyHandlers.ofString());
+
+    assertEquals(304, notModified.statusCode());
+    assertEquals("", notModified.body());
+  }
+
+  /**
+   * Test that verifies if ETag changes when the data file content changes.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  void givenChangedDataFileWhenSendingThenReturnNewEtag() throws Exception {
+    var etag = get("/api/correlation").headers().firstValue("ETag").orElseThrow();
+    Files.writeString(dataPath, CSV + "4,Peru,1,1,1,1,1,1,1,1,1,1,1\n");
+    appModel.invalidateCache();
+
+    var response = client.send(request("/api/correlation").header("If-None-Match", etag).build(),
+        HttpResponse.BodyHandlers.ofString());
+
+    assertEquals(200, response.statusCode());
+    assertNotEquals(etag, response.headers().firstValue("ETag").orElseThrow());
+  }
+
+  /**
+   * Test that verifies if invalid parameters and methods are rejected.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  void givenInvalidRequestWhenSendingThenReturnClientError() throws Exception {
+    assertEquals(400, get("/api/ordered-by-active-cases?limit=-1").statusCode());
+    assertEquals(400, get("/api/highest-deaths?metric=unknown").statusCode());
+    assertEquals(400, get("/api/tests-per-country?limit=" + (HttpQueryServer.MAX_PAGE_SIZE + 1)).statusCode());
+    var post = client.send(request("/api/correlation").POST(HttpRequest.BodyPublishers.noBody()).build(),
+        HttpResponse.BodyHandlers.ofString());
+    assertEquals(405, post.statusCode());
+  }
+
+  /**
+   * Test that verifies if an unexpected failure before the response starts is answered with server error
+   * and counted, and the server keeps answering requests.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  void givenUnexpectedFailureWhenSendingThenReturnServerError() throws Exception {
+    var failingModel = new AppModel(dataPath.toString(), null) {
+      @Override
+      public VersionedDataset getVersionedDataset() {
+        throw new IllegalStateException("broken model");
+      }
+    };
+    var failures = AppMetrics.getInstance().getRequestFailures();
+    try (var failingServer = new HttpQueryServer(failingModel,
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1)) {
+      failingServer.start();
+      var uri = URI.create("http://localhost:" + failingServer.getPort() + "/api/correlation");
+
+      for (var i = 0; i < 3; i++) {
+        var response = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(500, response.statusCode());
+        assertEquals("Internal server error\n", response.body());
+      }
+    }
+    assertEquals(failures + 3, AppMetrics.getInstance().getRequestFailures());
+  }
+
+  /**
+   * Sends GET request to the server.
+   *
+   * @param path path and query of the request
+   * @return response of the server
+   * @throws Exception if the request fails
+   */
+  private HttpResponse<String> get(String path) throws Exception {
+    return client.send(request(path).build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  /**
+   * Creates request to the server.
+   *
+   * @param path path and query of the request
+   * @return builder of the request
+   */
+  private HttpRequest.Builder request(String path) {
+    return HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path));
+  }
+}
@@ -0,0 +1,163 @@
+package pl.polsl.covid19.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Test class for {@link AppMetrics}. Metrics are shared by the whole application, so tests check differences
+ * of counters.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class AppMetricsTest {
+
+  /**
+   * Csv data with two malformed numeric cells.
+   */
+  private static final String CSV_DATA = "#,Country,Total Cases,Total Deaths,New Deaths,Total Recovered,Active Cases,"
+      + "Serious Critical,Cases per 1M,Deaths per 1M,Total Tests,Tests per 1M,Population\n"
+      + "1,Poland,100,N/A,,x1,5,6,7,8,9,10,11\n"
+      + "2,Chile,200,3,,4,5,6,7,8,9,10,11\n";
+
+  /**
+   * Name of data file used in the tests.
+   */
+  private static final String DATA_FILENAME = "CovidLive.csv";
+
+  /**
+   * Metrics of the application.
+   */
+  private final AppMetrics metrics = AppMetrics.getInstance();
+
+  /**
+   * Test that verifies if both parsers record read rows, bytes and malformed cells.
+   *
+   * @param parser tested parser
+   */
+  @ParameterizedTest
+  @EnumSource(CsvFileReader.Parser.class)
+  void givenMalformedCellsWhenReadingThenRecordReadAndMalformedCells(CsvFileReader.Parser parser) {
+    var reads = metrics.getCsvReads();
+    var rows = metrics.getCsvRowsRead();
+    var bytes = metrics.getCsvBytesRead();
+    var malformed = metrics.getCsvMalformedValues();
+
+    var dataset = new CsvFileReader(parser).readCsvData(new ByteArrayInputStream(CSV_DATA.getBytes(UTF_8)));
+
+    assertEquals(0, dataset.getValue(CovidMetric.TOTAL_DEATHS, 0));
+    assertEquals(reads + 1, metrics.getCsvReads());
+    assertEquals(rows + 2, metrics.getCsvRowsRead());
+    assertEquals(bytes + CSV_DATA.length(), metrics.getCsvBytesRead());
+    assertEquals(malformed + 2, metrics.getCsvMalformedValues());
+    assertTrue(metrics.getCsvRowsPerSecond() > 0);
+  }
+
+  /**
+   * Test that verifies if malformed cells of lazily decoded columns are recorded when the column is decoded.
+   *
+   * @param tempDir temporary directory for the data file
+   * @throws IOException if the data file cannot be written
+   */
+  @Test
+  void givenLazyColumnsWhenDecodingColumnThenRecordMalformedCells(@TempDir Path tempDir) throws IOException {
+    var path = Files.writeString(tempDir.resolve("malformed.csv"), CSV_DATA);
+    var executor = Executors.newSingleThreadExecutor();
+    try {
+      var dataset = new MappedCsvFileReader(executor, 1, 1, true).read(path).dataset();
+      var malformed = metrics.getCsvMalformedValues();
+
+      dataset.getValue(CovidMetric.TOTAL_CASES, 0);
+      assertEquals(malformed, metrics.getCsvMalformedValues());
+      dataset.getValue(CovidMetric.TOTAL_DEATHS, 0);
+      assertEquals(malformed + 1, metrics.getCsvMalformedValues());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Test that verifies if failed reads are recorded.
+   *
+   * @param tempDir temporary directory without the data file
+   */
+  @Test
+  void givenMissingFileWhenReadingThenRecordFailure(@TempDir Path tempDir) {
+    var failures = metrics.getCsvReadFailures();
+
+    assertThrows(AppException.class, () -> new MappedCsvFileReader().read(tempDir.resolve("missing.csv")));
+
+    assertEquals(failures + 1, metrics.getCsvReadFailures());
+  }
+
+  /**
+   * Test that verifies if getting all covid data records records latency of the call.
+   */
+  @Test
+  void givenCorrectFileWhenGettingAllRecordsThenRecordLatency() {
+    var appModel = new AppModel(DATA_FILENAME);
+    var dataLatency = metrics.getQueryLatency("getCovidData");
+    var datasetLatency = metrics.getQueryLatency("getCovidDataset");
+    var dataCount = dataLatency.getCount();
+    var datasetCount = datasetLatency.getCount();
+
+    appModel.getCovidData();
+    appModel.getCovidDataset();
+    appModel.getCovidDataset();
+
+    assertEquals(dataCount + 1, dataLatency.getCount());
+    assertEquals(datasetCount + 2, datasetLatency.getCount());
+  }
+
+  /**
+   * Test that verifies if queries record their latency and plan cache hits.
+   */
+  @Test
+  void givenRepeatedQueryWhenRunningThenRecordLatencyAndPlanCacheHit() {
+    var appModel = new AppModel(DATA_FILENAME);
+    var latency = metrics.getQueryLatency("runQuery");
+    var count = latency.getCount();
+    var hits = metrics.getQueryPlanCacheHits();
+    var misses = metrics.getQueryPlanCacheMisses();
+
+    appModel.runQuery("where deaths > 1000 order by deaths desc limit 3");
+    appModel.runQuery("where deaths > 1000 order by deaths desc limit 3");
+
+    assertEquals(count + 2, latency.getCount());
+    assertEquals(misses + 1, metrics.getQueryPlanCacheMisses());
+    assertEquals(hits + 1, metrics.getQueryPlanCacheHits());
+    assertTrue(metrics.getQueryPlanCacheHitRate() > 0);
+    assertTrue(metrics.getQueryLatencies().containsKey("runQuery"));
+  }
+
+  /**
+   * Test that verifies if exported metrics are readable over JMX.
+   *
+   * @throws JMException if the attribute cannot be read
+   */
+  @Test
+  void givenExportedMetricsWhenReadingOverJmxThenReturnCurrentValues() throws JMException {
+    metrics.export();
+    metrics.getQueryLatency("exportedQuery").record(1_000_000L);
+    var server = ManagementFactory.getPlatformMBeanServer();
+
+    assertEquals(metrics.getCsvRowsRead(),
+        server.getAttribute(new ObjectName(AppMetrics.DOMAIN + ":type=Metrics"), "CsvRowsRead"));
+    assertEquals(1L, server.getAttribute(
+        new ObjectName(AppMetrics.DOMAIN + ":type=QueryLatency,name=\"exportedQuery\""), "Count"));
+  }
+}
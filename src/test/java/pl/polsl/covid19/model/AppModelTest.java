@@ -1,11 +1,24 @@
 package pl.polsl.covid19.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.ThrowingSupplier;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -13,7 +26,7 @@ import org.junit.jupiter.params.provider.MethodSource;
  * Test class for AppModel {@link AppModel}.
  *
  * @author Krzysztof Franków
- * @version 1.0
+ * @version 1.3
  */
 class AppModelTest {
 
@@ -96,6 +109,69 @@ class AppModelTest {
     assertEquals(0, lastRecord.getTotalTests());
   }
 
+  /**
+   * Test that verifies if ordered data can be read page by page in both directions.
+   */
+  @Test
+  void givenCorrectFileWhenFindingPageOfOrderedDataThenReturnPage() {
+    var page = appModel.getCovidDataOrderedBy(CovidMetric.ACTIVE_CASES, true, 1, 2);
+    assertEquals(2, page.size());
+    assertEquals("Germany", page.get(0).getCountry());
+
+    var lastPage = appModel.getCovidDataOrderedBy(CovidMetric.ACTIVE_CASES, true, 228, 10);
+    assertEquals(2, lastPage.size());
+    assertEquals("Western Sahara", lastPage.get(0).getCountry());
+    assertEquals("MS Zaandam", lastPage.get(1).getCountry());
+
+    var ascending = appModel.getCovidDataOrderedBy(CovidMetric.DEATHS_PER_MILLION, false, 0, 230);
+    for (int i = 1; i < ascending.size(); i++) {
+      assertTrue(ascending.get(i - 1).getDeathsPerMillion() <= ascending.get(i).getDeathsPerMillion());
+    }
+    assertEquals(0, appModel.getCovidDataOrderedBy(CovidMetric.TOTAL_TESTS, true, 500, 10).size());
+  }
+
+  /**
+   * Test that verifies if sort index is built once per dataset.
+   */
+  @Test
+  void givenLoadedDataWhenOrderingRepeatedlyThenReuseSortIndex() {
+    var dataset = appModel.getCovidDataset();
+    assertSame(dataset.sortIndex(CovidMetric.TESTS_PER_MILLION, true),
+        dataset.sortIndex(CovidMetric.TESTS_PER_MILLION, true));
+  }
+
+  /**
+   * Test that verifies if top records found by heap, by sort index and while streaming the file are the same.
+   */
+  @Test
+  void givenCorrectFileWhenFindingTopRecordsThenReturnSameRecordsAsOrderedData() {
+    var topRecords = appModel.findTopCovidRecords(CovidMetric.ACTIVE_CASES, 10);
+    var streamedRecords = appModel.streamTopCovidRecords(CovidMetric.ACTIVE_CASES, 10);
+    var orderedRecords = appModel.getCovidDataOrderedByActiveCases();
+    var indexedRecords = appModel.findTopCovidRecords(CovidMetric.ACTIVE_CASES, 10);
+
+    assertEquals(10, topRecords.size());
+    assertEquals(10, streamedRecords.size());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(orderedRecords.get(i).getCountry(), topRecords.get(i).getCountry());
+      assertEquals(orderedRecords.get(i).getCountry(), streamedRecords.get(i).getCountry());
+      assertEquals(orderedRecords.get(i).getActiveCases(), streamedRecords.get(i).getActiveCases());
+      assertEquals(orderedRecords.get(i).getCountry(), indexedRecords.get(i).getCountry());
+    }
+    assertEquals("USA", appModel.findCovidRecordWithHighest(CovidMetric.TOTAL_TESTS).getCountry());
+    assertEquals(orderedRecords.size(), appModel.streamTopCovidRecords(CovidMetric.ACTIVE_CASES, 50_000_000).size());
+    assertEquals(orderedRecords.size(), appModel.findTopCovidRecords(CovidMetric.ACTIVE_CASES, 50_000_000).size());
+  }
+
+  /**
+   * Test that verifies if negative offset of ordered data is rejected.
+   */
+  @Test
+  void givenNegativeOffsetWhenFindingOrderedDataThenThrowAppException() {
+    assertThrows(AppException.class,
+        () -> appModel.getCovidDataOrderedBy(CovidMetric.TOTAL_DEATHS, true, -1, 10));
+  }
+
   /**
    * Test that verifies if app model with correct filename when getting all data returns correct list of data.
    */
@@ -133,6 +209,170 @@ class AppModelTest {
     assertEquals(0, lastRecord.getTotalTests());
   }
 
+  /**
+   * Test that verifies if queries streamed from the data file return the same records as queries of cached data.
+   */
+  @Test
+  void givenCorrectFileWhenStreamingQueryThenReturnSameRecordsAsCachedData() {
+    for (var text : List.of("deaths > 10000", "deaths > 10000 and activeCases < 50000 limit 3 offset 2",
+        "country = 'poland'", "limit 0")) {
+      var expected = appModel.runQuery(text);
+      var streamed = appModel.streamQuery(text);
+
+      assertEquals(expected.size(), streamed.size(), text);
+      for (var i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getCountry(), streamed.get(i).getCountry(), text);
+        assertEquals(expected.get(i).getTotalDeaths(), streamed.get(i).getTotalDeaths(), text);
+        assertEquals(expected.get(i).getActiveCases(), streamed.get(i).getActiveCases(), text);
+      }
+    }
+    assertThrows(AppException.class, () -> appModel.streamQuery("order by deaths desc limit 1"));
+  }
+
+  /**
+   * Test that verifies if repeated queries are served from cached data without reading the data file again.
+   */
+  @Test
+  void givenLoadedDataWhenQueryingRepeatedlyThenServeFromCache() {
+    var data = appModel.getCovidData();
+    appModel.findCovidRecordWithHighestNumberOfDeaths();
+    appModel.getCovidDataOrderedByActiveCases();
+
+    assertSame(data, appModel.getCovidData());
+    assertEquals(1, appModel.getCacheMissCount());
+    assertEquals(3, appModel.getCacheHitCount());
+  }
+
+  /**
+   * Test that verifies if data is read again from the data file after the cache was invalidated
+   * and unchanged data is kept.
+   */
+  @Test
+  void givenInvalidatedCacheWhenQueryingThenReadDataAgain() {
+    var data = appModel.getCovidData();
+    appModel.invalidateCache();
+    var reloadedData = appModel.getCovidData();
+
+    assertSame(data, reloadedData);
+    assertEquals(2, appModel.getCacheMissCount());
+    assertEquals(0, appModel.getCacheHitCount());
+  }
+
+  /**
+   * Test that verifies if a binary snapshot is written after the data file was parsed.
+   *
+   * @param tempDir temporary directory for the data file and the snapshot
+   * @throws IOException if the data file cannot be copied
+   */
+  @Test
+  void givenSnapshotPathWhenLoadingDataThenWriteSnapshot(@TempDir Path tempDir) throws IOException {
+    var dataFile = copyDataFile(tempDir);
+    var snapshotPath = tempDir.resolve("CovidLive.csv.c19snap");
+
+    var data = new AppModel(dataFile.toString(), snapshotPath).getCovidData();
+
+    var result = new SnapshotFile(snapshotPath).read(new DataFile(dataFile.toString()).readStamp());
+    assertNotNull(result);
+    assertEquals(data.size(), result.dataset().size());
+  }
+
+  /**
+   * Test that verifies if data is loaded from a snapshot matching the data file instead of parsing the file.
+   *
+   * @param tempDir temporary directory for the data file and the snapshot
+   * @throws IOException if the data file cannot be copied
+   */
+  @Test
+  void givenMatchingSnapshotWhenLoadingDataThenReadSnapshot(@TempDir Path tempDir) throws IOException {
+    var dataFile = copyDataFile(tempDir);
+    var snapshotPath = tempDir.resolve("CovidLive.csv.c19snap");
+    new SnapshotFile(snapshotPath).write(CovidDataset.EMPTY, 0L, new DataFile(dataFile.toString()).readStamp());
+
+    assertEquals(0, new AppModel(dataFile.toString(), snapshotPath).getCovidData().size());
+  }
+
+  /**
+   * Test that verifies if data file is parsed and the snapshot rewritten when the snapshot is stale.
+   *
+   * @param tempDir temporary directory for the data file and the snapshot
+   * @throws IOException if the data file cannot be copied
+   */
+  @Test
+  void givenStaleSnapshotWhenLoadingDataThenFallBackToDataFile(@TempDir Path tempDir) throws IOException {
+    var dataFile = copyDataFile(tempDir);
+    var snapshotPath = tempDir.resolve("CovidLive.csv.c19snap");
+    var stamp = new DataFile(dataFile.toString()).readStamp();
+    new SnapshotFile(snapshotPath).write(CovidDataset.EMPTY, 0L,
+        new DataFile.Stamp(stamp.lastModified() - 1000, stamp.size()));
+
+    var data = new AppModel(dataFile.toString(), snapshotPath).getCovidData();
+
+    assertEquals(230, data.size());
+    assertEquals(230, new SnapshotFile(snapshotPath).read(stamp).dataset().size());
+  }
+
+  /**
+   * Test that verifies if a watched data file is reloaded in background after it was replaced.
+   *
+   * @param tempDir temporary directory for the data file
+   * @throws IOException          if the data file cannot be replaced
+   * @throws InterruptedException if waiting for the change is interrupted
+   * @throws ExecutionException   if the listener fails
+   * @throws TimeoutException     if the change is not reported in time
+   */
+  @Test
+  void givenWatchedFileWhenReplacingItThenNotifyListenerWithNewData(@TempDir Path tempDir)
+      throws IOException, InterruptedException, ExecutionException, TimeoutException {
+    var dataFile = copyDataFile(tempDir);
+    var watchedModel = new AppModel(dataFile.toString(), null);
+    var changedEvent = new CompletableFuture<DatasetChangeEvent>();
+    watchedModel.addDatasetChangeListener(changedEvent::complete);
+    assertEquals("USA", watchedModel.findCovidRecordWithHighestNumberOfDeaths().getCountry());
+    watchedModel.startWatching();
+    try {
+      var newFile = tempDir.resolve("CovidLive.csv.new");
+      Files.writeString(newFile, Files.readString(dataFile).replace("\"1,084,282\"", "1"));
+      Files.move(newFile, dataFile, StandardCopyOption.REPLACE_EXISTING);
+
+      var event = changedEvent.get(10, TimeUnit.SECONDS);
+
+      assertEquals(List.of("USA"), event.getDiff().getChangedCountries());
+      assertEquals("Brazil", watchedModel.findCovidRecordWithHighestNumberOfDeaths().getCountry());
+    } finally {
+      watchedModel.stopWatching();
+    }
+  }
+
+  /**
+   * Test that verifies if approximate aggregates of the loaded data are within their bounds.
+   */
+  @Test
+  void givenCorrectFileWhenEstimatingAggregatesThenReturnEstimatesWithinBounds() {
+    var ascending = appModel.getCovidDataOrderedBy(CovidMetric.TOTAL_DEATHS, false, 0, 230);
+    var median = ascending.get((ascending.size() + 1) / 2 - 1).getTotalDeaths();
+    var distinctCountries = appModel.getCovidDataset().countryCount();
+
+    var medianEstimate = appModel.estimateQuantile(CovidMetric.TOTAL_DEATHS, 0.5);
+    var countryEstimate = appModel.estimateDistinctCountries();
+    var heavyHitters = appModel.estimateHeavyHitters(CovidMetric.TOTAL_DEATHS, 3);
+
+    assertTrue(medianEstimate.lowerBound() <= median && median <= medianEstimate.upperBound());
+    assertTrue(countryEstimate.lowerBound() <= distinctCountries && distinctCountries <= countryEstimate.upperBound());
+    assertEquals(List.of("USA", "Brazil", "India"),
+        heavyHitters.stream().map(DatasetSketches.HeavyHitter::country).toList());
+    assertTrue(heavyHitters.get(0).total().lowerBound() <= 1084282);
+    assertTrue(heavyHitters.get(0).total().upperBound() >= 1084282);
+  }
+
+  /**
+   * Test that verifies if returned data cannot be modified by the caller.
+   */
+  @Test
+  void givenLoadedDataWhenModifyingThenThrowException() {
+    var data = appModel.getCovidData();
+    assertThrows(UnsupportedOperationException.class, () -> data.remove(0));
+  }
+
   /**
    * Parameterized test that verifies if all methods return AppException if incorrect filename was used.
    *
@@ -145,6 +385,21 @@ class AppModelTest {
     assertEquals("File INCORRECT_FILENAME not found", exception.getMessage());
   }
 
+  /**
+   * Copies the data file to a directory.
+   *
+   * @param directory target directory
+   * @return path of the copy
+   * @throws IOException if the data file cannot be copied
+   */
+  private Path copyDataFile(Path directory) throws IOException {
+    var target = directory.resolve(DATA_FILENAME);
+    try (var inputStream = new DataFile(DATA_FILENAME).open()) {
+      Files.copy(inputStream, target);
+    }
+    return target;
+  }
+
   /**
    * A source of methods to be tested in parameterized test.
    *
@@ -0,0 +1,114 @@
+package pl.polsl.covid19.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test class for {@link CorrelationAccumulator} and {@link PearsonTask}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class CorrelationAccumulatorTest {
+
+  /**
+   * Allowed difference from the reference implementation.
+   */
+  private static final double TOLERANCE = 1e-9;
+
+  /**
+   * Name of file with covid data.
+   */
+  private static final String DATA_FILENAME = "CovidLive.csv";
+
+  /**
+   * Test that verifies if parallel single pass coefficient matches the two-pass reference for large values
+   * with small variance, where naive single pass sums lose precision.
+   *
+   * @param threshold number of rows below which the range is accumulated sequentially
+   */
+  @ParameterizedTest
+  @ValueSource(ints = {1, 7, 1000, 1_000_000})
+  void givenLargeValuesWhenCalculatingInParallelThenMatchTwoPassReference(int threshold) {
+    var random = new Random(threshold);
+    var x = new long[200_000];
+    var y = new long[x.length];
+    for (int i = 0; i < x.length; i++) {
+      x[i] = 1_000_000_000_000L + random.nextInt(1000);
+      y[i] = 3 * x[i] + random.nextInt(2000);
+    }
+
+    var accumulator = ForkJoinPool.commonPool().invoke(new PearsonTask(LongColumn.of(x), LongColumn.of(y), 0, x.length,
+        threshold));
+
+    assertEquals(x.length, accumulator.getCount());
+    assertEquals(twoPassPearson(x, y, x.length), accumulator.pearson(), TOLERANCE);
+  }
+
+  /**
+   * Test that verifies if app model calculates coefficient of covid data the same as the two-pass reference.
+   */
+  @Test
+  void givenCovidDataWhenCalculatingPearsonsCoefficientThenMatchTwoPassReference() {
+    var appModel = new AppModel(DATA_FILENAME);
+    var dataset = appModel.getCovidDataset();
+    var expected = twoPassPearson(dataset.column(CovidMetric.TOTAL_TESTS).toArray(),
+        dataset.column(CovidMetric.TOTAL_DEATHS).toArray(), dataset.size());
+
+    var coefficient = appModel.calculatePearsonsCoefficient(CovidMetric.TOTAL_TESTS, CovidMetric.TOTAL_DEATHS);
+
+    assertEquals(expected, coefficient, TOLERANCE);
+    assertTrue(coefficient > 0.5);
+    assertEquals(1.0, appModel.calculatePearsonsCoefficient(CovidMetric.POPULATION, CovidMetric.POPULATION),
+        TOLERANCE);
+  }
+
+  /**
+   * Test that verifies if coefficient of a constant variable is undefined.
+   */
+  @Test
+  void givenConstantValuesWhenCalculatingPearsonsCoefficientThenReturnNaN() {
+    var accumulator = new CorrelationAccumulator();
+    accumulator.add(1, 2);
+    accumulator.add(1, 5);
+    assertTrue(Double.isNaN(accumulator.pearson()));
+  }
+
+  /**
+   * Reference two-pass implementation of Pearson's coefficient. Values are shifted by the first pair
+   * with exact integer arithmetic before computing the means.
+   *
+   * @param x    values of the first variable
+   * @param y    values of the second variable
+   * @param size number of values
+   * @return Pearson's coefficient
+   */
+  private static double twoPassPearson(long[] x, long[] y, int size) {
+    var shiftedX = new double[size];
+    var shiftedY = new double[size];
+    double meanX = 0;
+    double meanY = 0;
+    for (int i = 0; i < size; i++) {
+      shiftedX[i] = x[i] - x[0];
+      shiftedY[i] = y[i] - y[0];
+      meanX += shiftedX[i];
+      meanY += shiftedY[i];
+    }
+    meanX /= size;
+    meanY /= size;
+    double covariance = 0;
+    double varianceX = 0;
+    double varianceY = 0;
+    for (int i = 0; i < size; i++) {
+      covariance += (shiftedX[i] - meanX) * (shiftedY[i] - meanY);
+      varianceX += (shiftedX[i] - meanX) * (shiftedX[i] - meanX);
+      varianceY += (shiftedY[i] - meanY) * (shiftedY[i] - meanY);
+    }
+    return covariance / Math.sqrt(varianceX * varianceY);
+  }
+}
@@ -0,0 +1,136 @@
+package pl.polsl.covid19.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link CorrelationMatrix}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class CorrelationMatrixTest {
+
+  /**
+   * Allowed difference from the reference implementation.
+   */
+  private static final double TOLERANCE = 1e-9;
+
+  /**
+   * Name of file with covid data.
+   */
+  private static final String DATA_FILENAME = "CovidLive.csv";
+
+  /**
+   * Instance of appModel with correct filename.
+   */
+  private AppModel appModel;
+
+  /**
+   * CorrelationMatrixTest setup.
+   */
+  @BeforeEach
+  public void setup() {
+    appModel = new AppModel(DATA_FILENAME);
+  }
+
+  /**
+   * Test that verifies if Pearson's coefficients of the matrix match coefficients calculated per pair.
+   */
+  @Test
+  void givenCovidDataWhenComputingMatrixThenMatchPairwisePearsonsCoefficients() {
+    var metrics = CovidMetric.values();
+    var expected = new double[metrics.length][metrics.length];
+    for (var first : metrics) {
+      for (var second : metrics) {
+        expected[first.ordinal()][second.ordinal()] = appModel.calculatePearsonsCoefficient(first, second);
+      }
+    }
+
+    var matrix = appModel.getCorrelationMatrix();
+
+    for (var first : metrics) {
+      for (var second : metrics) {
+        assertEquals(expected[first.ordinal()][second.ordinal()], matrix.getPearson(first, second), TOLERANCE);
+      }
+      assertEquals(1.0, matrix.getSpearman(first, first), TOLERANCE);
+    }
+  }
+
+  /**
+   * Test that verifies if Spearman's coefficients match the reference computed from separately sorted columns.
+   */
+  @Test
+  void givenCovidDataWhenComputingMatrixThenMatchReferenceSpearmansCoefficients() {
+    var dataset = appModel.getCovidDataset();
+    var matrix = appModel.getCorrelationMatrix();
+
+    for (var first : CovidMetric.values()) {
+      for (var second : CovidMetric.values()) {
+        var expected = referencePearson(ranks(dataset.column(first).toArray()),
+            ranks(dataset.column(second).toArray()));
+        assertEquals(expected, matrix.getSpearman(first, second), TOLERANCE);
+        assertEquals(matrix.getSpearman(first, second), matrix.getSpearman(second, first), TOLERANCE);
+      }
+    }
+  }
+
+  /**
+   * Test that verifies if the matrix is computed once per loaded data.
+   */
+  @Test
+  void givenComputedMatrixWhenRequestingAgainThenReturnCachedMatrix() {
+    assertSame(appModel.getCorrelationMatrix(), appModel.getCorrelationMatrix());
+  }
+
+  /**
+   * Reference ranking of values with average ranks of equal values.
+   *
+   * @param values values to rank
+   * @return ranks indexed like values
+   */
+  private static double[] ranks(long[] values) {
+    var order = IntStream.range(0, values.length).boxed()
+        .sorted(Comparator.comparingLong(i -> values[i]))
+        .mapToInt(Integer::intValue)
+        .toArray();
+    var ranks = new double[values.length];
+    for (int start = 0; start < order.length; ) {
+      int end = start;
+      while (end + 1 < order.length && values[order[end + 1]] == values[order[start]]) {
+        end++;
+      }
+      for (int i = start; i <= end; i++) {
+        ranks[order[i]] = (start + end) / 2.0 + 1;
+      }
+      start = end + 1;
+    }
+    return ranks;
+  }
+
+  /**
+   * Reference two-pass implementation of Pearson's coefficient.
+   *
+   * @param x values of the first variable
+   * @param y values of the second variable
+   * @return Pearson's coefficient
+   */
+  private static double referencePearson(double[] x, double[] y) {
+    var meanX = Arrays.stream(x).average().orElseThrow();
+    var meanY = Arrays.stream(y).average().orElseThrow();
+    double covariance = 0;
+    double varianceX = 0;
+    double varianceY = 0;
+    for (int i = 0; i < x.length; i++) {
+      covariance += (x[i] - meanX) * (y[i] - meanY);
+      varianceX += (x[i] - meanX) * (x[i] - meanX);
+      varianceY += (y[i] - meanY) * (y[i] - meanY);
+    }
+    return covariance / Math.sqrt(varianceX * varianceY);
+  }
+}
@@ -0,0 +1,132 @@
+package pl.polsl.covid19.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Test class for {@link CountryIndex}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class CountryIndexTest {
+
+  /**
+   * Instance of tested index.
+   */
+  private CountryIndex countryIndex;
+
+  /**
+   * CountryIndexTest setup.
+   */
+  @BeforeEach
+  public void setup() {
+    var csv = """
+        1,Poland,1,10,,1,1,1,1,1,1,1,1
+        2,Portugal,1,20,,1,1,1,1,1,1,1,1
+        3,Côte d'Ivoire,1,30,,1,1,1,1,1,1,1,1
+        4,Peru,1,40,,1,1,1,1,1,1,1,1
+        5,Poland,1,50,,1,1,1,1,1,1,1,1
+        6,"Korea, South",1,60,,1,1,1,1,1,1,1,1
+        """;
+    countryIndex = new CsvFileReader().readCsvData(new ByteArrayInputStream(csv.getBytes(UTF_8)))
+        .getCountryIndex();
+  }
+
+  /**
+   * Test that verifies if exact lookup ignores case, diacritics and surrounding whitespace.
+   *
+   * @param query searched name
+   * @param country expected country
+   */
+  @ParameterizedTest
+  @CsvSource(delimiter = ';', value = {"cote d'ivoire;Côte d'Ivoire", "CÔTE D'IVOIRE;Côte d'Ivoire",
+      "  peru ;Peru", "korea, south;Korea, South"})
+  void givenNameInDifferentFormWhenFindingThenReturnCountry(String query, String country) {
+    var records = countryIndex.find(query);
+
+    assertEquals(1, records.size());
+    assertEquals(country, records.get(0).getCountry());
+  }
+
+  /**
+   * Test that verifies if all records of a country are found in dataset order.
+   */
+  @Test
+  void givenCountryWithManyRecordsWhenFindingThenReturnAllRecords() {
+    var records = countryIndex.find("POLAND");
+
+    assertEquals(2, records.size());
+    assertEquals(10, records.get(0).getTotalDeaths());
+    assertEquals(50, records.get(1).getTotalDeaths());
+    assertTrue(countryIndex.find("Pol").isEmpty());
+  }
+
+  /**
+   * Test that verifies if prefix lookup returns names starting with the prefix in alphabetical order.
+   */
+  @Test
+  void givenPrefixWhenCompletingThenReturnNamesWithPrefix() {
+    assertEquals(List.of("Peru", "Poland", "Portugal"), countryIndex.complete("p", 10));
+    assertEquals(List.of("Poland", "Portugal"), countryIndex.complete("Po", 10));
+    assertEquals(List.of("Poland"), countryIndex.complete("Po", 1));
+    assertEquals(List.of("Côte d'Ivoire"), countryIndex.complete("cô", 10));
+    assertTrue(countryIndex.complete("x", 10).isEmpty());
+  }
+
+  /**
+   * Test that verifies if fuzzy lookup returns names within the distance ordered by distance.
+   */
+  @Test
+  void givenMisspelledNameWhenFindingSimilarThenReturnNamesWithinDistance() {
+    assertEquals(List.of("Poland"), countryIndex.findSimilar("Polnad", 2, 10));
+    assertEquals(List.of("Peru"), countryIndex.findSimilar("Pery", 1, 10));
+    assertEquals(List.of("Peru", "Poland"), countryIndex.findSimilar("Polu", 3, 10));
+    assertTrue(countryIndex.findSimilar("Polnad", 1, 10).isEmpty());
+  }
+
+  /**
+   * Test that verifies if bounded distance equals Levenshtein distance within the bound.
+   *
+   * @param first    first string
+   * @param second   second string
+   * @param distance Levenshtein distance of the strings
+   */
+  @ParameterizedTest
+  @CsvSource({"kitten,sitting,3", "poland,poland,0", "poland,polan,1", "abc,,3", "flaw,lawn,2", "abcdef,badcfe,4"})
+  void givenStringsWhenComputingBoundedDistanceThenReturnLevenshteinDistance(String first, String second,
+                                                                              int distance) {
+    first = first == null ? "" : first;
+    second = second == null ? "" : second;
+    var length = Math.max(first.length(), second.length()) + 1;
+    for (var bound = 0; bound <= 4; bound++) {
+      var result = CountryIndex.boundedDistance(first, second, bound, new int[length], new int[length]);
+      if (distance <= bound) {
+        assertEquals(distance, result);
+      } else {
+        assertTrue(result > bound);
+      }
+    }
+  }
+
+  /**
+   * Test that verifies if search returns exact, prefix and similar matches in this order.
+   */
+  @Test
+  void givenQueryWhenSearchingThenReturnExactPrefixAndSimilarMatches() {
+    var countries = countryIndex.search("peru", 10).stream().map(CovidData::getCountry).toList();
+    var typo = countryIndex.search("portgual", 10).stream().map(CovidData::getCountry).toList();
+
+    assertEquals(List.of("Peru"), countries);
+    assertEquals(List.of("Portugal"), typo);
+    assertEquals(3, countryIndex.search("po", 3).size());
+    assertTrue(countryIndex.search(" ", 10).isEmpty());
+  }
+}
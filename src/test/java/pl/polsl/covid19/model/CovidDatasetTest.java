@@ -0,0 +1,202 @@
+package pl.polsl.covid19.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link CovidDataset}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.2
+ */
+class CovidDatasetTest {
+
+  /**
+   * Test that verifies if rows added to the builder are stored in columns with dictionary encoded countries.
+   */
+  @Test
+  void givenRowsWhenBuildingDatasetThenStoreColumnsAndEncodeCountries() {
+    var dataset = new CovidDataset.Builder()
+        .addRow("Poland", row(10, 20, 30, 40))
+        .addRow("Germany", row(11, 21, 31, 41))
+        .addRow("Poland", row(12, 22, 32, 42))
+        .build();
+
+    assertEquals(3, dataset.size());
+    assertEquals(2, dataset.countryCount());
+    assertEquals(dataset.countryCode(0), dataset.countryCode(2));
+    assertEquals("Poland", dataset.getCountry(2));
+    assertEquals(21, dataset.getValue(CovidMetric.ACTIVE_CASES, 1));
+    assertEquals(42, dataset.get(2).getPopulation());
+    assertEquals(3, dataset.column(CovidMetric.TOTAL_DEATHS).size());
+  }
+
+  /**
+   * Test that verifies if dataset of selected records copies them in list order.
+   */
+  @Test
+  void givenSelectedRecordsWhenCreatingDatasetThenCopyRecordsInListOrder() {
+    var dataset = new CovidDataset.Builder()
+        .addRow("Poland", row(1, 2, 3, 4))
+        .addRow("Germany", row(5, 6, 7, 8))
+        .addRow("France", row(9, 10, 11, 12))
+        .build();
+
+    var selected = CovidDataset.of(List.of(dataset.get(2), dataset.get(0)));
+
+    assertEquals(2, selected.size());
+    assertEquals("France", selected.getCountry(0));
+    assertEquals("Poland", selected.getCountry(1));
+    for (var metric : CovidMetric.values()) {
+      assertEquals(dataset.getValue(metric, 2), selected.getValue(metric, 0));
+    }
+    assertEquals(1, selected.orderedRow(CovidMetric.TOTAL_DEATHS, false, 0));
+    assertEquals(0, CovidDataset.of(List.of()).size());
+  }
+
+  /**
+   * Test that verifies if merging datasets keeps row order and re-encodes countries.
+   */
+  @Test
+  void givenTwoDatasetsWhenMergingThenKeepRowOrderAndCountries() {
+    var first = new CovidDataset.Builder()
+        .addRow("Poland", row(1, 2, 3, 4))
+        .addRow("Germany", row(5, 6, 7, 8))
+        .build();
+    var second = new CovidDataset.Builder()
+        .addRow("Germany", row(9, 10, 11, 12))
+        .addRow("France", row(13, 14, 15, 16))
+        .build();
+
+    var merged = new CovidDataset.Builder().addAll(first).addAll(second).build();
+
+    assertEquals(4, merged.size());
+    assertEquals(3, merged.countryCount());
+    assertEquals(merged.countryCode(1), merged.countryCode(2));
+    assertEquals("France", merged.getCountry(3));
+    assertEquals(9, merged.get(2).getTotalDeaths());
+  }
+
+  /**
+   * Test that verifies if rows can be walked in order of country names and metric values.
+   */
+  @Test
+  void givenDatasetWhenWalkingOrderedRowsThenReturnRowsInOrder() {
+    var dataset = new CovidDataset.Builder()
+        .addRow("Poland", row(3, 1, 0, 0))
+        .addRow("Germany", row(1, 2, 0, 0))
+        .addRow("Austria", row(2, 2, 0, 0))
+        .addRow("Germany", row(4, 3, 0, 0))
+        .build();
+
+    assertEquals(2, dataset.orderedRowByCountry(false, 0));
+    assertEquals(1, dataset.orderedRowByCountry(false, 1));
+    assertEquals(3, dataset.orderedRowByCountry(false, 2));
+    assertEquals(0, dataset.orderedRowByCountry(true, 0));
+    assertEquals(1, dataset.orderedRowByCountry(true, 1));
+    assertEquals(3, dataset.orderedRow(CovidMetric.ACTIVE_CASES, true, 0));
+    assertEquals(1, dataset.orderedRow(CovidMetric.ACTIVE_CASES, true, 1));
+    assertEquals(1, dataset.orderedRow(CovidMetric.TOTAL_DEATHS, false, 0));
+  }
+
+  /**
+   * Test that verifies if sort indexes updated for a few changed rows equal indexes sorted from scratch.
+   */
+  @Test
+  void givenFewChangedRowsWhenUpdatingIndexesThenMatchFullSort() {
+    var random = new Random(17);
+    var previousBuilder = new CovidDataset.Builder();
+    var currentBuilder = new CovidDataset.Builder();
+    var changedRows = new int[] {3, 250, 251, 777, 999};
+    var next = 0;
+    for (var i = 0; i < 1000; i++) {
+      var values = row(random.nextInt(50), random.nextInt(50), random.nextInt(1000), 1);
+      previousBuilder.addRow("Country " + (i % 70), values);
+      if (next < changedRows.length && changedRows[next] == i) {
+        values = row(random.nextInt(60), random.nextInt(60), values[CovidMetric.TOTAL_TESTS.getCsvColumn()], 1);
+        next++;
+      }
+      currentBuilder.addRow("Country " + (i % 70), values);
+    }
+    var previous = previousBuilder.build();
+    var current = currentBuilder.build();
+    previous.buildSortIndex(CovidMetric.TOTAL_DEATHS, true);
+    previous.buildSortIndex(CovidMetric.ACTIVE_CASES, false);
+    previous.orderedRowByCountry(false, 0);
+
+    current.updateIndexesFrom(previous, changedRows);
+
+    assertTrue(current.hasSortIndex(CovidMetric.TOTAL_DEATHS, true));
+    assertTrue(current.hasSortIndex(CovidMetric.ACTIVE_CASES, false));
+    assertFalse(current.hasSortIndex(CovidMetric.TOTAL_TESTS, true));
+    assertArrayEquals(ColumnSort.sortedRows(current.column(CovidMetric.TOTAL_DEATHS), current.size(), true),
+        current.sortIndex(CovidMetric.TOTAL_DEATHS, true));
+    assertArrayEquals(ColumnSort.sortedRows(current.column(CovidMetric.ACTIVE_CASES), current.size(), false),
+        current.sortIndex(CovidMetric.ACTIVE_CASES, false));
+    assertEquals(previous.orderedRowByCountry(false, 0), current.orderedRowByCountry(false, 0));
+  }
+
+  /**
+   * Test that verifies if datasets with off-heap columns, decoded or raw, hold the same data as heap datasets.
+   */
+  @Test
+  void givenOffHeapStorageWhenBuildingDatasetThenMatchHeapDataset() {
+    var csv = "1,Poland,\"1,000\",20,,4,5,6,7,8,9,10,\"38,000,000\"\n2,Germany,3000,40,,4,5,6,7,8,9,10,83000000\n";
+    var data = csv.getBytes(UTF_8);
+    var raw = new CovidDataset.Builder(data).withStorage(ColumnStorage.OFF_HEAP)
+        .addRawRow("Poland", 0)
+        .addRawRow("Germany", csv.indexOf('\n') + 1)
+        .build();
+    var heap = new CovidDataset.Builder().withStorage(ColumnStorage.HEAP)
+        .addRow("Poland", row(20, 5, 9, 38_000_000))
+        .addRow("Germany", row(40, 5, 9, 83_000_000))
+        .build();
+    var offHeap = new CovidDataset.Builder().withStorage(ColumnStorage.OFF_HEAP).addAll(heap).build();
+
+    assertTrue(raw.column(CovidMetric.TOTAL_DEATHS).isOffHeap());
+    assertTrue(offHeap.column(CovidMetric.TOTAL_DEATHS).isOffHeap());
+    assertFalse(heap.column(CovidMetric.TOTAL_DEATHS).isOffHeap());
+    assertEquals(1000, raw.getValue(CovidMetric.TOTAL_CASES, 0));
+    for (var metric : new CovidMetric[] {CovidMetric.TOTAL_DEATHS, CovidMetric.ACTIVE_CASES, CovidMetric.TOTAL_TESTS,
+        CovidMetric.POPULATION}) {
+      assertArrayEquals(heap.column(metric).toArray(), raw.column(metric).toArray(), metric.name());
+      assertArrayEquals(heap.column(metric).toArray(), offHeap.column(metric).toArray(), metric.name());
+    }
+    assertEquals(1, offHeap.orderedRow(CovidMetric.POPULATION, true, 0));
+    assertEquals(83_000_000, offHeap.get(1).getPopulation());
+  }
+
+  /**
+   * Test that verifies if accessing a row out of dataset bounds throws exception.
+   */
+  @Test
+  void givenRowOutOfBoundsWhenGettingValueThenThrowException() {
+    var dataset = new CovidDataset.Builder().addRow("Poland", row(1, 2, 3, 4)).build();
+    assertThrows(IndexOutOfBoundsException.class, () -> dataset.getValue(CovidMetric.TOTAL_DEATHS, 1));
+  }
+
+  /**
+   * Creates csv row values with given metrics.
+   *
+   * @param deaths      total deaths
+   * @param activeCases active cases
+   * @param tests       total tests
+   * @param population  population
+   * @return values indexed by csv column
+   */
+  private static long[] row(long deaths, long activeCases, long tests, long population) {
+    var values = new long[CsvRowParser.COLUMN_COUNT];
+    values[CovidMetric.TOTAL_DEATHS.getCsvColumn()] = deaths;
+    values[CovidMetric.ACTIVE_CASES.getCsvColumn()] = activeCases;
+    values[CovidMetric.TOTAL_TESTS.getCsvColumn()] = tests;
+    values[CovidMetric.POPULATION.getCsvColumn()] = population;
+    return values;
+  }
+}
@@ -1,15 +1,23 @@
 package pl.polsl.covid19.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.NoSuchElementException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * Test class for {@link CsvFileReader}
  *
  * @author Krzysztof Franków
- * @version 1.0
+ * @version 1.1
  */
 class CsvFileReaderTest {
 
@@ -73,6 +81,83 @@ class CsvFileReaderTest {
     assertEquals(0, lastRecord.getTotalTests());
   }
 
+  /**
+   * Test that verifies if streaming and opencsv parsers read the same data.
+   */
+  @Test
+  void givenCorrectFilenameWhenReadingWithBothParsersThenReturnSameData() {
+    var streamingData = new CsvFileReader(CsvFileReader.Parser.STREAMING).readCsvFile(DATA_FILENAME);
+    var openCsvData = new CsvFileReader(CsvFileReader.Parser.OPENCSV).readCsvFile(DATA_FILENAME);
+
+    assertEquals(openCsvData.size(), streamingData.size());
+    for (int i = 0; i < openCsvData.size(); i++) {
+      assertEquals(openCsvData.get(i).getCountry(), streamingData.get(i).getCountry());
+      assertEquals(openCsvData.get(i).getTotalDeaths(), streamingData.get(i).getTotalDeaths());
+      assertEquals(openCsvData.get(i).getActiveCases(), streamingData.get(i).getActiveCases());
+      assertEquals(openCsvData.get(i).getTotalTests(), streamingData.get(i).getTotalTests());
+    }
+  }
+
+  /**
+   * Test that verifies if batches pulled from the data file hold the same records as the data read at once.
+   */
+  @Test
+  void givenCorrectFilenameWhenIteratingBatchesThenReturnSameData() {
+    var data = csvFileReader.readCsvFile(DATA_FILENAME);
+    var builder = new CovidDataset.Builder();
+    var batchCount = 0;
+
+    try (var batches = new CsvRecordIterator(new DataFile(DATA_FILENAME).open(), 1024)) {
+      while (batches.hasNext()) {
+        builder.addAll(batches.next());
+        batchCount++;
+      }
+      assertThrows(NoSuchElementException.class, batches::next);
+    }
+
+    var iterated = builder.build();
+    assertTrue(batchCount > 10);
+    assertEquals(data.size(), iterated.size());
+    for (var row = 0; row < data.size(); row++) {
+      assertEquals(data.getCountry(row), iterated.getCountry(row));
+      for (var metric : CovidMetric.values()) {
+        assertEquals(data.getValue(metric, row), iterated.getValue(metric, row));
+      }
+    }
+  }
+
+  /**
+   * Test that verifies if a query pulling batches stops reading the file once it has enough records.
+   *
+   * @param tempDir temporary directory for the data file
+   * @throws IOException if the data file cannot be written
+   */
+  @Test
+  void givenQueryWithLimitWhenIteratingLargeFileThenStopReadingAtFirstMatch(@TempDir Path tempDir)
+      throws IOException {
+    var path = tempDir.resolve("data.csv");
+    var fileSize = new SyntheticCsvGenerator(42L).writeRows(path, 100_000);
+    var query = Query.parse("deaths > 1000 limit 1");
+    var expected = query.execute(csvFileReader.readCsvFile(new DataFile(path.toString())).dataset());
+
+    List<CovidData> result;
+    long byteCount;
+    try (var batches = csvFileReader.iterateCsvFile(new DataFile(path.toString()))) {
+      result = query.execute(batches);
+      byteCount = batches.getByteCount();
+      assertTrue(batches.hasNext());
+    }
+
+    assertEquals(1, result.size());
+    assertEquals(expected.get(0).getCountry(), result.get(0).getCountry());
+    assertEquals(expected.get(0).getTotalDeaths(), result.get(0).getTotalDeaths());
+    assertTrue(byteCount <= 2L * CsvRecordIterator.BUFFER_SIZE, "read " + byteCount + " of " + fileSize);
+    try (var batches = csvFileReader.iterateCsvFile(new DataFile(path.toString()))) {
+      assertThrows(AppException.class, () -> Query.parse("deaths > 1000 order by deaths limit 1").execute(batches));
+      assertFalse(batches.getByteCount() > 0);
+    }
+  }
+
   /**
    * Test that verifies if csvFileReader throws correct exception when incorrect filename provided.
    */
@@ -0,0 +1,111 @@
+package pl.polsl.covid19.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test class for {@link CsvRowParser}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class CsvRowParserTest {
+
+  /**
+   * Csv data with header, quoted numbers, empty cells and windows line breaks.
+   */
+  private static final String CSV_DATA = "#,\"Country, Other\",\"Total Cases\",\"Total Deaths\"\r\n"
+      + "1,USA,\"98,166,904\",\"1,084,282\",,\"94,962,112\"\r\n"
+      + "2,\"Korea, \"\"South\"\"\",-5,N/A,12\r\n"
+      + "3,Tuvalu,20,,,";
+
+  /**
+   * Instance of tested parser.
+   */
+  private CsvRowParser parser;
+
+  /**
+   * Parsed countries.
+   */
+  private List<String> countries;
+
+  /**
+   * Parsed values.
+   */
+  private List<long[]> values;
+
+  /**
+   * CsvRowParserTest setup.
+   */
+  @BeforeEach
+  public void setup() {
+    parser = new CsvRowParser();
+    countries = new ArrayList<>();
+    values = new ArrayList<>();
+  }
+
+  /**
+   * Test that verifies if parser reads quoted, escaped, empty and malformed cells correctly.
+   */
+  @Test
+  void givenCsvDataWhenParsingThenReturnParsedRows() {
+    parser.parse(ByteBuffer.wrap(CSV_DATA.getBytes(UTF_8)), true, this::collect);
+
+    assertEquals(List.of("USA", "Korea, \"South\"", "Tuvalu"), countries);
+    assertArrayEquals(new long[] {1, 0, 98166904, 1084282, 0, 94962112, 0, 0, 0, 0, 0, 0, 0}, values.get(0));
+    assertArrayEquals(new long[] {2, 0, -5, 0, 12, 0, 0, 0, 0, 0, 0, 0, 0}, values.get(1));
+    assertArrayEquals(new long[] {3, 0, 20, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0}, values.get(2));
+  }
+
+  /**
+   * Test that verifies if rows split between buffers at any position are parsed the same way.
+   *
+   * @param splitPosition position at which csv data is split
+   */
+  @ParameterizedTest
+  @ValueSource(ints = {1, 40, 48, 49, 60, 75, 76, 100, 110})
+  void givenSplitCsvDataWhenParsingThenReturnSameRows(int splitPosition) {
+    var bytes = CSV_DATA.getBytes(UTF_8);
+    var buffer = ByteBuffer.allocate(bytes.length);
+    buffer.put(bytes, 0, splitPosition).flip();
+    parser.parse(buffer, false, this::collect);
+    buffer.compact().put(bytes, splitPosition, bytes.length - splitPosition).flip();
+    parser.parse(buffer, true, this::collect);
+
+    assertEquals(List.of("USA", "Korea, \"South\"", "Tuvalu"), countries);
+    assertEquals(98166904, values.get(0)[2]);
+    assertEquals(12, values.get(1)[4]);
+    assertEquals(20, values.get(2)[2]);
+  }
+
+  /**
+   * Test that verifies if the last row without line break is kept in the buffer until the end of input.
+   */
+  @Test
+  void givenIncompleteRowWhenParsingThenKeepItInBuffer() {
+    var buffer = ByteBuffer.wrap("1,USA,5\n2,India,7".getBytes(UTF_8));
+    parser.parse(buffer, false, this::collect);
+
+    assertEquals(List.of("USA"), countries);
+    assertEquals(8, buffer.position());
+  }
+
+  /**
+   * Collects a parsed row.
+   *
+   * @param country name of the country
+   * @param row     values of the row
+   */
+  private void collect(String country, long[] row) {
+    countries.add(country);
+    values.add(row.clone());
+  }
+}
@@ -0,0 +1,171 @@
+package pl.polsl.covid19.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for {@link DatasetCache}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class DatasetCacheTest {
+
+  /**
+   * Directory of the data file.
+   */
+  @TempDir
+  Path tempDir;
+
+  /**
+   * Path of the data file.
+   */
+  private Path dataPath;
+
+  /**
+   * Instance of tested cache.
+   */
+  private DatasetCache datasetCache;
+
+  /**
+   * Events received by the listener.
+   */
+  private List<DatasetChangeEvent> events;
+
+  /**
+   * DatasetCacheTest setup.
+   *
+   * @throws IOException if the data file cannot be written
+   */
+  @BeforeEach
+  public void setup() throws IOException {
+    dataPath = tempDir.resolve("data.csv");
+    Files.writeString(dataPath, "1,Poland,1,5,,1,40\n2,Chile,1,6,,1,30\n3,Peru,1,7,,1,20\n");
+    datasetCache = new DatasetCache(new DataFile(dataPath.toString()), new CsvFileReader(), null, 0L);
+    events = new ArrayList<>();
+    datasetCache.addChangeListener(events::add);
+  }
+
+  /**
+   * Test that verifies if listeners are notified about a new version with its difference from the previous one.
+   *
+   * @throws IOException if the data file cannot be written
+   */
+  @Test
+  void givenChangedFileWhenRefreshingThenNotifyListenersWithDiff() throws IOException {
+    var previous = datasetCache.get();
+    replaceDataFile("1,Poland,1,5,,1,40\n2,Chile,1,6,,1,50\n3,Peru,1,7,,1,20\n");
+
+    var current = datasetCache.refresh();
+
+    assertEquals(previous.version() + 1, current.version());
+    assertEquals(1, events.size());
+    assertSame(current.dataset(), events.get(0).getDataset());
+    assertSame(previous.dataset(), events.get(0).getPreviousDataset());
+    assertEquals(List.of("Chile"), events.get(0).getDiff().getChangedCountries());
+    assertEquals("Chile", current.dataset().get(current.dataset().orderedRow(CovidMetric.ACTIVE_CASES, true, 0))
+        .getCountry());
+  }
+
+  /**
+   * Test that verifies if sort indexes of the previous version are updated when only a few rows changed.
+   *
+   * @throws IOException if the data file cannot be written
+   */
+  @Test
+  void givenFewChangedRowsWhenRefreshingThenUpdateSortIndexes() throws IOException {
+    var rows = new StringBuilder();
+    for (var i = 0; i < 100; i++) {
+      rows.append(i).append(",Country ").append(i).append(",1,1,,1,").append(i).append('\n');
+    }
+    replaceDataFile(rows.toString());
+    datasetCache.refresh().dataset().buildSortIndex(CovidMetric.ACTIVE_CASES, true);
+    replaceDataFile(rows.toString().replace("5,Country 5,1,1,,1,5", "5,Country 5,1,1,,1,500"));
+
+    var dataset = datasetCache.refresh().dataset();
+
+    assertTrue(dataset.hasSortIndex(CovidMetric.ACTIVE_CASES, true));
+    assertEquals(5, dataset.orderedRow(CovidMetric.ACTIVE_CASES, true, 0));
+    assertEquals(99, dataset.orderedRow(CovidMetric.ACTIVE_CASES, true, 1));
+  }
+
+  /**
+   * Test that verifies if listeners are not notified when the file content did not change.
+   *
+   * @throws IOException if the data file cannot be written
+   */
+  @Test
+  void givenSameContentWhenRefreshingThenKeepSnapshotWithoutEvent() throws IOException {
+    var previous = datasetCache.get();
+    replaceDataFile(Files.readString(dataPath));
+
+    var current = datasetCache.refresh();
+
+    assertSame(previous.dataset(), current.dataset());
+    assertTrue(events.isEmpty());
+  }
+
+  /**
+   * Test that verifies if an invalidated cache parses the file again, keeping the version of unchanged content
+   * and notifying listeners about changed content.
+   *
+   * @throws IOException if the data file cannot be written
+   */
+  @Test
+  void givenInvalidatedCacheWhenGettingThenCompareWithCachedSnapshot() throws IOException {
+    var previous = datasetCache.get();
+    var misses = datasetCache.getMissCount();
+
+    datasetCache.invalidate();
+    var unchanged = datasetCache.get();
+    Files.writeString(dataPath, "1,Poland,1,5,,1,40\n2,Chile,1,6,,1,50\n3,Peru,1,7,,1,20\n");
+    datasetCache.invalidate();
+    var changed = datasetCache.get();
+
+    assertEquals(misses + 2, datasetCache.getMissCount());
+    assertSame(previous.dataset(), unchanged.dataset());
+    assertEquals(previous.version(), unchanged.version());
+    assertEquals(previous.version() + 1, changed.version());
+    assertEquals(1, events.size());
+    assertSame(previous.dataset(), events.get(0).getPreviousDataset());
+    assertEquals(List.of("Chile"), events.get(0).getDiff().getChangedCountries());
+    assertSame(changed, datasetCache.get());
+  }
+
+  /**
+   * Test that verifies if watched cache does not check the file on requests.
+   *
+   * @throws IOException if the data file cannot be written
+   */
+  @Test
+  void givenWatchedCacheWhenFileChangesThenServeCachedDataUntilRefresh() throws IOException {
+    var previous = datasetCache.get();
+    datasetCache.setWatched(true);
+    replaceDataFile("1,Poland,1,5,,1,40\n");
+
+    assertSame(previous, datasetCache.get());
+    assertEquals(1, datasetCache.refresh().dataset().size());
+  }
+
+  /**
+   * Replaces the data file like an export does, writing a new file and moving it over the old one.
+   *
+   * @param content new content of the data file
+   * @throws IOException if the file cannot be written
+   */
+  private void replaceDataFile(String content) throws IOException {
+    var newFile = tempDir.resolve("data.csv.new");
+    Files.writeString(newFile, content);
+    Files.move(newFile, dataPath, StandardCopyOption.REPLACE_EXISTING);
+  }
+}
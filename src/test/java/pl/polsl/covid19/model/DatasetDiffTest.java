@@ -0,0 +1,74 @@
+package pl.polsl.covid19.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link DatasetDiff}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class DatasetDiffTest {
+
+  /**
+   * Test that verifies if changed rows are listed when both versions have the same countries in the same rows.
+   */
+  @Test
+  void givenAlignedRowsWhenComputingDiffThenReturnChangedRowsAndCountries() {
+    var previous = readCsv("1,Poland,1,5,,1,1\n2,Chile,1,6,,1,1\n3,Peru,1,7,,1,1\n");
+    var current = readCsv("1,Poland,1,5,,1,1\n2,Chile,1,9,,1,1\n3,Peru,1,7,,1,2\n");
+
+    var diff = DatasetDiff.compute(previous, current);
+
+    assertArrayEquals(new int[] {1, 2}, diff.changedRows());
+    assertEquals(List.of("Chile", "Peru"), diff.getChangedCountries());
+    assertTrue(diff.getAddedCountries().isEmpty());
+    assertTrue(diff.getRemovedCountries().isEmpty());
+  }
+
+  /**
+   * Test that verifies if added, removed and changed countries are found when rows are not aligned.
+   */
+  @Test
+  void givenDifferentCountriesWhenComputingDiffThenReturnAddedRemovedAndChangedCountries() {
+    var previous = readCsv("1,Poland,1,5,,1,1\n2,Chile,1,6,,1,1\n3,Peru,1,7,,1,1\n");
+    var current = readCsv("1,Peru,1,8,,1,1\n2,Poland,1,5,,1,1\n3,Cuba,1,1,,1,1\n");
+
+    var diff = DatasetDiff.compute(previous, current);
+
+    assertNull(diff.changedRows());
+    assertEquals(List.of("Cuba"), diff.getAddedCountries());
+    assertEquals(List.of("Chile"), diff.getRemovedCountries());
+    assertEquals(List.of("Peru"), diff.getChangedCountries());
+  }
+
+  /**
+   * Test that verifies if versions with the same data give empty difference.
+   */
+  @Test
+  void givenSameDataWhenComputingDiffThenReturnEmptyDiff() {
+    var csv = "1,Poland,1,5,,1,1\n2,Chile,1,6,,1,1\n";
+
+    var diff = DatasetDiff.compute(readCsv(csv), readCsv(csv));
+
+    assertTrue(diff.isEmpty());
+    assertEquals(0, diff.changedRows().length);
+  }
+
+  /**
+   * Reads csv data from a string.
+   *
+   * @param csv csv data
+   * @return read data
+   */
+  private CovidDataset readCsv(String csv) {
+    return new CsvFileReader().readCsvData(new ByteArrayInputStream(csv.getBytes(UTF_8)));
+  }
+}
@@ -0,0 +1,132 @@
+package pl.polsl.covid19.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for {@link DatasetSketches}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class DatasetSketchesTest {
+
+  /**
+   * Name of data file used in the tests.
+   */
+  private static final String DATA_FILENAME = "CovidLive.csv";
+
+  /**
+   * Dataset read from stream of the data file, so its values are decoded while reading.
+   */
+  private CovidDataset dataset;
+
+  /**
+   * DatasetSketchesTest setup.
+   *
+   * @throws IOException if the data file cannot be closed
+   */
+  @BeforeEach
+  public void setup() throws IOException {
+    try (var inputStream = new DataFile(DATA_FILENAME).open()) {
+      dataset = new CsvFileReader().readCsvData(inputStream);
+    }
+  }
+
+  /**
+   * Test that verifies if sketches built while reading a file in chunks match sketches of a sequential read.
+   *
+   * @param tempDir temporary directory for the data file
+   * @throws IOException if the data file cannot be written
+   */
+  @Test
+  void givenChunkedReadWhenComparingWithSequentialReadThenReturnSameEstimates(@TempDir Path tempDir)
+      throws IOException {
+    var path = tempDir.resolve(DATA_FILENAME);
+    try (var inputStream = new DataFile(DATA_FILENAME).open()) {
+      Files.copy(inputStream, path);
+    }
+    var executor = Executors.newFixedThreadPool(4);
+    try {
+      var chunked = new MappedCsvFileReader(executor, 4, 1024, false).read(path).dataset();
+      assertTrue(dataset.hasSketches());
+      assertTrue(chunked.hasSketches());
+      var sequential = dataset.getSketches();
+      var merged = chunked.getSketches();
+
+      assertEquals(dataset.size(), merged.getRowCount());
+      assertEquals(sequential.estimateDistinctCountries(), merged.estimateDistinctCountries());
+      for (var metric : CovidMetric.values()) {
+        assertEquals(sequential.estimateQuantile(metric, 0.0).value(), merged.estimateQuantile(metric, 0.0).value());
+        assertEquals(sequential.estimateQuantile(metric, 1.0).value(), merged.estimateQuantile(metric, 1.0).value());
+        assertEquals(sequential.estimateHeavyHitters(metric, 5), merged.estimateHeavyHitters(metric, 5));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Test that verifies if sketches of chunks added to a builder are merged into estimates of all rows.
+   */
+  @Test
+  void givenChunksWhenAddingToBuilderThenMergeSketches() {
+    var firstChunk = new CovidDataset.Builder().withSketches();
+    var secondChunk = new CovidDataset.Builder().withSketches();
+    var values = new long[CsvRowParser.COLUMN_COUNT];
+    for (var row = 0; row < dataset.size(); row++) {
+      for (var metric : CovidMetric.values()) {
+        values[metric.getCsvColumn()] = dataset.getValue(metric, row);
+      }
+      (row % 2 == 0 ? firstChunk : secondChunk).addRow(dataset.getCountry(row), values);
+    }
+
+    var merged = new CovidDataset.Builder().addAll(firstChunk.build()).addAll(secondChunk.build()).build();
+
+    assertTrue(merged.hasSketches());
+    var sketches = merged.getSketches();
+    var exact = dataset.countryCount();
+    var countries = sketches.estimateDistinctCountries();
+    assertEquals(dataset.size(), sketches.getRowCount());
+    assertTrue(countries.lowerBound() <= exact && exact <= countries.upperBound());
+    var usa = sketches.estimateHeavyHitters(CovidMetric.TOTAL_CASES, 1).get(0);
+    assertEquals("USA", usa.country());
+    assertTrue(usa.total().lowerBound() <= 98166904 && 98166904 <= usa.total().upperBound());
+  }
+
+  /**
+   * Test that verifies if dataset of raw rows builds its sketches on first use.
+   */
+  @Test
+  void givenRawDatasetWhenGettingSketchesThenBuildThemOnFirstUse() {
+    var data = "1,Poland,10,20,,1,1,1,1,1,1,1,1\n".getBytes(UTF_8);
+    var raw = new CovidDataset.Builder(data).addRawRow("Poland", 0).build();
+
+    assertFalse(raw.hasSketches());
+    assertEquals(20, raw.getSketches().estimateQuantile(CovidMetric.TOTAL_DEATHS, 0.5).value());
+    assertTrue(raw.hasSketches());
+  }
+
+  /**
+   * Test that verifies if estimates of empty sketches or invalid arguments are rejected.
+   */
+  @Test
+  void givenInvalidArgumentsWhenEstimatingThenThrowAppException() {
+    var sketches = dataset.getSketches();
+    assertThrows(AppException.class, () -> new DatasetSketches().estimateQuantile(CovidMetric.TOTAL_CASES, 0.5));
+    assertThrows(AppException.class, () -> sketches.estimateQuantile(CovidMetric.TOTAL_CASES, -0.1));
+    assertThrows(AppException.class,
+        () -> sketches.estimateHeavyHitters(CovidMetric.TOTAL_CASES, HeavyHitterSketch.CANDIDATE_COUNT + 1));
+    assertEquals(0, new DatasetSketches().estimateDistinctCountries().value());
+  }
+}
@@ -0,0 +1,184 @@
+package pl.polsl.covid19.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link GroupAggregation}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class GroupAggregationTest {
+
+  /**
+   * Allowed difference of computed rates.
+   */
+  private static final double TOLERANCE = 1e-9;
+
+  /**
+   * Name of file with covid data.
+   */
+  private static final String DATA_FILENAME = "CovidLive.csv";
+
+  /**
+   * Instance of appModel with correct filename.
+   */
+  private AppModel appModel;
+
+  /**
+   * GroupAggregationTest setup.
+   */
+  @BeforeEach
+  public void setup() {
+    appModel = new AppModel(DATA_FILENAME);
+  }
+
+  /**
+   * Test that verifies if aggregates by region match aggregates computed from the records of its countries
+   * and groups follow region names.
+   */
+  @Test
+  void givenRegionTableWhenAggregatingThenMatchRecordsOfCountries() {
+    var grouping = Grouping.byRegion("Region", Map.of("Poland", "Central", "Germany", "Central", "USA", "America"));
+    var poland = appModel.findCovidRecordsByCountry("Poland").get(0);
+    var germany = appModel.findCovidRecordsByCountry("Germany").get(0);
+
+    var groups = appModel.aggregateByGroup(grouping, CovidMetric.TOTAL_DEATHS).getGroups();
+
+    assertEquals(List.of("America", "Central", Grouping.UNKNOWN_GROUP),
+        groups.stream().map(GroupAggregation.Group::name).toList());
+    var central = groups.get(1);
+    assertEquals(2, central.count());
+    assertEquals(poland.getTotalDeaths() + germany.getTotalDeaths(), central.sum());
+    assertEquals(Math.min(poland.getTotalDeaths(), germany.getTotalDeaths()), central.min());
+    assertEquals(Math.max(poland.getTotalDeaths(), germany.getTotalDeaths()), central.max());
+    assertEquals((poland.getTotalDeaths() + germany.getTotalDeaths()) / 2.0,
+        central.getValue(AggregateFunction.AVERAGE), TOLERANCE);
+    assertEquals((poland.getTotalDeaths() + germany.getTotalDeaths()) * 1_000_000.0
+        / (poland.getPopulation() + germany.getPopulation()), central.perMillion(), TOLERANCE);
+    assertEquals(appModel.getCovidData().size() - 3, groups.get(2).count());
+  }
+
+  /**
+   * Test that verifies if grouping by continent covers every row and leaves only rows of ships ungrouped.
+   */
+  @Test
+  void givenCovidDataWhenAggregatingByContinentThenCoverAllRows() {
+    var totalDeaths = appModel.getCovidData().stream().mapToLong(CovidData::getTotalDeaths).sum();
+
+    var aggregation = appModel.aggregateByGroup(Grouping.byContinent(), CovidMetric.TOTAL_DEATHS);
+
+    var groups = aggregation.getGroups();
+    assertEquals(7, groups.size());
+    assertEquals(totalDeaths, groups.stream().mapToLong(GroupAggregation.Group::sum).sum());
+    assertEquals(appModel.getCovidData().size(), groups.stream().mapToLong(GroupAggregation.Group::count).sum());
+    assertEquals(Grouping.UNKNOWN_GROUP, groups.get(6).name());
+    assertEquals(2, groups.get(6).count());
+    assertEquals(Double.NaN, groups.get(6).perMillion());
+    var ordered = aggregation.getGroupsOrderedBy(AggregateFunction.PER_MILLION, true);
+    assertEquals(Grouping.UNKNOWN_GROUP, ordered.get(6).name());
+    for (var i = 1; i < 6; i++) {
+      assertTrue(ordered.get(i - 1).perMillion() >= ordered.get(i).perMillion());
+    }
+  }
+
+  /**
+   * Test that verifies if rows are put into population buckets by their bounds.
+   */
+  @Test
+  void givenPopulationBoundsWhenAggregatingThenCountRowsOfEachBucket() {
+    var records = appModel.getCovidData();
+    var expected = new long[4];
+    for (var record : records) {
+      var population = record.getPopulation();
+      expected[population <= 0 ? 3 : population < 1_000_000 ? 0 : population < 100_000_000 ? 1 : 2]++;
+    }
+
+    var groups = appModel.aggregateByGroup(Grouping.byPopulation(1_000_000, 100_000_000), CovidMetric.POPULATION)
+        .getGroups();
+
+    assertEquals(List.of("< 1000000", "1000000 - 99999999", ">= 100000000", Grouping.UNKNOWN_GROUP),
+        groups.stream().map(GroupAggregation.Group::name).toList());
+    for (var bucket = 0; bucket < expected.length; bucket++) {
+      assertEquals(expected[bucket], groups.get(bucket).count());
+    }
+    assertEquals(1_000_000.0, groups.get(1).perMillion(), TOLERANCE);
+  }
+
+  /**
+   * Test that verifies if ranges aggregated in parallel and merged give the same result as a single range.
+   */
+  @Test
+  void givenManyGroupsWhenAggregatingInParallelThenMatchSequentialAggregation() {
+    var random = new Random(7);
+    var keys = new long[100_000];
+    var values = new long[keys.length];
+    var populations = new long[keys.length];
+    for (var row = 0; row < keys.length; row++) {
+      keys[row] = random.nextInt(1000) * 31L - 500;
+      values[row] = random.nextInt(1_000_000) - 1000;
+      populations[row] = random.nextInt(3) == 0 ? 0 : random.nextInt(10_000_000);
+    }
+
+    var sequential = new GroupAggregationTask(keys, LongColumn.of(values), LongColumn.of(populations), 0,
+        keys.length, keys.length).compute();
+    var parallel = new GroupAggregationTask(keys, LongColumn.of(values), LongColumn.of(populations), 0,
+        keys.length, 1000).compute();
+
+    assertEquals(1000, sequential.size());
+    assertEquals(sequential.size(), parallel.size());
+    var parallelGroups = new HashMap<Long, GroupAggregation.Group>();
+    for (var group = 0; group < parallel.size(); group++) {
+      parallelGroups.put(parallel.key(group), parallel.toGroup(group, ""));
+    }
+    for (var group = 0; group < sequential.size(); group++) {
+      assertEquals(sequential.toGroup(group, ""), parallelGroups.get(sequential.key(group)));
+    }
+  }
+
+  /**
+   * Test that verifies if aggregations of several datasets merge into the aggregation of their rows.
+   */
+  @Test
+  void givenSeveralDatasetsWhenMergingAggregationsThenMatchAggregationOfAllRows() {
+    var dataset = appModel.getCovidDataset();
+    var grouping = Grouping.byContinent();
+    var metric = CovidMetric.ACTIVE_CASES;
+    var combined = new CovidDataset.Builder().addAll(dataset).addAll(dataset).build();
+
+    var expected = GroupAggregation.compute(combined, grouping, metric).getGroups();
+    var merged = GroupAggregation.compute(dataset, grouping, metric)
+        .merge(GroupAggregation.compute(dataset, grouping, metric)).getGroups();
+    var computed = GroupAggregation.compute(List.of(dataset, dataset), grouping, metric).getGroups();
+
+    assertEquals(expected, merged);
+    assertEquals(expected, computed);
+  }
+
+  /**
+   * Test that verifies if invalid bounds and merging different aggregations throw an exception.
+   */
+  @Test
+  void givenInvalidArgumentsWhenAggregatingThenThrowAppException() {
+    var dataset = appModel.getCovidDataset();
+    var deaths = GroupAggregation.compute(dataset, Grouping.byContinent(), CovidMetric.TOTAL_DEATHS);
+    var cases = GroupAggregation.compute(dataset, Grouping.byContinent(), CovidMetric.TOTAL_CASES);
+    var buckets = GroupAggregation.compute(dataset, Grouping.byPopulation(1000), CovidMetric.TOTAL_DEATHS);
+
+    assertThrows(AppException.class, () -> Grouping.byPopulation(10, 10));
+    assertThrows(AppException.class, () -> Grouping.byPopulation(0));
+    assertThrows(AppException.class, () -> deaths.merge(cases));
+    assertThrows(AppException.class, () -> deaths.merge(buckets));
+    assertEquals(deaths.getGroups().size(),
+        deaths.merge(GroupAggregation.compute(dataset, Grouping.byContinent(), CovidMetric.TOTAL_DEATHS))
+            .getGroups().size());
+  }
+}
@@ -0,0 +1,64 @@
+package pl.polsl.covid19.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test class for {@link LatencyHistogram}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class LatencyHistogramTest {
+
+  /**
+   * Test that verifies if every value falls into a bucket whose highest value is at most 1/16 larger.
+   *
+   * @param value tested value
+   */
+  @ParameterizedTest
+  @ValueSource(longs = {0, 1, 15, 16, 17, 31, 32, 33, 1_000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE})
+  void givenValueWhenGettingBucketThenBucketContainsValueWithinRelativeError(long value) {
+    var index = LatencyHistogram.bucketIndex(value);
+    var highest = LatencyHistogram.highestValueOfBucket(index);
+
+    assertTrue(highest >= value);
+    assertTrue(highest - value <= value / 16);
+    if (index > 0) {
+      assertTrue(LatencyHistogram.highestValueOfBucket(index - 1) < value);
+    }
+  }
+
+  /**
+   * Test that verifies if percentiles of recorded values are reported within relative error of buckets.
+   */
+  @Test
+  void givenRecordedValuesWhenGettingPercentilesThenReturnValuesWithinRelativeError() {
+    var histogram = new LatencyHistogram();
+    for (var i = 1; i <= 10_000; i++) {
+      histogram.record(i * 1_000L);
+    }
+
+    assertEquals(10_000, histogram.getCount());
+    assertEquals(5.0005, histogram.getMeanMillis(), 1e-9);
+    assertEquals(10.0, histogram.getMaxMillis(), 1e-9);
+    assertEquals(5.0, histogram.getP50Millis(), 5.0 / 16);
+    assertEquals(9.9, histogram.getP99Millis(), 9.9 / 16);
+    assertEquals(10.0, histogram.getValueAtPercentile(100.0) / 1_000_000.0, 1e-9);
+  }
+
+  /**
+   * Test that verifies if empty histogram reports zeros.
+   */
+  @Test
+  void givenEmptyHistogramWhenGettingPercentilesThenReturnZero() {
+    var histogram = new LatencyHistogram();
+
+    assertEquals(0, histogram.getCount());
+    assertEquals(0.0, histogram.getMeanMillis());
+    assertEquals(0.0, histogram.getP999Millis());
+  }
+}
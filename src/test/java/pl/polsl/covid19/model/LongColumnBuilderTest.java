@@ -0,0 +1,67 @@
+package pl.polsl.covid19.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.Random;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Test class for {@link LongColumnBuilder}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class LongColumnBuilderTest {
+
+  /**
+   * Test that verifies if values set and copied across many chunks are built into a column of the storage
+   * with the same values.
+   *
+   * @param storage tested storage
+   */
+  @ParameterizedTest
+  @EnumSource(ColumnStorage.class)
+  void givenValuesOfManyChunksWhenBuildingThenKeepValuesInStorage(ColumnStorage storage) {
+    var random = new Random(13);
+    var values = new long[10_000];
+    for (var i = 0; i < values.length; i++) {
+      values[i] = random.nextLong();
+    }
+    var source = LongColumn.of(values);
+    var builder = new LongColumnBuilder(storage);
+
+    for (var row = 0; row < 300; row++) {
+      builder.set(row, values[row]);
+    }
+    builder.copyFrom(source, 300, 300, 9000);
+    for (var row = 9300; row < values.length; row++) {
+      builder.set(row, values[row]);
+    }
+    var column = builder.build(values.length);
+
+    assertEquals(storage == ColumnStorage.OFF_HEAP, column.isOffHeap());
+    assertArrayEquals(values, column.toArray());
+  }
+
+  /**
+   * Test that verifies if a column filling its only chunk is built without copying and an empty builder
+   * builds an empty column.
+   *
+   * @param storage tested storage
+   */
+  @ParameterizedTest
+  @EnumSource(ColumnStorage.class)
+  void givenSingleFullChunkWhenBuildingThenKeepValues(ColumnStorage storage) {
+    var builder = new LongColumnBuilder(storage);
+    for (var row = 0; row < 256; row++) {
+      builder.set(row, row * 3L);
+    }
+
+    var column = builder.build(256);
+
+    assertEquals(256, column.size());
+    assertEquals(255 * 3L, column.get(255));
+    assertEquals(0, new LongColumnBuilder(storage).build(0).size());
+  }
+}
@@ -0,0 +1,68 @@
+package pl.polsl.covid19.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Test class for {@link LongColumn}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class LongColumnTest {
+
+  /**
+   * Test that verifies if columns of each storage keep set values and copy them in ranges.
+   *
+   * @param storage tested storage
+   */
+  @ParameterizedTest
+  @EnumSource(ColumnStorage.class)
+  void givenStorageWhenSettingValuesThenGetAndCopySameValues(ColumnStorage storage) {
+    var random = new Random(11);
+    var values = new long[1000];
+    for (var i = 0; i < values.length; i++) {
+      values[i] = random.nextLong();
+    }
+    var column = storage.allocate(values.length);
+
+    for (var row = 0; row < values.length; row++) {
+      column.set(row, values[row]);
+    }
+
+    assertEquals(storage == ColumnStorage.OFF_HEAP, column.isOffHeap());
+    assertEquals(values.length, column.size());
+    assertEquals(values[999], column.get(999));
+    assertArrayEquals(values, column.toArray());
+    assertArrayEquals(values, storage.copyOf(values, values.length).toArray());
+    var range = new long[12];
+    column.copyTo(500, range, 2, 10);
+    for (var i = 0; i < 10; i++) {
+      assertEquals(values[500 + i], range[2 + i]);
+    }
+  }
+
+  /**
+   * Test that verifies if wrapped buffer is read as little-endian values from its position.
+   */
+  @Test
+  void givenBufferWithHeaderWhenWrappingThenReadLittleEndianValuesAfterHeader() {
+    var buffer = ByteBuffer.allocateDirect(8 + 3 * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putLong(-1L).putLong(1L).putLong(Long.MIN_VALUE).putLong(0x0102030405060708L);
+    buffer.position(Long.BYTES);
+
+    var column = LongColumn.wrap(buffer);
+
+    assertTrue(column.isOffHeap());
+    assertFalse(LongColumn.of(new long[0]).isOffHeap());
+    assertArrayEquals(new long[] {1L, Long.MIN_VALUE, 0x0102030405060708L}, column.toArray());
+  }
+}
@@ -0,0 +1,145 @@
+package pl.polsl.covid19.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test class for {@link MappedCsvFileReader}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class MappedCsvFileReaderTest {
+
+  /**
+   * Name of file with covid data.
+   */
+  private static final String DATA_FILENAME = "CovidLive.csv";
+
+  /**
+   * Executor used by tested reader.
+   */
+  private ExecutorService executor;
+
+  /**
+   * Path of a copy of the data file in the filesystem.
+   */
+  private Path dataFile;
+
+  /**
+   * Records read sequentially from the data file.
+   */
+  private CovidDataset expectedRecords;
+
+  /**
+   * MappedCsvFileReaderTest setup.
+   *
+   * @param tempDir temporary directory for the data file copy
+   * @throws IOException if the data file cannot be copied
+   */
+  @BeforeEach
+  public void setup(@TempDir Path tempDir) throws IOException {
+    executor = Executors.newFixedThreadPool(4);
+    dataFile = tempDir.resolve(DATA_FILENAME);
+    try (var inputStream = new DataFile(DATA_FILENAME).open()) {
+      Files.copy(inputStream, dataFile);
+    }
+    try (var inputStream = Files.newInputStream(dataFile)) {
+      expectedRecords = new CsvFileReader().readCsvData(inputStream);
+    }
+  }
+
+  /**
+   * MappedCsvFileReaderTest cleanup.
+   */
+  @AfterEach
+  public void cleanup() {
+    executor.shutdown();
+  }
+
+  /**
+   * Test that verifies if records read in parallel chunks come in the same order as in sequential read.
+   *
+   * @param chunkSize minimal size of a chunk in bytes
+   */
+  @ParameterizedTest
+  @ValueSource(longs = {1, 100, 1000, 1024 * 1024})
+  void givenFileWhenReadingInChunksThenReturnRecordsInFileOrder(long chunkSize) {
+    var result = new MappedCsvFileReader(executor, 4, chunkSize).read(dataFile);
+
+    assertEquals(expectedRecords.size(), result.dataset().size());
+    for (int i = 0; i < expectedRecords.size(); i++) {
+      assertEquals(expectedRecords.get(i).getCountry(), result.dataset().get(i).getCountry());
+      assertEquals(expectedRecords.get(i).getTotalDeaths(), result.dataset().get(i).getTotalDeaths());
+      assertEquals(expectedRecords.get(i).getActiveCases(), result.dataset().get(i).getActiveCases());
+      assertEquals(expectedRecords.get(i).getTotalTests(), result.dataset().get(i).getTotalTests());
+    }
+  }
+
+  /**
+   * Test that verifies if reading the same file twice gives the same checksum.
+   */
+  @Test
+  void givenUnchangedFileWhenReadingTwiceThenReturnSameChecksum() {
+    var reader = new MappedCsvFileReader(executor, 4, 1000);
+    assertEquals(reader.read(dataFile).checksum(), reader.read(dataFile).checksum());
+  }
+
+  /**
+   * Test that verifies if app model reads data file given by filesystem path.
+   */
+  @Test
+  void givenFilesystemPathWhenCreatingAppModelThenReadData() {
+    var appModel = new AppModel(dataFile.toString());
+    assertEquals("USA", appModel.findCovidRecordWithHighestNumberOfDeaths().getCountry());
+    assertEquals(expectedRecords.size(), appModel.getCovidData().size());
+  }
+
+  /**
+   * Test that verifies if columns decoded on first use have the same values as columns decoded while reading,
+   * including quoted, negative, empty and malformed cells.
+   *
+   * @param tempDir temporary directory for the data file
+   * @throws IOException if the data file cannot be written
+   */
+  @Test
+  void givenLazyColumnsWhenReadingThenDecodeSameValuesOnFirstUse(@TempDir Path tempDir) throws IOException {
+    var path = tempDir.resolve("lazy.csv");
+    Files.writeString(path, """
+        #,Country,Total Cases,Total Deaths,New Deaths,Total Recovered,Active Cases,Serious Critical,\
+        Cases per 1M,Deaths per 1M,Total Tests,Tests per 1M,Population
+        1,"Korea, South","1,234",-5,,x1,"1""2",7,8,9,10,11,12\r
+        2,"Say \"\"Hi\"\"",1,2,3,4,5,6,7,8,9,10,11
+        3,Short,1,2
+        4,Last,99999999999999999999,1,2,3,4,5,6,7,8,9,"1,000\"""");
+    var eager = new MappedCsvFileReader(executor, 4, 1, false).read(path).dataset();
+    var lazy = new MappedCsvFileReader(executor, 4, 1, true).read(path).dataset();
+
+    assertFalse(lazy.isColumnDecoded(CovidMetric.TOTAL_CASES));
+    assertEquals(eager.size(), lazy.size());
+    for (var row = 0; row < eager.size(); row++) {
+      assertEquals(eager.getCountry(row), lazy.getCountry(row));
+    }
+    assertArrayEquals(eager.column(CovidMetric.TOTAL_CASES).toArray(), lazy.column(CovidMetric.TOTAL_CASES).toArray());
+    assertTrue(lazy.isColumnDecoded(CovidMetric.TOTAL_CASES));
+    assertFalse(lazy.isColumnDecoded(CovidMetric.POPULATION));
+    for (var metric : CovidMetric.values()) {
+      assertArrayEquals(eager.column(metric).toArray(), lazy.column(metric).toArray(), metric.name());
+    }
+    assertEquals(1234, lazy.getValue(CovidMetric.TOTAL_CASES, 0));
+    assertEquals(1000, lazy.getValue(CovidMetric.POPULATION, 3));
+  }
+}
@@ -0,0 +1,114 @@
+package pl.polsl.covid19.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link QuantileSketch}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class QuantileSketchTest {
+
+  /**
+   * Number of values added in the tests.
+   */
+  private static final int VALUE_COUNT = 1_000_000;
+
+  /**
+   * Test that verifies if quantiles of many values are within rank error and the sketch stays small.
+   */
+  @Test
+  void givenShuffledValuesWhenGettingQuantilesThenReturnValuesWithinRankError() {
+    var sketch = new QuantileSketch();
+    for (var value : shuffledValues(42)) {
+      sketch.update(value);
+    }
+
+    assertEquals(VALUE_COUNT, sketch.getCount());
+    assertTrue(sketch.getRetainedCount() < 4 * QuantileSketch.DEFAULT_K);
+    assertQuantilesWithinRankError(sketch);
+    assertEquals(0, sketch.getQuantile(0.0));
+    assertEquals(VALUE_COUNT - 1, sketch.getQuantile(1.0));
+  }
+
+  /**
+   * Test that verifies if merged sketches of parts of values are as accurate as a sketch of all values.
+   */
+  @Test
+  void givenSketchesOfChunksWhenMergingThenReturnQuantilesOfAllValues() {
+    var values = shuffledValues(7);
+    var merged = new QuantileSketch();
+    for (var chunk = 0; chunk < 10; chunk++) {
+      var sketch = new QuantileSketch();
+      for (var i = chunk * VALUE_COUNT / 10; i < (chunk + 1) * VALUE_COUNT / 10; i++) {
+        sketch.update(values[i]);
+      }
+      merged.merge(sketch);
+    }
+
+    assertEquals(VALUE_COUNT, merged.getCount());
+    assertQuantilesWithinRankError(merged);
+  }
+
+  /**
+   * Test that verifies if copy is not changed by updates of the original sketch.
+   */
+  @Test
+  void givenCopyWhenUpdatingOriginalThenCopyIsUnchanged() {
+    var sketch = new QuantileSketch();
+    sketch.update(5);
+    var copy = sketch.copy();
+
+    sketch.update(10);
+
+    assertEquals(1, copy.getCount());
+    assertEquals(5, copy.getQuantile(1.0));
+  }
+
+  /**
+   * Test that verifies if quantile of empty sketch or of invalid rank is rejected.
+   */
+  @Test
+  void givenEmptySketchOrInvalidRankWhenGettingQuantileThenThrowAppException() {
+    var sketch = new QuantileSketch();
+    assertThrows(AppException.class, () -> sketch.getQuantile(0.5));
+
+    sketch.update(1);
+    assertThrows(AppException.class, () -> sketch.getQuantile(1.5));
+    assertThrows(AppException.class, () -> sketch.getQuantile(Double.NaN));
+  }
+
+  /**
+   * Asserts that quantiles of values 0 to {@link #VALUE_COUNT} - 1 are within rank error of the sketch.
+   *
+   * @param sketch sketch of the values
+   */
+  private static void assertQuantilesWithinRankError(QuantileSketch sketch) {
+    for (var rank = 0.01; rank < 1.0; rank += 0.01) {
+      var estimatedRank = (double) sketch.getQuantile(rank) / VALUE_COUNT;
+      assertEquals(rank, estimatedRank, sketch.getNormalizedRankError());
+    }
+  }
+
+  /**
+   * Creates values 0 to {@link #VALUE_COUNT} - 1 in random order.
+   *
+   * @param seed seed of the order
+   * @return shuffled values
+   */
+  private static long[] shuffledValues(long seed) {
+    var random = new Random(seed);
+    var values = new long[VALUE_COUNT];
+    for (var i = 0; i < values.length; i++) {
+      var j = random.nextInt(i + 1);
+      values[i] = values[j];
+      values[j] = i;
+    }
+    return values;
+  }
+}
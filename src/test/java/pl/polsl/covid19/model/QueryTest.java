@@ -0,0 +1,197 @@
+package pl.polsl.covid19.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Test class for {@link Query}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class QueryTest {
+
+  /**
+   * Instance of queried dataset.
+   */
+  private CovidDataset dataset;
+
+  /**
+   * QueryTest setup.
+   */
+  @BeforeEach
+  public void setup() {
+    var csv = """
+        1,Poland,100,10,,50,200000,1,1,1,1,400000,1000
+        2,Portugal,200,30,,60,50000,1,1,1,1,900000,2000
+        3,Côte d'Ivoire,300,20,,70,150000,1,1,1,1,100000,3000
+        4,Peru,400,30,,80,120000,1,1,1,1,300000,4000
+        5,Chile,500,5,,90,300000,1,1,1,1,700000,5000
+        """;
+    dataset = new CsvFileReader().readCsvData(new ByteArrayInputStream(csv.getBytes(UTF_8)));
+  }
+
+  /**
+   * Runs a query and gets countries of the result.
+   *
+   * @param text text of the query
+   * @return countries of matching records in result order
+   */
+  private List<String> countries(String text) {
+    return Query.parse(text).execute(dataset).stream().map(CovidData::getCountry).toList();
+  }
+
+  /**
+   * Test that verifies if comparisons with constants keep matching records in data file order.
+   *
+   * @param text      text of the query
+   * @param countries expected countries separated by spaces
+   */
+  @ParameterizedTest
+  @CsvSource(delimiter = ';', value = {
+      "activeCases > 120000;Poland Côte d'Ivoire Chile",
+      "active >= 120000;Poland Côte d'Ivoire Peru Chile",
+      "where total_deaths = 30;Portugal Peru",
+      "deaths != 30;Poland Côte d'Ivoire Chile",
+      "deaths <> 30;Poland Côte d'Ivoire Chile",
+      "testsPer1M < 300000;Côte d'Ivoire",
+      "TESTS_PER_MILLION <= 300_000;Côte d'Ivoire Peru",
+      "population > -1 and population < 0;"})
+  void givenConstantComparisonWhenExecutingThenReturnMatchingRecords(String text, String countries) {
+    assertEquals(countries == null ? List.of() : List.of(countries.split(" (?=[A-Z])")), countries(text));
+  }
+
+  /**
+   * Test that verifies if and, or, not and parentheses are combined with usual precedence.
+   */
+  @Test
+  void givenLogicalOperatorsWhenExecutingThenCombineConditions() {
+    assertEquals(List.of("Poland", "Côte d'Ivoire", "Peru"),
+        countries("activeCases > 100000 and testsPer1M < 500000"));
+    assertEquals(List.of("Poland", "Portugal", "Chile"),
+        countries("deaths <= 5 or cases < 150 or population = 2000"));
+    assertEquals(List.of("Poland", "Chile"),
+        countries("deaths < 15 or deaths > 100 and cases > 0"));
+    assertEquals(List.of("Poland"), countries("(deaths < 15 or deaths > 100) and cases < 200"));
+    assertEquals(List.of("Portugal", "Côte d'Ivoire", "Peru"), countries("not (deaths < 15)"));
+    assertEquals(List.of("Chile"), countries("not deaths > 5 and not active < 100"));
+  }
+
+  /**
+   * Test that verifies if metrics can be compared with other metrics of the same record.
+   */
+  @Test
+  void givenColumnComparisonWhenExecutingThenCompareMetricsOfRecord() {
+    assertEquals(List.of("Côte d'Ivoire"), countries("active > testsPer1M"));
+    assertEquals(List.of("Poland", "Portugal", "Peru", "Chile"), countries("active <= tests_per_million"));
+  }
+
+  /**
+   * Test that verifies if country names are compared ignoring case and diacritics.
+   */
+  @Test
+  void givenCountryComparisonWhenExecutingThenCompareNormalizedNames() {
+    assertEquals(List.of("Côte d'Ivoire"), countries("country = \"cote d'ivoire\""));
+    assertEquals(List.of("Poland", "Chile"), countries("country = 'POLAND' or country == 'chile'"));
+    assertEquals(List.of("Portugal", "Peru"), countries("country != 'Poland' and deaths = 30"));
+  }
+
+  /**
+   * Test that verifies if records are ordered by many metrics with stable order of ties.
+   */
+  @Test
+  void givenOrderByWhenExecutingThenReturnOrderedRecords() {
+    assertEquals(List.of("Chile", "Poland", "Côte d'Ivoire", "Portugal", "Peru"), countries("order by deaths"));
+    assertEquals(List.of("Portugal", "Peru", "Côte d'Ivoire", "Poland", "Chile"),
+        countries("order by deaths desc"));
+    assertEquals(List.of("Peru", "Portugal", "Côte d'Ivoire", "Poland", "Chile"),
+        countries("order by deaths desc, cases desc"));
+    assertEquals(List.of("Portugal", "Peru", "Côte d'Ivoire", "Chile"),
+        countries("cases > 100 order by deaths desc, active asc"));
+  }
+
+  /**
+   * Test that verifies if limit and offset select a page of ordered and filtered records.
+   */
+  @Test
+  void givenLimitAndOffsetWhenExecutingThenReturnPage() {
+    assertEquals(List.of("Portugal", "Peru"), countries("order by deaths desc limit 2"));
+    assertEquals(List.of("Côte d'Ivoire", "Poland"), countries("order by deaths desc limit 2 offset 2"));
+    assertEquals(List.of("Poland", "Portugal"), countries("limit 2"));
+    assertEquals(List.of("Chile"), countries("limit 10 offset 4"));
+    assertEquals(List.of(), countries("limit 10 offset 10"));
+    assertEquals(List.of("Peru"), countries("order by deaths desc, cases desc limit 1"));
+    assertEquals(List.of("Portugal", "Côte d'Ivoire"), countries("order by deaths desc, cases desc limit 2 offset 1"));
+    assertEquals(List.of("Chile", "Poland"), countries("active > 100000 order by active desc limit 2"));
+    assertEquals(List.of("Côte d'Ivoire"),
+        countries("activeCases > 100000 and testsPer1M < 500000 order by deaths desc limit 1 offset 1"));
+  }
+
+  /**
+   * Test that verifies if selected metrics are kept in order of the query.
+   */
+  @Test
+  void givenSelectWhenParsingThenReturnSelectedMetrics() {
+    assertEquals(List.of(CovidMetric.POPULATION, CovidMetric.TOTAL_DEATHS),
+        Query.parse("select population, deaths where deaths > 0").getSelectedMetrics());
+    assertEquals(List.of(CovidMetric.values()), Query.parse("select * order by cases").getSelectedMetrics());
+    assertEquals(List.of(CovidMetric.values()), Query.parse("").getSelectedMetrics());
+    assertEquals(5, Query.parse("").execute(dataset).size());
+  }
+
+  /**
+   * Test that verifies if invalid queries are rejected with position of the error.
+   *
+   * @param text text of the query
+   */
+  @ParameterizedTest
+  @ValueSource(strings = {"deaths >", "deaths > 1.5", "unknown > 1", "deaths ! 1", "deaths > 1 and",
+      "(deaths > 1", "country > 'Poland'", "country = Poland", "country = 'Poland", "order deaths",
+      "limit -1", "limit 1 deaths > 1", "deaths > 1 # 2", "select where deaths > 1"})
+  void givenInvalidQueryWhenParsingThenThrowException(String text) {
+    var exception = assertThrows(AppException.class, () -> Query.parse(text));
+
+    assertTrue(exception.getMessage().startsWith("Invalid query at position "), exception.getMessage());
+  }
+
+  /**
+   * Test that verifies if deeply nested conditions are rejected instead of exhausting the stack, while
+   * conditions nested up to the limit are parsed.
+   */
+  @Test
+  void givenDeeplyNestedQueryWhenParsingThenThrowException() {
+    var depth = QueryParser.MAX_NESTING_DEPTH;
+    var allowed = "(".repeat(depth / 2) + "not ".repeat(depth / 2) + "deaths > 20" + ")".repeat(depth / 2);
+
+    assertEquals(countries("deaths > 20"), countries(allowed));
+    for (var text : List.of("(".repeat(6000) + "deaths > 1" + ")".repeat(6000), "not ".repeat(20_000) + "deaths > 1",
+        "(".repeat(depth + 1) + "deaths > 1" + ")".repeat(depth + 1))) {
+      var exception = assertThrows(AppException.class, () -> Query.parse(text));
+
+      assertTrue(exception.getMessage().startsWith("Query nested too deeply"), exception.getMessage());
+    }
+  }
+
+  /**
+   * Test that verifies if compiled queries are cached by their text.
+   */
+  @Test
+  void givenSameQueryTextWhenCompilingThenReturnCachedQuery() {
+    var appModel = new AppModel("CovidLive.csv", null);
+
+    var query = appModel.compileQuery("deaths > 10 order by cases");
+
+    assertTrue(query == appModel.compileQuery("deaths > 10 order by cases"));
+    assertTrue(query != appModel.compileQuery("deaths > 11 order by cases"));
+    assertEquals("deaths > 10 order by cases", query.toString());
+  }
+}
@@ -0,0 +1,198 @@
+package pl.polsl.covid19.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for {@link SnapshotFile}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class SnapshotFileTest {
+
+  /**
+   * Name of file with covid data.
+   */
+  private static final String DATA_FILENAME = "CovidLive.csv";
+
+  /**
+   * Stamp of the csv file the snapshot is created from.
+   */
+  private static final DataFile.Stamp STAMP = new DataFile.Stamp(1_600_000_000_000L, 12_345L);
+
+  /**
+   * Checksum of the csv file the snapshot is created from.
+   */
+  private static final long CHECKSUM = 0xCAFEL;
+
+  /**
+   * Data written to the snapshot.
+   */
+  private CovidDataset dataset;
+
+  /**
+   * Tested snapshot file.
+   */
+  private SnapshotFile snapshotFile;
+
+  /**
+   * SnapshotFileTest setup.
+   *
+   * @param tempDir temporary directory for the snapshot
+   */
+  @BeforeEach
+  public void setup(@TempDir Path tempDir) {
+    dataset = new CsvFileReader().readCsvFile(DATA_FILENAME);
+    snapshotFile = new SnapshotFile(tempDir.resolve("CovidLive.csv.c19snap"));
+  }
+
+  /**
+   * Test that verifies if snapshot read with off-heap storage maps its columns and holds the same data.
+   */
+  @Test
+  void givenOffHeapStorageWhenReadingSnapshotThenMapColumnsWithSameData() {
+    snapshotFile.write(dataset, CHECKSUM, STAMP);
+
+    var result = new SnapshotFile(snapshotFile.getPath(), ColumnStorage.OFF_HEAP).read(STAMP);
+
+    assertNotNull(result);
+    for (var metric : CovidMetric.values()) {
+      assertTrue(result.dataset().column(metric).isOffHeap());
+      assertArrayEquals(dataset.column(metric).toArray(), result.dataset().column(metric).toArray());
+    }
+    assertEquals(dataset.orderedBy(CovidMetric.TOTAL_DEATHS, true, 0, 10).get(0).getCountry(),
+        result.dataset().orderedBy(CovidMetric.TOTAL_DEATHS, true, 0, 10).get(0).getCountry());
+  }
+
+  /**
+   * Test that verifies if written snapshot is read back with the same data and checksum.
+   */
+  @Test
+  void givenWrittenSnapshotWhenReadingWithSameStampThenReturnSameData() {
+    snapshotFile.write(dataset, CHECKSUM, STAMP);
+
+    var result = snapshotFile.read(STAMP);
+
+    assertNotNull(result);
+    assertEquals(CHECKSUM, result.checksum());
+    assertEquals(dataset.size(), result.dataset().size());
+    for (var row = 0; row < dataset.size(); row++) {
+      assertEquals(dataset.getCountry(row), result.dataset().getCountry(row));
+      for (var metric : CovidMetric.values()) {
+        assertEquals(dataset.getValue(metric, row), result.dataset().getValue(metric, row));
+      }
+    }
+  }
+
+  /**
+   * Test that verifies if snapshot of empty data is read back.
+   */
+  @Test
+  void givenEmptyDataWhenWritingSnapshotThenReadEmptyData() {
+    snapshotFile.write(CovidDataset.EMPTY, CHECKSUM, STAMP);
+
+    var result = snapshotFile.read(STAMP);
+
+    assertNotNull(result);
+    assertEquals(0, result.dataset().size());
+  }
+
+  /**
+   * Test that verifies if snapshot created from a csv file of different stamp is not used.
+   */
+  @Test
+  void givenWrittenSnapshotWhenReadingWithDifferentStampThenReturnNull() {
+    snapshotFile.write(dataset, CHECKSUM, STAMP);
+
+    assertNull(snapshotFile.read(new DataFile.Stamp(STAMP.lastModified() + 1, STAMP.size())));
+    assertNull(snapshotFile.read(new DataFile.Stamp(STAMP.lastModified(), STAMP.size() + 1)));
+  }
+
+  /**
+   * Test that verifies if missing snapshot is not used.
+   */
+  @Test
+  void givenMissingSnapshotWhenReadingThenReturnNull() {
+    assertNull(snapshotFile.read(STAMP));
+  }
+
+  /**
+   * Test that verifies if snapshot with corrupted payload is not used.
+   *
+   * @throws IOException if the snapshot cannot be modified
+   */
+  @Test
+  void givenCorruptedPayloadWhenReadingThenReturnNull() throws IOException {
+    snapshotFile.write(dataset, CHECKSUM, STAMP);
+    try (var channel = FileChannel.open(snapshotFile.getPath(), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), SnapshotFile.HEADER_SIZE + 100);
+    }
+
+    assertNull(snapshotFile.read(STAMP));
+  }
+
+  /**
+   * Test that verifies if snapshot of a different format version is not used.
+   *
+   * @throws IOException if the snapshot cannot be modified
+   */
+  @Test
+  void givenDifferentFormatVersionWhenReadingThenReturnNull() throws IOException {
+    snapshotFile.write(dataset, CHECKSUM, STAMP);
+    try (var channel = FileChannel.open(snapshotFile.getPath(), StandardOpenOption.WRITE)) {
+      var version = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+          .putInt(SnapshotFile.FORMAT_VERSION + 1).flip();
+      channel.write(version, Integer.BYTES);
+    }
+
+    assertNull(snapshotFile.read(STAMP));
+  }
+
+  /**
+   * Test that verifies if truncated snapshot is not used.
+   *
+   * @throws IOException if the snapshot cannot be modified
+   */
+  @Test
+  void givenTruncatedSnapshotWhenReadingThenReturnNull() throws IOException {
+    snapshotFile.write(dataset, CHECKSUM, STAMP);
+    try (var channel = FileChannel.open(snapshotFile.getPath(), StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 1);
+    }
+
+    assertNull(snapshotFile.read(STAMP));
+  }
+
+  /**
+   * Test that verifies if writing a snapshot replaces the previous one without leaving temporary files.
+   *
+   * @throws IOException if the directory cannot be listed
+   */
+  @Test
+  void givenExistingSnapshotWhenWritingThenReplaceIt() throws IOException {
+    snapshotFile.write(dataset, CHECKSUM, STAMP);
+    snapshotFile.write(CovidDataset.EMPTY, CHECKSUM + 1, STAMP);
+
+    var result = snapshotFile.read(STAMP);
+
+    assertEquals(0, result.dataset().size());
+    assertEquals(CHECKSUM + 1, result.checksum());
+    try (var files = Files.list(snapshotFile.getPath().getParent())) {
+      assertEquals(1, files.count());
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package pl.polsl.covid19.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for {@link SyntheticCsvGenerator}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.0
+ */
+class SyntheticCsvGeneratorTest {
+
+  /**
+   * Name of file with covid data.
+   */
+  private static final String DATA_FILENAME = "CovidLive.csv";
+
+  /**
+   * Test that verifies if generated data starts with the header of the shipped data file.
+   *
+   * @throws IOException if the data cannot be written
+   */
+  @Test
+  void givenGeneratorWhenWritingRowsThenStartWithHeaderOfDataFile() throws IOException {
+    String expectedHeader;
+    try (var inputStream = new DataFile(DATA_FILENAME).open()) {
+      var content = new String(inputStream.readAllBytes(), UTF_8);
+      expectedHeader = content.substring(0, content.indexOf('\n'));
+    }
+
+    var content = new String(generate(new SyntheticCsvGenerator(1L), 10), UTF_8);
+
+    assertEquals(expectedHeader, content.substring(0, content.indexOf('\n')));
+  }
+
+  /**
+   * Test that verifies if the same seed generates the same data and different seeds generate different data.
+   *
+   * @throws IOException if the data cannot be written
+   */
+  @Test
+  void givenSeedWhenWritingRowsThenGenerateDeterministicData() throws IOException {
+    var first = generate(new SyntheticCsvGenerator(7L, 100, 1.0, 0.1), 5_000);
+    var second = generate(new SyntheticCsvGenerator(7L, 100, 1.0, 0.1), 5_000);
+    var other = generate(new SyntheticCsvGenerator(8L, 100, 1.0, 0.1), 5_000);
+
+    assertArrayEquals(first, second);
+    assertFalse(Arrays.equals(first, other));
+  }
+
+  /**
+   * Test that verifies if generated rows are consistent and readable by csvFileReader.
+   *
+   * @throws IOException if the data cannot be written
+   */
+  @Test
+  void givenCleanDataWhenReadingGeneratedRowsThenReturnConsistentRecords() throws IOException {
+    var data = new CsvFileReader().readCsvData(new ByteArrayInputStream(
+        generate(new SyntheticCsvGenerator(3L, 50, 0.0, 0.0), 20_000)));
+
+    assertEquals(20_000, data.size());
+    for (var record : data.asList()) {
+      assertTrue(record.getPopulation() > 0);
+      assertTrue(record.getTotalDeaths() <= record.getTotalCases());
+      assertEquals(record.getTotalCases(),
+          record.getTotalDeaths() + record.getTotalRecovered() + record.getActiveCases());
+      assertTrue(record.getTotalTests() >= record.getTotalCases());
+    }
+  }
+
+  /**
+   * Test that verifies if skew makes the most frequent country dominate the data.
+   *
+   * @throws IOException if the data cannot be written
+   */
+  @Test
+  void givenSkewWhenWritingRowsThenMostFrequentCountryDominates() throws IOException {
+    var uniform = maxCountryFrequency(new SyntheticCsvGenerator(5L, 100, 0.0, 0.0));
+    var skewed = maxCountryFrequency(new SyntheticCsvGenerator(5L, 100, 2.0, 0.0));
+
+    assertTrue(uniform < 0.05, "uniform frequency " + uniform);
+    assertTrue(skewed > 0.5, "skewed frequency " + skewed);
+  }
+
+  /**
+   * Test that verifies if streaming and opencsv parsers read the same dirty data.
+   *
+   * @throws IOException if the data cannot be written
+   */
+  @Test
+  void givenDirtyDataWhenReadingWithBothParsersThenReturnSameData() throws IOException {
+    var content = generate(new SyntheticCsvGenerator(11L, 500, 1.0, 0.3), 5_000);
+
+    var streamingData = new CsvFileReader(CsvFileReader.Parser.STREAMING)
+        .readCsvData(new ByteArrayInputStream(content));
+    var openCsvData = new CsvFileReader(CsvFileReader.Parser.OPENCSV)
+        .readCsvData(new ByteArrayInputStream(content));
+
+    assertEquals(5_000, streamingData.size());
+    assertEquals(openCsvData.size(), streamingData.size());
+    var zeros = 0;
+    for (var row = 0; row < streamingData.size(); row++) {
+      assertEquals(openCsvData.getCountry(row), streamingData.getCountry(row));
+      for (var metric : CovidMetric.values()) {
+        assertEquals(openCsvData.getValue(metric, row), streamingData.getValue(metric, row));
+        if (streamingData.getValue(metric, row) == 0) {
+          zeros++;
+        }
+      }
+    }
+    assertTrue(zeros > 5_000 * CovidMetric.values().length / 5, "zeros " + zeros);
+  }
+
+  /**
+   * Test that verifies if writing by size stops after the first complete row reaching the size.
+   *
+   * @throws IOException if the data cannot be written
+   */
+  @Test
+  void givenSizeWhenWritingBytesThenWriteCompleteRowsReachingSize() throws IOException {
+    var outputStream = new ByteArrayOutputStream();
+
+    var rows = new SyntheticCsvGenerator(2L).writeBytes(outputStream, 1_000_000);
+
+    var content = outputStream.toByteArray();
+    assertTrue(content.length >= 1_000_000);
+    assertTrue(content.length < 1_000_000 + 64 * 1024);
+    assertEquals('\n', content[content.length - 1]);
+    assertEquals(rows, new CsvFileReader().readCsvData(new ByteArrayInputStream(content)).size());
+  }
+
+  /**
+   * Test that verifies if generator throws correct exception when incorrect parameters provided.
+   */
+  @Test
+  void givenIncorrectParametersWhenCreatingGeneratorThenThrowAppException() {
+    assertThrows(AppException.class, () -> new SyntheticCsvGenerator(1L, 0, 1.0, 0.0));
+    assertThrows(AppException.class, () -> new SyntheticCsvGenerator(1L, 10, -1.0, 0.0));
+    assertThrows(AppException.class, () -> new SyntheticCsvGenerator(1L, 10, 1.0, 1.5));
+    assertThrows(AppException.class, () -> new SyntheticCsvGenerator(1L).writeRows(new ByteArrayOutputStream(), -1));
+  }
+
+  /**
+   * Generates given number of rows into memory.
+   *
+   * @param generator generator of the data
+   * @param rows      number of rows
+   * @return generated csv data
+   * @throws IOException if the data cannot be written
+   */
+  private byte[] generate(SyntheticCsvGenerator generator, int rows) throws IOException {
+    var outputStream = new ByteArrayOutputStream();
+    generator.writeRows(outputStream, rows);
+    return outputStream.toByteArray();
+  }
+
+  /**
+   * Calculates frequency of the most frequent country in generated data.
+   *
+   * @param generator generator of the data
+   * @return frequency of the most frequent country
+   * @throws IOException if the data cannot be written
+   */
+  private double maxCountryFrequency(SyntheticCsvGenerator generator) throws IOException {
+    var rows = 10_000;
+    var data = new CsvFileReader().readCsvData(new ByteArrayInputStream(generate(generator, rows)));
+    var counts = new HashMap<String, Integer>();
+    for (var row = 0; row < data.size(); row++) {
+      counts.merge(data.getCountry(row), 1, Integer::sum);
+    }
+    return counts.values().stream().mapToInt(Integer::intValue).max().orElse(0) / (double) rows;
+  }
+}
@@ -0,0 +1,232 @@
+package pl.polsl.covid19.model;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for {@link TimeSeriesStore}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class TimeSeriesStoreTest {
+
+  /**
+   * First day of the test data.
+   */
+  private static final LocalDate FIRST_DAY = LocalDate.of(2022, 10, 1);
+
+  /**
+   * Instance of tested store.
+   */
+  private TimeSeriesStore store;
+
+  /**
+   * TimeSeriesStoreTest setup.
+   */
+  @BeforeEach
+  public void setup() {
+    store = new TimeSeriesStore();
+  }
+
+  /**
+   * Test that verifies if range query returns values of the country between the dates.
+   */
+  @Test
+  void givenAppendedDaysWhenQueryingRangeThenReturnValuesBetweenDates() {
+    for (var day = 0; day < 40; day++) {
+      store.appendDay(FIRST_DAY.plusDays(day), dataset(1000 + day * 10, 5 + day, 7));
+    }
+
+    var range = store.getRange("Poland", CovidMetric.TOTAL_DEATHS, FIRST_DAY.plusDays(10), FIRST_DAY.plusDays(19));
+
+    assertEquals(10, range.size());
+    for (var i = 0; i < range.size(); i++) {
+      assertEquals(FIRST_DAY.plusDays(10 + i), range.getDate(i));
+      assertEquals(1000 + (10 + i) * 10, range.getValue(i));
+    }
+    assertEquals(7, store.getRange("Chile", CovidMetric.TOTAL_DEATHS, FIRST_DAY, FIRST_DAY).getValue(0));
+    assertEquals(40, store.getDayCount());
+    assertEquals(2, store.getCountryCount());
+    assertEquals(FIRST_DAY.plusDays(39), store.getLastDate());
+  }
+
+  /**
+   * Test that verifies if sketches of appended days are merged into aggregates of the whole history.
+   */
+  @Test
+  void givenAppendedDaysWhenEstimatingAggregatesThenCoverAllDays() {
+    for (var day = 0; day < 40; day++) {
+      store.appendDay(FIRST_DAY.plusDays(day), dataset(1000 + day * 10, 5 + day, 7));
+    }
+
+    var sketches = store.getSketches();
+    var heavyHitters = sketches.estimateHeavyHitters(CovidMetric.TOTAL_DEATHS, 2);
+
+    assertEquals(80, sketches.getRowCount());
+    assertEquals(2, sketches.estimateDistinctCountries().value());
+    assertEquals(7, sketches.estimateQuantile(CovidMetric.TOTAL_DEATHS, 0.5).value());
+    assertEquals("Poland", heavyHitters.get(0).country());
+    assertTrue(heavyHitters.get(0).total().lowerBound() <= 47_800);
+    assertTrue(heavyHitters.get(0).total().upperBound() >= 47_800);
+    assertEquals("Chile", heavyHitters.get(1).country());
+  }
+
+  /**
+   * Test that verifies if the new deaths column can be queried.
+   */
+  @Test
+  void givenAppendedDaysWhenQueryingNewDeathsThenReturnNewDeaths() {
+    store.appendDay(FIRST_DAY, dataset(1000, 12, 0));
+    store.appendDay(FIRST_DAY.plusDays(1), dataset(1012, 9, 0));
+
+    var range = store.getRange("Poland", CovidMetric.NEW_DEATHS, FIRST_DAY, FIRST_DAY.plusDays(1));
+
+    assertEquals(2, range.size());
+    assertEquals(12, range.getValue(0));
+    assertEquals(9, range.getValue(1));
+    assertEquals(21, range.sum());
+  }
+
+  /**
+   * Test that verifies if daily deltas are differences from the previous stored day, also preceding the range.
+   */
+  @Test
+  void givenAppendedDaysWhenQueryingDeltasThenReturnDifferencesFromPreviousDay() {
+    store.appendDay(FIRST_DAY, dataset(1000, 0, 0));
+    store.appendDay(FIRST_DAY.plusDays(1), dataset(1010, 0, 0));
+    store.appendDay(FIRST_DAY.plusDays(3), dataset(1050, 0, 0));
+
+    var allDeltas = store.getDailyDeltas("Poland", CovidMetric.TOTAL_DEATHS, FIRST_DAY, FIRST_DAY.plusDays(3));
+    var lastDelta = store.getDailyDeltas("Poland", CovidMetric.TOTAL_DEATHS, FIRST_DAY.plusDays(2),
+        FIRST_DAY.plusDays(3));
+
+    assertEquals(2, allDeltas.size());
+    assertEquals(FIRST_DAY.plusDays(1), allDeltas.getDate(0));
+    assertEquals(10, allDeltas.getValue(0));
+    assertEquals(40, allDeltas.getValue(1));
+    assertEquals(1, lastDelta.size());
+    assertEquals(FIRST_DAY.plusDays(3), lastDelta.getDate(0));
+    assertEquals(40, lastDelta.getValue(0));
+  }
+
+  /**
+   * Test that verifies if queries of unknown countries or dates without data return empty series.
+   */
+  @Test
+  void givenUnknownCountryOrDatesWhenQueryingThenReturnEmptySeries() {
+    store.appendDay(FIRST_DAY, dataset(1000, 0, 0));
+
+    assertEquals(0, store.getRange("Atlantis", CovidMetric.TOTAL_DEATHS, FIRST_DAY, FIRST_DAY).size());
+    assertEquals(0, store.getRange("Poland", CovidMetric.TOTAL_DEATHS, FIRST_DAY.plusDays(1),
+        FIRST_DAY.plusDays(5)).size());
+    assertEquals(0, store.getRange("Poland", CovidMetric.TOTAL_DEATHS, FIRST_DAY, FIRST_DAY.minusDays(1)).size());
+    assertEquals(0, store.getDailyDeltas("Poland", CovidMetric.TOTAL_DEATHS, FIRST_DAY, FIRST_DAY).size());
+  }
+
+  /**
+   * Test that verifies if days cannot be appended out of order.
+   */
+  @Test
+  void givenAppendedDayWhenAppendingEarlierOrSameDayThenThrowAppException() {
+    store.appendDay(FIRST_DAY, dataset(1000, 0, 0));
+
+    assertThrows(AppException.class, () -> store.appendDay(FIRST_DAY, dataset(1000, 0, 0)));
+    assertThrows(AppException.class, () -> store.appendDay(FIRST_DAY.minusDays(1), dataset(1000, 0, 0)));
+    assertEquals(1, store.getDayCount());
+  }
+
+  /**
+   * Test that verifies if the last row of a country occurring more than once in a day is stored.
+   */
+  @Test
+  void givenRepeatedCountryWhenAppendingDayThenStoreLastRow() {
+    store.appendDay(FIRST_DAY, readCsv("1,Poland,1,5,,1,1,1,1,1,1,1,1\n2,Poland,1,6,,1,1,1,1,1,1,1,1\n"));
+
+    var range = store.getRange("Poland", CovidMetric.TOTAL_DEATHS, FIRST_DAY, FIRST_DAY);
+
+    assertEquals(1, range.size());
+    assertEquals(6, range.getValue(0));
+  }
+
+  /**
+   * Test that verifies if appending a directory appends only days after the last stored day.
+   *
+   * @param tempDir directory with daily data files
+   * @throws IOException if the files cannot be written
+   */
+  @Test
+  void givenDirectoryWhenAppendingAgainThenAppendOnlyNewDays(@TempDir Path tempDir) throws IOException {
+    writeDay(tempDir, FIRST_DAY.plusDays(1), 1010);
+    writeDay(tempDir, FIRST_DAY, 1000);
+    Files.writeString(tempDir.resolve("notes.csv"), "not a daily file");
+
+    assertEquals(2, store.appendDirectory(tempDir));
+    writeDay(tempDir, FIRST_DAY.plusDays(2), 1025);
+    assertEquals(1, store.appendDirectory(tempDir));
+    assertEquals(0, store.appendDirectory(tempDir));
+
+    var range = store.getRange("Poland", CovidMetric.TOTAL_DEATHS, FIRST_DAY, FIRST_DAY.plusDays(2));
+    assertEquals(3, range.size());
+    assertEquals(1000, range.getValue(0));
+    assertEquals(1010, range.getValue(1));
+    assertEquals(1025, range.getValue(2));
+  }
+
+  /**
+   * Test that verifies if dates are found in names of daily data files.
+   */
+  @Test
+  void givenFilenameWhenParsingDateThenReturnDateOrNull() {
+    assertEquals(LocalDate.of(2022, 10, 5), TimeSeriesStore.parseDate("CovidLive-2022-10-05.csv"));
+    assertNull(TimeSeriesStore.parseDate("CovidLive.csv"));
+    assertNull(TimeSeriesStore.parseDate("CovidLive-2022-13-45.csv"));
+  }
+
+  /**
+   * Creates data of a day.
+   *
+   * @param polandDeaths    total deaths in Poland
+   * @param polandNewDeaths new deaths in Poland
+   * @param chileDeaths     total deaths in Chile
+   * @return data of the day
+   */
+  private CovidDataset dataset(long polandDeaths, long polandNewDeaths, long chileDeaths) {
+    return readCsv("1,Poland,1," + polandDeaths + "," + polandNewDeaths + ",1,1,1,1,1,1,1,1\n"
+        + "2,Chile,1," + chileDeaths + ",,1,1,1,1,1,1,1,1\n");
+  }
+
+  /**
+   * Reads csv data from a string.
+   *
+   * @param csv csv data
+   * @return read data
+   */
+  private CovidDataset readCsv(String csv) {
+    return new CsvFileReader().readCsvData(new ByteArrayInputStream(csv.getBytes(UTF_8)));
+  }
+
+  /**
+   * Writes a daily data file.
+   *
+   * @param directory    directory of the file
+   * @param date         date of the file
+   * @param polandDeaths total deaths in Poland
+   * @throws IOException if the file cannot be written
+   */
+  private void writeDay(Path directory, LocalDate date, long polandDeaths) throws IOException {
+    Files.writeString(directory.resolve("CovidLive-" + date + ".csv"),
+        "#,Country\n1,Poland,1," + polandDeaths + ",,1,1,1,1,1,1,1,1\n");
+  }
+}
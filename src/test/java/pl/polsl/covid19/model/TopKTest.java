@@ -0,0 +1,80 @@
+package pl.polsl.covid19.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Test class for {@link TopK}.
+ *
+ * @author Krzysztof Franków
+ * @version 1.1
+ */
+class TopKTest {
+
+  /**
+   * Test that verifies if the heap keeps the same rows as the beginning of a stable sort.
+   *
+   * @param k          number of kept rows
+   * @param descending true to keep the highest values
+   */
+  @ParameterizedTest
+  @CsvSource({"1, true", "10, true", "10, false", "999, true", "1500, false"})
+  void givenRandomValuesWhenOfferingThenKeepBeginningOfStableSort(int k, boolean descending) {
+    var random = new Random(k);
+    var values = new long[1000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextInt(50);
+    }
+    var topK = new TopK(k, descending);
+    for (int row = 0; row < values.length; row++) {
+      topK.offer(values[row], row);
+    }
+
+    var expected = ColumnSort.sortedRows(LongColumn.of(values), values.length, descending);
+    assertArrayEquals(Arrays.copyOf(expected, Math.min(k, values.length)), topK.drain().rows());
+  }
+
+  /**
+   * Test that verifies if heap and row handler with capacity much larger than the data keep all rows in order.
+   */
+  @Test
+  void givenCapacityMuchLargerThanRowsWhenOfferingThenKeepAllRowsInOrder() {
+    var values = new long[] {4, 9, 1, 9, 7};
+    var topK = new TopK(Integer.MAX_VALUE, true);
+    var handler = new TopKRowHandler(CovidMetric.TOTAL_DEATHS, Integer.MAX_VALUE, true);
+    var rowValues = new long[CsvRowParser.COLUMN_COUNT];
+    for (int row = 0; row < values.length; row++) {
+      topK.offer(values[row], row);
+      rowValues[CovidMetric.TOTAL_DEATHS.getCsvColumn()] = values[row];
+      handler.onRow("Country " + row, rowValues);
+    }
+
+    assertArrayEquals(new int[] {1, 3, 4, 0, 2}, topK.drain().rows());
+    var dataset = handler.toDataset();
+    assertEquals(values.length, dataset.size());
+    assertEquals("Country 1", dataset.getCountry(0));
+    assertEquals("Country 3", dataset.getCountry(1));
+    assertEquals(1, dataset.getValue(CovidMetric.TOTAL_DEATHS, 4));
+  }
+
+  /**
+   * Test that verifies if slots of evicted rows are reused.
+   */
+  @Test
+  void givenFullHeapWhenOfferingBetterRowThenReuseSlotOfEvictedRow() {
+    var topK = new TopK(2, true);
+    assertEquals(0, topK.offer(5, 0));
+    assertEquals(1, topK.offer(3, 1));
+    assertEquals(-1, topK.offer(1, 2));
+    assertEquals(1, topK.offer(7, 3));
+
+    var result = topK.drain();
+    assertArrayEquals(new int[] {3, 0}, result.rows());
+    assertArrayEquals(new int[] {1, 0}, result.slots());
+  }
+}